@@ -0,0 +1,360 @@
+package edu.utdallas.mavs.divas.core.client;
+
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSPayload;
+import edu.utdallas.mavs.divas.mts.Subscriber;
+import edu.utdallas.mavs.divas.utils.Multithreader;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+
+/**
+ * This class manages the subscriptions of a client to the cell updates, so that the client only receives the cells it
+ * shows.
+ * <p>
+ * Each cell publishes its updates on its own topic (see {@link CellID#getUpdateTopic()}). Until the client sets the
+ * region it shows, it receives the updates of all the cells. Afterwards, it subscribes to the topics of the leaf cells
+ * intersecting that region, to the topics of their ancestors, which publish in their place after a merge, and to all
+ * the subtopics of their topics, which their children publish after a split. The cell maps carried by the updates keep
+ * the cells in view up to date as the environment is reorganized. The updates of the other cells are not delivered to
+ * the client at all.
+ * <p>
+ * A keyframe is requested for the cells that come into view, since the updates in between keyframes only carry the
+ * entities that changed. No message removes the agents that move from a cell in view to a cell out of view, so they
+ * are reported by {@link #cellReceived(CellStateDto)} once they did not show up in any cell in view for a whole
+ * cycle. The subscriptions are changed in background, since the messaging system may wait for the subscriber to handle
+ * its current message before it removes a subscription.
+ */
+public class CellInterestManager
+{
+    private final static Logger        logger           = LoggerFactory.getLogger(CellInterestManager.class);
+
+    private final SimAdapter           simAdapter;
+
+    private final Subscriber           subscriber;
+
+    private final Multithreader        multithreader    = new Multithreader("CellInterestThrd", ThreadPoolType.FIXED, 1, true);
+
+    private Shape                      view;
+
+    private CellMap                    cellMap;
+
+    /**
+     * The bounds of the leaf cells in view, or <code>null</code> when the client receives all the cells
+     */
+    private Map<CellID, CellBounds>    visibleCells;
+
+    private boolean                    visibilityChanged;
+
+    /**
+     * The topics the client should be subscribed to, and the cells in view whose keyframe was not requested yet
+     */
+    private Set<String>                topics           = Collections.emptySet();
+
+    private final List<CellID>         keyframeCells    = new ArrayList<CellID>();
+
+    /**
+     * The topics the client is subscribed to. Only used by the multithreader.
+     */
+    private final Set<String>          subscribedTopics = new HashSet<String>();
+
+    /**
+     * The cycle being received, the agents received in that cycle, and the cycle in which each agent that left a cell
+     * in view was last received
+     */
+    private long                       cycle            = -1;
+
+    private final Set<Integer>         receivedAgents   = new HashSet<Integer>();
+
+    private final Map<Integer, Long>   leavingAgents    = new HashMap<Integer, Long>();
+
+    /**
+     * Creates a new interest manager.
+     *
+     * @param simAdapter
+     *        the adapter used to subscribe to the cell updates
+     * @param handler
+     *        the handler of the cell updates. It is notified of one update at a time, whatever the number of topics
+     *        the updates are received on.
+     */
+    public CellInterestManager(SimAdapter simAdapter, final Subscriber handler)
+    {
+        this.simAdapter = simAdapter;
+        this.subscriber = new Subscriber()
+        {
+            @Override
+            public void messageReceived(String topic, MTSPayload payload)
+            {
+                synchronized(this)
+                {
+                    handler.messageReceived(topic, payload);
+                }
+            }
+        };
+    }
+
+    /**
+     * Subscribes to the updates of all the cells.
+     */
+    public synchronized void start()
+    {
+        view = null;
+        refresh();
+    }
+
+    /**
+     * Unsubscribes from the cell updates.
+     */
+    public synchronized void stop()
+    {
+        setTopics(Collections.<String> emptySet());
+    }
+
+    /**
+     * Sets the region shown by the client. The client then only receives the updates of the cells intersecting that
+     * region.
+     *
+     * @param view
+     *        the region shown, in the (x, z) plane of the environment, or <code>null</code> to receive all the cells
+     */
+    public synchronized void setView(Shape view)
+    {
+        this.view = view;
+        refresh();
+    }
+
+    /**
+     * Notifies the manager of a cell update received by the client. Must be called by the handler of the cell
+     * updates for each update, in the order they are received.
+     *
+     * @param cell
+     *        the received cell update
+     * @return the IDs of the agents that left the cells in view, which should be removed by the client
+     */
+    public synchronized List<Integer> cellReceived(CellStateDto cell)
+    {
+        List<Integer> departedAgents = Collections.emptyList();
+
+        if(cell.getCycleNumber() > cycle)
+        {
+            // the agents that left in a previous cycle had a whole cycle to show up in another cell in view
+            for(Iterator<Map.Entry<Integer, Long>> it = leavingAgents.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<Integer, Long> agent = it.next();
+                if(agent.getValue() < cycle)
+                {
+                    if(departedAgents.isEmpty())
+                        departedAgents = new ArrayList<Integer>();
+                    departedAgents.add(agent.getKey());
+                    it.remove();
+                }
+            }
+            receivedAgents.clear();
+            cycle = cell.getCycleNumber();
+        }
+
+        for(AgentState agent : cell.getAgentStates())
+        {
+            receivedAgents.add(agent.getID());
+            leavingAgents.remove(agent.getID());
+        }
+
+        if(visibleCells != null)
+        {
+            for(Integer agent : cell.getRemovedAgents())
+            {
+                if(!receivedAgents.contains(agent))
+                    leavingAgents.put(agent, cell.getCycleNumber());
+            }
+        }
+
+        // deltas only carry the cell map after a split or merge
+        if(cell.getCellMap() != null && cell.getCellMap() != cellMap)
+        {
+            cellMap = cell.getCellMap();
+            refresh();
+        }
+
+        return departedAgents;
+    }
+
+    /**
+     * Checks if the cells in view changed since the last call, so that the client may remove the entities out of
+     * view.
+     *
+     * @return true if the cells in view changed. Otherwise, false.
+     */
+    public synchronized boolean visibilityChanged()
+    {
+        boolean changed = visibilityChanged;
+        visibilityChanged = false;
+        return changed;
+    }
+
+    /**
+     * Checks if a position is in one of the cells in view.
+     *
+     * @param position
+     *        the position
+     * @return true if the client receives the updates of the cell containing the position. Otherwise, false.
+     */
+    public synchronized boolean isVisible(Vector3f position)
+    {
+        if(visibleCells == null)
+            return true;
+
+        for(CellBounds bounds : visibleCells.values())
+        {
+            if(bounds.contains(position.x, position.z))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of cells whose updates are received in each cycle.
+     *
+     * @return the number of leaf cells in view, or the number of leaf cells if the client receives all the cells
+     */
+    public synchronized int getVisibleCellCount()
+    {
+        if(visibleCells != null)
+            return visibleCells.size();
+        return cellMap == null ? 0 : cellMap.getLeafBounds().size();
+    }
+
+    /**
+     * Computes the cells in view and the topics to subscribe to.
+     */
+    private void refresh()
+    {
+        if(view == null || cellMap == null)
+        {
+            if(visibleCells != null)
+            {
+                visibleCells = null;
+                visibilityChanged = true;
+            }
+            setTopics(Collections.singleton(DivasTopic.getAllSubtopics(DivasTopic.envTopic)));
+            return;
+        }
+
+        Map<CellID, CellBounds> leafBounds = cellMap.getLeafBounds();
+        Map<CellID, CellBounds> cells = new HashMap<CellID, CellBounds>();
+        Set<String> topics = new HashSet<String>();
+
+        for(CellID id : cellMap.getCellsIntersecting(CellID.rootID(), view))
+        {
+            CellBounds bounds = leafBounds.get(id);
+            if(bounds == null)
+                continue;
+
+            cells.put(id, bounds);
+            topics.add(id.getUpdateTopic());
+            topics.add(DivasTopic.getAllSubtopics(id.getUpdateTopic()));
+            for(CellID ancestor = id; ancestor.getLevel() > 0;)
+            {
+                ancestor = ancestor.getParentID();
+                topics.add(ancestor.getUpdateTopic());
+            }
+
+            // the client already receives the cells that replaced a cell in view
+            if(visibleCells != null && !wasVisible(id))
+                keyframeCells.add(id);
+        }
+
+        if(!cells.keySet().equals(visibleCells == null ? null : visibleCells.keySet()))
+        {
+            visibleCells = cells;
+            visibilityChanged = true;
+        }
+        setTopics(topics);
+    }
+
+    /**
+     * Checks if a cell, one of its ancestors or one of its descendants was in view.
+     */
+    private boolean wasVisible(CellID id)
+    {
+        for(CellID visible : visibleCells.keySet())
+        {
+            if(visible.equals(id) || visible.isAncestorOf(id) || visible.isDescendantOf(id))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the topics to subscribe to, and changes the subscriptions in background.
+     */
+    private void setTopics(Set<String> topics)
+    {
+        if(topics.equals(this.topics) && keyframeCells.isEmpty())
+            return;
+
+        this.topics = topics;
+        multithreader.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                updateSubscriptions();
+            }
+        });
+    }
+
+    /**
+     * Changes the subscriptions to the topics last set, and requests the keyframes of the cells that came into view.
+     */
+    private void updateSubscriptions()
+    {
+        Set<String> topics;
+        List<CellID> cells;
+        synchronized(this)
+        {
+            topics = this.topics;
+            cells = new ArrayList<CellID>(keyframeCells);
+            keyframeCells.clear();
+        }
+
+        // the old topics are removed first, so that no update is received twice
+        for(Iterator<String> it = subscribedTopics.iterator(); it.hasNext();)
+        {
+            String topic = it.next();
+            if(!topics.contains(topic))
+            {
+                simAdapter.removeSubscription(topic);
+                it.remove();
+            }
+        }
+        for(String topic : topics)
+        {
+            if(subscribedTopics.add(topic))
+                simAdapter.addSubscription(topic, subscriber);
+        }
+
+        if(!cells.isEmpty())
+        {
+            logger.debug("Requesting the keyframes of {} cells in view", cells.size());
+            simAdapter.requestKeyframe(cells);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.utdallas.mavs.divas.core.client;
 
 import java.io.File;
+import java.util.List;
 
 import com.google.inject.Inject;
 import com.jme3.math.Vector3f;
@@ -216,6 +217,27 @@ public class SimAdapter
         simFacade.sendStateUpdate(state);
     }
 
+    /**
+     * Requests all the cells to publish their next update with all their entities. Clients call this when they start
+     * receiving cell updates in the middle of a simulation.
+     */
+    public void requestKeyframe()
+    {
+        simFacade.requestKeyframe();
+    }
+
+    /**
+     * Requests the given cells to publish their next update with all their entities. Clients call this when they start
+     * receiving the updates of some cells in the middle of a simulation.
+     * 
+     * @param cellIDs
+     *        the IDs of the cells
+     */
+    public void requestKeyframe(List<CellID> cellIDs)
+    {
+        simFacade.requestKeyframe(cellIDs);
+    }
+
     /**
      * Sends a runtime agent state update command to the simulation.
      * 
@@ -262,6 +284,17 @@ public class SimAdapter
         simFacade.addSubscription(topic, subscriber);
     }
 
+    /**
+     * Removes a client subscription from the message broker
+     * 
+     * @param topic
+     *        the topic to be unregistered from
+     */
+    public void removeSubscription(String topic)
+    {
+        simFacade.removeSubscription(topic);
+    }
+
     /**
      * Configures publication topics to the message broker
      */
@@ -349,6 +382,17 @@ public class SimAdapter
         simFacade.loadSimulationSnapshot(file);
     }
 
+    /**
+     * Load the last simulation checkpoint
+     * 
+     * @param directory
+     *        The directory the simulation checkpoints will be loaded from.
+     */
+    public void loadCheckpoint(File directory)
+    {
+        simFacade.loadCheckpoint(directory);
+    }
+
       /**
      * Load a new environment from XML file to the simulation
      * 
@@ -2,6 +2,7 @@ package edu.utdallas.mavs.divas.core.client;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +12,7 @@ import com.google.inject.Inject;
 import edu.utdallas.mavs.divas.core.msg.AssignEventIDMsg;
 import edu.utdallas.mavs.divas.core.msg.AssignStateIDMsg;
 import edu.utdallas.mavs.divas.core.msg.CellStructureMsg;
+import edu.utdallas.mavs.divas.core.msg.KeyframeRequestMsg;
 import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
 import edu.utdallas.mavs.divas.core.msg.RuntimeAgentCommandMsg;
 import edu.utdallas.mavs.divas.core.msg.RuntimeAgentCommandMsg.RuntimeAgentCommand;
@@ -102,6 +104,18 @@ public class SimCommander implements SimFacade
         sendMessage(DivasTopic.externalStimulusTopic, -1, new StateUpdateMsg(state));
     }
 
+    @Override
+    public void requestKeyframe()
+    {
+        sendMessage(DivasTopic.externalStimulusTopic, -1, new KeyframeRequestMsg());
+    }
+
+    @Override
+    public void requestKeyframe(List<CellID> cellIDs)
+    {
+        sendMessage(DivasTopic.externalStimulusTopic, -1, new KeyframeRequestMsg(cellIDs));
+    }
+
     @Override
     public void startSimulation()
     {
@@ -126,6 +140,12 @@ public class SimCommander implements SimFacade
         sendMessage(DivasTopic.simSnapshotTopic, -1, new SimLoaderMsg(file, SimLoaderCommand.LOAD_SIMULATION));
     }
 
+    @Override
+    public void loadCheckpoint(File directory)
+    {
+        sendMessage(DivasTopic.simSnapshotTopic, -1, new SimLoaderMsg(directory, SimLoaderCommand.LOAD_CHECKPOINT));
+    }
+
 
     @Override
     public void loadEnvironmentXML(File file)
@@ -172,6 +192,19 @@ public class SimCommander implements SimFacade
         }
     }
 
+    @Override
+    public void removeSubscription(String topic)
+    {
+        try
+        {
+            comModule.removeSubscriptionTopic(topic);
+        }
+        catch(MTSException e)
+        {
+            logger.error("Subscription could not be removed for topic {}.", topic);
+        }
+    }
+
     @Override
     public void setReorganizationStrategy(ReorganizationStrategy str)
     {
@@ -1,6 +1,7 @@
 package edu.utdallas.mavs.divas.core.client;
 
 import java.io.File;
+import java.util.List;
 
 import edu.utdallas.mavs.divas.core.msg.RuntimeAgentCommandMsg.RuntimeAgentCommand;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
@@ -60,6 +61,19 @@ public interface SimFacade
      */
     public void sendStateUpdate(VirtualState state);
 
+    /**
+     * Requests all the cells to publish their next update with all their entities
+     */
+    public void requestKeyframe();
+
+    /**
+     * Requests the given cells to publish their next update with all their entities
+     * 
+     * @param cellIDs
+     *        the IDs of the cells
+     */
+    public void requestKeyframe(List<CellID> cellIDs);
+
     /**
      * Starts the simulation
      */
@@ -80,6 +94,14 @@ public interface SimFacade
      */
     public void addSubscription(String topic, Subscriber subscriber);
 
+    /**
+     * Removes a client subscription from the message broker
+     * 
+     * @param topic
+     *        the topic to be unregistered from
+     */
+    public void removeSubscription(String topic);
+
     /**
      * Adds publication topics to the message broker
      */
@@ -130,6 +152,14 @@ public interface SimFacade
      */
     public void loadSimulationSnapshot(File file);
 
+    /**
+     * Load the last simulation checkpoint
+     * 
+     * @param directory
+     *        The directory the simulation checkpoints will be loaded from.
+     */
+    public void loadCheckpoint(File directory);
+
 
 
     /**
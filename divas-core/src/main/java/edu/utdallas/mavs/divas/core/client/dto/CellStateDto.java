@@ -1,6 +1,7 @@
 package edu.utdallas.mavs.divas.core.client.dto;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
@@ -13,6 +14,9 @@ import edu.utdallas.mavs.divas.core.sim.env.CellMap;
 
 /**
  * This class describes a Data Transfer Object for CellState
+ * <p>
+ * A keyframe carries all the entities of the cell. A delta only carries the agents and environment objects created or changed since the previous update of the cell, and the ids of those that left
+ * the cell. Events are always sent in full. The cell map may be null when it did not change since the previous update.
  */
 public class CellStateDto implements Serializable
 {
@@ -26,6 +30,11 @@ public class CellStateDto implements Serializable
     List<EnvObjectState>      envObjects;
     List<EnvEvent>            events;
     private CellMap           cellMap;
+    private boolean           keyframe          = true;
+    private List<Integer>     removedAgents     = Collections.emptyList();
+    private List<Integer>     removedEnvObjects = Collections.emptyList();
+    private int               agentCount;
+    private int               envObjectCount;
 
     public CellMap getCellMap()
     {
@@ -42,12 +51,48 @@ public class CellStateDto implements Serializable
         envObjects = cellState.getEnvObjects();
         events = cellState.getEvents();
         this.cellMap = cellMap;
+        agentCount = agents.size();
+        envObjectCount = envObjects.size();
         // for(AgentState s : cellState.getAgentStates())
         // {
         // agents.add(new AgentDto(s));
         // }
     }
 
+    /**
+     * Creates a new DTO from its decoded contents.
+     *
+     * @param id
+     *        the id of the cell
+     * @param bounds
+     *        the bounds of the cell
+     * @param agents
+     *        the agent states of the cell
+     * @param envObjects
+     *        the environment object states of the cell
+     * @param events
+     *        the events of the cell
+     * @param cycles
+     *        the cycle number
+     * @param period
+     *        the cycle period
+     * @param cellMap
+     *        the cell map, or null
+     */
+    public CellStateDto(CellID id, CellBounds bounds, List<AgentState> agents, List<EnvObjectState> envObjects, List<EnvEvent> events, long cycles, int period, CellMap cellMap)
+    {
+        this.id = id;
+        this.bounds = bounds;
+        this.agents = agents;
+        this.envObjects = envObjects;
+        this.events = events;
+        this.cycles = cycles;
+        this.period = period;
+        this.cellMap = cellMap;
+        agentCount = (agents != null) ? agents.size() : 0;
+        envObjectCount = (envObjects != null) ? envObjects.size() : 0;
+    }
+
     /**
      * 
      */
@@ -104,7 +149,70 @@ public class CellStateDto implements Serializable
 
     public int getNumberOfObjects()
     {
-        return agents.size() + envObjects.size() + events.size();
+        return agentCount + envObjectCount + events.size();
+    }
+
+    /**
+     * Turns this DTO into a delta. The agents and environment objects it carries are then the ones created or
+     * changed since the previous update of the cell.
+     *
+     * @param removedAgents
+     *        the ids of the agents that left the cell since the previous update
+     * @param removedEnvObjects
+     *        the ids of the environment objects that left the cell since the previous update
+     * @param agentCount
+     *        the number of agents in the cell
+     * @param envObjectCount
+     *        the number of environment objects in the cell
+     */
+    public void setDelta(List<Integer> removedAgents, List<Integer> removedEnvObjects, int agentCount, int envObjectCount)
+    {
+        this.keyframe = false;
+        this.removedAgents = removedAgents;
+        this.removedEnvObjects = removedEnvObjects;
+        this.agentCount = agentCount;
+        this.envObjectCount = envObjectCount;
+    }
+
+    /**
+     * @return true if this DTO carries all the entities of the cell. Otherwise, false.
+     */
+    public boolean isKeyframe()
+    {
+        return keyframe;
+    }
+
+    /**
+     * @return the ids of the agents that left the cell since the previous update. Always empty for keyframes.
+     */
+    public List<Integer> getRemovedAgents()
+    {
+        return removedAgents;
+    }
+
+    /**
+     * @return the ids of the environment objects that left the cell since the previous update. Always empty for
+     *         keyframes.
+     */
+    public List<Integer> getRemovedEnvObjects()
+    {
+        return removedEnvObjects;
+    }
+
+    /**
+     * @return the number of agents in the cell
+     */
+    public int getAgentCount()
+    {
+        return agentCount;
+    }
+
+    /**
+     * @return the number of environment objects in the cell
+     */
+    public int getEnvObjectCount()
+    {
+        return envObjectCount;
     }
 
     public void setPeriod(int period)
@@ -0,0 +1,441 @@
+package edu.utdallas.mavs.divas.core.client.replay;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class describes the recorded state of the simulation at a given cycle, stored by column.
+ * <p>
+ * Agents are recorded with their position, heading and alive flag, environment objects with their position, and events
+ * with their age. The remaining properties of the entities are recorded once, in the templates of the replay log.
+ */
+public class ReplayFrame
+{
+    private long      cycle;
+
+    private int       period;
+
+    private int       agentCount;
+    private int[]     agentIds        = new int[0];
+    private float[]   agentX          = new float[0];
+    private float[]   agentY          = new float[0];
+    private float[]   agentZ          = new float[0];
+    private float[]   headingX        = new float[0];
+    private float[]   headingY        = new float[0];
+    private float[]   headingZ        = new float[0];
+    private byte[]    alive           = new byte[0];
+
+    private int       envObjectCount;
+    private int[]     envObjectIds    = new int[0];
+    private float[]   envObjectX      = new float[0];
+    private float[]   envObjectY      = new float[0];
+    private float[]   envObjectZ      = new float[0];
+
+    private int       eventCount;
+    private int[]     eventIds        = new int[0];
+    private int[]     eventAges       = new int[0];
+
+    /**
+     * Clears this frame to be filled with the entities of the given cycle.
+     *
+     * @param cycle
+     *        the cycle number
+     * @param period
+     *        the cycle period
+     */
+    public void reset(long cycle, int period)
+    {
+        this.cycle = cycle;
+        this.period = period;
+        agentCount = 0;
+        envObjectCount = 0;
+        eventCount = 0;
+    }
+
+    /**
+     * Adds an agent to this frame.
+     *
+     * @param id
+     *        the agent id
+     * @param x
+     *        the x coordinate of the agent position
+     * @param y
+     *        the y coordinate of the agent position
+     * @param z
+     *        the z coordinate of the agent position
+     * @param hx
+     *        the x coordinate of the agent heading
+     * @param hy
+     *        the y coordinate of the agent heading
+     * @param hz
+     *        the z coordinate of the agent heading
+     * @param isAlive
+     *        the alive flag of the agent
+     */
+    public void addAgent(int id, float x, float y, float z, float hx, float hy, float hz, boolean isAlive)
+    {
+        if(agentCount == agentIds.length)
+        {
+            int capacity = Math.max(16, agentCount * 2);
+            agentIds = Arrays.copyOf(agentIds, capacity);
+            agentX = Arrays.copyOf(agentX, capacity);
+            agentY = Arrays.copyOf(agentY, capacity);
+            agentZ = Arrays.copyOf(agentZ, capacity);
+            headingX = Arrays.copyOf(headingX, capacity);
+            headingY = Arrays.copyOf(headingY, capacity);
+            headingZ = Arrays.copyOf(headingZ, capacity);
+            alive = Arrays.copyOf(alive, capacity);
+        }
+
+        agentIds[agentCount] = id;
+        agentX[agentCount] = x;
+        agentY[agentCount] = y;
+        agentZ[agentCount] = z;
+        headingX[agentCount] = hx;
+        headingY[agentCount] = hy;
+        headingZ[agentCount] = hz;
+        alive[agentCount] = (byte) (isAlive ? 1 : 0);
+        agentCount++;
+    }
+
+    /**
+     * Adds an environment object to this frame.
+     *
+     * @param id
+     *        the environment object id
+     * @param x
+     *        the x coordinate of the environment object position
+     * @param y
+     *        the y coordinate of the environment object position
+     * @param z
+     *        the z coordinate of the environment object position
+     */
+    public void addEnvObject(int id, float x, float y, float z)
+    {
+        if(envObjectCount == envObjectIds.length)
+        {
+            int capacity = Math.max(16, envObjectCount * 2);
+            envObjectIds = Arrays.copyOf(envObjectIds, capacity);
+            envObjectX = Arrays.copyOf(envObjectX, capacity);
+            envObjectY = Arrays.copyOf(envObjectY, capacity);
+            envObjectZ = Arrays.copyOf(envObjectZ, capacity);
+        }
+
+        envObjectIds[envObjectCount] = id;
+        envObjectX[envObjectCount] = x;
+        envObjectY[envObjectCount] = y;
+        envObjectZ[envObjectCount] = z;
+        envObjectCount++;
+    }
+
+    /**
+     * Adds an event to this frame.
+     *
+     * @param id
+     *        the event id
+     * @param age
+     *        the event age
+     */
+    public void addEvent(int id, int age)
+    {
+        if(eventCount == eventIds.length)
+        {
+            int capacity = Math.max(16, eventCount * 2);
+            eventIds = Arrays.copyOf(eventIds, capacity);
+            eventAges = Arrays.copyOf(eventAges, capacity);
+        }
+
+        eventIds[eventCount] = id;
+        eventAges[eventCount] = age;
+        eventCount++;
+    }
+
+    /**
+     * Gets the number of bytes of this frame once written.
+     *
+     * @return the size of the frame in bytes
+     */
+    public int getSize()
+    {
+        return 8 + 4 + 4 + agentCount * 29 + 4 + envObjectCount * 16 + 4 + eventCount * 8;
+    }
+
+    /**
+     * Writes this frame to the given buffer, column by column.
+     *
+     * @param buffer
+     *        the buffer to be written to, with at least <code>getSize()</code> bytes remaining
+     */
+    public void write(ByteBuffer buffer)
+    {
+        buffer.putLong(cycle);
+        buffer.putInt(period);
+
+        buffer.putInt(agentCount);
+        putInts(buffer, agentIds, agentCount);
+        putFloats(buffer, agentX, agentCount);
+        putFloats(buffer, agentY, agentCount);
+        putFloats(buffer, agentZ, agentCount);
+        putFloats(buffer, headingX, agentCount);
+        putFloats(buffer, headingY, agentCount);
+        putFloats(buffer, headingZ, agentCount);
+        buffer.put(alive, 0, agentCount);
+
+        buffer.putInt(envObjectCount);
+        putInts(buffer, envObjectIds, envObjectCount);
+        putFloats(buffer, envObjectX, envObjectCount);
+        putFloats(buffer, envObjectY, envObjectCount);
+        putFloats(buffer, envObjectZ, envObjectCount);
+
+        buffer.putInt(eventCount);
+        putInts(buffer, eventIds, eventCount);
+        putInts(buffer, eventAges, eventCount);
+    }
+
+    /**
+     * Reads a frame written by <code>write</code>.
+     *
+     * @param buffer
+     *        the buffer to be read from
+     * @return the frame read
+     */
+    public static ReplayFrame read(ByteBuffer buffer)
+    {
+        ReplayFrame frame = new ReplayFrame();
+        frame.cycle = buffer.getLong();
+        frame.period = buffer.getInt();
+
+        int count = buffer.getInt();
+        frame.agentCount = count;
+        frame.agentIds = getInts(buffer, count);
+        frame.agentX = getFloats(buffer, count);
+        frame.agentY = getFloats(buffer, count);
+        frame.agentZ = getFloats(buffer, count);
+        frame.headingX = getFloats(buffer, count);
+        frame.headingY = getFloats(buffer, count);
+        frame.headingZ = getFloats(buffer, count);
+        frame.alive = new byte[count];
+        buffer.get(frame.alive);
+
+        count = buffer.getInt();
+        frame.envObjectCount = count;
+        frame.envObjectIds = getInts(buffer, count);
+        frame.envObjectX = getFloats(buffer, count);
+        frame.envObjectY = getFloats(buffer, count);
+        frame.envObjectZ = getFloats(buffer, count);
+
+        count = buffer.getInt();
+        frame.eventCount = count;
+        frame.eventIds = getInts(buffer, count);
+        frame.eventAges = getInts(buffer, count);
+        return frame;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values, int count)
+    {
+        buffer.asIntBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    private static void putFloats(ByteBuffer buffer, float[] values, int count)
+    {
+        buffer.asFloatBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count)
+    {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static float[] getFloats(ByteBuffer buffer, int count)
+    {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    /**
+     * @return the cycle number of this frame
+     */
+    public long getCycle()
+    {
+        return cycle;
+    }
+
+    /**
+     * @return the cycle period of this frame
+     */
+    public int getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * @return the number of agents in this frame
+     */
+    public int getAgentCount()
+    {
+        return agentCount;
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the id of the agent
+     */
+    public int getAgentId(int i)
+    {
+        return agentIds[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the x coordinate of the agent position
+     */
+    public float getAgentX(int i)
+    {
+        return agentX[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the y coordinate of the agent position
+     */
+    public float getAgentY(int i)
+    {
+        return agentY[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the z coordinate of the agent position
+     */
+    public float getAgentZ(int i)
+    {
+        return agentZ[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the x coordinate of the agent heading
+     */
+    public float getHeadingX(int i)
+    {
+        return headingX[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the y coordinate of the agent heading
+     */
+    public float getHeadingY(int i)
+    {
+        return headingY[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the z coordinate of the agent heading
+     */
+    public float getHeadingZ(int i)
+    {
+        return headingZ[i];
+    }
+
+    /**
+     * @param i
+     *        the agent index
+     * @return the alive flag of the agent
+     */
+    public boolean isAlive(int i)
+    {
+        return alive[i] != 0;
+    }
+
+    /**
+     * @return the number of environment objects in this frame
+     */
+    public int getEnvObjectCount()
+    {
+        return envObjectCount;
+    }
+
+    /**
+     * @param i
+     *        the environment object index
+     * @return the id of the environment object
+     */
+    public int getEnvObjectId(int i)
+    {
+        return envObjectIds[i];
+    }
+
+    /**
+     * @param i
+     *        the environment object index
+     * @return the x coordinate of the environment object position
+     */
+    public float getEnvObjectX(int i)
+    {
+        return envObjectX[i];
+    }
+
+    /**
+     * @param i
+     *        the environment object index
+     * @return the y coordinate of the environment object position
+     */
+    public float getEnvObjectY(int i)
+    {
+        return envObjectY[i];
+    }
+
+    /**
+     * @param i
+     *        the environment object index
+     * @return the z coordinate of the environment object position
+     */
+    public float getEnvObjectZ(int i)
+    {
+        return envObjectZ[i];
+    }
+
+    /**
+     * @return the number of events in this frame
+     */
+    public int getEventCount()
+    {
+        return eventCount;
+    }
+
+    /**
+     * @param i
+     *        the event index
+     * @return the id of the event
+     */
+    public int getEventId(int i)
+    {
+        return eventIds[i];
+    }
+
+    /**
+     * @param i
+     *        the event index
+     * @return the age of the event
+     */
+    public int getEventAge(int i)
+    {
+        return eventAges[i];
+    }
+}
@@ -0,0 +1,384 @@
+package edu.utdallas.mavs.divas.core.client.replay;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.msg.RemoveEventMsg;
+import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
+import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSPayload;
+import edu.utdallas.mavs.divas.mts.Subscriber;
+import edu.utdallas.mavs.divas.utils.Multithreader;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+
+/**
+ * This class plays a replay log without a running simulation.
+ * <p>
+ * Each frame is delivered to the subscribers of <code>DivasTopic.envTopic</code> as a keyframe of the root cell
+ * holding all the entities of the frame, and the entities that are no longer present are delivered to the subscribers
+ * of <code>DivasTopic.destroyEntityTopic</code>, just as the simulation would publish them. Hence, the visual
+ * spectators can subscribe to a player instead of a <code>SimAdapter</code>. Frames are played at the cycle period
+ * they were recorded with, divided by the playing speed, and the player may be moved to any cycle of the log.
+ */
+public class ReplayPlayer
+{
+    private final static Logger                 logger      = LoggerFactory.getLogger(ReplayPlayer.class);
+
+    private static final int                    MIN_PERIOD  = 1;
+
+    private final ReplayReader                  reader;
+
+    private final Map<String, List<Subscriber>> subscribers = new HashMap<String, List<Subscriber>>();
+
+    private final Multithreader                 multithreader;
+
+    private volatile boolean                    playing;
+
+    private volatile float                      speed       = 1f;
+
+    private int                                 position;
+
+    private final Map<Integer, VirtualState>    shownStates = new HashMap<Integer, VirtualState>();
+
+    private final Map<Integer, EnvEvent>        shownEvents = new HashMap<Integer, EnvEvent>();
+
+    private CellMap                             shownCellMap;
+
+    /**
+     * Creates a new player of the given replay log.
+     *
+     * @param reader
+     *        the reader of the replay log
+     */
+    public ReplayPlayer(ReplayReader reader)
+    {
+        this.reader = reader;
+        this.multithreader = new Multithreader("ReplayPlayer", ThreadPoolType.SINGLE, true);
+    }
+
+    /**
+     * Adds a subscription to the given topic. Only <code>DivasTopic.envTopic</code> and
+     * <code>DivasTopic.destroyEntityTopic</code> are published by the player.
+     *
+     * @param topic
+     *        the topic name
+     * @param subscriber
+     *        the subscriber to be notified of the messages of the topic
+     */
+    public synchronized void addSubscription(String topic, Subscriber subscriber)
+    {
+        List<Subscriber> list = subscribers.get(topic);
+        if(list == null)
+        {
+            list = new CopyOnWriteArrayList<Subscriber>();
+            subscribers.put(topic, list);
+        }
+        list.add(subscriber);
+    }
+
+    /**
+     * Starts playing the log from the current frame.
+     */
+    public synchronized void play()
+    {
+        if(playing || reader.getFrameCount() == 0)
+            return;
+
+        playing = true;
+        multithreader.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                playLoop();
+            }
+        });
+    }
+
+    /**
+     * Pauses the player on the current frame.
+     */
+    public void pause()
+    {
+        playing = false;
+    }
+
+    /**
+     * @return true if the player is playing. Otherwise, false.
+     */
+    public boolean isPlaying()
+    {
+        return playing;
+    }
+
+    /**
+     * Changes the playing speed.
+     *
+     * @param speed
+     *        the playing speed, relative to the speed of the recorded simulation
+     * @throws IllegalArgumentException
+     *         if the speed is not positive
+     */
+    public void setSpeed(float speed)
+    {
+        if(!(speed > 0))
+            throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+        this.speed = speed;
+    }
+
+    /**
+     * @return the playing speed, relative to the speed of the recorded simulation
+     */
+    public float getSpeed()
+    {
+        return speed;
+    }
+
+    /**
+     * Moves the player to the last frame recorded at or before the given cycle and shows it.
+     *
+     * @param cycle
+     *        the cycle number
+     */
+    public synchronized void seek(long cycle)
+    {
+        if(reader.getFrameCount() == 0)
+            return;
+
+        position = reader.findFrame(cycle);
+        show(position);
+    }
+
+    /**
+     * Moves the player to the next frame and shows it.
+     */
+    public synchronized void step()
+    {
+        if(position + 1 < reader.getFrameCount())
+            show(++position);
+    }
+
+    /**
+     * @return the cycle number of the current frame, or -1 if the log is empty
+     */
+    public synchronized long getCycle()
+    {
+        return reader.getFrameCount() == 0 ? -1 : reader.getCycle(position);
+    }
+
+    /**
+     * Stops the player and closes the replay log.
+     */
+    public void terminate()
+    {
+        playing = false;
+        multithreader.terminate();
+        try
+        {
+            reader.close();
+        }
+        catch(IOException e)
+        {
+            logger.error("An error has occurred while closing the replay log", e);
+        }
+    }
+
+    private void playLoop()
+    {
+        while(playing)
+        {
+            long start = System.currentTimeMillis();
+
+            int period;
+            synchronized(this)
+            {
+                period = show(position);
+                if(position + 1 < reader.getFrameCount())
+                {
+                    position++;
+                }
+                else
+                {
+                    playing = false;
+                    break;
+                }
+            }
+
+            long wait = (long) (Math.max(period, MIN_PERIOD) / speed) - (System.currentTimeMillis() - start);
+            if(wait > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait);
+                }
+                catch(InterruptedException e)
+                {
+                    playing = false;
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Shows a frame, publishing its entities and the removal of the entities shown before that are not in it.
+     *
+     * @return the period of the frame
+     */
+    private int show(int frameIndex)
+    {
+        try
+        {
+            ReplayFrame frame = reader.readFrame(frameIndex);
+
+            Set<Integer> present = new HashSet<Integer>();
+            List<AgentState> agents = new ArrayList<AgentState>(frame.getAgentCount());
+            for(int i = 0; i < frame.getAgentCount(); i++)
+            {
+                AgentState agent = (AgentState) createState(frame.getAgentId(i));
+                if(agent != null)
+                {
+                    agent.setPosition(new Vector3f(frame.getAgentX(i), frame.getAgentY(i), frame.getAgentZ(i)));
+                    agent.setHeading(new Vector3f(frame.getHeadingX(i), frame.getHeadingY(i), frame.getHeadingZ(i)));
+                    agent.setAlive(frame.isAlive(i));
+                    agents.add(agent);
+                    present.add(agent.getID());
+                }
+            }
+
+            List<EnvObjectState> envObjects = new ArrayList<EnvObjectState>(frame.getEnvObjectCount());
+            for(int i = 0; i < frame.getEnvObjectCount(); i++)
+            {
+                EnvObjectState envObject = (EnvObjectState) createState(frame.getEnvObjectId(i));
+                if(envObject != null)
+                {
+                    envObject.setPosition(new Vector3f(frame.getEnvObjectX(i), frame.getEnvObjectY(i), frame.getEnvObjectZ(i)));
+                    envObjects.add(envObject);
+                    present.add(envObject.getID());
+                }
+            }
+
+            Set<Integer> presentEvents = new HashSet<Integer>();
+            List<EnvEvent> events = new ArrayList<EnvEvent>(frame.getEventCount());
+            for(int i = 0; i < frame.getEventCount(); i++)
+            {
+                EnvEvent event = reader.getEventTemplate(frame.getEventId(i));
+                if(event != null)
+                {
+                    event.setAge(frame.getEventAge(i));
+                    events.add(event);
+                    presentEvents.add(event.getID());
+                }
+            }
+
+            publishRemovals(present, presentEvents);
+
+            CellMap cellMap = reader.getCellMap(frame.getCycle());
+            CellStateDto cell = new CellStateDto(CellID.rootID(), cellMap == null ? null : cellMap.getRoot().getBounds(), agents, envObjects, events, frame.getCycle(), frame.getPeriod(), cellMap == shownCellMap ? null : cellMap);
+            shownCellMap = cellMap;
+            publish(DivasTopic.envTopic, new MTSPayload(-1, cell));
+
+            for(AgentState agent : agents)
+                shownStates.put(agent.getID(), agent);
+            for(EnvObjectState envObject : envObjects)
+                shownStates.put(envObject.getID(), envObject);
+            for(EnvEvent event : events)
+                shownEvents.put(event.getID(), event);
+
+            return frame.getPeriod();
+        }
+        catch(IOException | RuntimeException e)
+        {
+            logger.error("An error has occurred while showing replay frame {}", frameIndex, e);
+            playing = false;
+            return MIN_PERIOD;
+        }
+    }
+
+    /**
+     * Creates the state of an entity from its template. The template is shared by all the frames, so it is cloned.
+     */
+    private VirtualState createState(int id) throws IOException
+    {
+        VirtualState template = reader.getStateTemplate(id);
+        if(template == null)
+            return null;
+
+        try
+        {
+            return (VirtualState) template.clone();
+        }
+        catch(CloneNotSupportedException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private void publishRemovals(Set<Integer> present, Set<Integer> presentEvents)
+    {
+        List<VirtualState> removedStates = new ArrayList<VirtualState>();
+        for(VirtualState state : shownStates.values())
+        {
+            if(!present.contains(state.getID()))
+                removedStates.add(state);
+        }
+        for(VirtualState state : removedStates)
+        {
+            shownStates.remove(state.getID());
+            publish(DivasTopic.destroyEntityTopic, new MTSPayload(-1, new RemoveStateMsg(state)));
+        }
+
+        List<EnvEvent> removedEvents = new ArrayList<EnvEvent>();
+        for(EnvEvent event : shownEvents.values())
+        {
+            if(!presentEvents.contains(event.getID()))
+                removedEvents.add(event);
+        }
+        for(EnvEvent event : removedEvents)
+        {
+            shownEvents.remove(event.getID());
+            publish(DivasTopic.destroyEntityTopic, new MTSPayload(-1, new RemoveEventMsg(event)));
+        }
+    }
+
+    private void publish(String topic, MTSPayload payload)
+    {
+        List<Subscriber> list;
+        synchronized(this)
+        {
+            list = subscribers.get(topic);
+        }
+        if(list == null)
+            return;
+
+        for(Subscriber subscriber : list)
+        {
+            try
+            {
+                subscriber.messageReceived(topic, payload);
+            }
+            catch(RuntimeException e)
+            {
+                logger.error("Subscriber of topic {} failed to handle a replay message.", topic, e);
+            }
+        }
+    }
+}
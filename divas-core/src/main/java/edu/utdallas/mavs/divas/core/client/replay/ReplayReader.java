@@ -0,0 +1,336 @@
+package edu.utdallas.mavs.divas.core.client.replay;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.core.msg.codec.StateCodec;
+import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.utils.ByteSerializer;
+
+/**
+ * This class reads a replay log written by {@link ReplayWriter}.
+ * <p>
+ * Frames are read by their position in the log, through a memory-mapped window of the frames file, so reading a frame
+ * far away from the previous one costs the same as reading the next one. Templates are loaded when the log is opened
+ * and decoded when first requested.
+ */
+public class ReplayReader implements Closeable
+{
+    private final static Logger              logger              = LoggerFactory.getLogger(ReplayReader.class);
+
+    private static final int                 FRAMES_WINDOW       = 64 * 1024 * 1024;
+
+    private final RandomAccessFile           framesFile;
+
+    private final FileChannel                frames;
+
+    private final MappedByteBuffer           index;
+
+    private final int                        frameCount;
+
+    private MappedByteBuffer                 window;
+
+    private long                             windowStart;
+
+    private final Map<Integer, byte[]>       agentTemplates      = new HashMap<Integer, byte[]>();
+
+    private final Map<Integer, byte[]>       envObjectTemplates  = new HashMap<Integer, byte[]>();
+
+    private final Map<Integer, byte[]>       eventTemplates      = new HashMap<Integer, byte[]>();
+
+    private final List<Long>                 cellMapCycles       = new ArrayList<Long>();
+
+    private final List<byte[]>               cellMaps            = new ArrayList<byte[]>();
+
+    private final Map<Integer, VirtualState> decodedStates       = new HashMap<Integer, VirtualState>();
+
+    private final Map<Integer, EnvEvent>     decodedEvents       = new HashMap<Integer, EnvEvent>();
+
+    private CellMap                          decodedCellMap;
+
+    private int                              decodedCellMapIndex = -1;
+
+    /**
+     * Opens the replay log in the given directory.
+     *
+     * @param directory
+     *        the directory of the replay log
+     * @throws IOException
+     *         if the files of the log could not be read
+     */
+    public ReplayReader(File directory) throws IOException
+    {
+        try(RandomAccessFile indexFile = new RandomAccessFile(new File(directory, ReplayWriter.INDEX_FILE), "r"))
+        {
+            index = indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexFile.length());
+        }
+        frameCount = countFrames();
+
+        framesFile = new RandomAccessFile(new File(directory, ReplayWriter.FRAMES_FILE), "r");
+        frames = framesFile.getChannel();
+
+        readTemplates(new File(directory, ReplayWriter.TEMPLATES_FILE));
+
+        logger.info("Opened replay log {} with {} frames", directory, frameCount);
+    }
+
+    /**
+     * Counts the complete frames of the index. Unwritten entries at the end of the index have a zero size.
+     */
+    private int countFrames()
+    {
+        int low = 0;
+        int high = index.capacity() / ReplayWriter.INDEX_ENTRY;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(getFrameSize(mid) > 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void readTemplates(File file) throws IOException
+    {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            while(true)
+            {
+                byte kind;
+                try
+                {
+                    kind = in.readByte();
+                }
+                catch(EOFException e)
+                {
+                    break;
+                }
+
+                long cycle = in.readLong();
+                int id = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+
+                switch(kind)
+                {
+                case ReplayWriter.AGENT:
+                    agentTemplates.put(id, data);
+                    break;
+                case ReplayWriter.ENV_OBJECT:
+                    envObjectTemplates.put(id, data);
+                    break;
+                case ReplayWriter.EVENT:
+                    eventTemplates.put(id, data);
+                    break;
+                case ReplayWriter.CELL_MAP:
+                    cellMapCycles.add(cycle);
+                    cellMaps.add(data);
+                    break;
+                default:
+                    throw new IOException("Unknown template kind: " + kind);
+                }
+            }
+        }
+        catch(EOFException e)
+        {
+            // the last template was being written
+            logger.warn("Replay templates file {} is truncated", file);
+        }
+    }
+
+    /**
+     * @return the number of frames in the log
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Gets the cycle number of a frame.
+     *
+     * @param frame
+     *        the position of the frame in the log
+     * @return the cycle number of the frame
+     */
+    public long getCycle(int frame)
+    {
+        return index.getLong(frame * ReplayWriter.INDEX_ENTRY);
+    }
+
+    private long getFrameOffset(int frame)
+    {
+        return index.getLong(frame * ReplayWriter.INDEX_ENTRY + 8);
+    }
+
+    private int getFrameSize(int frame)
+    {
+        return index.getInt(frame * ReplayWriter.INDEX_ENTRY + 16);
+    }
+
+    /**
+     * Finds the last frame recorded at or before the given cycle.
+     *
+     * @param cycle
+     *        the cycle number
+     * @return the position of the frame in the log, or 0 if the log starts after the given cycle
+     */
+    public int findFrame(long cycle)
+    {
+        int low = 0;
+        int high = frameCount - 1;
+        while(low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(getCycle(mid) <= cycle)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Reads a frame.
+     *
+     * @param frame
+     *        the position of the frame in the log
+     * @return the frame read
+     * @throws IOException
+     *         if the frame could not be read
+     */
+    public synchronized ReplayFrame readFrame(int frame) throws IOException
+    {
+        if(frame < 0 || frame >= frameCount)
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameCount);
+
+        long offset = getFrameOffset(frame);
+        int size = getFrameSize(frame);
+        if(window == null || offset < windowStart || offset + size > windowStart + window.capacity())
+        {
+            windowStart = offset;
+            window = frames.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Math.max(FRAMES_WINDOW, size), frames.size() - offset));
+        }
+
+        ByteBuffer buffer = window.duplicate();
+        buffer.position((int) (offset - windowStart));
+        buffer.limit(buffer.position() + size);
+        return ReplayFrame.read(buffer);
+    }
+
+    /**
+     * Gets the template of an agent or environment object. The same instance is returned on every call, so it must not
+     * be modified.
+     *
+     * @param id
+     *        the id of the entity
+     * @return the state of the entity when it was first recorded, or null if it has no template
+     * @throws IOException
+     *         if the template could not be decoded
+     */
+    public synchronized VirtualState getStateTemplate(int id) throws IOException
+    {
+        VirtualState state = decodedStates.get(id);
+        if(state == null)
+        {
+            byte[] data = agentTemplates.get(id);
+            if(data == null)
+                data = envObjectTemplates.get(id);
+            if(data == null)
+                return null;
+
+            state = StateCodec.readState(new DataInputStream(new ByteArrayInputStream(data)));
+            decodedStates.put(id, state);
+        }
+        return state;
+    }
+
+    /**
+     * Gets the template of an event. The same instance is returned on every call.
+     *
+     * @param id
+     *        the id of the event
+     * @return the event when it was first recorded, or null if it has no template
+     * @throws IOException
+     *         if the template could not be decoded
+     */
+    public synchronized EnvEvent getEventTemplate(int id) throws IOException
+    {
+        EnvEvent event = decodedEvents.get(id);
+        if(event == null)
+        {
+            byte[] data = eventTemplates.get(id);
+            if(data == null)
+                return null;
+
+            event = (EnvEvent) deserialize(data);
+            decodedEvents.put(id, event);
+        }
+        return event;
+    }
+
+    /**
+     * Gets the cell map in use at the given cycle. The same instance is returned until the cell map changes.
+     *
+     * @param cycle
+     *        the cycle number
+     * @return the cell map, or null if no cell map was recorded up to the given cycle
+     * @throws IOException
+     *         if the cell map could not be decoded
+     */
+    public synchronized CellMap getCellMap(long cycle) throws IOException
+    {
+        int i = cellMapCycles.size() - 1;
+        while(i >= 0 && cellMapCycles.get(i) > cycle)
+            i--;
+        if(i < 0)
+            return null;
+
+        if(i != decodedCellMapIndex)
+        {
+            decodedCellMap = (CellMap) deserialize(cellMaps.get(i));
+            decodedCellMapIndex = i;
+        }
+        return decodedCellMap;
+    }
+
+    private static Object deserialize(byte[] data) throws IOException
+    {
+        try
+        {
+            return ByteSerializer.deserialize(data);
+        }
+        catch(ClassNotFoundException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        window = null;
+        framesFile.close();
+    }
+}
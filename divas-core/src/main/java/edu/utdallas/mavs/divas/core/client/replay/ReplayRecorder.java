@@ -0,0 +1,313 @@
+package edu.utdallas.mavs.divas.core.client.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.core.client.SimAdapter;
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.msg.RemoveEventMsg;
+import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
+import edu.utdallas.mavs.divas.core.msg.codec.StateCodec;
+import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSPayload;
+import edu.utdallas.mavs.divas.mts.Subscriber;
+import edu.utdallas.mavs.divas.utils.ByteSerializer;
+
+/**
+ * This class records the cell updates published by the simulation into a replay log.
+ * <p>
+ * The recorder keeps the entities last received from each cell, applying keyframes and deltas as the visualizers do.
+ * When the first update of a new cycle is received, the entities of all the cells are written as the frame of the
+ * previous cycle. An entity is written as a template when it is first received, so the properties that are not
+ * recorded in the frames (e.g., the agent type or the model) are replayed as they were at that time.
+ */
+public class ReplayRecorder
+{
+    private final static Logger         logger         = LoggerFactory.getLogger(ReplayRecorder.class);
+
+    private final SimAdapter            simAdapter;
+
+    private final File                  directory;
+
+    private ReplayWriter                writer;
+
+    private final Map<CellID, CellData> cells          = new HashMap<CellID, CellData>();
+
+    private final Set<Integer>          templates      = new HashSet<Integer>();
+
+    private final Set<Integer>          eventTemplates = new HashSet<Integer>();
+
+    private final ReplayFrame           frame          = new ReplayFrame();
+
+    private final ByteArrayOutputStream buffer         = new ByteArrayOutputStream(256);
+
+    private Set<CellID>                 leaves;
+
+    private long                        cycle          = -1;
+
+    private int                         period;
+
+    private boolean                     started;
+
+    /**
+     * Creates a new recorder writing to the given directory.
+     *
+     * @param simAdapter
+     *        the adapter of the simulation to be recorded
+     * @param directory
+     *        the directory of the replay log
+     */
+    public ReplayRecorder(SimAdapter simAdapter, File directory)
+    {
+        this.simAdapter = simAdapter;
+        this.directory = directory;
+    }
+
+    /**
+     * Starts recording the simulation.
+     *
+     * @throws IOException
+     *         if the replay log could not be created
+     */
+    public synchronized void start() throws IOException
+    {
+        if(started)
+            return;
+
+        writer = new ReplayWriter(directory);
+        started = true;
+
+        simAdapter.addSubscription(DivasTopic.getAllSubtopics(DivasTopic.envTopic), cellUpdateMsgHandler());
+        simAdapter.addSubscription(DivasTopic.destroyEntityTopic, destroyEntityMsgHandler());
+
+        // the recorder needs all the entities of each cell to start with
+        simAdapter.requestKeyframe();
+
+        logger.info("Recording simulation to {}", directory);
+    }
+
+    /**
+     * Stops recording the simulation, writing the last cycle received and closing the replay log.
+     */
+    public synchronized void stop()
+    {
+        if(!started)
+            return;
+        started = false;
+
+        try
+        {
+            writeFrame();
+            writer.close();
+        }
+        catch(IOException e)
+        {
+            logger.error("An error has occurred while closing the replay log", e);
+        }
+
+        writer = null;
+        cells.clear();
+        templates.clear();
+        eventTemplates.clear();
+        leaves = null;
+        cycle = -1;
+    }
+
+    private Subscriber cellUpdateMsgHandler()
+    {
+        return new Subscriber()
+        {
+            @Override
+            public void messageReceived(String topic, MTSPayload payload)
+            {
+                if(payload.getData() instanceof CellStateDto)
+                {
+                    cellUpdated((CellStateDto) payload.getData());
+                }
+            }
+        };
+    }
+
+    private Subscriber destroyEntityMsgHandler()
+    {
+        return new Subscriber()
+        {
+            @Override
+            public void messageReceived(String topic, MTSPayload payload)
+            {
+                if(payload.getData() instanceof RemoveStateMsg)
+                {
+                    entityRemoved(((RemoveStateMsg) payload.getData()).getState().getID());
+                }
+                else if(payload.getData() instanceof RemoveEventMsg)
+                {
+                    EnvEvent event = ((RemoveEventMsg) payload.getData()).getEvent();
+                    if(event != null)
+                        entityRemoved(event.getID());
+                }
+            }
+        };
+    }
+
+    private synchronized void cellUpdated(CellStateDto cell)
+    {
+        if(!started)
+            return;
+
+        try
+        {
+            if(cell.getCycleNumber() > cycle)
+            {
+                writeFrame();
+                cycle = cell.getCycleNumber();
+            }
+            period = cell.getPeriod();
+
+            if(cell.getCellMap() != null)
+                cellMapUpdated(cell.getCellMap());
+
+            CellData data = cells.get(cell.getId());
+            if(data == null || cell.isKeyframe())
+            {
+                data = new CellData();
+                cells.put(cell.getId(), data);
+            }
+
+            for(Integer id : cell.getRemovedAgents())
+                data.agents.remove(id);
+            for(Integer id : cell.getRemovedEnvObjects())
+                data.envObjects.remove(id);
+
+            for(AgentState agent : cell.getAgentStates())
+            {
+                writeStateTemplate(ReplayWriter.AGENT, agent);
+                data.agents.put(agent.getID(), new float[] { agent.getPosition().x, agent.getPosition().y, agent.getPosition().z, agent.getHeading().x, agent.getHeading().y, agent.getHeading().z, agent.isAlive() ? 1 : 0 });
+            }
+            for(EnvObjectState envObject : cell.getEnvObjects())
+            {
+                writeStateTemplate(ReplayWriter.ENV_OBJECT, envObject);
+                data.envObjects.put(envObject.getID(), new float[] { envObject.getPosition().x, envObject.getPosition().y, envObject.getPosition().z });
+            }
+
+            // events are always sent in full
+            data.events.clear();
+            for(EnvEvent event : cell.getEvents())
+            {
+                if(eventTemplates.add(event.getID()))
+                    writer.writeTemplate(ReplayWriter.EVENT, cycle, event.getID(), ByteSerializer.serialize(event));
+                data.events.put(event.getID(), event.getAge());
+            }
+        }
+        catch(IOException e)
+        {
+            logger.error("An error has occurred while recording cycle {}, stopping the recorder", cycle, e);
+            stop();
+        }
+    }
+
+    private void cellMapUpdated(CellMap cellMap) throws IOException
+    {
+        Set<CellID> newLeaves = cellMap.getLeafBounds().keySet();
+        if(newLeaves.equals(leaves))
+            return;
+
+        leaves = new HashSet<CellID>(newLeaves);
+        writer.writeTemplate(ReplayWriter.CELL_MAP, cycle, 0, ByteSerializer.serialize(cellMap));
+
+        // cells that were split or merged no longer send updates
+        Iterator<CellID> ids = cells.keySet().iterator();
+        while(ids.hasNext())
+        {
+            if(!leaves.contains(ids.next()))
+                ids.remove();
+        }
+    }
+
+    private synchronized void entityRemoved(int id)
+    {
+        for(CellData data : cells.values())
+        {
+            data.agents.remove(id);
+            data.envObjects.remove(id);
+            data.events.remove(id);
+        }
+    }
+
+    private void writeStateTemplate(byte kind, VirtualState state) throws IOException
+    {
+        if(templates.add(state.getID()))
+        {
+            buffer.reset();
+            DataOutputStream out = new DataOutputStream(buffer);
+            StateCodec.writeState(out, state);
+            out.flush();
+            writer.writeTemplate(kind, cycle, state.getID(), buffer.toByteArray());
+        }
+    }
+
+    /**
+     * Writes the entities of all the cells as the frame of the current cycle. Entities moving between cells in this
+     * cycle may be present in two cells, so each entity is written once.
+     */
+    private void writeFrame() throws IOException
+    {
+        if(cycle < 0)
+            return;
+
+        Map<Integer, float[]> agents = new LinkedHashMap<Integer, float[]>();
+        Map<Integer, float[]> envObjects = new LinkedHashMap<Integer, float[]>();
+        Map<Integer, Integer> events = new LinkedHashMap<Integer, Integer>();
+        for(CellData data : cells.values())
+        {
+            agents.putAll(data.agents);
+            envObjects.putAll(data.envObjects);
+            events.putAll(data.events);
+        }
+
+        frame.reset(cycle, period);
+        for(Map.Entry<Integer, float[]> agent : agents.entrySet())
+        {
+            float[] v = agent.getValue();
+            frame.addAgent(agent.getKey(), v[0], v[1], v[2], v[3], v[4], v[5], v[6] != 0);
+        }
+        for(Map.Entry<Integer, float[]> envObject : envObjects.entrySet())
+        {
+            float[] v = envObject.getValue();
+            frame.addEnvObject(envObject.getKey(), v[0], v[1], v[2]);
+        }
+        for(Map.Entry<Integer, Integer> event : events.entrySet())
+        {
+            frame.addEvent(event.getKey(), event.getValue());
+        }
+
+        writer.writeFrame(frame);
+    }
+
+    /**
+     * The entities last received from a cell. Positions and headings are copied when they are received, since the
+     * states may be changed afterwards by the simulation when it runs in the same process.
+     */
+    private static class CellData
+    {
+        final Map<Integer, float[]> agents     = new HashMap<Integer, float[]>();
+        final Map<Integer, float[]> envObjects = new HashMap<Integer, float[]>();
+        final Map<Integer, Integer> events     = new HashMap<Integer, Integer>();
+    }
+}
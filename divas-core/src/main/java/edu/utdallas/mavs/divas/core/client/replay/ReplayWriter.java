@@ -0,0 +1,224 @@
+package edu.utdallas.mavs.divas.core.client.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class writes a replay log to a directory.
+ * <p>
+ * A replay log is made of three append-only files. The frames file holds the frames one after the other, each written
+ * column by column. The index file holds, for each frame, its cycle number, offset and size, so that any frame can be
+ * read without reading the frames before it. The templates file holds the properties of the entities that are not
+ * recorded in the frames, written once per entity, and the cell maps, written whenever the cells split or merge.
+ * <p>
+ * The frames and the index are written through memory-mapped windows of their files, which are extended as needed. An
+ * index entry is written after its frame, so a log being written, or left behind by a crash, is read up to its last
+ * complete frame.
+ */
+public class ReplayWriter implements Closeable
+{
+    private final static Logger    logger          = LoggerFactory.getLogger(ReplayWriter.class);
+
+    /**
+     * The name of the frames file
+     */
+    public static final String     FRAMES_FILE     = "frames.dat";
+
+    /**
+     * The name of the index file
+     */
+    public static final String     INDEX_FILE      = "index.dat";
+
+    /**
+     * The name of the templates file
+     */
+    public static final String     TEMPLATES_FILE  = "templates.dat";
+
+    /**
+     * The size of an index entry: cycle number, frame offset and frame size
+     */
+    public static final int        INDEX_ENTRY     = 8 + 8 + 4;
+
+    /**
+     * Template of an agent, written with <code>StateCodec</code>
+     */
+    public static final byte       AGENT           = 1;
+
+    /**
+     * Template of an environment object, written with <code>StateCodec</code>
+     */
+    public static final byte       ENV_OBJECT      = 2;
+
+    /**
+     * Template of an event, written with Java serialization
+     */
+    public static final byte       EVENT           = 3;
+
+    /**
+     * Cell map, written with Java serialization
+     */
+    public static final byte       CELL_MAP        = 4;
+
+    private static final int       FRAMES_WINDOW   = 64 * 1024 * 1024;
+
+    private static final int       INDEX_WINDOW    = 1024 * 1024;
+
+    private final MappedAppender   frames;
+
+    private final MappedAppender   index;
+
+    private final DataOutputStream templates;
+
+    /**
+     * Creates a new replay log in the given directory, replacing any log already there.
+     *
+     * @param directory
+     *        the directory of the replay log
+     * @throws IOException
+     *         if the files of the log could not be created
+     */
+    public ReplayWriter(File directory) throws IOException
+    {
+        if(!directory.exists() && !directory.mkdirs())
+            throw new IOException("Could not create directory " + directory);
+
+        frames = new MappedAppender(new File(directory, FRAMES_FILE), FRAMES_WINDOW);
+        index = new MappedAppender(new File(directory, INDEX_FILE), INDEX_WINDOW);
+        templates = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, TEMPLATES_FILE))));
+    }
+
+    /**
+     * Writes a template.
+     *
+     * @param kind
+     *        the kind of template: <code>AGENT</code>, <code>ENV_OBJECT</code>, <code>EVENT</code> or
+     *        <code>CELL_MAP</code>
+     * @param cycle
+     *        the cycle from which the template applies
+     * @param id
+     *        the id of the entity
+     * @param data
+     *        the template data
+     * @throws IOException
+     *         if the template could not be written
+     */
+    public void writeTemplate(byte kind, long cycle, int id, byte[] data) throws IOException
+    {
+        templates.writeByte(kind);
+        templates.writeLong(cycle);
+        templates.writeInt(id);
+        templates.writeInt(data.length);
+        templates.write(data);
+    }
+
+    /**
+     * Writes a frame and its index entry. The templates of the entities of the frame must be written before it.
+     *
+     * @param frame
+     *        the frame to be written
+     * @throws IOException
+     *         if the frame could not be written
+     */
+    public void writeFrame(ReplayFrame frame) throws IOException
+    {
+        // a frame must never refer to a template that is not on disk yet
+        templates.flush();
+
+        int size = frame.getSize();
+        long offset = frames.getLength();
+        frame.write(frames.append(size));
+
+        ByteBuffer entry = index.append(INDEX_ENTRY);
+        entry.putLong(frame.getCycle());
+        entry.putLong(offset);
+        entry.putInt(size);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            templates.close();
+        }
+        finally
+        {
+            frames.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Appends data to a file through a memory-mapped window, which is moved forward when the data does not fit in it.
+     */
+    private static class MappedAppender
+    {
+        private final RandomAccessFile file;
+        private final FileChannel      channel;
+        private final int              windowSize;
+        private MappedByteBuffer       window;
+        private long                   windowStart;
+        private long                   length;
+
+        MappedAppender(File path, int windowSize) throws IOException
+        {
+            this.file = new RandomAccessFile(path, "rw");
+            this.file.setLength(0);
+            this.channel = file.getChannel();
+            this.windowSize = windowSize;
+        }
+
+        long getLength()
+        {
+            return length;
+        }
+
+        /**
+         * Reserves the given number of bytes at the end of the file.
+         *
+         * @return a buffer positioned at the reserved bytes
+         */
+        ByteBuffer append(int size) throws IOException
+        {
+            if(window == null || length + size > windowStart + window.capacity())
+            {
+                windowStart = length;
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(windowSize, size));
+            }
+
+            window.position((int) (length - windowStart));
+            length += size;
+            return window;
+        }
+
+        void close() throws IOException
+        {
+            if(window != null)
+                window.force();
+            window = null;
+
+            try
+            {
+                // drop the unused part of the last window
+                channel.truncate(length);
+            }
+            catch(IOException e)
+            {
+                // some platforms do not truncate files that are still mapped, the index tells where the data ends
+                logger.debug("Could not truncate replay file", e);
+            }
+            file.close();
+        }
+    }
+}
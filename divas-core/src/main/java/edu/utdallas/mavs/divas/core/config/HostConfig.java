@@ -1,23 +1,34 @@
 package edu.utdallas.mavs.divas.core.config;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.utdallas.mavs.divas.mts.CommunicationModule;
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSType;
 
 /**
  * HostConfig stores configuration attributes for the DIVAs host.
  */
 public class HostConfig implements Serializable
 {
-    private static final long serialVersionUID = 1L;
+    private static final long          serialVersionUID = 1L;
 
     /**
      * The skybox type
      */
-    protected String          skybox           = "default";
+    protected String                   skybox           = "default";
 
     /**
      * Flag for enabling/diabling water in the simulation environment
      */
-    protected boolean         waterEnabled     = false;
+    protected boolean                  waterEnabled     = false;
+
+    /**
+     * The type of MTS of the topics whose type differs from the default one
+     */
+    protected HashMap<String, MTSType> topicTypes       = new HashMap<String, MTSType>();
 
     /**
      * Constructs a new instance of Host configuration
@@ -67,6 +78,56 @@ public class HostConfig implements Serializable
         this.skybox = skybox;
     }
 
+    /**
+     * Gets the type of MTS of the topics whose type differs from the default one
+     * 
+     * @return a map of topic names and MTS types
+     */
+    public Map<String, MTSType> getTopicTypes()
+    {
+        return topicTypes;
+    }
+
+    /**
+     * Sets the type of MTS of a topic
+     * 
+     * @param topicName the name of the topic
+     * @param type the type of MTS, or null for the default type
+     */
+    public void setTopicType(String topicName, MTSType type)
+    {
+        if(type == null)
+            topicTypes.remove(topicName);
+        else
+            topicTypes.put(topicName, type);
+    }
+
+    /**
+     * Sends all the topics through the in-VM transport. This is meant for deployments where the simulation and its
+     * clients run in the same java process, since clients in other processes no longer receive any message.
+     */
+    public void useInVMTransport()
+    {
+        String[] topics = { DivasTopic.runtimeAgentCommandTopic, DivasTopic.assignIDTopic, DivasTopic.cellStructureTopic, DivasTopic.createEntityTopic, DivasTopic.destroyEntityTopic,
+                DivasTopic.envTopic, DivasTopic.externalStimulusTopic, DivasTopic.heartbeatTopic, DivasTopic.hostConfigTopic, DivasTopic.simulationPropertiesTopic, DivasTopic.timeControlTopic,
+                DivasTopic.phaseCompletionTopic, DivasTopic.simulationControlTopic, DivasTopic.simSummaryTopic, DivasTopic.reorganizationTopic, DivasTopic.simStatusTopic,
+                DivasTopic.simSnapshotTopic, DivasTopic.agentMessageTopic, DivasTopic.c2cMessageTopic, DivasTopic.assistanceRequestTopic };
+
+        for(String topic : topics)
+            topicTypes.put(topic, MTSType.IN_VM);
+    }
+
+    /**
+     * Applies the types of MTS of this configuration to the topics of this java process. It must be called before the
+     * simulation components publish or subscribe to the topics.
+     */
+    public void applyTopicTypes()
+    {
+        CommunicationModule.resetTopicTypes();
+        for(Map.Entry<String, MTSType> entry : topicTypes.entrySet())
+            CommunicationModule.setTopicType(entry.getKey(), entry.getValue());
+    }
+
     /**
      * Resets to the default configuration
      */
@@ -74,5 +135,6 @@ public class HostConfig implements Serializable
     {
         skybox = "default";
         waterEnabled = false;
+        topicTypes.clear();
     }
 }
@@ -3,6 +3,7 @@ package edu.utdallas.mavs.divas.core.config;
 import edu.utdallas.mavs.divas.core.config.annotation.HelpText;
 import edu.utdallas.mavs.divas.core.config.annotation.IntConfig;
 import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.vision.VisionAlgorithm;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
 
 /**
  * This class describes the DIVAs simulation configuration.
@@ -13,8 +14,20 @@ public class SimConfig extends BaseConfig
     
     private static final String fileName         = "_sim";
 
+    /**
+     * The version of the configuration file format, to be increased when a new setting cannot tell from its value that
+     * it was missing from an older file
+     */
+    private static final int    VERSION          = 1;
+
     private static SimConfig    instance;
 
+    /**
+     * The version of the file format of this configuration. Files saved before the format was versioned load with
+     * version 0, and are upgraded to the current version once their missing settings are backfilled.
+     */
+    private int                 version          = VERSION;
+
     /**
      * Gets the instance of this configuration settings.
      * 
@@ -88,6 +101,45 @@ public class SimConfig extends BaseConfig
      */
     public boolean         use_demographic_splitting    = false;
 
+    /**
+     * Index the entities of each cell in a uniform grid to speed up area queries
+     */
+    public boolean         use_spatial_index            = true;
+
+    /**
+     * Side of the spatial index grid buckets
+     */
+    public float           spatial_index_bucket_size    = 10f;
+
+    /**
+     * Number of cell updates between two full cell updates. The updates in between only carry the entities that changed.
+     */
+    @HelpText("Cell updates between keyframes (1 or less sends full updates only)")
+    @IntConfig(min = 0)
+    public int             cell_keyframe_interval       = 50;
+
+    /**
+     * Drive the simulation phases by direct calls from the heartbeat instead of tick and phase completion messages. The
+     * messages are still published for observers. Only meant for simulations running in a single host.
+     */
+    @HelpText("Drive the simulation phases by direct calls (single host only)")
+    public boolean         direct_phase_scheduling      = false;
+
+    /**
+     * Number of cycles between two checkpoints of the simulation. Checkpoints are written in background to
+     * <code>Checkpointer.DEFAULT_DIRECTORY</code>.
+     */
+    @HelpText("Cycles between checkpoints (0 disables checkpointing)")
+    @IntConfig(min = 0)
+    public int             checkpoint_interval          = 0;
+
+    /**
+     * Number of checkpoints between two full checkpoints. The checkpoints in between only carry the cells that changed.
+     */
+    @HelpText("Checkpoints between full checkpoints")
+    @IntConfig(min = 1)
+    public int             checkpoint_full_interval     = 10;
+
     public int             cc_capacity                  = 32;
 
     public float           max_cc_depth                 = 16;
@@ -104,6 +156,85 @@ public class SimConfig extends BaseConfig
 
     public float           env_object_weight            = 0.5f;
 
+    /**
+     * Measure the cost of the cells in CPU time, when the JVM supports it. Otherwise, the cost is measured in wall time.
+     */
+    @HelpText("Measure the cost of the cells in CPU time (wall time otherwise)")
+    public boolean         cell_cost_cpu_time           = true;
+
+    /**
+     * Number of cycles averaged in the measured cost of a cell. The measured cost strategy only splits or merges cells
+     * whose cost was measured over that many cycles since they last changed.
+     */
+    @HelpText("Cycles averaged in the measured cost of a cell")
+    @IntConfig(min = 1)
+    public int             cell_cost_window             = 20;
+
+    /**
+     * Measured cost strategy - target time per cell and cycle, in milliseconds. Cells costing more are split.
+     */
+    @HelpText("Measured cost strategy - target time per cell and cycle (ms)")
+    public float           cell_cost_budget             = 20f;
+
+    /**
+     * Measured cost strategy - two sibling cells are only merged when their combined cost is below this fraction of the
+     * budget, so that the merged cell is not split again right away.
+     */
+    @HelpText("Measured cost strategy - fraction of the budget under which sibling cells are merged")
+    public float           cell_cost_merge_ratio        = 0.5f;
+
+    /**
+     * Executor backend of the cell controllers
+     */
+    @HelpText("Executor backend of the cell controllers")
+    public ThreadPoolType  cell_controller_pool         = ThreadPoolType.FIXED;
+
+    /**
+     * Number of threads of the cell controllers (0 for one per processor)
+     */
+    @HelpText("Number of threads of the cell controllers (0 for one per processor)")
+    @IntConfig(min = 0)
+    public int             cell_controller_threads      = 10;
+
+    /**
+     * Executor backend of the environment
+     */
+    @HelpText("Executor backend of the environment")
+    public ThreadPoolType  environment_pool             = ThreadPoolType.FIXED;
+
+    /**
+     * Number of threads of the environment (0 for one per processor)
+     */
+    @HelpText("Number of threads of the environment (0 for one per processor)")
+    @IntConfig(min = 0)
+    public int             environment_threads          = 5;
+
+    /**
+     * Executor backend of the agent phase
+     */
+    @HelpText("Executor backend of the agent phase")
+    public ThreadPoolType  agent_phase_pool             = ThreadPoolType.FORK_JOIN;
+
+    /**
+     * Number of threads of the agent phase (0 for one per processor)
+     */
+    @HelpText("Number of threads of the agent phase (0 for one per processor)")
+    @IntConfig(min = 0)
+    public int             agent_phase_threads          = 0;
+
+    /**
+     * Executor backend of the simulation and the heartbeat
+     */
+    @HelpText("Executor backend of the simulation and the heartbeat")
+    public ThreadPoolType  simulation_pool              = ThreadPoolType.FIXED;
+
+    /**
+     * Number of threads of the simulation and the heartbeat (0 for one per processor)
+     */
+    @HelpText("Number of threads of the simulation and the heartbeat (0 for one per processor)")
+    @IntConfig(min = 0)
+    public int             simulation_threads           = 5;
+
     /**
      * Agent Vision Accuracy (Case #3) - How many rays to fire
      */
@@ -118,6 +249,29 @@ public class SimConfig extends BaseConfig
     @IntConfig(min = 1)
     public int             vision_Circles_Count         = 6;
 
+    /**
+     * Agent Vision Cache - the agent position is rounded to this step when caching the environment objects an agent
+     * sees. An agent whose rounded position and heading did not change, perceiving cells whose environment objects did
+     * not change, sees the environment objects it saw before without testing them again.
+     */
+    @HelpText("Agent Vision Cache - position step (0 disables the cache)")
+    public float           vision_cache_position_step   = 0.1f;
+
+    /**
+     * Agent Vision Cache - the agent heading is rounded to this angle, in degrees, when caching the environment objects
+     * an agent sees.
+     */
+    @HelpText("Agent Vision Cache - heading step, in degrees")
+    public float           vision_cache_heading_step    = 1f;
+
+    /**
+     * Run the sensors of an agent in parallel, as subtasks of the agent task, for agents whose sensors are expensive
+     * enough to be worth splitting. Subtasks need a FORK_JOIN pool, so the agent phase runs on a FORK_JOIN pool when
+     * this is set, whatever the agent phase pool setting.
+     */
+    @HelpText("Run the sensors of an agent in parallel (the agent phase then runs on a FORK_JOIN pool)")
+    public boolean         parallel_sensors             = false;
+
     /**
      * Agent Keyboard Control - move speed
      */
@@ -145,6 +299,61 @@ public class SimConfig extends BaseConfig
         {
             config = new SimConfig();
         }
+        else
+        {
+            // configuration files saved before the spatial index
+            if(config.spatial_index_bucket_size == 0)
+            {
+                config.use_spatial_index = true;
+                config.spatial_index_bucket_size = 10f;
+            }
+            // configuration files saved before the executor backends were configurable
+            if(config.cell_controller_pool == null)
+            {
+                config.cell_controller_pool = ThreadPoolType.FIXED;
+                config.cell_controller_threads = 10;
+            }
+            if(config.environment_pool == null)
+            {
+                config.environment_pool = ThreadPoolType.FIXED;
+                config.environment_threads = 5;
+            }
+            if(config.agent_phase_pool == null)
+            {
+                config.agent_phase_pool = ThreadPoolType.FORK_JOIN;
+            }
+            if(config.simulation_pool == null)
+            {
+                config.simulation_pool = ThreadPoolType.FIXED;
+                config.simulation_threads = 5;
+            }
+            // configuration files saved before delta cell updates. A keyframe interval of 0 is valid, so only the
+            // files saved before the format was versioned are backfilled.
+            if(config.version < 1 && config.cell_keyframe_interval == 0)
+            {
+                config.cell_keyframe_interval = 50;
+            }
+            // configuration files saved before checkpointing
+            if(config.checkpoint_full_interval == 0)
+            {
+                config.checkpoint_full_interval = 10;
+            }
+            // configuration files saved before the vision cache
+            if(config.vision_cache_heading_step == 0)
+            {
+                config.vision_cache_position_step = 0.1f;
+                config.vision_cache_heading_step = 1f;
+            }
+            // configuration files saved before the measured cost strategy
+            if(config.cell_cost_window == 0)
+            {
+                config.cell_cost_cpu_time = true;
+                config.cell_cost_window = 20;
+                config.cell_cost_budget = 20f;
+                config.cell_cost_merge_ratio = 0.5f;
+            }
+            config.version = VERSION;
+        }
         return config;
     }
 
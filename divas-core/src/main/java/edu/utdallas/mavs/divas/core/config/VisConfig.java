@@ -34,24 +34,50 @@ public class VisConfig extends BaseConfig
         return instance;
     }
 
-    public DisplayResolution display_resolution = new DisplayResolution(1280, 768, 32, 75);
+    public DisplayResolution display_resolution     = new DisplayResolution(1280, 768, 32, 75);
 
     @HelpText("Run the visualizer in fullscreen or windowed mode.")
-    public boolean           fullscreen         = false;
+    public boolean           fullscreen             = false;
 
     @HelpText("Run the visualizer with reduced quality models.")
-    public boolean           lowQualityModels   = false;
+    public boolean           lowQualityModels       = false;
 
     @HelpText("Run the visualizer with animated models.")
-    public boolean           animatedModels     = true;
+    public boolean           animatedModels         = true;
 
     @IntConfig(combo = true, values = { 0, 1, 2, 4, 8, 16 })
-    public int               antialiasing       = 0;
+    public int               antialiasing           = 0;
 
     @IntConfig(combo = true, values = { 256, 512, 1024, 2048 })
-    public int               memory             = 1024;                                    // in MB
+    public int               memory                 = 1024;                                    // in MB
 
-    public Color             vision_Color       = new Color(1.0f, 0.2f, 0, 0.1f);
+    public Color             vision_Color           = new Color(1.0f, 0.2f, 0, 0.1f);
+
+    @HelpText("Time per frame spent applying simulation updates (ms).")
+    @IntConfig(min = 1)
+    public int               updateBudget           = 8;
+
+    @HelpText("Render the agents in batches per model, with reduced detail far from the camera.")
+    public boolean           crowdRendering         = false;
+
+    @HelpText("Crowd rendering - distance beyond which agents are animated at a reduced rate.")
+    @IntConfig(min = 0)
+    public int               crowdAnimationDistance = 60;
+
+    @HelpText("Crowd rendering - frames between two animation updates of the agents beyond the animation distance.")
+    @IntConfig(min = 1)
+    public int               crowdAnimationInterval = 4;
+
+    @HelpText("Crowd rendering - distance beyond which agents are drawn as boxes.")
+    @IntConfig(min = 0)
+    public int               crowdImpostorDistance  = 150;
+
+    @HelpText("Only receive the updates of the cells in view.")
+    public boolean           viewSubscriptions      = true;
+
+    @HelpText("View subscriptions - time between two updates of the cells in view (ms).")
+    @IntConfig(min = 1)
+    public int               viewUpdateInterval     = 200;
 
     public void save()
     {
@@ -65,6 +91,27 @@ public class VisConfig extends BaseConfig
         {
             config = new VisConfig();
         }
+        else
+        {
+            // configuration files saved before the update budget
+            if(config.updateBudget == 0)
+            {
+                config.updateBudget = 8;
+            }
+            // configuration files saved before crowd rendering
+            if(config.crowdAnimationInterval == 0)
+            {
+                config.crowdAnimationDistance = 60;
+                config.crowdAnimationInterval = 4;
+                config.crowdImpostorDistance = 150;
+            }
+            // configuration files saved before view subscriptions
+            if(config.viewUpdateInterval == 0)
+            {
+                config.viewSubscriptions = true;
+                config.viewUpdateInterval = 200;
+            }
+        }
         return config;
     }
 
@@ -0,0 +1,392 @@
+package edu.utdallas.mavs.divas.core.host;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.config.Config;
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.msg.TickMsg;
+import edu.utdallas.mavs.divas.core.sim.Phase;
+import edu.utdallas.mavs.divas.core.sim.agent.interaction.communication.AgentMessageHandler;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.env.AbstractCellController;
+import edu.utdallas.mavs.divas.core.sim.env.AbstractEnvironment;
+import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
+import edu.utdallas.mavs.divas.core.sim.env.CellController;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.Environment;
+import edu.utdallas.mavs.divas.core.sim.env.SelfOrganizingEnvironment;
+import edu.utdallas.mavs.divas.mts.CommunicationModule;
+import edu.utdallas.mavs.divas.mts.MTSClient;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+
+/**
+ * This class describes a DIVAs host running a simulation headless, as fast as possible, to measure its throughput.
+ * <p>
+ * No MTS broker is created: all the topics are sent through the in-VM transport, so no client outside of this java process can connect to the simulation. The heartbeat is not started. Instead,
+ * the phases of a given number of cycles are ticked by direct calls to the simulation, without waiting between cycles. The messages queued by the cell controllers and the in-VM messages published
+ * during a phase are delivered before the next phase starts. The simulation time advances by the configured cycle interval at every cycle, whatever the time the cycle took.
+ * <p>
+ * Agents are spawned at positions drawn from a seeded random generator, which also seeds the jME random generator, so that two runs with the same seed load the same agents and assign them the same
+ * ids. By default, the cells of a phase run concurrently, so two runs may still end in different states. In deterministic mode, the cells and the agents run one at a time, the reorganization of the
+ * environment happens once per cycle, between the agent and the environment phases, and the agent messages are passed to the agents at the end of each agent phase, so two runs with the same seed
+ * end in the same state, unless the reorganization strategy depends on the measured execution time of the cells. The checksum of the report tells if two runs ended in the same state.
+ * <p>
+ * Concrete batch hosts create the simulation, as any other host, and may call {@link #runAndExit(String[])} from their <code>main</code> method.
+ */
+public abstract class BatchHost extends Host
+{
+    private static final Logger logger       = LoggerFactory.getLogger(BatchHost.class);
+
+    /**
+     * The seed used when none is given
+     */
+    public static final long    DEFAULT_SEED = 1;
+
+    /**
+     * The maximum time to wait for the in-VM messages of a phase to be delivered, in milliseconds
+     */
+    private static final long   IDLE_TIMEOUT = 10000;
+
+    /**
+     * Whether the cells and the agents run one at a time, so that the results do not depend on thread scheduling
+     */
+    protected boolean           deterministic;
+
+    /**
+     * The thread pool settings of the simulation configuration before the deterministic mode overrode them
+     */
+    private SimConfig           savedConfig;
+
+    /**
+     * Creates a new instance of DIVAs batch host
+     */
+    protected BatchHost()
+    {
+        super();
+    }
+
+    /**
+     * Sets whether the simulation runs in deterministic mode. Must be called before the host is started. The thread
+     * pool settings of the simulation configuration are overridden while the host runs, and restored when it
+     * terminates.
+     *
+     * @param deterministic
+     *        true to run the cells and the agents one at a time
+     */
+    public void setDeterministic(boolean deterministic)
+    {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Checks if the simulation runs in deterministic mode
+     *
+     * @return true if the cells and the agents run one at a time. Otherwise, false.
+     */
+    public boolean isDeterministic()
+    {
+        return deterministic;
+    }
+
+    /**
+     * Creates the simulation components, without any MTS broker
+     */
+    @Override
+    public void start()
+    {
+        if(deterministic)
+        {
+            // the executors are created along with the simulation
+            overrideConfig();
+            AgentMessageHandler.getInstance().setStepped(true);
+        }
+
+        createClient(Config.getDefaultHostIP(), Config.getDefaultHostPort());
+
+        if(deterministic && simulation.getEnvironment() instanceof SelfOrganizingEnvironment)
+        {
+            ((SelfOrganizingEnvironment<?>) simulation.getEnvironment()).getCoordinator().setStepped(true);
+        }
+    }
+
+    /**
+     * Creates the MTS client, which is never connected since all the topics are sent through the in-VM transport, and initializes the components depending on it. No environment is loaded until
+     * the simulation is run.
+     */
+    @Override
+    protected void createClient(final String hostname, final String port)
+    {
+        hostConfig.useInVMTransport();
+        hostConfig.applyTopicTypes();
+
+        client = new MTSClient(hostname, port);
+
+        configManager = new HostConfigManager(client);
+        configManager.updateHostConfig(hostConfig);
+
+        heartbeat = new Heartbeat(client);
+        idManager = new IdManager(client);
+
+        logger.info("Creating simulation.");
+        createSimulation(client);
+    }
+
+    /**
+     * Destroys the MTS client, and restores the configuration overridden by the deterministic mode
+     */
+    @Override
+    protected void disconnect()
+    {
+        super.disconnect();
+
+        if(savedConfig != null)
+        {
+            restoreConfig();
+            AgentMessageHandler.getInstance().setStepped(false);
+        }
+    }
+
+    /**
+     * Saves the thread pool settings of the simulation configuration and replaces them with single-threaded executors
+     */
+    private void overrideConfig()
+    {
+        SimConfig config = SimConfig.getInstance();
+        savedConfig = new SimConfig();
+        copyPoolSettings(config, savedConfig);
+
+        config.cell_controller_pool = ThreadPoolType.SINGLE;
+        config.cell_controller_threads = 1;
+        config.environment_pool = ThreadPoolType.SINGLE;
+        config.environment_threads = 1;
+        config.agent_phase_pool = ThreadPoolType.SINGLE;
+        config.agent_phase_threads = 1;
+        config.parallel_sensors = false;
+    }
+
+    /**
+     * Restores the thread pool settings saved by {@link #overrideConfig()}
+     */
+    private void restoreConfig()
+    {
+        copyPoolSettings(savedConfig, SimConfig.getInstance());
+        savedConfig = null;
+    }
+
+    private static void copyPoolSettings(SimConfig from, SimConfig to)
+    {
+        to.cell_controller_pool = from.cell_controller_pool;
+        to.cell_controller_threads = from.cell_controller_threads;
+        to.environment_pool = from.environment_pool;
+        to.environment_threads = from.environment_threads;
+        to.agent_phase_pool = from.agent_phase_pool;
+        to.agent_phase_threads = from.agent_phase_threads;
+        to.parallel_sensors = from.parallel_sensors;
+    }
+
+    /**
+     * Runs the simulation from the command line arguments, prints its report and terminates the host. The arguments are the environment specification file, the agent model name, the number of
+     * agents, the number of cycles and, optionally, the seed, followed by <code>--deterministic</code> to run in deterministic mode.
+     *
+     * @param args
+     *        the command line arguments
+     */
+    public void runAndExit(String[] args)
+    {
+        if(args.length > 0 && args[args.length - 1].equals("--deterministic"))
+        {
+            setDeterministic(true);
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+
+        if(args.length < 4)
+        {
+            System.err.println("Usage: <environment file> <agent model> <agents> <cycles> [seed] [--deterministic]");
+            System.exit(1);
+        }
+
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : DEFAULT_SEED;
+
+        start();
+        BatchReport report = run(new File(args[0]), args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), seed);
+        System.out.println(report);
+
+        terminate();
+    }
+
+    /**
+     * Loads an environment, spawns agents in it and runs the given number of cycles as fast as possible. The host must be started first.
+     *
+     * @param envFile
+     *        the environment specification file, or null for the default environment
+     * @param agentModel
+     *        the model name of the agents, as known by the agent loader of the environment
+     * @param agentCount
+     *        the number of agents to spawn. Agents conflicting with the environment objects are not created.
+     * @param cycles
+     *        the number of cycles to run
+     * @param seed
+     *        the seed of the random generators
+     * @return the report of the run
+     */
+    public BatchReport run(File envFile, String agentModel, int agentCount, int cycles, long seed)
+    {
+        FastMath.rand.setSeed(seed);
+        Random random = new Random(seed);
+
+        loadEnvironment(envFile);
+        awaitMessages();
+        spawnAgents(agentModel, agentCount, random);
+        awaitMessages();
+
+        logger.info("Running {} cycles with seed {}", cycles, seed);
+
+        int period = SimConfig.getInstance().min_Cycle_Interval;
+        long[] cycleTimes = new long[cycles];
+        long agentPhaseTime = 0;
+        long environmentPhaseTime = 0;
+
+        simulation.setStatus(Status.RUNNING);
+        long start = System.nanoTime();
+
+        for(int i = 0; i < cycles; i++)
+        {
+            long cycleStart = System.nanoTime();
+            executePhase(new TickMsg(i + 1, Phase.AGENT, (long) i * period, period));
+            if(deterministic)
+                stepServices();
+            long agentPhaseEnd = System.nanoTime();
+            executePhase(new TickMsg(i + 1, Phase.ENVIRONMENT, (long) i * period, period));
+            long cycleEnd = System.nanoTime();
+
+            agentPhaseTime += agentPhaseEnd - cycleStart;
+            environmentPhaseTime += cycleEnd - agentPhaseEnd;
+            cycleTimes[i] = cycleEnd - cycleStart;
+        }
+
+        long elapsedTime = System.nanoTime() - start;
+        simulation.setStatus(Status.STOPPED);
+
+        BatchReport report = new BatchReport(countAgents(), elapsedTime, agentPhaseTime, environmentPhaseTime, cycleTimes, checksum(), deterministic);
+        logger.info("Batch run completed in {} ms", elapsedTime / 1000000);
+        return report;
+    }
+
+    /**
+     * Executes a phase of the simulation and waits for the messages published during the phase to be delivered
+     */
+    private void executePhase(TickMsg tick)
+    {
+        simulation.tick(tick);
+        awaitMessages();
+    }
+
+    /**
+     * Passes the agent messages sent during the agent phase to the agents, and reorganizes the environment. Only used
+     * in deterministic mode.
+     */
+    private void stepServices()
+    {
+        AgentMessageHandler.getInstance().processOutbox();
+
+        if(simulation.getEnvironment() instanceof SelfOrganizingEnvironment)
+        {
+            ((SelfOrganizingEnvironment<?>) simulation.getEnvironment()).getCoordinator().step();
+            awaitMessages();
+        }
+    }
+
+    /**
+     * Waits for the messages queued by the cell controllers to be published, then for the in-VM messages to be
+     * delivered
+     */
+    private void awaitMessages()
+    {
+        try
+        {
+            if(!AbstractCellController.awaitQueuedMessages(IDLE_TIMEOUT))
+            {
+                logger.warn("Cell controller messages still queued after {} ms at cycle number {}", IDLE_TIMEOUT, simulation.getCycles());
+            }
+            if(!CommunicationModule.awaitInVMIdle(IDLE_TIMEOUT))
+            {
+                logger.warn("In-VM messages still pending after {} ms at cycle number {}", IDLE_TIMEOUT, simulation.getCycles());
+            }
+        }
+        catch(InterruptedException e)
+        {
+            logger.error("An error has occurred while waiting for the in-VM messages", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Spawns agents at random positions of the environment. The agents are created by the agent loader of the environment.
+     */
+    private void spawnAgents(String agentModel, int agentCount, Random random)
+    {
+        Environment<?> environment = simulation.getEnvironment();
+        if(!(environment instanceof AbstractEnvironment))
+        {
+            logger.warn("Agents can not be spawned in environment {}", environment);
+            return;
+        }
+
+        CellBounds bounds = environment.getCellController(CellID.rootID()).getCellState().getBounds();
+
+        for(int i = 0; i < agentCount; i++)
+        {
+            AgentState state = new AgentState();
+            state.setModelName(agentModel);
+            state.setPosition(new Vector3f(bounds.x + random.nextFloat() * bounds.width, 0, bounds.y + random.nextFloat() * bounds.height));
+            ((AbstractEnvironment<?>) environment).createAgent(state);
+        }
+
+        logger.info("Spawned {} agents of model {}", agentCount, agentModel);
+    }
+
+    private int countAgents()
+    {
+        int agents = 0;
+        for(CellID id : simulation.getEnvironment().getCellMap().getLeafBounds().keySet())
+        {
+            CellController cell = simulation.getEnvironment().getCellController(id);
+            if(cell != null)
+                agents += cell.getAgentsCount();
+        }
+        return agents;
+    }
+
+    /**
+     * Computes a checksum of the ids, positions and headings of the agents, which does not depend on the cells holding the agents
+     */
+    private long checksum()
+    {
+        long checksum = 0;
+        for(CellID id : simulation.getEnvironment().getCellMap().getLeafBounds().keySet())
+        {
+            CellController cell = simulation.getEnvironment().getCellController(id);
+            if(cell == null)
+                continue;
+
+            for(AgentState agent : cell.getCellState().getAgentStates())
+            {
+                long hash = agent.getID();
+                hash = hash * 31 + Float.floatToIntBits(agent.getPosition().x);
+                hash = hash * 31 + Float.floatToIntBits(agent.getPosition().y);
+                hash = hash * 31 + Float.floatToIntBits(agent.getPosition().z);
+                hash = hash * 31 + agent.getHeading().hashCode();
+                checksum += hash * 0x9E3779B97F4A7C15L;
+            }
+        }
+        return checksum;
+    }
+}
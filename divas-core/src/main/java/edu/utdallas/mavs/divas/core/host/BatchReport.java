@@ -0,0 +1,169 @@
+package edu.utdallas.mavs.divas.core.host;
+
+import java.util.Arrays;
+
+/**
+ * This class describes the throughput of a simulation run by a {@link BatchHost}.
+ */
+public class BatchReport
+{
+    private final long    cycles;
+
+    private final int     agents;
+
+    private final long    elapsedTime;
+
+    private final long    agentPhaseTime;
+
+    private final long    environmentPhaseTime;
+
+    /**
+     * The duration of each cycle, sorted in ascending order, in nanoseconds
+     */
+    private final long[]  cycleTimes;
+
+    private final long    checksum;
+
+    private final boolean deterministic;
+
+    /**
+     * Creates a new report.
+     *
+     * @param agents
+     *        the number of agents in the environment at the end of the run
+     * @param elapsedTime
+     *        the duration of the run, in nanoseconds
+     * @param agentPhaseTime
+     *        the total duration of the agent phases, in nanoseconds
+     * @param environmentPhaseTime
+     *        the total duration of the environment phases, in nanoseconds
+     * @param cycleTimes
+     *        the duration of each cycle, in nanoseconds. The array is owned by the report from now on.
+     * @param checksum
+     *        the checksum of the agent states at the end of the run
+     * @param deterministic
+     *        whether the cells and the agents ran one at a time
+     */
+    public BatchReport(int agents, long elapsedTime, long agentPhaseTime, long environmentPhaseTime, long[] cycleTimes, long checksum, boolean deterministic)
+    {
+        this.cycles = cycleTimes.length;
+        this.agents = agents;
+        this.elapsedTime = elapsedTime;
+        this.agentPhaseTime = agentPhaseTime;
+        this.environmentPhaseTime = environmentPhaseTime;
+        this.cycleTimes = cycleTimes;
+        this.checksum = checksum;
+        this.deterministic = deterministic;
+        Arrays.sort(cycleTimes);
+    }
+
+    /**
+     * Gets the number of cycles run
+     *
+     * @return the number of cycles
+     */
+    public long getCycles()
+    {
+        return cycles;
+    }
+
+    /**
+     * Gets the number of agents in the environment at the end of the run
+     *
+     * @return the number of agents
+     */
+    public int getAgents()
+    {
+        return agents;
+    }
+
+    /**
+     * Gets the number of cycles run per second
+     *
+     * @return the cycles per second
+     */
+    public double getCyclesPerSecond()
+    {
+        return (elapsedTime == 0) ? 0 : cycles * 1e9 / elapsedTime;
+    }
+
+    /**
+     * Gets the average duration of the agent phases
+     *
+     * @return the agent phase time in milliseconds
+     */
+    public double getAgentPhaseTime()
+    {
+        return average(agentPhaseTime);
+    }
+
+    /**
+     * Gets the average duration of the environment phases
+     *
+     * @return the environment phase time in milliseconds
+     */
+    public double getEnvironmentPhaseTime()
+    {
+        return average(environmentPhaseTime);
+    }
+
+    /**
+     * Gets a percentile of the duration of the cycles
+     *
+     * @param percentile
+     *        the percentile, between 0 and 100
+     * @return the duration under which the given percentage of the cycles ran, in milliseconds
+     */
+    public double getCycleTime(double percentile)
+    {
+        if(cycles == 0)
+            return 0;
+
+        // nearest rank
+        int rank = (int) Math.ceil(percentile / 100 * cycles);
+        return cycleTimes[Math.min(cycleTimes.length - 1, Math.max(0, rank - 1))] / 1e6;
+    }
+
+    /**
+     * Gets the checksum of the agent states at the end of the run. Two runs of the same environment, agents, number
+     * of cycles and seed that end with the same checksum ended in the same state.
+     *
+     * @return the checksum
+     */
+    public long getChecksum()
+    {
+        return checksum;
+    }
+
+    /**
+     * Checks if the run was deterministic
+     *
+     * @return true if the cells and the agents ran one at a time, so that another run with the same seed ends with the
+     *         same checksum. Otherwise, false.
+     */
+    public boolean isDeterministic()
+    {
+        return deterministic;
+    }
+
+    private double average(long time)
+    {
+        return (cycles == 0) ? 0 : time / 1e6 / cycles;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Cycles: %d, agents: %d, elapsed time: %.1f s%n", cycles, agents, elapsedTime / 1e9));
+        if(deterministic)
+            sb.append(String.format("Execution: deterministic, cells and agents run one at a time%n"));
+        else
+            sb.append(String.format("Execution: concurrent, results are not deterministic and may differ between runs%n"));
+        sb.append(String.format("Throughput: %.2f cycles/s%n", getCyclesPerSecond()));
+        sb.append(String.format("Average phase times: agent %.3f ms, environment %.3f ms%n", getAgentPhaseTime(), getEnvironmentPhaseTime()));
+        sb.append(String.format("Cycle times: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n", getCycleTime(50), getCycleTime(90), getCycleTime(99), getCycleTime(100)));
+        sb.append(String.format("Checksum: %016x", checksum));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,455 @@
+package edu.utdallas.mavs.divas.core.host;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.sim.env.CellController;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.core.sim.env.Environment;
+import edu.utdallas.mavs.divas.utils.ByteSerializer;
+import edu.utdallas.mavs.divas.utils.Multithreader;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+
+/**
+ * This class takes incremental checkpoints of the simulation.
+ * <p>
+ * A checkpoint is captured at the beginning of an agent phase, when the cells are not being processed. The heartbeat, the id manager, the cell map and every cell controller (with its agents) are
+ * serialized in memory, the cells in parallel, and the serialized data is written to disk on a background thread while the simulation goes on. A full checkpoint carries all the cells. The following
+ * ones only carry the cells whose serialized form changed, along with the ids of all the cells, so that removed cells are known. Restoring replays the last full checkpoint and the checkpoints that
+ * follow it.
+ * <p>
+ * Checkpoints are written to a temporary file and renamed once complete, so a crash while writing never leaves a partial checkpoint. Once a full checkpoint is written, the older checkpoints are
+ * deleted.
+ */
+public class Checkpointer
+{
+    private final static Logger        logger            = LoggerFactory.getLogger(Checkpointer.class);
+
+    /**
+     * The default directory of the checkpoints, in the user home directory
+     */
+    public static final String         DEFAULT_DIRECTORY = System.getProperty("user.home") + System.getProperty("file.separator") + "Divas" + System.getProperty("file.separator") + "checkpoints";
+
+    private static final int           MAGIC             = 0x44434B50;
+
+    private static final int           VERSION           = 1;
+
+    private static final String        EXTENSION         = ".ckpt";
+
+    private final File                 directory;
+
+    private final Multithreader        serializer;
+
+    private final Multithreader        writer;
+
+    private final AtomicBoolean        writing           = new AtomicBoolean();
+
+    /**
+     * Digests of the serialized cells of the last checkpoint, by cell id
+     */
+    private Map<String, byte[]>        digests           = new HashMap<String, byte[]>();
+
+    private volatile boolean           fullRequested     = true;
+
+    private int                        checkpointsSinceFull;
+
+    private long                       sequence;
+
+    /**
+     * Creates a new checkpointer writing to the given directory.
+     *
+     * @param directory
+     *        the directory of the checkpoints
+     */
+    public Checkpointer(File directory)
+    {
+        this.directory = directory;
+        this.serializer = new Multithreader("CheckpointSerializer", ThreadPoolType.FIXED, 0, true);
+        this.writer = new Multithreader("CheckpointWriter", ThreadPoolType.SINGLE, true);
+
+        File[] files = listCheckpoints(directory);
+        if(files.length > 0)
+            sequence = getSequence(files[files.length - 1]) + 1;
+    }
+
+    /**
+     * Captures a checkpoint if one is due at the given cycle, according to <code>SimConfig.checkpoint_interval</code>.
+     * It must be called at a phase boundary.
+     *
+     * @param cycles
+     *        the current cycle number
+     * @param environment
+     *        the simulation environment
+     */
+    public void checkpointIfDue(long cycles, Environment<?> environment)
+    {
+        int interval = SimConfig.getInstance().checkpoint_interval;
+        if(interval > 0 && cycles % interval == 0)
+            capture(cycles, environment);
+    }
+
+    /**
+     * Captures a checkpoint of the simulation and writes it to disk in background. The checkpoint is skipped if the
+     * previous one is still being written.
+     *
+     * @param cycles
+     *        the current cycle number
+     * @param environment
+     *        the simulation environment
+     * @return true if the checkpoint was captured. Otherwise, false.
+     */
+    public boolean capture(long cycles, Environment<?> environment)
+    {
+        if(!writing.compareAndSet(false, true))
+        {
+            logger.warn("Skipping checkpoint of cycle {}, the previous one is still being written.", cycles);
+            return false;
+        }
+
+        try
+        {
+            long start = System.nanoTime();
+
+            boolean full = fullRequested || ++checkpointsSinceFull >= SimConfig.getInstance().checkpoint_full_interval;
+
+            byte[] snapshot = ByteSerializer.serialize(new SimSnapshot<Environment<?>>(Host.getHost().getHeartbeat(), Host.getHost().getIdManager()));
+            byte[] cellMap = ByteSerializer.serialize(environment.getCellMap());
+            List<CellData> cells = serializeCells(environment.getCellControllers());
+
+            Map<String, byte[]> newDigests = new HashMap<String, byte[]>();
+            int changed = 0;
+            for(CellData cell : cells)
+            {
+                newDigests.put(cell.id, cell.digest);
+                if(!full && Arrays.equals(cell.digest, digests.get(cell.id)))
+                    cell.data = null;
+                else
+                    changed++;
+            }
+
+            digests = newDigests;
+            if(full)
+            {
+                fullRequested = false;
+                checkpointsSinceFull = 0;
+            }
+
+            logger.info("Captured {} checkpoint of cycle {} with {} of {} cells in {} ms", new Object[] { full ? "full" : "incremental", cycles, changed, cells.size(), (System.nanoTime() - start) / 1000000 });
+
+            writer.execute(writeTask(new CheckpointData(sequence++, cycles, full, snapshot, cellMap, cells)));
+            return true;
+        }
+        catch(IOException | RuntimeException e)
+        {
+            logger.error("An error has occurred while capturing the checkpoint of cycle {}", cycles, e);
+            fullRequested = true;
+            writing.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Requests the next checkpoint to be a full checkpoint, for instance because the simulation was loaded from a file.
+     */
+    public void requestFullCheckpoint()
+    {
+        fullRequested = true;
+    }
+
+    /**
+     * Waits for the checkpoint being written and terminates the checkpointer.
+     */
+    public void terminate()
+    {
+        writer.terminate();
+        serializer.terminate();
+    }
+
+    private List<CellData> serializeCells(List<?> cellControllers) throws IOException
+    {
+        final List<CellData> cells = new ArrayList<CellData>(cellControllers.size());
+        final List<IOException> errors = new ArrayList<IOException>();
+
+        List<Runnable> tasks = new ArrayList<Runnable>(cellControllers.size());
+        for(Object cellController : cellControllers)
+        {
+            final CellController cell = (CellController) cellController;
+            final CellData data = new CellData(cell.getCellID().getIdString());
+            cells.add(data);
+
+            tasks.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        data.data = ByteSerializer.serialize((Serializable) cell);
+                        data.digest = digest(data.data);
+                    }
+                    catch(IOException e)
+                    {
+                        synchronized(errors)
+                        {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+        }
+
+        serializer.executeAndWait(tasks);
+
+        if(!errors.isEmpty())
+            throw errors.get(0);
+        return cells;
+    }
+
+    private static byte[] digest(byte[] data)
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5").digest(data);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Runnable writeTask(final CheckpointData checkpoint)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    write(checkpoint);
+                    if(checkpoint.full)
+                        deleteCheckpointsBefore(checkpoint.sequence);
+                }
+                catch(IOException e)
+                {
+                    logger.error("An error has occurred while writing the checkpoint of cycle {}", checkpoint.cycles, e);
+                    fullRequested = true;
+                }
+                finally
+                {
+                    writing.set(false);
+                }
+            }
+        };
+    }
+
+    private void write(CheckpointData checkpoint) throws IOException
+    {
+        if(!directory.exists())
+            directory.mkdirs();
+
+        File file = new File(directory, String.format("%012d", checkpoint.sequence) + EXTENSION);
+        File tmp = new File(directory, file.getName() + ".tmp");
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(checkpoint.full);
+            out.writeLong(checkpoint.cycles);
+            writeBytes(out, checkpoint.snapshot);
+            writeBytes(out, checkpoint.cellMap);
+
+            out.writeInt(checkpoint.cells.size());
+            for(CellData cell : checkpoint.cells)
+            {
+                out.writeUTF(cell.id);
+                out.writeBoolean(cell.data != null);
+                if(cell.data != null)
+                    writeBytes(out, cell.data);
+            }
+        }
+
+        if(!tmp.renameTo(file))
+            throw new IOException("Could not rename " + tmp + " to " + file);
+
+        logger.debug("Wrote checkpoint of cycle {} to {}", checkpoint.cycles, file);
+    }
+
+    private void deleteCheckpointsBefore(long sequence)
+    {
+        for(File file : listCheckpoints(directory))
+        {
+            if(getSequence(file) < sequence && !file.delete())
+                logger.warn("Could not delete old checkpoint {}", file);
+        }
+    }
+
+    /**
+     * Restores the simulation from the checkpoints of the given directory, replaying the last full checkpoint and the
+     * checkpoints that follow it.
+     *
+     * @param directory
+     *        the directory of the checkpoints
+     * @throws IOException
+     *         if there is no full checkpoint in the directory or it could not be read
+     * @throws ClassNotFoundException
+     *         if a serialized class could not be found
+     */
+    public static void restore(File directory) throws IOException, ClassNotFoundException
+    {
+        File[] files = listCheckpoints(directory);
+
+        int base = files.length - 1;
+        while(base >= 0 && !isFull(files[base]))
+            base--;
+        if(base < 0)
+            throw new IOException("No full checkpoint found in " + directory);
+
+        long cycles = 0;
+        byte[] snapshot = null;
+        byte[] cellMap = null;
+        Map<String, byte[]> cells = new LinkedHashMap<String, byte[]>();
+
+        for(int i = base; i < files.length; i++)
+        {
+            try(DataInputStream in = open(files[i]))
+            {
+                in.readBoolean();
+                cycles = in.readLong();
+                snapshot = readBytes(in);
+                cellMap = readBytes(in);
+
+                Map<String, byte[]> current = new LinkedHashMap<String, byte[]>();
+                int count = in.readInt();
+                for(int j = 0; j < count; j++)
+                {
+                    String id = in.readUTF();
+                    byte[] data = in.readBoolean() ? readBytes(in) : cells.get(id);
+                    if(data == null)
+                        throw new IOException("Cell " + id + " of " + files[i] + " is missing from the previous checkpoints");
+                    current.put(id, data);
+                }
+                cells = current;
+            }
+        }
+
+        List<Object> cellControllers = new ArrayList<Object>(cells.size());
+        for(byte[] data : cells.values())
+            cellControllers.add(ByteSerializer.deserialize(data));
+
+        Host.getHost().loadCheckpoint((SimSnapshot<?>) ByteSerializer.deserialize(snapshot), (CellMap) ByteSerializer.deserialize(cellMap), cellControllers);
+
+        logger.info("Restored checkpoint of cycle {} from {} files in {}", new Object[] { cycles, files.length - base, directory });
+    }
+
+    private static boolean isFull(File file) throws IOException
+    {
+        try(DataInputStream in = open(file))
+        {
+            return in.readBoolean();
+        }
+    }
+
+    private static DataInputStream open(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        if(in.readInt() != MAGIC || in.readInt() != VERSION)
+        {
+            in.close();
+            throw new IOException(file + " is not a checkpoint of this version");
+        }
+        return in;
+    }
+
+    private static File[] listCheckpoints(File directory)
+    {
+        File[] files = directory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(EXTENSION);
+            }
+        });
+
+        if(files == null)
+            return new File[0];
+
+        // names are zero-padded sequence numbers
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long getSequence(File file)
+    {
+        String name = file.getName();
+        return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException
+    {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    private static class CellData
+    {
+        final String id;
+        byte[]       data;
+        byte[]       digest;
+
+        CellData(String id)
+        {
+            this.id = id;
+        }
+    }
+
+    private static class CheckpointData
+    {
+        final long           sequence;
+        final long           cycles;
+        final boolean        full;
+        final byte[]         snapshot;
+        final byte[]         cellMap;
+        final List<CellData> cells;
+
+        CheckpointData(long sequence, long cycles, boolean full, byte[] snapshot, byte[] cellMap, List<CellData> cells)
+        {
+            this.sequence = sequence;
+            this.cycles = cycles;
+            this.full = full;
+            this.snapshot = snapshot;
+            this.cellMap = cellMap;
+            this.cells = cells;
+        }
+    }
+}
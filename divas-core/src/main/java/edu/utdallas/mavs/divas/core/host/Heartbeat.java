@@ -10,6 +10,7 @@ import edu.utdallas.mavs.divas.core.msg.HeartbeatCommandMsg;
 import edu.utdallas.mavs.divas.core.msg.PhaseMsg;
 import edu.utdallas.mavs.divas.core.msg.TickMsg;
 import edu.utdallas.mavs.divas.core.sim.Phase;
+import edu.utdallas.mavs.divas.core.sim.Simulation;
 import edu.utdallas.mavs.divas.mts.CommunicationModule;
 import edu.utdallas.mavs.divas.mts.DivasTopic;
 import edu.utdallas.mavs.divas.mts.MTSClient;
@@ -18,6 +19,7 @@ import edu.utdallas.mavs.divas.mts.MTSPayload;
 import edu.utdallas.mavs.divas.mts.Subscriber;
 import edu.utdallas.mavs.divas.utils.Multithreader;
 import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+import edu.utdallas.mavs.divas.utils.StatsHelper;
 
 /**
  * This class describes the simulator heatbeat.
@@ -28,6 +30,16 @@ public class Heartbeat implements Serializable
 {
     private static final long             serialVersionUID = 1L;
 
+    /**
+     * Key of the tick messages the simulation must execute
+     */
+    public static final int               TICK             = 0;
+
+    /**
+     * Key of the tick messages only published for observers, when the phases are driven by direct calls
+     */
+    public static final int               TICK_NOTICE      = 1;
+
     private final static Logger           logger           = LoggerFactory.getLogger(Heartbeat.class);
 
     /**
@@ -37,14 +49,14 @@ public class Heartbeat implements Serializable
     private static int                    minCycleTime     = SimConfig.getInstance().min_Cycle_Interval;
 
     /**
-     * The communication module.
+     * Number of cycles over which phase execution times are averaged and reported
      */
-    private transient CommunicationModule comModule;
+    private static final int              PHASE_TIMES_WINDOW = 100;
 
     /**
-     * Payload message to be sent to local components.
+     * The communication module.
      */
-    private transient MTSPayload          tickPayload;
+    private transient CommunicationModule comModule;
 
     /**
      * The current cycle number of the simulation. Initially set to 0.
@@ -69,7 +81,7 @@ public class Heartbeat implements Serializable
     /**
      * Status of the time keeper ON/OFF
      */
-    private boolean                       beating          = false;
+    private volatile boolean              beating          = false;
 
     /**
      * Timestamps the beginning of a simulation cycle
@@ -81,6 +93,26 @@ public class Heartbeat implements Serializable
      */
     private transient Multithreader       multithreader;
 
+    /**
+     * Whether the phases are driven by direct calls to the simulation instead of messages
+     */
+    private transient volatile boolean    directScheduling;
+
+    /**
+     * Single thread executor driving the phases by direct calls, so that only one scheduler task runs at a time
+     */
+    private transient Multithreader       scheduler;
+
+    /**
+     * Execution times of the last agent phases (ms)
+     */
+    private transient StatsHelper         agentPhaseTimes;
+
+    /**
+     * Execution times of the last environment phases (ms)
+     */
+    private transient StatsHelper         environmentPhaseTimes;
+
     /**
      * Creates a new heartbeat instance.
      * 
@@ -91,11 +123,9 @@ public class Heartbeat implements Serializable
     {
         comModule = new CommunicationModule(client);
 
-        multithreader = new Multithreader("HeartbeatThrd", ThreadPoolType.FIXED, 5, false);
+        multithreader = new Multithreader("HeartbeatThrd", SimConfig.getInstance().simulation_pool, SimConfig.getInstance().simulation_threads, false);
 
-        // create canned tick payload to be modified and published at every tick
-        // key = 0 indicates that this is a tick message
-        tickPayload = new MTSPayload(0, null);
+        scheduler = new Multithreader("HeartbeatScheduler", ThreadPoolType.SINGLE, true);
 
         // configures the time keeper
         initializeHeartBeat();
@@ -140,48 +170,15 @@ public class Heartbeat implements Serializable
             @Override
             public void messageReceived(String topic, MTSPayload payload)
             {
-                Phase p = ((PhaseMsg) payload.getData()).getPhase();
+                PhaseMsg msg = (PhaseMsg) payload.getData();
+                Phase p = msg.getPhase();
                 logger.debug("Receiveing Phase {}", p);
+                recordPhaseTime(p, msg.getDuration());
 
-                if(beating)
+                // with direct scheduling, phase completions are only observed
+                if(beating && !directScheduling)
                 {
-                    // determine which phase is next (this is very important!)
-                    switch(p)
-                    {
-                    case INIT:
-                        phase = Phase.AGENT;
-                        cycles++;
-                        cycleTimestamp = System.currentTimeMillis();
-                        break;
-                    case AGENT:
-                        phase = Phase.ENVIRONMENT;
-                        break;
-                    case ENVIRONMENT:
-                        phase = Phase.AGENT;
-                        cycles++;
-                        long elapsedTime = System.currentTimeMillis() - cycleTimestamp;
-                        period = (int) elapsedTime;
-
-                        if(elapsedTime < minCycleTime)
-                        {
-                            try
-                            {
-                                Thread.sleep(minCycleTime - elapsedTime);
-                                elapsedTime = minCycleTime;
-                            }
-                            catch(InterruptedException e)
-                            {
-                                logger.error("An error has occurred while delaying heartbeat", e);
-                            }
-                        }
-
-                        if(elapsedTime > 150)
-                            logger.info("Simulation period: {}", elapsedTime);
-                        // period = (int) elapsedTime;
-                        runTime += elapsedTime;
-                        cycleTimestamp = System.currentTimeMillis();
-                        break;
-                    }
+                    advancePhase(p);
 
                     // notifies phase change
                     tick(cycles, phase, runTime, period);
@@ -191,6 +188,100 @@ public class Heartbeat implements Serializable
         });
     }
 
+    /**
+     * Determines which phase is next (this is very important!)
+     * 
+     * @param p
+     *        the phase that has been completed
+     */
+    private void advancePhase(Phase p)
+    {
+        switch(p)
+        {
+        case INIT:
+            phase = Phase.AGENT;
+            cycles++;
+            cycleTimestamp = System.currentTimeMillis();
+            break;
+        case AGENT:
+            phase = Phase.ENVIRONMENT;
+            break;
+        case ENVIRONMENT:
+            phase = Phase.AGENT;
+            cycles++;
+            long elapsedTime = System.currentTimeMillis() - cycleTimestamp;
+            period = (int) elapsedTime;
+
+            if(elapsedTime < minCycleTime)
+            {
+                try
+                {
+                    Thread.sleep(minCycleTime - elapsedTime);
+                    elapsedTime = minCycleTime;
+                }
+                catch(InterruptedException e)
+                {
+                    logger.error("An error has occurred while delaying heartbeat", e);
+                }
+            }
+
+            if(elapsedTime > 150)
+                logger.info("Simulation period: {}", elapsedTime);
+            if(cycles % PHASE_TIMES_WINDOW == 0)
+                logger.info("Average phase times over the last {} cycles: agent {} ms, environment {} ms", new Object[] { PHASE_TIMES_WINDOW, getAgentPhaseTime(), getEnvironmentPhaseTime() });
+            // period = (int) elapsedTime;
+            runTime += elapsedTime;
+            cycleTimestamp = System.currentTimeMillis();
+            break;
+        }
+    }
+
+    /**
+     * Creates the task that drives the simulation phases by direct calls while the heartbeat is beating. Each call to
+     * the simulation returns once the phase has been completed by all the cells, so the next phase only starts after
+     * the previous one, and each phase is ticked exactly once.
+     * 
+     * @return the scheduler task
+     */
+    private Runnable directSchedulerTask()
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                logger.info("Driving simulation phases by direct calls");
+
+                while(beating && directScheduling)
+                {
+                    Simulation<?> simulation = Host.getHost().getSimulation();
+                    if(simulation == null)
+                    {
+                        logger.warn("No simulation to drive at cycle number {}", cycles);
+                        pause();
+                        break;
+                    }
+
+                    advancePhase(phase);
+
+                    TickMsg tick = new TickMsg(cycles, phase, runTime, period);
+                    try
+                    {
+                        simulation.tick(tick);
+                    }
+                    catch(RuntimeException e)
+                    {
+                        logger.error("An error has occurred while executing the {} phase of cycle number {}", new Object[] { phase, cycles, e });
+                    }
+
+                    // the tick message is only published for observers
+                    sendHeartBeatMessage(new MTSPayload(TICK_NOTICE, tick));
+                    sendStatusMessage(beating);
+                }
+            }
+        };
+    }
+
 //    private void setupHeartbeatControl() throws MTSException
 //    {
 //        comModule.addSubscriptionTopic(DivasTopic.heartbeatTopic, new Subscriber()
@@ -237,11 +328,47 @@ public class Heartbeat implements Serializable
         });
     }
 
+    private void recordPhaseTime(Phase p, long duration)
+    {
+        if(duration <= 0)
+            return;
+
+        if(agentPhaseTimes == null)
+        {
+            agentPhaseTimes = new StatsHelper(PHASE_TIMES_WINDOW);
+            environmentPhaseTimes = new StatsHelper(PHASE_TIMES_WINDOW);
+        }
+
+        if(p == Phase.AGENT)
+            agentPhaseTimes.add(duration / 1000000f);
+        else if(p == Phase.ENVIRONMENT)
+            environmentPhaseTimes.add(duration / 1000000f);
+    }
+
+    /**
+     * Gets the average execution time of the last agent phases
+     * 
+     * @return the agent phase time in milliseconds
+     */
+    public float getAgentPhaseTime()
+    {
+        return (agentPhaseTimes == null) ? 0 : agentPhaseTimes.getAverage();
+    }
+
+    /**
+     * Gets the average execution time of the last environment phases
+     * 
+     * @return the environment phase time in milliseconds
+     */
+    public float getEnvironmentPhaseTime()
+    {
+        return (environmentPhaseTimes == null) ? 0 : environmentPhaseTimes.getAverage();
+    }
+
     private void tick(long cycles, Phase phase, long simTime, int period)
     {
-        // update tick payload data with new tick and simTime
-        tickPayload.setData(new TickMsg(cycles, phase, simTime, period));
-        sendHeartBeatMessage(tickPayload);
+        // publishes a new payload for every tick, since the MTS may deliver it after the next tick
+        sendHeartBeatMessage(new MTSPayload(TICK, new TickMsg(cycles, phase, simTime, period)));
     }
 
     /**
@@ -355,9 +482,13 @@ public class Heartbeat implements Serializable
             logger.info("Starting heartbeat");
 
             beating = true;
+            directScheduling = SimConfig.getInstance().direct_phase_scheduling;
 
             // resumes beating from current phase
-            sendPhaseMessage(new MTSPayload(0, new PhaseMsg(phase)));
+            if(directScheduling)
+                scheduler.execute(directSchedulerTask());
+            else
+                sendPhaseMessage(new MTSPayload(0, new PhaseMsg(phase)));
 
             // key > 0 indicates that is beating
             //sendHeartBeatMessage(new MTSPayload(1, null));
@@ -394,6 +525,8 @@ public class Heartbeat implements Serializable
      */
     public void terminate()
     {
+        beating = false;
+        scheduler.terminate();
         comModule.forceDisconnect();
     }
 }
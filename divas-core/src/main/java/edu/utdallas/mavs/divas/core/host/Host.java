@@ -1,14 +1,17 @@
 package edu.utdallas.mavs.divas.core.host;
 
 import java.io.File;
+import java.util.List;
 
 import org.apache.log4j.lf5.viewer.configure.ConfigurationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.utdallas.mavs.divas.core.config.Config;
+import edu.utdallas.mavs.divas.core.config.HostConfig;
 import edu.utdallas.mavs.divas.core.sim.Phase;
 import edu.utdallas.mavs.divas.core.sim.Simulation;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
 import edu.utdallas.mavs.divas.core.sim.env.Environment;
 import edu.utdallas.mavs.divas.mts.MTSBroker;
 import edu.utdallas.mavs.divas.mts.MTSClient;
@@ -45,6 +48,11 @@ public abstract class Host
      */
     protected HostConfigManager    configManager;
 
+    /**
+     * The configuration of the Host, whose MTS topic types are applied when the Host starts
+     */
+    protected HostConfig           hostConfig;
+
     /**
      * The local MTS broker of the Host
      */
@@ -89,6 +97,7 @@ public abstract class Host
         logger.debug("Creating Host instance");
         hostID = "name";
         multithreader = new Multithreader("HostThrd", ThreadPoolType.FIXED);
+        hostConfig = new HostConfig();
         instance = this;
     }
 
@@ -217,11 +226,14 @@ public abstract class Host
      */
     protected void createClient(final String hostname, final String port)
     {
+        hostConfig.applyTopicTypes();
+
         client = new MTSClient(hostname, port);
 
         client.startQuietly();
 
         configManager = new HostConfigManager(client);
+        configManager.updateHostConfig(hostConfig);
 
         heartbeat = new Heartbeat(client);
         idManager = new IdManager(client);
@@ -346,6 +358,27 @@ public abstract class Host
         configManager.sendClearAllMsg();
     }
 
+    /**
+     * Loads an existing simulation from the contents of a checkpoint.
+     *
+     * @param simSnapshot
+     *        the snapshot of the heartbeat and of the id manager
+     * @param cellMap
+     *        the cell map
+     * @param cellControllers
+     *        the cell controllers
+     * @see Checkpointer
+     */
+    public void loadCheckpoint(SimSnapshot<?> simSnapshot, CellMap cellMap, List<?> cellControllers)
+    {
+        heartbeat.copyFrom(simSnapshot.getHeartbeat());
+        idManager.copyFrom(simSnapshot.getIdManager());
+        simulation.getEnvironment().restore(cellMap, cellControllers);
+
+        // notify visualizer that the simulation is loading/restarting
+        configManager.sendClearAllMsg();
+    }
+
     private void destroySimulationAndWait()
     {
         multithreader.executeAndWait(destroySimulationTask());
@@ -428,6 +461,16 @@ public abstract class Host
         return configManager;
     }
 
+    /**
+     * Gets the configuration of this {@link Host}. The MTS topic types must be set before the Host starts.
+     * 
+     * @return the Host configuration
+     */
+    public HostConfig getHostConfig()
+    {
+        return hostConfig;
+    }
+
     /**
      * Gets the id of the {@link Host}
      * 
@@ -36,6 +36,26 @@ public class SimLoader
         }
     }
 
+    /**
+     * Loads the simulation from the checkpoints in the given directory.
+     * 
+     * @param directory
+     *        The directory with the checkpoints to be loaded from.
+     * @see Checkpointer
+     */
+    public static void loadCheckpoint(File directory)
+    {
+        try
+        {
+            Checkpointer.restore(directory);
+            logger.info("Loaded a simulation checkpoint from directory: {}", directory.getPath());
+        }
+        catch(ClassNotFoundException | IOException e)
+        {
+            logger.error("Error loading simulation checkpoint", e);
+        }
+    }
+
     /**
      * Saves this simulation instance in the given file.
      * 
@@ -0,0 +1,47 @@
+package edu.utdallas.mavs.divas.core.msg;
+
+import java.io.Serializable;
+import java.util.List;
+
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+
+/**
+ * This class describes the message for requesting the cells to publish their next update as a keyframe.
+ * <p>
+ * Clients that start receiving cell updates in the middle of a simulation send this message to get all the entities
+ * of the cells, since the updates in between keyframes only carry the entities that changed.
+ */
+public class KeyframeRequestMsg implements Serializable
+{
+	private static final long	serialVersionUID	= 1L;
+
+	private final List<CellID>	cellIDs;
+
+	/**
+	 * Creates a request for all the cells to publish a keyframe.
+	 */
+	public KeyframeRequestMsg()
+	{
+		this(null);
+	}
+
+	/**
+	 * Creates a request for the given cells to publish a keyframe. Cells split or merged since the client received
+	 * the given cells publish a keyframe in their place.
+	 * 
+	 * @param cellIDs
+	 *        the IDs of the cells, or <code>null</code> for all the cells
+	 */
+	public KeyframeRequestMsg(List<CellID> cellIDs)
+	{
+		this.cellIDs = cellIDs;
+	}
+
+	/**
+	 * @return the IDs of the cells that must publish a keyframe, or <code>null</code> for all the cells
+	 */
+	public List<CellID> getCellIDs()
+	{
+		return cellIDs;
+	}
+}
@@ -15,6 +15,8 @@ public class PhaseMsg implements Serializable
 
 	Phase						phase;
 
+	long						duration;
+
 	/**
 	 * @return The <code>Phase</code> set in this message.
 	 */
@@ -46,4 +48,26 @@ public class PhaseMsg implements Serializable
 		this.phase = phase;
 	}
 
+	/**
+	 * Constructs the <code>PhaseMsg</code> object using the given <code>Phase</code> and the time it took to execute.
+	 * 
+	 * @param phase
+	 *        The <code>Phase</code> to be set in the message.
+	 * @param duration
+	 *        The execution time of the phase, in nanoseconds.
+	 */
+	public PhaseMsg(Phase phase, long duration)
+	{
+		this(phase);
+		this.duration = duration;
+	}
+
+	/**
+	 * @return The execution time of the phase in nanoseconds, or 0 if it is unknown.
+	 */
+	public long getDuration()
+	{
+		return duration;
+	}
+
 }
@@ -55,6 +55,10 @@ public class SimLoaderMsg implements Serializable
          * Save environment command
          */
         SAVE_ENVIRONMENT,
+        /**
+         * Load simulation checkpoint command
+         */
+        LOAD_CHECKPOINT,
         
     }
 
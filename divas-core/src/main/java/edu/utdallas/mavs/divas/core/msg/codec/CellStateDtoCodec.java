@@ -0,0 +1,146 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.mts.MTSCodec;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
+
+/**
+ * Binary codec for <code>CellStateDto</code> payloads.
+ * <p>
+ * Agent and environment object states are written by <code>StateCodec</code>. Events and the cell map have many subclasses and node types, so they are still written with Java serialization.
+ */
+public class CellStateDtoCodec implements MTSCodec<CellStateDto>
+{
+    @Override
+    public int getId()
+    {
+        return 5;
+    }
+
+    @Override
+    public Class<CellStateDto> getType()
+    {
+        return CellStateDto.class;
+    }
+
+    @Override
+    public void write(CellStateDto data, DataOutput out) throws IOException
+    {
+        out.writeLong(data.getCycleNumber());
+        out.writeInt(data.getPeriod());
+        writeCellID(out, data.getId());
+        writeBounds(out, data.getBounds());
+        StateCodec.writeStates(out, data.getAgentStates());
+        StateCodec.writeStates(out, data.getEnvObjects());
+        StateCodec.writeSerializedList(out, data.getEvents());
+        DataIOHelper.writeSerialized(out, data.getCellMap());
+
+        out.writeBoolean(data.isKeyframe());
+        if(!data.isKeyframe())
+        {
+            writeIds(out, data.getRemovedAgents());
+            writeIds(out, data.getRemovedEnvObjects());
+            out.writeInt(data.getAgentCount());
+            out.writeInt(data.getEnvObjectCount());
+        }
+    }
+
+    @Override
+    public CellStateDto read(DataInput in) throws IOException
+    {
+        long cycles = in.readLong();
+        int period = in.readInt();
+        CellID id = readCellID(in);
+        CellBounds bounds = readBounds(in);
+        List<AgentState> agents = StateCodec.readStates(in, AgentState.class);
+        List<EnvObjectState> envObjects = StateCodec.readStates(in, EnvObjectState.class);
+        List<EnvEvent> events = StateCodec.readSerializedList(in);
+        CellMap cellMap = (CellMap) DataIOHelper.readSerialized(in);
+        CellStateDto data = new CellStateDto(id, bounds, agents, envObjects, events, cycles, period, cellMap);
+
+        boolean keyframe = in.readBoolean();
+        if(!keyframe)
+        {
+            List<Integer> removedAgents = readIds(in);
+            List<Integer> removedEnvObjects = readIds(in);
+            data.setDelta(removedAgents, removedEnvObjects, in.readInt(), in.readInt());
+        }
+        return data;
+    }
+
+    private static void writeIds(DataOutput out, List<Integer> ids) throws IOException
+    {
+        out.writeInt(ids.size());
+        for(int id : ids)
+            out.writeInt(id);
+    }
+
+    private static List<Integer> readIds(DataInput in) throws IOException
+    {
+        int count = in.readInt();
+        List<Integer> ids = new ArrayList<Integer>(count);
+        for(int i = 0; i < count; i++)
+            ids.add(in.readInt());
+        return ids;
+    }
+
+    private static void writeCellID(DataOutput out, CellID id) throws IOException
+    {
+        out.writeBoolean(id != null);
+        if(id != null)
+            out.writeLong(id.toLong());
+    }
+
+    private static CellID readCellID(DataInput in) throws IOException
+    {
+        if(!in.readBoolean())
+            return null;
+
+        try
+        {
+            return CellID.fromLong(in.readLong());
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeBounds(DataOutput out, CellBounds bounds) throws IOException
+    {
+        out.writeBoolean(bounds != null);
+        if(bounds != null)
+        {
+            out.writeFloat(bounds.x);
+            out.writeFloat(bounds.y);
+            out.writeFloat(bounds.width);
+            out.writeFloat(bounds.height);
+            out.writeFloat(bounds.getMin_Y());
+            out.writeFloat(bounds.getMax_Y());
+        }
+    }
+
+    private static CellBounds readBounds(DataInput in) throws IOException
+    {
+        if(!in.readBoolean())
+            return null;
+
+        CellBounds bounds = new CellBounds();
+        bounds.setRect(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+        bounds.setMin_Y(in.readFloat());
+        bounds.setMax_Y(in.readFloat());
+        return bounds;
+    }
+}
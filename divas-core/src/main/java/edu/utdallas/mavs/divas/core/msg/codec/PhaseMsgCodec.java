@@ -0,0 +1,42 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.utdallas.mavs.divas.core.msg.PhaseMsg;
+import edu.utdallas.mavs.divas.core.sim.Phase;
+import edu.utdallas.mavs.divas.mts.MTSCodec;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
+
+/**
+ * Binary codec for <code>PhaseMsg</code> payloads.
+ */
+public class PhaseMsgCodec implements MTSCodec<PhaseMsg>
+{
+    @Override
+    public int getId()
+    {
+        return 2;
+    }
+
+    @Override
+    public Class<PhaseMsg> getType()
+    {
+        return PhaseMsg.class;
+    }
+
+    @Override
+    public void write(PhaseMsg data, DataOutput out) throws IOException
+    {
+        DataIOHelper.writeEnum(out, data.getPhase());
+        out.writeLong(data.getDuration());
+    }
+
+    @Override
+    public PhaseMsg read(DataInput in) throws IOException
+    {
+        Phase phase = DataIOHelper.readEnum(in, Phase.class);
+        return new PhaseMsg(phase, in.readLong());
+    }
+}
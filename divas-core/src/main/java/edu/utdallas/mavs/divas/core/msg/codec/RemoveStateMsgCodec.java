@@ -0,0 +1,38 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
+import edu.utdallas.mavs.divas.mts.MTSCodec;
+
+/**
+ * Binary codec for <code>RemoveStateMsg</code> payloads.
+ */
+public class RemoveStateMsgCodec implements MTSCodec<RemoveStateMsg>
+{
+    @Override
+    public int getId()
+    {
+        return 4;
+    }
+
+    @Override
+    public Class<RemoveStateMsg> getType()
+    {
+        return RemoveStateMsg.class;
+    }
+
+    @Override
+    public void write(RemoveStateMsg data, DataOutput out) throws IOException
+    {
+        StateCodec.writeState(out, data.getState());
+    }
+
+    @Override
+    public RemoveStateMsg read(DataInput in) throws IOException
+    {
+        return new RemoveStateMsg(StateCodec.readState(in));
+    }
+}
@@ -0,0 +1,224 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
+
+/**
+ * This class writes and reads virtual states in binary form for the MTS codecs.
+ * <p>
+ * A state is written with {@link VirtualState#writeFields(DataOutput)} when its class is registered in this class, and with Java serialization otherwise. Classes are matched exactly, since a
+ * subclass may add properties that its superclass does not write. Applications defining their own states may register them with <code>register(int, Class)</code>, provided the classes override
+ * <code>writeFields</code> and <code>readFields</code> and have a public no-argument constructor.
+ */
+public class StateCodec
+{
+    private static final byte                                         NULL       = 0;
+
+    private static final byte                                         SERIALIZED = -1;
+
+    private static final Map<Class<? extends VirtualState>, Byte>     tags       = new ConcurrentHashMap<Class<? extends VirtualState>, Byte>();
+
+    private static final Map<Byte, Class<? extends VirtualState>>     classes    = new ConcurrentHashMap<Byte, Class<? extends VirtualState>>();
+
+    static
+    {
+        register(1, AgentState.class);
+        register(2, HumanAgentState.class);
+        register(3, EnvObjectState.class);
+    }
+
+    /**
+     * Registers a state class to be written in binary form.
+     *
+     * @param tag
+     *        the tag identifying the class in the written data, from 1 to 127. Tags 1 to 15 are reserved for the
+     *        states of the framework.
+     * @param stateClass
+     *        the state class
+     * @throws IllegalArgumentException
+     *         if the tag is out of range or already used by another class
+     */
+    public static synchronized void register(int tag, Class<? extends VirtualState> stateClass)
+    {
+        if(tag <= 0 || tag > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("State tag out of range: " + tag);
+
+        Class<? extends VirtualState> registered = classes.get((byte) tag);
+        if(registered != null && registered != stateClass)
+            throw new IllegalArgumentException("State tag " + tag + " is already used by " + registered.getName());
+
+        tags.put(stateClass, (byte) tag);
+        classes.put((byte) tag, stateClass);
+    }
+
+    /**
+     * Checks if the given state class is written in binary form, that is, if all its properties are written by its
+     * <code>writeFields</code> method.
+     *
+     * @param stateClass
+     *        the state class
+     * @return true if the class is registered. Otherwise, false.
+     */
+    public static boolean isRegistered(Class<? extends VirtualState> stateClass)
+    {
+        return tags.containsKey(stateClass);
+    }
+
+    /**
+     * Writes a state, which may be null.
+     *
+     * @param out
+     *        the output stream
+     * @param state
+     *        the state to be written
+     * @throws IOException
+     *         if the state could not be written
+     */
+    public static void writeState(DataOutput out, VirtualState state) throws IOException
+    {
+        if(state == null)
+        {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Byte tag = tags.get(state.getClass());
+        if(tag != null)
+        {
+            out.writeByte(tag);
+            state.writeFields(out);
+        }
+        else
+        {
+            out.writeByte(SERIALIZED);
+            DataIOHelper.writeSerialized(out, state);
+        }
+    }
+
+    /**
+     * Reads a state written by <code>writeState</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the state read, or null
+     * @throws IOException
+     *         if the state could not be read
+     */
+    public static VirtualState readState(DataInput in) throws IOException
+    {
+        byte tag = in.readByte();
+        if(tag == NULL)
+            return null;
+        if(tag == SERIALIZED)
+            return (VirtualState) DataIOHelper.readSerialized(in);
+
+        Class<? extends VirtualState> stateClass = classes.get(tag);
+        if(stateClass == null)
+            throw new IOException("Unknown state tag: " + tag);
+
+        VirtualState state;
+        try
+        {
+            state = stateClass.newInstance();
+        }
+        catch(InstantiationException | IllegalAccessException e)
+        {
+            throw new IOException("Could not create state of type " + stateClass.getName(), e);
+        }
+        state.readFields(in);
+        return state;
+    }
+
+    /**
+     * Writes a list of states, which may be null.
+     *
+     * @param out
+     *        the output stream
+     * @param states
+     *        the states to be written
+     * @throws IOException
+     *         if the states could not be written
+     */
+    public static void writeStates(DataOutput out, List<? extends VirtualState> states) throws IOException
+    {
+        if(states == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(states.size());
+        for(VirtualState state : states)
+            writeState(out, state);
+    }
+
+    /**
+     * Reads a list of states written by <code>writeStates</code>.
+     *
+     * @param in
+     *        the input stream
+     * @param type
+     *        the type of the states
+     * @return the states read, or null
+     * @throws IOException
+     *         if the states could not be read or are not of the given type
+     */
+    public static <S extends VirtualState> List<S> readStates(DataInput in, Class<S> type) throws IOException
+    {
+        int count = in.readInt();
+        if(count < 0)
+            return null;
+
+        List<S> states = new ArrayList<S>(count);
+        for(int i = 0; i < count; i++)
+        {
+            VirtualState state = readState(in);
+            if(state != null && !type.isInstance(state))
+                throw new IOException("Expected " + type.getName() + " but read " + state.getClass().getName());
+            states.add(type.cast(state));
+        }
+        return states;
+    }
+
+    /**
+     * Writes a list of objects, which may be null, with Java serialization.
+     *
+     * @param out
+     *        the output stream
+     * @param list
+     *        the objects to be written
+     * @throws IOException
+     *         if the objects could not be written
+     */
+    public static void writeSerializedList(DataOutput out, List<? extends Serializable> list) throws IOException
+    {
+        DataIOHelper.writeSerialized(out, list == null ? null : new ArrayList<Serializable>(list));
+    }
+
+    /**
+     * Reads a list of objects written by <code>writeSerializedList</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the objects read, or null
+     * @throws IOException
+     *         if the objects could not be read
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> readSerializedList(DataInput in) throws IOException
+    {
+        return (List<T>) DataIOHelper.readSerialized(in);
+    }
+}
@@ -0,0 +1,38 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.utdallas.mavs.divas.core.msg.StateUpdateMsg;
+import edu.utdallas.mavs.divas.mts.MTSCodec;
+
+/**
+ * Binary codec for <code>StateUpdateMsg</code> payloads.
+ */
+public class StateUpdateMsgCodec implements MTSCodec<StateUpdateMsg>
+{
+    @Override
+    public int getId()
+    {
+        return 3;
+    }
+
+    @Override
+    public Class<StateUpdateMsg> getType()
+    {
+        return StateUpdateMsg.class;
+    }
+
+    @Override
+    public void write(StateUpdateMsg data, DataOutput out) throws IOException
+    {
+        StateCodec.writeState(out, data.getState());
+    }
+
+    @Override
+    public StateUpdateMsg read(DataInput in) throws IOException
+    {
+        return new StateUpdateMsg(StateCodec.readState(in));
+    }
+}
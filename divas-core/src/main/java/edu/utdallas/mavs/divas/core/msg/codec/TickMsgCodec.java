@@ -0,0 +1,47 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.utdallas.mavs.divas.core.msg.TickMsg;
+import edu.utdallas.mavs.divas.core.sim.Phase;
+import edu.utdallas.mavs.divas.mts.MTSCodec;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
+
+/**
+ * Binary codec for <code>TickMsg</code> payloads.
+ */
+public class TickMsgCodec implements MTSCodec<TickMsg>
+{
+    @Override
+    public int getId()
+    {
+        return 1;
+    }
+
+    @Override
+    public Class<TickMsg> getType()
+    {
+        return TickMsg.class;
+    }
+
+    @Override
+    public void write(TickMsg data, DataOutput out) throws IOException
+    {
+        out.writeLong(data.getCycles());
+        DataIOHelper.writeEnum(out, data.getPhase());
+        out.writeLong(data.getSimTime());
+        out.writeInt(data.getPeriod());
+    }
+
+    @Override
+    public TickMsg read(DataInput in) throws IOException
+    {
+        long cycles = in.readLong();
+        Phase phase = DataIOHelper.readEnum(in, Phase.class);
+        long simTime = in.readLong();
+        int period = in.readInt();
+        return new TickMsg(cycles, phase, simTime, period);
+    }
+}
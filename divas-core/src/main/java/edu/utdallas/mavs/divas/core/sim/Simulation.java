@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import edu.utdallas.mavs.divas.core.client.dto.SimDto;
 import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.host.Checkpointer;
 import edu.utdallas.mavs.divas.core.host.Heartbeat;
 import edu.utdallas.mavs.divas.core.host.Host;
 import edu.utdallas.mavs.divas.core.host.SimLoader;
@@ -26,7 +27,6 @@ import edu.utdallas.mavs.divas.mts.MTSException;
 import edu.utdallas.mavs.divas.mts.MTSPayload;
 import edu.utdallas.mavs.divas.mts.Subscriber;
 import edu.utdallas.mavs.divas.utils.Multithreader;
-import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
 
 /**
  * This class describes the abstract DIVAs simulation.
@@ -95,6 +95,11 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
      */
     protected transient Multithreader                   multithreader;
 
+    /**
+     * Takes the periodic checkpoints of the simulation, created when checkpointing is first enabled
+     */
+    protected transient Checkpointer                    checkpointer;
+
     /**
      * Creates the simulation situated environment
      * 
@@ -114,7 +119,7 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
         this.client = client;
         this.setStatus(Status.STOPPED);
         this.simSnapshotRequestBuffer = new ConcurrentLinkedQueue<Runnable>();
-        this.multithreader = new Multithreader("SimThrd", ThreadPoolType.FIXED, 5, false);
+        this.multithreader = new Multithreader("SimThrd", SimConfig.getInstance().simulation_pool, SimConfig.getInstance().simulation_threads, false);
 
         this.comModule = new CommunicationModule(client);
 
@@ -234,6 +239,12 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
 
         environment.terminate();
 
+        if(checkpointer != null)
+        {
+            checkpointer.terminate();
+            checkpointer = null;
+        }
+
         // zero the heartbeat's tick count
         // sendMessage(new MTSPayload(-1,
         // HeartbeatCommandMsg.getResetCommand()), DivasTopic.timeControlTopic);
@@ -308,6 +319,7 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
         {
             sendSimSummary();
             processSimSnapshotRequestBuffer();
+            checkpoint();
         }
         environment.executePhase(cycles, tick.getPhase());
 
@@ -323,6 +335,21 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
         }
     }
 
+    /**
+     * Captures a checkpoint of the simulation if one is due. Cells are not processed at the beginning of the agent
+     * phase, so the checkpoint is consistent.
+     */
+    private void checkpoint()
+    {
+        if(checkpointer == null)
+        {
+            if(SimConfig.getInstance().checkpoint_interval <= 0)
+                return;
+            checkpointer = new Checkpointer(new File(Checkpointer.DEFAULT_DIRECTORY));
+        }
+        checkpointer.checkpointIfDue(cycles, environment);
+    }
+
     private void sendSimSummary()
     {
         Runnable task = new Runnable()
@@ -422,7 +449,8 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
             @Override
             public void messageReceived(String topic, final MTSPayload payload)
             {
-                if(payload.getData() instanceof TickMsg)
+                // tick notifications are executed by the heartbeat itself
+                if(payload.getKey() == Heartbeat.TICK && payload.getData() instanceof TickMsg)
                 {
                     logger.debug("Receiving tick message from the heartbeat");
                     tick((TickMsg) payload.getData());
@@ -467,6 +495,12 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
         };
     }
 
+    private void requestFullCheckpoint()
+    {
+        if(checkpointer != null)
+            checkpointer.requestFullCheckpoint();
+    }
+
     private Subscriber simSnapshotHandler()
     {
         return new Subscriber()
@@ -486,10 +520,17 @@ public abstract class Simulation<E extends Environment<?>> implements Serializab
                     break;
                 case LOAD_SIMULATION:
                     SimLoader.loadSimulation(msg.getFile());
+                    requestFullCheckpoint();
+                    sendMessage(createSimSummary(), DivasTopic.simSummaryTopic);
+                    break;
+                case LOAD_CHECKPOINT:
+                    SimLoader.loadCheckpoint(msg.getFile());
+                    requestFullCheckpoint();
                     sendMessage(createSimSummary(), DivasTopic.simSummaryTopic);
                     break;
                 case LOAD_ENVIRONMENT_XML:
                     Host.getHost().loadEnvironment(msg.getFile());
+                    requestFullCheckpoint();
                     sendMessage(createSimSummary(), DivasTopic.simSummaryTopic);
                     break;
                 case SAVE_ENVIRONMENT:
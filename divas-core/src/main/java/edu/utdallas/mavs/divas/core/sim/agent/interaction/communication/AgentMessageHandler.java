@@ -40,6 +40,11 @@ public class AgentMessageHandler
 
     private static Multithreader                             agentMessengerService;
 
+    /**
+     * Whether the outbox is processed by direct calls to {@link #processOutbox()} instead of the messaging service
+     */
+    private volatile boolean                                 stepped;
+
     private AgentMessageHandler()
     {
         startMessageService();
@@ -137,13 +142,26 @@ public class AgentMessageHandler
 
                 // sh.add((float) outbox.size());
                 // System.out.println("------------------------------------------- OUTBOX: "+sh.getAverage());
-                processOutbox();
+                if(!stepped)
+                    processOutbox();
 
             }
         };
         return task;
     }
 
+    /**
+     * Sets whether the outbox is processed by direct calls to {@link #processOutbox()} instead of the messaging
+     * service. The messages are then passed to the agents by the calling thread, in the order they were sent.
+     * 
+     * @param stepped
+     *        true to process the outbox by direct calls only
+     */
+    public void setStepped(boolean stepped)
+    {
+        this.stepped = stepped;
+    }
+
     /**
      * Process the outbox until MESSENGEHANDLER_MAX_MESSAGE are sent.
      */
@@ -160,7 +178,10 @@ public class AgentMessageHandler
             // @Override
             // public void run()
             // {
-            sendMessage(new MTSPayload(0, am), DivasTopic.agentMessageTopic);
+            if(stepped)
+                passMessageToAgent(am);
+            else
+                sendMessage(new MTSPayload(0, am), DivasTopic.agentMessageTopic);
             // }
             // };
             // multithreader.execute(task);
@@ -3,39 +3,72 @@ package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.data.SensedData;
 import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.PhysicalSensor;
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.KnowledgeModule;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty.Sense;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 
 /**
  * This class describes an abstract agent's percpetion module.
+ * <p>
+ * When <code>parallel_sensors</code> is set and the agent perceives inside a fork/join pool, the sensors of the agent
+ * may run concurrently as subtasks of the agent task. Sensors are split only when the time they are expected to save,
+ * estimated from their previous runs, reaches a threshold that adapts to the savings actually measured. The output of
+ * each subtask is buffered and merged into the KnowledgeModule in sensor order once all the subtasks completed, so the
+ * KnowledgeModule is never used concurrently. Hence, sensors must report their output through
+ * {@link #addPerceivedAgent(AgentState)}, {@link #addPerceivedEnvObj(EnvObjectState)} and
+ * {@link #addPerceivedData(SensedData)}, and must not modify the perceived lists.
  * 
  * @param <KM>
  *        the agent's KnowledgeModule type
  */
 public abstract class AbstractPerceptionModule<KM extends KnowledgeModule<?>> implements PerceptionModule, Serializable
 {
-    private static final long                 serialVersionUID = 1L;
+    private static final long                      serialVersionUID    = 1L;
+
+    private static final long                      MIN_SPLIT_THRESHOLD = 20000;
+
+    private static final long                      MAX_SPLIT_THRESHOLD = 20000000;
+
+    /**
+     * The time, in nanoseconds, splitting the sensors of an agent is expected to save for it to be worth it
+     */
+    private static volatile long                   splitThreshold      = 200000;
+
+    /**
+     * The output buffer of the sensor subtask running in the current thread
+     */
+    private static final ThreadLocal<SensorOutput> outputs             = new ThreadLocal<SensorOutput>();
 
     /**
      * The agent's KnowledgeModule
      */
-    protected KM                              knowledgeModule;
+    protected KM                                   knowledgeModule;
 
     /**
      * The perception combination module, for combining raw perception into knowledge
      */
-    protected PerceptionCombinationModule<KM> perceptionCombinationModule;
+    protected PerceptionCombinationModule<KM>      perceptionCombinationModule;
 
     /**
      * The agent's sensors
      */
-    public List<PhysicalSensor<KM, ?>>        senses;
+    public List<PhysicalSensor<KM, ?>>             senses;
+
+    /**
+     * The average time, in nanoseconds, each sensor takes to perceive
+     */
+    private transient long[]                       sensorCosts;
 
     /**
      * Creates a new agent perception module
@@ -74,7 +107,64 @@ public abstract class AbstractPerceptionModule<KM extends KnowledgeModule<?>> im
      */
     public void addPerceivedData(SensedData sd)
     {
-        perceptionCombinationModule.addPerceivedData(sd);
+        SensorOutput output = outputs.get();
+        if(output != null && output.module == this)
+            output.data.add(sd);
+        else
+            perceptionCombinationModule.addPerceivedData(sd);
+    }
+
+    /**
+     * Creates a new raw sensed data, reusing the sensed data of previous ticks. The sensed data must be added through
+     * {@link #addPerceivedData(SensedData)}.
+     * 
+     * @param time
+     *        the time the event was sensed
+     * @param type
+     *        the type of event that was sensed
+     * @param sense
+     *        the sense that sensed it
+     * @param value
+     *        the value of the sensed data
+     * @param certaintyPercent
+     *        the certainty percent that this event occurred.
+     * @param trustConstant
+     *        the trust constant
+     * @return the sensed data
+     */
+    public SensedData newSensedData(long time, String type, Sense sense, float value, float certaintyPercent, float trustConstant)
+    {
+        return perceptionCombinationModule.newSensedData(time, type, sense, value, certaintyPercent, trustConstant);
+    }
+
+    /**
+     * Add an agent perceived this tick to the agent's KnowledgeModule
+     * 
+     * @param agent
+     *        the perceived agent
+     */
+    public void addPerceivedAgent(AgentState agent)
+    {
+        SensorOutput output = outputs.get();
+        if(output != null && output.module == this)
+            output.agents.add(agent);
+        else
+            knowledgeModule.addAgent(agent);
+    }
+
+    /**
+     * Add an environment object perceived this tick to the agent's KnowledgeModule
+     * 
+     * @param envObj
+     *        the perceived environment object
+     */
+    public void addPerceivedEnvObj(EnvObjectState envObj)
+    {
+        SensorOutput output = outputs.get();
+        if(output != null && output.module == this)
+            output.envObjs.add(envObj);
+        else
+            knowledgeModule.addEnvObj(envObj);
     }
 
     @Override
@@ -106,21 +196,177 @@ public abstract class AbstractPerceptionModule<KM extends KnowledgeModule<?>> im
         senses.remove(sense);
     }
 
+    /**
+     * Perceives the given cell state. When the range of the enabled sensors is limited, only the agents, environment
+     * objects and events whose extent lies within that range of the agent are passed onto the sensors, as found by the
+     * spatial index of the cell state. The bounds of an event contain its origin and every point it can be sensed from.
+     * 
+     * @param cell
+     *        the perceived cell state
+     */
     @Override
     public void perceive(CellState cell)
     {
         clearPerceptionData();
 
-        perceiveAgents(cell.getAgentStates());
+        List<AgentState> agentStates;
+        List<EnvObjectState> objs;
+        List<EnvEvent> events;
+
+        float range = getRange();
+        if(range < Float.POSITIVE_INFINITY)
+        {
+            Vector3f position = knowledgeModule.getSelf().getPosition();
+            agentStates = cell.getAgentStatesInRange(position, range);
+            objs = cell.getEnvObjectsInRange(position, range);
+            events = cell.getEventsInRange(position, range);
+        }
+        else
+        {
+            agentStates = cell.getAgentStates();
+            objs = cell.getEnvObjects();
+            events = cell.getEvents();
+        }
+
+        if(SimConfig.getInstance().parallel_sensors)
+        {
+            perceiveBySensor(agentStates, objs, events, cell);
+            return;
+        }
 
-        perceiveEnvObjs(cell.getEnvObjects());
+        perceiveAgents(agentStates);
 
-        perceiveEvents(cell.getEvents());
+        perceiveEnvObjs(objs);
 
-        resolveObstructions();
+        perceiveEvents(events);
+
+        resolveObstructions(cell);
 
     }
 
+    /**
+     * Gets the largest range of the enabled sensors of the agent
+     * 
+     * @return the range of the agent's perception
+     */
+    private float getRange()
+    {
+        float range = 0;
+        for(PhysicalSensor<?, ?> sense : senses)
+        {
+            if(sense.isEnabled())
+                range = Math.max(range, sense.getRange());
+        }
+        return range;
+    }
+
+    /**
+     * Perceives the cell one sensor at a time, splitting the sensors into parallel subtasks when it is worth it. Sensors
+     * are independent, so each sensor adds its output in the same order as when the cell is perceived one step at a
+     * time.
+     * 
+     * @param agentStates
+     *        the perceived agents
+     * @param objs
+     *        the perceived environment objects
+     * @param events
+     *        the perceived events
+     * @param cell
+     *        the perceived cell state
+     */
+    private void perceiveBySensor(List<AgentState> agentStates, List<EnvObjectState> objs, List<EnvEvent> events, CellState cell)
+    {
+        long[] costs = getSensorCosts();
+        long total = 0;
+        long max = 0;
+        for(long cost : costs)
+        {
+            total += cost;
+            max = Math.max(max, cost);
+        }
+
+        if(costs.length > 1 && total - max >= splitThreshold && ForkJoinTask.inForkJoinPool())
+        {
+            long start = System.nanoTime();
+
+            List<SensorTask> tasks = new ArrayList<SensorTask>(costs.length);
+            for(PhysicalSensor<?, ?> sense : senses)
+                tasks.add(new SensorTask(sense, agentStates, objs, events, cell));
+            ForkJoinTask.invokeAll(tasks);
+
+            for(int i = 0; i < costs.length; i++)
+            {
+                SensorTask task = tasks.get(i);
+                updateSensorCost(costs, i, task.elapsed);
+                task.output.merge();
+            }
+
+            adaptSplitThreshold(total, System.nanoTime() - start);
+        }
+        else
+        {
+            for(int i = 0; i < costs.length; i++)
+            {
+                long start = System.nanoTime();
+                perceive(senses.get(i), agentStates, objs, events, cell);
+                updateSensorCost(costs, i, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Perceives the cell with a single sensor
+     * 
+     * @param sense
+     *        the agent sensor
+     * @param agentStates
+     *        the perceived agents
+     * @param objs
+     *        the perceived environment objects
+     * @param events
+     *        the perceived events
+     * @param cell
+     *        the perceived cell state
+     */
+    protected void perceive(PhysicalSensor<?, ?> sense, List<AgentState> agentStates, List<EnvObjectState> objs, List<EnvEvent> events, CellState cell)
+    {
+        sense.perceiveAgents(agentStates);
+        sense.perceiveEnvObjs(objs);
+        sense.perceiveEvents(events);
+        sense.resolveObstructions(cell);
+    }
+
+    private long[] getSensorCosts()
+    {
+        if(sensorCosts == null || sensorCosts.length != senses.size())
+        {
+            sensorCosts = new long[senses.size()];
+        }
+        return sensorCosts;
+    }
+
+    private static void updateSensorCost(long[] costs, int i, long elapsed)
+    {
+        costs[i] = costs[i] == 0 ? elapsed : costs[i] + (elapsed - costs[i]) / 4;
+    }
+
+    /**
+     * Raises the split threshold when splitting did not save time, and lowers it slowly while it does.
+     * 
+     * @param expected
+     *        the time the sensors were expected to take one after the other
+     * @param elapsed
+     *        the time the subtasks took, including the merge
+     */
+    private static void adaptSplitThreshold(long expected, long elapsed)
+    {
+        long threshold = splitThreshold;
+        if(elapsed >= expected)
+            splitThreshold = Math.min(MAX_SPLIT_THRESHOLD, threshold + threshold / 4);
+        else
+            splitThreshold = Math.max(MIN_SPLIT_THRESHOLD, threshold - threshold / 10);
+    }
+
     /**
      * Clean out old perception data from previous cycles
      */
@@ -169,12 +415,90 @@ public abstract class AbstractPerceptionModule<KM extends KnowledgeModule<?>> im
 
     /**
      * Checks for (and remove) obstructed objects
+     * 
+     * @param cell
+     *        the perceived cell state
      */
-    protected void resolveObstructions()
+    protected void resolveObstructions(CellState cell)
     {
         for(PhysicalSensor<?, ?> sense : senses)
         {
-            sense.resolveObstructions();
+            sense.resolveObstructions(cell);
+        }
+    }
+
+    /**
+     * A subtask running one sensor of the agent
+     */
+    private class SensorTask extends RecursiveAction
+    {
+        private static final long          serialVersionUID = 1L;
+
+        private final PhysicalSensor<?, ?> sense;
+
+        private final List<AgentState>     agentStates;
+
+        private final List<EnvObjectState> objs;
+
+        private final List<EnvEvent>       events;
+
+        private final CellState            cell;
+
+        private final SensorOutput         output           = new SensorOutput(AbstractPerceptionModule.this);
+
+        private long                       elapsed;
+
+        SensorTask(PhysicalSensor<?, ?> sense, List<AgentState> agentStates, List<EnvObjectState> objs, List<EnvEvent> events, CellState cell)
+        {
+            this.sense = sense;
+            this.agentStates = agentStates;
+            this.objs = objs;
+            this.events = events;
+            this.cell = cell;
+        }
+
+        @Override
+        protected void compute()
+        {
+            // a worker waiting on subtasks may run other agents' subtasks, so the previous buffer is restored
+            SensorOutput previous = outputs.get();
+            outputs.set(output);
+            long start = System.nanoTime();
+            try
+            {
+                perceive(sense, agentStates, objs, events, cell);
+            }
+            finally
+            {
+                elapsed = System.nanoTime() - start;
+                outputs.set(previous);
+            }
+        }
+    }
+
+    /**
+     * The output of a sensor subtask, waiting to be merged
+     */
+    private static class SensorOutput
+    {
+        final AbstractPerceptionModule<?> module;
+        final List<AgentState>            agents  = new ArrayList<AgentState>();
+        final List<EnvObjectState>        envObjs = new ArrayList<EnvObjectState>();
+        final List<SensedData>            data    = new ArrayList<SensedData>();
+
+        SensorOutput(AbstractPerceptionModule<?> module)
+        {
+            this.module = module;
+        }
+
+        void merge()
+        {
+            for(AgentState agent : agents)
+                module.knowledgeModule.addAgent(agent);
+            for(EnvObjectState envObj : envObjs)
+                module.knowledgeModule.addEnvObj(envObj);
+            for(SensedData sd : data)
+                module.perceptionCombinationModule.addPerceivedData(sd);
         }
     }
 }
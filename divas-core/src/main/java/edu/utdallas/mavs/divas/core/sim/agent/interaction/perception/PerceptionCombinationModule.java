@@ -2,9 +2,12 @@ package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,45 +22,91 @@ import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.data.Sensed
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.KnowledgeModule;
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.external.EventKnowledge;
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.external.EventPropertyKnowledge;
+import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty.Sense;
 
 /**
  * This classs describes an agent's perception combination module.
  * <p>
  * This module is responsible for combining raw sensed data (acquired from the agent's sensors) resulting in knowledge to be memorized by the agent.
+ * <p>
+ * Data describing the same event source are grouped through a {@link SourceIndex}, rather than comparing every piece of
+ * data with every other. The sensed, reasoned and combined data of a cycle are reused in the following cycles, except
+ * for the combined data added to the KnowledgeModule.
  * 
  * @param <KM>
  *        the agent's KnowledgeModule type
  */
 public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implements Serializable
 {
-    private static final long            serialVersionUID = 1L;
+    private static final long                               serialVersionUID = 1L;
+
+    private static final Logger                             logger           = LoggerFactory.getLogger(PerceptionCombinationModule.class);
 
-    private static final Logger          logger           = LoggerFactory.getLogger(PerceptionCombinationModule.class);
+    /**
+     * The maximum number of pieces of data of each kind kept for reuse
+     */
+    private static final int                                MAX_POOLED_DATA  = 256;
 
     /**
      * The agent's KnowledgeModule
      */
-    protected KM                         knowledgeModule;
+    protected KM                                            knowledgeModule;
 
     /**
      * All raw perceived data from this stick
      */
-    protected List<SensedData>           perceivedThisTick;
+    protected List<SensedData>                              perceivedThisTick;
 
     /**
      * All reasoned data from this stick
      */
-    protected List<ReasonedData>         reasonedThisTick;
+    protected List<ReasonedData>                            reasonedThisTick;
 
     /**
      * All combined data from this simulation cycle
      */
-    protected List<CombinedReasonedData> combinedThisTick;
+    protected List<CombinedReasonedData>                    combinedThisTick;
 
     /**
      * The number of events
      */
-    protected int                        eventNumber;
+    protected int                                           eventNumber;
+
+    private transient List<SensedData>                      sensedDataPool;
+
+    private transient List<ReasonedData>                    reasonedDataPool;
+
+    private transient List<CombinedReasonedData>            combinedDataPool;
+
+    private transient List<EventData>                       eventDataPool;
+
+    /**
+     * The possible events of this cycle, from the reasoned data
+     */
+    private transient List<EventKnowledge>                  possibleEvents;
+
+    private transient List<EventData>                       possibleEventsData;
+
+    /**
+     * The sources of the events counted this cycle
+     */
+    private transient SourceIndex                           perceivedSources;
+
+    /**
+     * The reasoned data of this cycle, by predicated name and reasoned type
+     */
+    private transient Map<String, Map<String, SourceIndex>> reasonedSources;
+
+    private transient SourceIndex                           combinedSources;
+
+    private transient Integer[]                             combinedOrder;
+
+    /**
+     * The combined data of this cycle added to the KnowledgeModule, which are not reused
+     */
+    private transient boolean[]                             selected;
+
+    private transient boolean[]                             removed;
 
     /**
      * Creates a new combination module.
@@ -80,6 +129,7 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
      */
     public void combinePerceptions()
     {
+        initCombinationData();
 
         // Combination level 1 is done individually by each sense. Raw sense
         // data is recorded.
@@ -117,12 +167,129 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
      */
     public void clearCombinationData()
     {
+        initCombinationData();
+
+        synchronized(this)
+        {
+            recycle(perceivedThisTick, sensedDataPool);
+        }
+        recycle(reasonedThisTick, reasonedDataPool);
+        recycle(possibleEventsData, eventDataPool);
+        for(int i = 0; i < combinedThisTick.size() && combinedDataPool.size() < MAX_POOLED_DATA; i++)
+        {
+            if(i >= selected.length || !selected[i])
+            {
+                combinedDataPool.add(combinedThisTick.get(i));
+            }
+        }
+
         perceivedThisTick.clear();
         reasonedThisTick.clear();
         combinedThisTick.clear();
+        possibleEvents.clear();
+        possibleEventsData.clear();
         eventNumber = 0;
     }
 
+    private void initCombinationData()
+    {
+        if(possibleEvents == null)
+        {
+            synchronized(this)
+            {
+                if(sensedDataPool == null)
+                {
+                    sensedDataPool = new ArrayList<SensedData>();
+                }
+            }
+            reasonedDataPool = new ArrayList<ReasonedData>();
+            combinedDataPool = new ArrayList<CombinedReasonedData>();
+            eventDataPool = new ArrayList<EventData>();
+            possibleEvents = new ArrayList<EventKnowledge>();
+            possibleEventsData = new ArrayList<EventData>();
+            perceivedSources = new SourceIndex();
+            reasonedSources = new HashMap<String, Map<String, SourceIndex>>();
+            combinedSources = new SourceIndex();
+            combinedOrder = new Integer[0];
+            selected = new boolean[0];
+            removed = new boolean[0];
+        }
+    }
+
+    private static <T> void recycle(List<T> data, List<T> pool)
+    {
+        for(int i = 0; i < data.size() && pool.size() < MAX_POOLED_DATA; i++)
+        {
+            pool.add(data.get(i));
+        }
+    }
+
+    /**
+     * Creates a new sensed data, reusing the sensed data of previous cycles. The sensed data must be added to this
+     * module, and must not be kept after the cycle.
+     * 
+     * @param time
+     *        the time the event was sensed
+     * @param type
+     *        the type of event that was sensed
+     * @param sense
+     *        the sense that sensed it
+     * @param value
+     *        the value of the sensed data
+     * @param certaintyPercent
+     *        the certainty percent that this event occurred.
+     * @param trustConstant
+     *        the trust constant
+     * @return the sensed data
+     */
+    public synchronized SensedData newSensedData(long time, String type, Sense sense, float value, float certaintyPercent, float trustConstant)
+    {
+        if(sensedDataPool == null || sensedDataPool.isEmpty())
+        {
+            return new SensedData(time, type, sense, value, certaintyPercent, trustConstant);
+        }
+
+        SensedData sd = sensedDataPool.remove(sensedDataPool.size() - 1);
+        sd.init(time, type, sense, value, certaintyPercent, trustConstant);
+        return sd;
+    }
+
+    private ReasonedData newReasonedData(long time, float certaintyPercent, String name, String reasonedType)
+    {
+        if(reasonedDataPool.isEmpty())
+        {
+            return new ReasonedData(time, certaintyPercent, name, reasonedType);
+        }
+
+        ReasonedData rd = reasonedDataPool.remove(reasonedDataPool.size() - 1);
+        rd.init(time, certaintyPercent, name, reasonedType);
+        return rd;
+    }
+
+    private CombinedReasonedData newCombinedReasonedData(long time, float certaintyPercent, String name)
+    {
+        if(combinedDataPool.isEmpty())
+        {
+            return new CombinedReasonedData(time, certaintyPercent, name);
+        }
+
+        CombinedReasonedData crd = combinedDataPool.remove(combinedDataPool.size() - 1);
+        crd.init(time, certaintyPercent, name);
+        return crd;
+    }
+
+    private EventData newEventData()
+    {
+        if(eventDataPool.isEmpty())
+        {
+            return new EventData();
+        }
+
+        EventData data = eventDataPool.remove(eventDataPool.size() - 1);
+        data.init();
+        return data;
+    }
+
     /**
      * Add some raw sensed data perceived this tick
      * 
@@ -139,31 +306,23 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
      */
     private void eventCounter()
     {
-        List<SensedData> diff = new ArrayList<SensedData>();
+        perceivedSources.clear();
 
         if(perceivedThisTick.size() > 0)
         {
-            diff.add(perceivedThisTick.get(0));
-        }
+            perceivedSources.add(perceivedThisTick.get(0), 0);
 
-        for(int i = 0; i < perceivedThisTick.size(); i++)
-        {
-            boolean newval = true;
-
-            for(int j = 0; j < diff.size(); j++)
+            Vector3f self = knowledgeModule.getSelf().getPosition();
+            for(int i = 0; i < perceivedThisTick.size(); i++)
             {
-                if(SourceComparison(perceivedThisTick.get(i), diff.get(j)))
+                if(perceivedSources.findFirst(perceivedThisTick.get(i), self) < 0)
                 {
-                    newval = false;
+                    perceivedSources.add(perceivedThisTick.get(i), i);
                 }
             }
-            if(newval == true)
-            {
-                diff.add(perceivedThisTick.get(i));
-            }
         }
 
-        eventNumber = diff.size();
+        eventNumber = perceivedSources.size();
     }
 
     /**
@@ -260,7 +419,7 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
 
             if(reasonedName != null)
             {
-                tempRD = new ReasonedData(knowledgeModule.getTime(), certaintyPercent, reasonedName, reasonedType);
+                tempRD = newReasonedData(knowledgeModule.getTime(), certaintyPercent, reasonedName, reasonedType);
             }
 
             if(reasonedName2 != null)
@@ -299,13 +458,13 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
      */
     private void combinationLevel3()
     {
-        List<EventKnowledge> evks = new ArrayList<EventKnowledge>();
+        List<EventKnowledge> evks = possibleEvents;
 
-        List<EventData> evksData = new ArrayList<EventData>();
+        List<EventData> evksData = possibleEventsData;
         for(int i = 0; i < reasonedThisTick.size(); i++) // create list of possible events from reasoned data
         {
             EventKnowledge tempevk;
-            EventData tempevkData = new EventData();
+            EventData tempevkData = newEventData();
             ReasonedData tempRD = reasonedThisTick.get(i);
             tempevkData.setIntensity(tempRD.getIntensity());
             tempevk = knowledgeModule.getEventKnowledgeByName(tempRD.getPredicatedName());
@@ -325,7 +484,7 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
             if(tempRD.hasPredicatedName2())
             {
                 tempevk = knowledgeModule.getEventKnowledgeByName(tempRD.getPredicatedName2());
-                tempevkData = new EventData();
+                tempevkData = newEventData();
                 if(tempRD.hasDirection())
                 {
                     tempevkData.setDirection(tempRD.getDirection());
@@ -342,7 +501,7 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
             if(tempRD.hasPredicatedName3())
             {
                 tempevk = knowledgeModule.getEventKnowledgeByName(tempRD.getPredicatedName3());
-                tempevkData = new EventData();
+                tempevkData = newEventData();
                 if(tempRD.hasDirection())
                 {
                     tempevkData.setDirection(tempRD.getDirection());
@@ -359,6 +518,9 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
 
         }
 
+        indexReasonedData();
+
+        Vector3f self = evks.isEmpty() ? null : knowledgeModule.getSelf().getPosition();
         for(int i = 0; i < evks.size(); i++) // compare possible event rules with perceived event data
         {
 
@@ -368,53 +530,26 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
             HashMap<String, EventPropertyKnowledge> epks = tempEVK.getEventPropertyKnowledges();
             Iterator<EventPropertyKnowledge> epkiter = epks.values().iterator();
             int counter = 0;
+            Map<String, SourceIndex> sourcesByType = reasonedSources.get(tempEVK.getName());
 
             while(epkiter.hasNext())
             {
                 EventPropertyKnowledge epk = epkiter.next();
-                for(int j = 0; j < reasonedThisTick.size(); j++)
+                SourceIndex sources = sourcesByType == null ? null : sourcesByType.get(epk.getType());
+                if(sources != null)
                 {
-                    if(tempEVK.getName().equals(reasonedThisTick.get(j).getPredicatedName()))
-                    {
-                        if(epk.getType().equals(reasonedThisTick.get(j).getReasonedType()))
-                        {
-                            if(SourceComparison(reasonedThisTick.get(j), evksData.get(i)))
-                            {
-                                counter++;
-                                combinedCertainity = combinedCertainity + reasonedThisTick.get(j).getCertaintyPercent();
-                                break;
-                            }
-                        }
-                    }
-                    else if(tempEVK.getName().equals(reasonedThisTick.get(j).getPredicatedName2()))
-                    {
-                        if(epk.getType().equals(reasonedThisTick.get(j).getReasonedType2()))
-                        {
-                            if(SourceComparison(reasonedThisTick.get(j), evksData.get(i)))
-                            {
-                                counter++;
-                                combinedCertainity = combinedCertainity + reasonedThisTick.get(j).getCertaintyPercent2();
-                                break;
-                            }
-                        }
-                    }
-                    else if(tempEVK.getName().equals(reasonedThisTick.get(j).getPredicatedName3()))
+                    // the first reasoned data predicating this event and property from the same source
+                    int j = sources.findFirst(evksData.get(i), self);
+                    if(j >= 0)
                     {
-                        if(epk.getType().equals(reasonedThisTick.get(j).getReasonedType3()))
-                        {
-                            if(SourceComparison(reasonedThisTick.get(j), evksData.get(i)))
-                            {
-                                counter++;
-                                combinedCertainity = combinedCertainity + reasonedThisTick.get(j).getCertaintyPercent3();
-                                break;
-                            }
-                        }
+                        counter++;
+                        combinedCertainity = combinedCertainity + getCertaintyPercent((ReasonedData) sources.get(j), sources.getTag(j));
                     }
                 }
             }
 
             // create combined data
-            crd = new CombinedReasonedData(knowledgeModule.getTime(), combinedCertainity, tempEVK.getName());
+            crd = newCombinedReasonedData(knowledgeModule.getTime(), combinedCertainity, tempEVK.getName());
             crd.setMaxEvents(tempEVK.getEventPropertyKnowledges().size());
             crd.setEventCounter(counter);
             if(evksData.get(i).hasDirection())
@@ -437,164 +572,72 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
     }
 
     /**
-     * Source Comparison of events
-     * 
-     * @param curItem
-     *        Item 1 being compared
-     * @param otherItem
-     *        Item 2 being compared
-     * @return whether they are close enough to be considered to be the same event
+     * Indexes the reasoned data of this cycle by predicated name and reasoned type. A reasoned data matches an event
+     * name with its first predicated name equal to it, so later predicated names equal to an earlier one are not
+     * indexed.
      */
-    private boolean SourceComparison(ReasonedData curItem, EventData otherItem)
+    private void indexReasonedData()
     {
-        boolean rv = false;
-
-        if(curItem.hasOrigin() && otherItem.hasOrigin())
+        for(Map<String, SourceIndex> sourcesByType : reasonedSources.values())
         {
-            if(curItem.getOrigin().distance(otherItem.getOrigin()) < 5)
+            for(SourceIndex sources : sourcesByType.values())
             {
-                rv = true;
+                sources.clear();
             }
         }
-        else if(curItem.hasDirection() && otherItem.hasDirection())
-        {
-            if(curItem.getDirection().normalize().angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-        }
-        else if(curItem.hasOrigin() && otherItem.hasDirection())
+
+        for(int j = 0; j < reasonedThisTick.size(); j++)
         {
-            Vector3f curDir = curItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            curDir.normalize();
+            ReasonedData rd = reasonedThisTick.get(j);
+            String name = rd.getPredicatedName();
+            String name2 = rd.getPredicatedName2();
+            String name3 = rd.getPredicatedName3();
 
-            if(curDir.angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
+            indexReasonedData(rd, name, rd.getReasonedType(), 1);
+            if(name2 != null && !name2.equals(name))
             {
-                rv = true;
+                indexReasonedData(rd, name2, rd.getReasonedType2(), 2);
             }
-
-        }
-        else if(curItem.hasDirection() && otherItem.hasOrigin())
-        {
-            Vector3f otherDir = otherItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            otherDir.normalize();
-
-            if(curItem.getDirection().normalize().angleBetween(otherDir) * FastMath.RAD_TO_DEG < 5)
+            if(name3 != null && !name3.equals(name) && !name3.equals(name2))
             {
-                rv = true;
+                indexReasonedData(rd, name3, rd.getReasonedType3(), 3);
             }
-
         }
-
-        return rv;
-
     }
 
-    /**
-     * Source Comparison of events
-     * 
-     * @param curItem
-     *        Item 1 being compared
-     * @param otherItem
-     *        Item 2 being compared
-     * @return whether they are close enough to be considered to be the same event
-     */
-    private boolean SourceComparison(SensedData curItem, SensedData otherItem)
+    private void indexReasonedData(ReasonedData rd, String name, String type, int rank)
     {
-        boolean rv = false;
-
-        if(curItem.hasOrigin() && otherItem.hasOrigin())
+        if(name == null || type == null)
         {
-            if(curItem.getOrigin().distance(otherItem.getOrigin()) < 5)
-            {
-                rv = true;
-            }
+            return;
         }
-        else if(curItem.hasDirection() && otherItem.hasDirection())
+
+        Map<String, SourceIndex> sourcesByType = reasonedSources.get(name);
+        if(sourcesByType == null)
         {
-            if(curItem.getDirection().normalize().angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
+            sourcesByType = new HashMap<String, SourceIndex>();
+            reasonedSources.put(name, sourcesByType);
         }
-        else if(curItem.hasOrigin() && otherItem.hasDirection())
+        SourceIndex sources = sourcesByType.get(type);
+        if(sources == null)
         {
-            Vector3f curDir = curItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            curDir.normalize();
-
-            if(curDir.angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-
+            sources = new SourceIndex();
+            sourcesByType.put(type, sources);
         }
-        else if(curItem.hasDirection() && otherItem.hasOrigin())
-        {
-            Vector3f otherDir = otherItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            otherDir.normalize();
-
-            if(curItem.getDirection().normalize().angleBetween(otherDir) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-        }
-
-        return rv;
-
+        sources.add(rd, rank);
     }
 
-    /**
-     * Source Comparison of events
-     * 
-     * @param curItem
-     *        Item 1 being compared
-     * @param otherItem
-     *        Item 2 being compared
-     * @return whether they are close enough to be considered to be the same event
-     */
-    private boolean SourceComparison(CombinedReasonedData curItem, CombinedReasonedData otherItem)
+    private static float getCertaintyPercent(ReasonedData rd, int rank)
     {
-        boolean rv = false;
-
-        if(curItem.hasOrigin() && otherItem.hasOrigin())
-        {
-            if(curItem.getOrigin().distance(otherItem.getOrigin()) < 5)
-            {
-                rv = true;
-            }
-        }
-        else if(curItem.hasDirection() && otherItem.hasDirection())
-        {
-            if(curItem.getDirection().normalize().angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-        }
-        else if(curItem.hasOrigin() && otherItem.hasDirection())
-        {
-            Vector3f curDir = curItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            curDir.normalize();
-
-            if(curDir.angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-
-        }
-        else if(curItem.hasDirection() && otherItem.hasOrigin())
+        switch(rank)
         {
-            Vector3f otherDir = otherItem.getOrigin().subtract(knowledgeModule.getSelf().getPosition());
-            otherDir.normalize();
-
-            if(curItem.getDirection().normalize().angleBetween(otherDir) * FastMath.RAD_TO_DEG < 5)
-            {
-                rv = true;
-            }
-
+        case 1:
+            return rd.getCertaintyPercent();
+        case 2:
+            return rd.getCertaintyPercent2();
+        default:
+            return rd.getCertaintyPercent3();
         }
-
-        return rv;
-
     }
 
     /**
@@ -618,49 +661,65 @@ public class PerceptionCombinationModule<KM extends KnowledgeModule<?>> implemen
      */
     private void selectLikelyEvents()
     {
-        List<CombinedReasonedData> combined = new ArrayList<CombinedReasonedData>();
+        int size = combinedThisTick.size();
+        if(selected.length < size)
+        {
+            selected = new boolean[size];
+            removed = new boolean[size];
+            combinedOrder = new Integer[size];
+        }
+        else
+        {
+            Arrays.fill(selected, false);
+            Arrays.fill(removed, false);
+        }
 
-        for(int i = 0; i < combinedThisTick.size(); i++)
+        combinedSources.clear();
+        for(int i = 0; i < size; i++)
         {
-            combined.add(combinedThisTick.get(i));
+            combinedSources.add(combinedThisTick.get(i), i);
+            combinedOrder[i] = i;
         }
 
+        // highest certainty first, ties in combination order. As when searching for the highest, certainties that are
+        // not positive are never higher than another.
+        Arrays.sort(combinedOrder, 0, size, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer i1, Integer i2)
+            {
+                return Float.compare(getSelectionCertainty(i2), getSelectionCertainty(i1));
+            }
+        });
+
+        Vector3f self = size == 0 ? null : knowledgeModule.getSelf().getPosition();
+        int next = 0;
         for(int z = 0; z < eventNumber; z++)
         {
-            if(combined.size() > 0)
+            while(next < size && removed[combinedOrder[next]])
             {
-                int highest = 0;
-                float highestCert = 0;
-                for(int i = 0; i < combined.size(); i++) // find highest
-                {
-                    if(combined.get(i).getCertaintyPercent() > highestCert)
-                    {
-                        highest = i;
-                        highestCert = combined.get(i).getCertaintyPercent();
-                    }
-                }
+                next++;
+            }
 
-                CombinedReasonedData highCRD = combined.get(highest);
+            if(next < size)
+            {
+                int highest = combinedOrder[next];
+                CombinedReasonedData highCRD = combinedThisTick.get(highest);
                 knowledgeModule.addEventsThisTick(highCRD); // add highest
+                selected[highest] = true;
 
                 // next remove all events from combined with the same location
-                List<CombinedReasonedData> toBeRemoved = new ArrayList<CombinedReasonedData>();
-                for(int i = 0; i < combined.size(); i++)
-                {
-                    if(SourceComparison(highCRD, combined.get(i)))
-                    {
-                        toBeRemoved.add(combined.get(i));
-                    }
-                }
-
-                for(int i = 0; i < toBeRemoved.size(); i++)
-                {
-                    combined.remove(toBeRemoved.get(i));
-                }
+                combinedSources.markAll(highCRD, self, removed);
             }
         }
     }
 
+    private float getSelectionCertainty(int i)
+    {
+        float certaintyPercent = combinedThisTick.get(i).getCertaintyPercent();
+        return certaintyPercent > 0 ? certaintyPercent : 0;
+    }
+
     /**
      * Prints out the results of the agent sense combination from the current tick.
      */
@@ -0,0 +1,413 @@
+package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.data.EventSource;
+
+/**
+ * This class indexes perception data by the source of the event they describe.
+ * <p>
+ * Two pieces of data describe the same source when their origins are less than {@link #SOURCE_DISTANCE} apart or,
+ * failing that, when their directions (or the directions of their origins from the agent) are less than
+ * {@link #SOURCE_ANGLE} degrees apart. Data with an origin are hashed by their quantized origin in buckets more than
+ * twice as wide as the source distance, so the data with an origin close to another origin are found in the bucket of
+ * that origin or in the neighboring buckets on the nearest side along each axis. Data without an origin are few, so
+ * they are scanned. Queries find the same data as comparing against every piece of data in the order they were added.
+ */
+class SourceIndex
+{
+    /**
+     * The distance under which two origins are considered to be the same source
+     */
+    static final float              SOURCE_DISTANCE = 5;
+
+    /**
+     * The angle, in degrees, under which two directions are considered to be the same source
+     */
+    static final float              SOURCE_ANGLE    = 5;
+
+    /**
+     * The side of the buckets, kept above twice the source distance so that rounding never puts close origins in
+     * buckets farther apart than the neighbors on the nearest side
+     */
+    private static final float      BUCKET_SIZE     = 2 * SOURCE_DISTANCE + 1;
+
+    private final List<EventSource> sources         = new ArrayList<EventSource>();
+
+    private int[]                   tags            = new int[16];
+
+    /**
+     * The buckets, by key, in an open-addressing table. Only the slots stamped with the current generation are in use,
+     * so the table is cleared by starting a new generation.
+     */
+    private long[]                  keys            = new long[16];
+
+    private Bucket[]                buckets         = new Bucket[16];
+
+    private int[]                   stamps          = new int[16];
+
+    private int                     shift           = 64 - 4;
+
+    private int                     generation      = 1;
+
+    private int                     bucketCount;
+
+    private final Bucket            unlocated       = new Bucket();
+
+    /**
+     * Removes all the data from this index, keeping its buckets for reuse.
+     */
+    void clear()
+    {
+        sources.clear();
+        if(++generation == 0)
+        {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        bucketCount = 0;
+        unlocated.size = 0;
+    }
+
+    /**
+     * Adds a piece of data to this index.
+     *
+     * @param source
+     *        the data
+     * @param tag
+     *        a value kept along with the data
+     */
+    void add(EventSource source, int tag)
+    {
+        int i = sources.size();
+        sources.add(source);
+        if(i == tags.length)
+        {
+            tags = Arrays.copyOf(tags, i * 2);
+        }
+        tags[i] = tag;
+
+        if(source.hasOrigin())
+        {
+            Vector3f origin = source.getOrigin();
+            getBucket(key(cell(origin.x), cell(origin.y), cell(origin.z))).add(i);
+        }
+        else
+        {
+            unlocated.add(i);
+        }
+    }
+
+    /**
+     * @return the number of pieces of data in this index
+     */
+    int size()
+    {
+        return sources.size();
+    }
+
+    /**
+     * @param i
+     *        the position of a piece of data
+     * @return the piece of data added at the given position
+     */
+    EventSource get(int i)
+    {
+        return sources.get(i);
+    }
+
+    /**
+     * @param i
+     *        the position of a piece of data
+     * @return the tag of the piece of data added at the given position
+     */
+    int getTag(int i)
+    {
+        return tags[i];
+    }
+
+    /**
+     * Finds the first piece of data describing the same source as the given data.
+     *
+     * @param query
+     *        the data to look for
+     * @param self
+     *        the position of the agent
+     * @return the position of the first piece of data from the same source, or -1 if there is none
+     */
+    int findFirst(EventSource query, Vector3f self)
+    {
+        if(!query.hasOrigin())
+        {
+            for(int i = 0; i < sources.size(); i++)
+            {
+                if(isSameSource(sources.get(i), query, self))
+                    return i;
+            }
+            return -1;
+        }
+
+        int first = -1;
+        Vector3f origin = query.getOrigin();
+        int x = cell(origin.x);
+        int y = cell(origin.y);
+        int z = cell(origin.z);
+        int nx = x + side(origin.x, x);
+        int ny = y + side(origin.y, y);
+        int nz = z + side(origin.z, z);
+        for(int k = 0; k < 8; k++)
+        {
+            Bucket bucket = findBucket(key((k & 1) == 0 ? x : nx, (k & 2) == 0 ? y : ny, (k & 4) == 0 ? z : nz));
+            if(bucket != null)
+            {
+                first = bucket.findFirst(query, self, first);
+            }
+        }
+        return unlocated.findFirst(query, self, first);
+    }
+
+    /**
+     * Marks all the data describing the same source as the given data.
+     *
+     * @param query
+     *        the data to look for
+     * @param self
+     *        the position of the agent
+     * @param marked
+     *        the marks of the data in this index, by position
+     */
+    void markAll(EventSource query, Vector3f self, boolean[] marked)
+    {
+        if(!query.hasOrigin())
+        {
+            for(int i = 0; i < sources.size(); i++)
+            {
+                if(isSameSource(sources.get(i), query, self))
+                    marked[i] = true;
+            }
+            return;
+        }
+
+        Vector3f origin = query.getOrigin();
+        int x = cell(origin.x);
+        int y = cell(origin.y);
+        int z = cell(origin.z);
+        int nx = x + side(origin.x, x);
+        int ny = y + side(origin.y, y);
+        int nz = z + side(origin.z, z);
+        for(int k = 0; k < 8; k++)
+        {
+            Bucket bucket = findBucket(key((k & 1) == 0 ? x : nx, (k & 2) == 0 ? y : ny, (k & 4) == 0 ? z : nz));
+            if(bucket != null)
+            {
+                bucket.markAll(query, self, marked);
+            }
+        }
+        unlocated.markAll(query, self, marked);
+    }
+
+    /**
+     * Source Comparison of events
+     *
+     * @param curItem
+     *        Item 1 being compared
+     * @param otherItem
+     *        Item 2 being compared
+     * @param self
+     *        the position of the agent
+     * @return whether they are close enough to be considered to be the same event
+     */
+    static boolean isSameSource(EventSource curItem, EventSource otherItem, Vector3f self)
+    {
+        boolean rv = false;
+
+        if(curItem.hasOrigin() && otherItem.hasOrigin())
+        {
+            if(curItem.getOrigin().distance(otherItem.getOrigin()) < SOURCE_DISTANCE)
+            {
+                rv = true;
+            }
+        }
+        else if(curItem.hasDirection() && otherItem.hasDirection())
+        {
+            if(curItem.getDirection().normalize().angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < SOURCE_ANGLE)
+            {
+                rv = true;
+            }
+        }
+        else if(curItem.hasOrigin() && otherItem.hasDirection())
+        {
+            Vector3f curDir = curItem.getOrigin().subtract(self);
+            curDir.normalize();
+
+            if(curDir.angleBetween(otherItem.getDirection().normalize()) * FastMath.RAD_TO_DEG < SOURCE_ANGLE)
+            {
+                rv = true;
+            }
+        }
+        else if(curItem.hasDirection() && otherItem.hasOrigin())
+        {
+            Vector3f otherDir = otherItem.getOrigin().subtract(self);
+            otherDir.normalize();
+
+            if(curItem.getDirection().normalize().angleBetween(otherDir) * FastMath.RAD_TO_DEG < SOURCE_ANGLE)
+            {
+                rv = true;
+            }
+        }
+
+        return rv;
+    }
+
+    private static int cell(float coordinate)
+    {
+        return (int) FastMath.floor(coordinate / BUCKET_SIZE);
+    }
+
+    /**
+     * @return -1 if the coordinate is in the lower half of its bucket. Otherwise, 1.
+     */
+    private static int side(float coordinate, int cell)
+    {
+        return coordinate - cell * BUCKET_SIZE < BUCKET_SIZE / 2 ? -1 : 1;
+    }
+
+    private static long key(int x, int y, int z)
+    {
+        return ((x & 0x1FFFFFL) << 42) | ((y & 0x1FFFFFL) << 21) | (z & 0x1FFFFFL);
+    }
+
+    private int slot(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private Bucket findBucket(long key)
+    {
+        for(int i = slot(key); stamps[i] == generation; i = (i + 1) & (keys.length - 1))
+        {
+            if(keys[i] == key)
+                return buckets[i];
+        }
+        return null;
+    }
+
+    /**
+     * Gets the bucket of a key, taking an empty bucket when the key has none in this generation.
+     */
+    private Bucket getBucket(long key)
+    {
+        int i = slot(key);
+        while(stamps[i] == generation)
+        {
+            if(keys[i] == key)
+                return buckets[i];
+            i = (i + 1) & (keys.length - 1);
+        }
+
+        if(2 * (bucketCount + 1) > keys.length)
+        {
+            grow();
+            return getBucket(key);
+        }
+
+        if(buckets[i] == null)
+        {
+            buckets[i] = new Bucket();
+        }
+        buckets[i].size = 0;
+        keys[i] = key;
+        stamps[i] = generation;
+        bucketCount++;
+        return buckets[i];
+    }
+
+    /**
+     * Doubles the table, keeping the buckets in use and the spare buckets.
+     */
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        Bucket[] oldBuckets = buckets;
+        int[] oldStamps = stamps;
+
+        keys = new long[oldKeys.length * 2];
+        buckets = new Bucket[oldKeys.length * 2];
+        stamps = new int[oldKeys.length * 2];
+        shift--;
+
+        List<Bucket> spare = new ArrayList<Bucket>();
+        for(int j = 0; j < oldKeys.length; j++)
+        {
+            if(oldStamps[j] == generation)
+            {
+                int i = slot(oldKeys[j]);
+                while(stamps[i] == generation)
+                {
+                    i = (i + 1) & (keys.length - 1);
+                }
+                keys[i] = oldKeys[j];
+                buckets[i] = oldBuckets[j];
+                stamps[i] = generation;
+            }
+            else if(oldBuckets[j] != null)
+            {
+                spare.add(oldBuckets[j]);
+            }
+        }
+
+        for(int i = 0; i < keys.length && !spare.isEmpty(); i++)
+        {
+            if(stamps[i] != generation && buckets[i] == null)
+            {
+                buckets[i] = spare.remove(spare.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * The positions of the data in a bucket, in the order they were added
+     */
+    private class Bucket
+    {
+        int[] items = new int[4];
+        int   size;
+
+        void add(int i)
+        {
+            if(size == items.length)
+            {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = i;
+        }
+
+        int findFirst(EventSource query, Vector3f self, int first)
+        {
+            for(int k = 0; k < size; k++)
+            {
+                int i = items[k];
+                if(first >= 0 && i >= first)
+                    break;
+                if(isSameSource(sources.get(i), query, self))
+                    return i;
+            }
+            return first;
+        }
+
+        void markAll(EventSource query, Vector3f self, boolean[] marked)
+        {
+            for(int k = 0; k < size; k++)
+            {
+                int i = items[k];
+                if(isSameSource(sources.get(i), query, self))
+                    marked[i] = true;
+            }
+        }
+    }
+}
@@ -8,7 +8,7 @@ import org.slf4j.LoggerFactory;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 
-public class CombinedReasonedData implements Serializable
+public class CombinedReasonedData implements EventSource, Serializable
 {
     private static final long   serialVersionUID = 1L;
 
@@ -33,10 +33,21 @@ public class CombinedReasonedData implements Serializable
     // Stores Raw Sensed Data
 
     public CombinedReasonedData(long time, float certaintyPercent, String name)
+    {
+        init(time, certaintyPercent, name);
+    }
+
+    public void init(long time, float certaintyPercent, String name)
     {
         this.eventOccurredTime = time;
         this.certaintyPercent = certaintyPercent;
         predicatedName = name;
+        eventID = 0;
+        eventCounter = 0;
+        maxEvents = 0;
+        origin = null;
+        direction = null;
+        intensity = 0;
     }
 
     public void print()
@@ -58,6 +69,7 @@ public class CombinedReasonedData implements Serializable
         }
     }
 
+    @Override
     public Vector3f getOrigin()
     {
         return origin;
@@ -88,6 +100,7 @@ public class CombinedReasonedData implements Serializable
         this.eventID = eventID;
     }
 
+    @Override
     public Vector3f getDirection()
     {
         return direction;
@@ -118,6 +131,7 @@ public class CombinedReasonedData implements Serializable
         this.certaintyPercent = certaintyPercent;
     }
 
+    @Override
     public boolean hasOrigin()
     {
         boolean rv = false;
@@ -130,6 +144,7 @@ public class CombinedReasonedData implements Serializable
         return rv;
     }
 
+    @Override
     public boolean hasDirection()
     {
         boolean rv = false;
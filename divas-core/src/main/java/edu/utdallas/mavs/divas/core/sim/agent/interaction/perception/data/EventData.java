@@ -4,7 +4,7 @@ import java.io.Serializable;
 
 import com.jme3.math.Vector3f;
 
-public class EventData implements Serializable
+public class EventData implements EventSource, Serializable
 {
     private static final long serialVersionUID = 1L;
     protected Vector3f        origin;
@@ -12,6 +12,14 @@ public class EventData implements Serializable
     
     float                     intensity;
 
+    public void init()
+    {
+        origin = null;
+        direction = null;
+        intensity = 0;
+    }
+
+    @Override
     public Vector3f getOrigin()
     {
         return origin;
@@ -22,6 +30,7 @@ public class EventData implements Serializable
         this.origin = origin;
     }
 
+    @Override
     public boolean hasOrigin()
     {
         boolean rv = false;
@@ -34,6 +43,7 @@ public class EventData implements Serializable
         return rv;
     }
 
+    @Override
     public boolean hasDirection()
     {
         boolean rv = false;
@@ -46,6 +56,7 @@ public class EventData implements Serializable
         return rv;
     }
 
+    @Override
     public Vector3f getDirection()
     {
         return direction;
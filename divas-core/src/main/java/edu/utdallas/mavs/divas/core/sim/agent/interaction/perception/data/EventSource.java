@@ -0,0 +1,37 @@
+package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.data;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * Perception data locating the source of an event by its origin and/or its direction.
+ */
+public interface EventSource
+{
+    /**
+     * Get the event's origin.
+     *
+     * @return origin
+     */
+    public Vector3f getOrigin();
+
+    /**
+     * Get the event's direction
+     *
+     * @return the direction
+     */
+    public Vector3f getDirection();
+
+    /**
+     * whether or not the event has an origin.
+     *
+     * @return whether or not the event has an origin.
+     */
+    public boolean hasOrigin();
+
+    /**
+     * whether or not the event has a direction.
+     *
+     * @return whether or not the event has a direction.
+     */
+    public boolean hasDirection();
+}
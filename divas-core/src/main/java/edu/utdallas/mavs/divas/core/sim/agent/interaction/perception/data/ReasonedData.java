@@ -14,7 +14,7 @@ import org.slf4j.LoggerFactory;
 
 import com.jme3.math.Vector3f;
 
-public class ReasonedData implements Serializable
+public class ReasonedData implements EventSource, Serializable
 {
     private static final long   serialVersionUID = 1L;
 
@@ -46,6 +46,17 @@ public class ReasonedData implements Serializable
 
     public ReasonedData(long time, float certaintyPercent, String name, String reasonedType)
     {
+        init(time, certaintyPercent, name, reasonedType);
+    }
+
+    public void init(long time, float certaintyPercent, String name, String reasonedType)
+    {
+        eventID = 0;
+        origin = null;
+        direction = null;
+        reasonedType2 = null;
+        reasonedType3 = null;
+        intensity = 0;
         this.eventOccurredTime = time;
         this.certaintyPercent = certaintyPercent;
         this.reasonedType = reasonedType;
@@ -72,6 +83,7 @@ public class ReasonedData implements Serializable
         }
     }
 
+    @Override
     public Vector3f getOrigin()
     {
         return origin;
@@ -102,6 +114,7 @@ public class ReasonedData implements Serializable
         this.eventID = eventID;
     }
 
+    @Override
     public Vector3f getDirection()
     {
         return direction;
@@ -172,6 +185,7 @@ public class ReasonedData implements Serializable
         this.certaintyPercent3 = certaintyPercent3;
     }
 
+    @Override
     public boolean hasOrigin()
     {
         boolean rv = false;
@@ -184,6 +198,7 @@ public class ReasonedData implements Serializable
         return rv;
     }
 
+    @Override
     public boolean hasDirection()
     {
         boolean rv = false;
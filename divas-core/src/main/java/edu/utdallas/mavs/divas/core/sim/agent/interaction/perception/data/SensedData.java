@@ -12,7 +12,7 @@ import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty.Sense;
 /**
  * Raw sensed data perceived by the agent's sensors. (NOT COMBINED)
  */
-public class SensedData implements Serializable
+public class SensedData implements EventSource, Serializable
 {
     private static final long   serialVersionUID = 1L;
 
@@ -112,6 +112,27 @@ public class SensedData implements Serializable
      *        the trust constant
      */
     public SensedData(long time, String type, Sense sense, float value, float certaintyPercent, float trustConstant)
+    {
+        init(time, type, sense, value, certaintyPercent, trustConstant);
+    }
+
+    /**
+     * Reinitializes this sensed data, so it can be reused for another perception.
+     * 
+     * @param time
+     *        the time the event was sensed
+     * @param type
+     *        the type of event that was sensed
+     * @param sense
+     *        the sense that sensed it
+     * @param value
+     *        the value of the sensed data
+     * @param certaintyPercent
+     *        the certainty percent that this event occurred.
+     * @param trustConstant
+     *        the trust constant
+     */
+    public void init(long time, String type, Sense sense, float value, float certaintyPercent, float trustConstant)
     {
         this.eventOccurredTime = time;
         this.type = type;
@@ -119,6 +140,8 @@ public class SensedData implements Serializable
         this.value = value;
         this.certaintyPercent = certaintyPercent;
         this.trustConstant = trustConstant;
+        eventID = 0;
+        intensity = 0;
         origin = null;
         direction = null;
     }
@@ -128,6 +151,7 @@ public class SensedData implements Serializable
      * 
      * @return origin
      */
+    @Override
     public Vector3f getOrigin()
     {
         return origin;
@@ -191,6 +215,7 @@ public class SensedData implements Serializable
      * 
      * @return the direction
      */
+    @Override
     public Vector3f getDirection()
     {
         return direction;
@@ -296,6 +321,7 @@ public class SensedData implements Serializable
      * 
      * @return whether or not the event has an origin.
      */
+    @Override
     public boolean hasOrigin()
     {
         boolean rv = false;
@@ -313,6 +339,7 @@ public class SensedData implements Serializable
      * 
      * @return whether or not the event has a direction.
      */
+    @Override
     public boolean hasDirection()
     {
         boolean rv = false;
@@ -19,9 +19,14 @@ import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
  */
 public class AuditorySensor extends PhysicalSensor<HumanKnowledgeModule<?>, HumanPerceptionModule> implements Serializable
 {
-    private static final long serialVersionUID = 1L;
+    private static final long  serialVersionUID = 1L;
 
-    private static float      PIx4             = (float) (Math.PI * 4);
+    private static float       PIx4             = (float) (Math.PI * 4);
+
+    /**
+     * The distance below which agents are heard
+     */
+    private static final float HEARING_DISTANCE = 8;
 
     /**
      * Creates a new auditory sensor
@@ -75,7 +80,7 @@ public class AuditorySensor extends PhysicalSensor<HumanKnowledgeModule<?>, Huma
                             {
                                 float certainty = 100;
                                 EventProperty eventProperty = epList.get(i);
-                                SensedData tempsd = new SensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getAuditoryTrustConstant());
+                                SensedData tempsd = perceptionModule.newSensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getAuditoryTrustConstant());
                                 tempsd.setDirection(event.getOrigin().subtract(self.getPosition()));
                                 tempsd.setOrigin(event.getOrigin());
                                 tempsd.setIntensity(event.getIntensity());
@@ -107,12 +112,18 @@ public class AuditorySensor extends PhysicalSensor<HumanKnowledgeModule<?>, Huma
      */
     public void receive(AgentState agent)
     {
-        if(knowledgeModule.getSelf().getPosition().distance(agent.getPosition()) < 8)
+        if(knowledgeModule.getSelf().getPosition().distance(agent.getPosition()) < HEARING_DISTANCE)
         {
-            knowledgeModule.addAgent(agent);
+            perceptionModule.addPerceivedAgent(agent);
         }
     }
 
+    @Override
+    public float getRange()
+    {
+        return HEARING_DISTANCE;
+    }
+
     @Override
     protected void receiveAgents(List<AgentState> agents)
     {
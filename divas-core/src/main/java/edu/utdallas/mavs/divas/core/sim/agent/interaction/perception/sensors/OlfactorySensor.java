@@ -75,7 +75,7 @@ public class OlfactorySensor extends PhysicalSensor<HumanKnowledgeModule<?>, Hum
                 {
                     float certainty = 100;
                     EventProperty eventProperty = epList.get(i);
-                    SensedData tempsd = new SensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getOlfactoryTrustConstant());
+                    SensedData tempsd = perceptionModule.newSensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getOlfactoryTrustConstant());
                     tempsd.setDirection(event.getOrigin().subtract(self.getPosition()));
                     tempsd.setOrigin(event.getOrigin());
                     tempsd.setIntensity(event.getIntensity());
@@ -107,6 +107,13 @@ public class OlfactorySensor extends PhysicalSensor<HumanKnowledgeModule<?>, Hum
         // cannot smell agents yet
     }
 
+    @Override
+    public float getRange()
+    {
+        // cannot smell agents or objects currently
+        return 0;
+    }
+
     @Override
     protected void receiveAgents(List<AgentState> agents)
     {
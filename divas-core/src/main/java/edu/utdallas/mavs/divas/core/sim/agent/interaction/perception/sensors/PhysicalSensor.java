@@ -7,6 +7,7 @@ import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.PerceptionM
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.KnowledgeModule;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 
 /**
@@ -114,6 +115,28 @@ public abstract class PhysicalSensor<KM extends KnowledgeModule<?>, PM extends P
      */
     public abstract void resolveObstructions();
 
+    /**
+     * Checks for (and remove) obstructed objects, given the cell state the objects were perceived from. By default,
+     * the cell state is ignored.
+     * 
+     * @param cell the perceived cell state
+     */
+    public void resolveObstructions(CellState cell)
+    {
+        resolveObstructions();
+    }
+
+    /**
+     * Gets the distance beyond which this sensor perceives no agent or environment object. Events are perceived from
+     * anywhere within their bounds, whatever the range of the sensor. By default, the range of a sensor is unlimited.
+     * 
+     * @return the range of this sensor
+     */
+    public float getRange()
+    {
+        return Float.POSITIVE_INFINITY;
+    }
+
     /**
      * Checks if this sensor is enabled
      * 
@@ -18,6 +18,7 @@ import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.vis
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.HumanKnowledgeModule;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 
 /**
@@ -99,9 +100,21 @@ public class VisualSensor extends PhysicalSensor<HumanKnowledgeModule<?>, HumanP
         visionAlg.receiveEvents(events);
     }
 
+    @Override
+    public float getRange()
+    {
+        return visionAlg == null ? super.getRange() : visionAlg.getRange();
+    }
+
     @Override
     public void resolveObstructions()
     {
         visionAlg.resolveObstructions();
     }
+
+    @Override
+    public void resolveObstructions(CellState cell)
+    {
+        visionAlg.resolveObstructions(cell);
+    }
 }
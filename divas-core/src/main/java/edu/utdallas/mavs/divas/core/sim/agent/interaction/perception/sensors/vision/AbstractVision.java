@@ -10,6 +10,7 @@ import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.PerceptionM
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.KnowledgeModule;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 
 /**
@@ -72,6 +73,17 @@ public abstract class AbstractVision<S extends AgentState, KM extends KnowledgeM
      */
     public abstract void receiveEvents(List<EnvEvent> events);
 
+    /**
+     * Gets the distance beyond which this algorithm sees no agent or environment object. By default, the range is
+     * unlimited.
+     * 
+     * @return the range of this algorithm
+     */
+    public float getRange()
+    {
+        return Float.POSITIVE_INFINITY;
+    }
+
     /**
      * Checks for (and remove) obstructed objects
      */
@@ -79,4 +91,16 @@ public abstract class AbstractVision<S extends AgentState, KM extends KnowledgeM
     {
         logger.debug("Not Divas Vision Algorithm. Obstruction check ignored");
     }
+
+    /**
+     * Checks for (and remove) obstructed objects, given the cell state the objects were perceived from. By default,
+     * the cell state is ignored.
+     * 
+     * @param cell
+     *        the perceived cell state
+     */
+    public void resolveObstructions(CellState cell)
+    {
+        resolveObstructions();
+    }
 }
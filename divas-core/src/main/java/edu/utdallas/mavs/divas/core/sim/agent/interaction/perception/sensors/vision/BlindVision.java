@@ -30,6 +30,12 @@ public class BlindVision<S extends HumanAgentState> extends AbstractVision<S, Hu
         super(knowledgeModule, humanPerceptionModule);
     }
 
+    @Override
+    public float getRange()
+    {
+        return 0;
+    }
+
     @Override
     public void receiveAgents(List<AgentState> agents)
     {
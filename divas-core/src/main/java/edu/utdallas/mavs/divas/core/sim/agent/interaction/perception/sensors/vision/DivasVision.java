@@ -1,8 +1,10 @@
 package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.vision;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.jme3.collision.CollisionResults;
 import com.jme3.math.FastMath;
@@ -20,8 +22,10 @@ import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty;
 import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty.Sense;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Visible;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
+import edu.utdallas.mavs.divas.utils.physics.ObstructionGrid;
 
 /**
  * This class describes the original Divas algorithm for vision.
@@ -29,36 +33,57 @@ import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
 @SuppressWarnings("javadoc")
 public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, HumanKnowledgeModule<S>, HumanPerceptionModule> implements Serializable
 {
-    private static final long     serialVersionUID         = 1L;
+    private static final long                               serialVersionUID         = 1L;
 
     /**
      * Whether or not obstruction is enabled.
      */
-    boolean                       obstructionEnabled       = true;
+    boolean                                                 obstructionEnabled       = true;
 
     /**
      * Number of rays per level in the vision cone.
      */
-    private static final int      case3Rays                = SimConfig.getInstance().vision_Rays_Count;
+    private static final int                                case3Rays                = SimConfig.getInstance().vision_Rays_Count;
 
     /**
      * Number of circles in the vision cone.
      */
-    private static final int      NumOfCircles             = SimConfig.getInstance().vision_Circles_Count;
+    private static final int                                NumOfCircles             = SimConfig.getInstance().vision_Circles_Count;
 
     /**
-     * The obstruction test list.
+     * Side of the obstruction grid cells when no cell state is given.
      */
-    private List<ObstructionData> obstructionTestList;
+    private static final float                              FALLBACK_GRID_CELL_SIZE  = 10;
 
     /**
-     * Agents visible region
+     * The obstruction test candidates and the closest hit of each ray.
      */
-    private List<Ray>             visibleRegion;
+    private transient ObstructionGrid.Query<EnvObjectState> obstructions;
+
+    /**
+     * Agents visible region, refilled every cycle
+     */
+    private transient Ray[]                                 visibleRegion;
+
+    /**
+     * The environment objects received in this cycle, tested once the perceived cell state is known
+     */
+    private transient List<EnvObjectState>                  receivedEnvObjs;
+
+    /**
+     * The environment objects seen in this cycle
+     */
+    private transient Map<Integer, EnvObjectState>          seenEnvObjs;
+
+    /**
+     * The environment objects seen in the previous cycles
+     */
+    private transient VisibilityCache                       visibilityCache;
+
     /**
      * when the visible region was updated
      */
-    private long                  visibleRegionCycleUpdate = 0;
+    private long                                            visibleRegionCycleUpdate = 0;
 
     /**
      * Create the vision algorithm.
@@ -69,7 +94,7 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
     public DivasVision(HumanKnowledgeModule<S> knowledgeModule, HumanPerceptionModule perceptionModule)
     {
         super(knowledgeModule, perceptionModule);
-        obstructionTestList = new ArrayList<>();
+        obstructions = new ObstructionGrid.Query<EnvObjectState>();
     }
 
     /**
@@ -96,7 +121,7 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
                 {
                     float certainty = 100;
                     EventProperty eventProperty = epList.get(i);
-                    SensedData tempsd = new SensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getVisionTrustConstant());
+                    SensedData tempsd = perceptionModule.newSensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getVisionTrustConstant());
                     tempsd.setOrigin(event.getOrigin());
                     tempsd.setDirection(event.getOrigin().subtract(self.getPosition()));
 
@@ -122,7 +147,7 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
             boolean isSeen = testVisiblePoint(agentState.getPosition(), workVector);
             if(isSeen)
             {
-                knowledgeModule.addAgent(agentState);
+                perceptionModule.addPerceivedAgent(agentState);
             }
         }
     }
@@ -162,7 +187,7 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
                     {
                         // the heading ray of collision
                         // Ray collisionRay = new Ray(agentLocation, myEndPoints[i].subtract(agentLocation));
-                        envObj.collideWith(visibleRegion.get(i), results);
+                        envObj.collideWith(visibleRegion[i], results);
 
                         if(results.size() > 0)
                         {
@@ -187,18 +212,18 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
                     Vector3f eye = knowledgeModule.getSelf().getEyePosition();
                     if(!envObj.isCollidable() && envObj.getBoundingArea().intersects(new GeometryFactory().createPoint(new Coordinate(eye.x, eye.z))))
                     {
-                        knowledgeModule.addEnvObj(envObj);
+                        see(envObj);
                     }
                     else
                     {
-                        obstructionTestList.add(new ObstructionData(envObj.getID(), envObj.getBoundingVolume()));
+                        getObstructions().addCandidate(envObj.getID(), envObj);
                     }
                 }
 
                 // if obstruction testing is disabled, just directly add objects here.
                 if(obstructionEnabled == false)
                 {
-                    knowledgeModule.addEnvObj(envObj);
+                    see(envObj);
                 }
             }
         }
@@ -237,48 +262,133 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
     }
 
     /**
-     * The obstruction test using JME3 collision detection techniques.
+     * The obstruction test, without the perceived cell state.
      */
     @Override
     public void resolveObstructions()
     {
-        if(obstructionEnabled)
+        resolveObstructions(null);
+    }
+
+    /**
+     * The obstruction test. The environment objects received in this cycle are tested, unless the agent sees the ones
+     * it saw in its previous cycle (see {@link VisibilityCache}). Then, each ray of the visible region is cast through
+     * the obstruction grids of the perceived cell state, and the closest object hit among the objects seen is added to
+     * the knowledge module.
+     * 
+     * @param cell
+     *        the perceived cell state, or null to index the objects seen in a grid of their own
+     */
+    @Override
+    public void resolveObstructions(CellState cell)
+    {
+        List<EnvObjectState> envObjs = receivedEnvObjs;
+        receivedEnvObjs = null;
+        if(envObjs == null)
+        {
+            return;
+        }
+
+        VisibilityCache cache = getVisibilityCache();
+        if(cell != null && cache.lookup(knowledgeModule.getSelf(), cell.getEnvObjectVersion()))
+        {
+            for(EnvObjectState envObj : cache.getEnvObjects())
+            {
+                perceptionModule.addPerceivedEnvObj(envObj);
+            }
+            return;
+        }
+
+        getSeenEnvObjs().clear();
+        Vector3f workVector = new Vector3f();
+        CollisionResults results = new CollisionResults();
+        for(EnvObjectState obj : envObjs)
+        {
+            receive(obj, results, workVector);
+        }
+
+        ObstructionGrid.Query<EnvObjectState> query = getObstructions();
+        if(obstructionEnabled && query.getCandidateCount() > 0)
         {
             updateVisibleRegion();
 
-            CollisionResults results = new CollisionResults();
+            List<ObstructionGrid> grids = (cell != null) ? cell.getObstructionGrids() : createObstructionGrids(query);
 
             for(int i = 0; i < case3Rays * NumOfCircles; i++)
             {
-                ObstructionData closest = null;
-                float currMinDistance = Float.MAX_VALUE;
-                for(ObstructionData obsData : obstructionTestList)
+                query.beginRay();
+                for(int g = 0; g < grids.size(); g++)
                 {
-                    // Ray collisionRay = new Ray(agentLocation, myEndPoints[i].subtract(agentLocation));
-                    obsData.collideWith(visibleRegion.get(i), results);
-                    if(results.size() > 0 && results.getClosestCollision().getDistance() < currMinDistance)
-                    {
-                        currMinDistance = results.getClosestCollision().getDistance();
-                        closest = obsData;
-                    }
-                    results.clear();
+                    grids.get(g).castRay(visibleRegion[i], query);
                 }
+
+                EnvObjectState closest = query.getHit();
                 if(closest != null)
                 {
-                    for(int j = 0; j < envObjsList.size(); j++)
-                    {
-                        if(envObjsList.get(j).getID() == closest.getId())
-                        {
-                            knowledgeModule.addEnvObj(envObjsList.get(j));
-                        }
-                    }
-
+                    see(closest);
                 }
             }
-            results = null;
         }
-        obstructionTestList.clear();
-        envObjsList = null;
+        query.clear();
+
+        if(cell != null)
+        {
+            cache.store(seenEnvObjs.values());
+        }
+    }
+
+    /**
+     * Adds an environment object seen in this cycle to the knowledge module.
+     */
+    private void see(EnvObjectState envObj)
+    {
+        perceptionModule.addPerceivedEnvObj(envObj);
+        getSeenEnvObjs().put(envObj.getID(), envObj);
+    }
+
+    private static List<ObstructionGrid> createObstructionGrids(ObstructionGrid.Query<EnvObjectState> query)
+    {
+        ObstructionGrid grid = new ObstructionGrid(FALLBACK_GRID_CELL_SIZE);
+        for(int i = 0; i < query.getCandidateCount(); i++)
+        {
+            EnvObjectState envObj = query.getCandidate(i);
+            grid.add(envObj.getID(), envObj.getBoundingVolume());
+        }
+        grid.build();
+        return Collections.singletonList(grid);
+    }
+
+    private Map<Integer, EnvObjectState> getSeenEnvObjs()
+    {
+        if(seenEnvObjs == null)
+        {
+            seenEnvObjs = new LinkedHashMap<Integer, EnvObjectState>();
+        }
+        return seenEnvObjs;
+    }
+
+    private VisibilityCache getVisibilityCache()
+    {
+        if(visibilityCache == null)
+        {
+            visibilityCache = new VisibilityCache();
+        }
+        return visibilityCache;
+    }
+
+    private ObstructionGrid.Query<EnvObjectState> getObstructions()
+    {
+        if(obstructions == null)
+        {
+            obstructions = new ObstructionGrid.Query<EnvObjectState>();
+        }
+        return obstructions;
+    }
+
+    @Override
+    public float getRange()
+    {
+        return knowledgeModule.getSelf().getVisibleDistance();
     }
 
     @Override
@@ -307,22 +417,15 @@ public class DivasVision<S extends HumanAgentState> extends AbstractVision<S, Hu
     @Override
     public void receiveEnvObjs(List<EnvObjectState> envObjs)
     {
-        Vector3f workVector = new Vector3f();
-        CollisionResults results = new CollisionResults();
-        for(EnvObjectState obj : envObjs)
-        {
-            receive(obj, results, workVector);
-        }
-        envObjsList = envObjs;
+        updateVisibleRegion();
+        receivedEnvObjs = envObjs;
     }
 
-    List<EnvObjectState> envObjsList;
-
     private void updateVisibleRegion()
     {
         if(knowledgeModule.getTime() != visibleRegionCycleUpdate || visibleRegion == null)
         {
-            visibleRegion = knowledgeModule.getSelf().getVisibleRegion();
+            visibleRegion = knowledgeModule.getSelf().getVisibleRegion(visibleRegion);
             visibleRegionCycleUpdate = knowledgeModule.getTime();
         }
     }
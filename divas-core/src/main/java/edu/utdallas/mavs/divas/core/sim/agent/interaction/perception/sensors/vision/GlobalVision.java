@@ -66,7 +66,7 @@ public class GlobalVision<S extends HumanAgentState> extends AbstractVision<S, H
     {
         if(agentState.isVisible() && agentState.getID() != knowledgeModule.getId())
         {
-            knowledgeModule.addAgent(agentState);
+            perceptionModule.addPerceivedAgent(agentState);
         }
     }
 
@@ -85,7 +85,7 @@ public class GlobalVision<S extends HumanAgentState> extends AbstractVision<S, H
     {
         if(envObj.isVisible())
         {
-            knowledgeModule.addEnvObj(envObj);
+            perceptionModule.addPerceivedEnvObj(envObj);
         }
     }
 }
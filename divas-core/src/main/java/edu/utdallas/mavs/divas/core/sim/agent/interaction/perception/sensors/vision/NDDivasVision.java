@@ -1,9 +1,11 @@
 package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.vision;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,6 +23,7 @@ import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty;
 import edu.utdallas.mavs.divas.core.sim.common.event.EventProperty.Sense;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Visible;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
 
@@ -31,18 +34,33 @@ import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
  */
 public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S, HumanKnowledgeModule<S>, HumanPerceptionModule> implements Serializable
 {
-    private static final long            serialVersionUID         = 1L;
+    private static final long                      serialVersionUID         = 1L;
 
-    private List<Ray>                    visibleRegion;
+    private List<Ray>                              visibleRegion;
 
-    private long                         visibleRegionCycleUpdate = 0;
+    private long                                   visibleRegionCycleUpdate = 0;
 
-    private boolean                      obstructionEnabled       = true;
+    private boolean                                obstructionEnabled       = true;
 
     /**
      * The obstruction test list.
      */
-    private Map<Integer, EnvObjectState> obstructionTestList;
+    private Map<Integer, EnvObjectState>           obstructionTestList;
+
+    /**
+     * The environment objects received in this cycle, tested once the perceived cell state is known
+     */
+    private transient List<EnvObjectState>         receivedEnvObjs;
+
+    /**
+     * The environment objects seen in this cycle
+     */
+    private transient Map<Integer, EnvObjectState> seenEnvObjs;
+
+    /**
+     * The environment objects seen in the previous cycles
+     */
+    private transient VisibilityCache              visibilityCache;
 
     /**
      * Creates a new non-deterministic vision algorithm
@@ -58,18 +76,26 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
         obstructionTestList = new HashMap<Integer, EnvObjectState>();
     }
 
+    @Override
+    public float getRange()
+    {
+        return knowledgeModule.getSelf().getVisibleDistance();
+    }
+
     @Override
     public void receiveAgents(List<AgentState> agents)
     {
         updateVisibleRegion();
 
-        Collections.shuffle(agents);
+        // the perceived list is shared, so a copy is shuffled
+        List<AgentState> shuffled = new ArrayList<AgentState>(agents);
+        Collections.shuffle(shuffled);
 
         int i = 0;
-        int size = agents.size();
+        int size = shuffled.size();
         while(i < 10 && i < size)
         {
-            receive(agents.get(i));
+            receive(shuffled.get(i));
             i++;
         }
     }
@@ -90,9 +116,7 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
     public void receiveEnvObjs(List<EnvObjectState> envObjs)
     {
         updateVisibleRegion();
-        CollisionResults results = new CollisionResults();
-        for(EnvObjectState obj : envObjs)
-            receive(obj, results);
+        receivedEnvObjs = envObjs;
     }
 
     /**
@@ -130,7 +154,7 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
             boolean isSeen = testVisiblePoint(agentState.getPosition());
             if(isSeen)
             {
-                knowledgeModule.addAgent(agentState);
+                perceptionModule.addPerceivedAgent(agentState);
             }
         }
     }
@@ -197,7 +221,7 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
             // if obstruction testing is disabled, just directly add objects here.
             if(obstructionEnabled == false)
             {
-                knowledgeModule.addEnvObj(envObj);
+                see(envObj);
             }
         }
     }
@@ -227,7 +251,7 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
                 {
                     float certainty = 100;
                     EventProperty eventProperty = epList.get(i);
-                    SensedData tempsd = new SensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getVisionTrustConstant());
+                    SensedData tempsd = perceptionModule.newSensedData(knowledgeModule.getTime(), eventProperty.getType(), eventProperty.getSense(), eventProperty.getValue(), certainty, knowledgeModule.getVisionTrustConstant());
                     tempsd.setOrigin(event.getOrigin());
                     tempsd.setDirection(event.getOrigin().subtract(self.getPosition()));
                     perceptionModule.addPerceivedData(tempsd);
@@ -239,6 +263,37 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
     @Override
     public void resolveObstructions()
     {
+        resolveObstructions(null);
+    }
+
+    /**
+     * Tests the environment objects received in this cycle, unless the agent sees the ones it saw in its previous
+     * cycle (see {@link VisibilityCache}), and checks for obstructed objects.
+     * 
+     * @param cell
+     *        the perceived cell state, or null if unknown
+     */
+    @Override
+    public void resolveObstructions(CellState cell)
+    {
+        List<EnvObjectState> envObjs = receivedEnvObjs;
+        receivedEnvObjs = null;
+        if(envObjs == null)
+            return;
+
+        VisibilityCache cache = getVisibilityCache();
+        if(cell != null && cache.lookup(knowledgeModule.getSelf(), cell.getEnvObjectVersion()))
+        {
+            for(EnvObjectState envObj : cache.getEnvObjects())
+                perceptionModule.addPerceivedEnvObj(envObj);
+            return;
+        }
+
+        getSeenEnvObjs().clear();
+        CollisionResults receiveResults = new CollisionResults();
+        for(EnvObjectState obj : envObjs)
+            receive(obj, receiveResults);
+
         if(obstructionEnabled)
         {
             updateVisibleRegion();
@@ -265,12 +320,38 @@ public class NDDivasVision<S extends HumanAgentState> extends AbstractVision<S,
                 if(eoId != -1)
                 {
                     visibleObjectIds.add(eoId);
-                    knowledgeModule.addEnvObj(closest);
+                    see(closest);
                 }
             }
         }
 
         obstructionTestList.clear();
+
+        if(cell != null)
+            cache.store(seenEnvObjs.values());
+    }
+
+    /**
+     * Adds an environment object seen in this cycle to the knowledge module.
+     */
+    private void see(EnvObjectState envObj)
+    {
+        perceptionModule.addPerceivedEnvObj(envObj);
+        getSeenEnvObjs().put(envObj.getID(), envObj);
+    }
+
+    private Map<Integer, EnvObjectState> getSeenEnvObjs()
+    {
+        if(seenEnvObjs == null)
+            seenEnvObjs = new LinkedHashMap<Integer, EnvObjectState>();
+        return seenEnvObjs;
+    }
+
+    private VisibilityCache getVisibilityCache()
+    {
+        if(visibilityCache == null)
+            visibilityCache = new VisibilityCache();
+        return visibilityCache;
     }
 
     private boolean testVisiblePoint(Vector3f point)
@@ -0,0 +1,158 @@
+package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.sensors.vision;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.HumanAgentState;
+
+/**
+ * This class caches the environment objects an agent saw in its last cycle.
+ * <p>
+ * Testing the environment objects for visibility and obstruction is the most expensive part of the vision, while most
+ * agents stand still or barely move from one cycle to the next. The cache is keyed on the agent position and heading,
+ * rounded to the steps configured in {@link SimConfig}, on its visible distance and field of view, and on the version
+ * of the environment objects of the perceived cell state (see {@link CellState#getEnvObjectVersion()}). As long as none
+ * of these change, the agent sees the environment objects it saw before. Agents and events are not cached.
+ * <p>
+ * The hits and misses of all the caches are counted, so that the savings can be checked.
+ */
+public class VisibilityCache
+{
+    private static final AtomicLong    hits       = new AtomicLong();
+
+    private static final AtomicLong    misses     = new AtomicLong();
+
+    private boolean                    valid;
+
+    private long                       version;
+    private int                        x;
+    private int                        y;
+    private int                        z;
+    private int                        yaw;
+    private int                        pitch;
+    private float                      visibleDistance;
+    private float                      fov;
+
+    private final List<EnvObjectState> envObjects = new ArrayList<EnvObjectState>();
+
+    /**
+     * Looks the agent up in the cache. On a miss, the cache keeps the agent key until the environment objects seen are
+     * stored.
+     *
+     * @param self
+     *        the state of the agent
+     * @param envObjectVersion
+     *        the version of the environment objects of the perceived cell state
+     * @return true if the agent sees the environment objects it saw before. Otherwise, false.
+     */
+    public boolean lookup(HumanAgentState self, long envObjectVersion)
+    {
+        SimConfig config = SimConfig.getInstance();
+        if(config.vision_cache_position_step <= 0)
+        {
+            valid = false;
+            return false;
+        }
+
+        Vector3f position = self.getPosition();
+        Vector3f heading = self.getHeading();
+        float length = heading.length();
+
+        int newX = round(position.x, config.vision_cache_position_step);
+        int newY = round(position.y, config.vision_cache_position_step);
+        int newZ = round(position.z, config.vision_cache_position_step);
+        int newYaw = round(FastMath.atan2(heading.z, heading.x) * FastMath.RAD_TO_DEG, config.vision_cache_heading_step);
+        int newPitch = round(length == 0 ? 0 : FastMath.asin(heading.y / length) * FastMath.RAD_TO_DEG, config.vision_cache_heading_step);
+
+        if(valid && version == envObjectVersion && x == newX && y == newY && z == newZ && yaw == newYaw && pitch == newPitch && visibleDistance == self.getVisibleDistance() && fov == self.getFOV())
+        {
+            hits.incrementAndGet();
+            return true;
+        }
+
+        misses.incrementAndGet();
+        valid = false;
+        version = envObjectVersion;
+        x = newX;
+        y = newY;
+        z = newZ;
+        yaw = newYaw;
+        pitch = newPitch;
+        visibleDistance = self.getVisibleDistance();
+        fov = self.getFOV();
+        return false;
+    }
+
+    /**
+     * Rounds a value to a step. Without a step, the exact value is kept.
+     */
+    private static int round(float value, float step)
+    {
+        return step > 0 ? Math.round(value / step) : Float.floatToIntBits(value);
+    }
+
+    /**
+     * Stores the environment objects seen by the agent after a miss.
+     *
+     * @param seen
+     *        the environment objects seen by the agent
+     */
+    public void store(Collection<EnvObjectState> seen)
+    {
+        envObjects.clear();
+        envObjects.addAll(seen);
+        valid = SimConfig.getInstance().vision_cache_position_step > 0;
+    }
+
+    /**
+     * Gets the environment objects seen by the agent after a hit.
+     *
+     * @return the environment objects seen by the agent
+     */
+    public List<EnvObjectState> getEnvObjects()
+    {
+        return envObjects;
+    }
+
+    /**
+     * Forgets the environment objects seen by the agent.
+     */
+    public void invalidate()
+    {
+        valid = false;
+        envObjects.clear();
+    }
+
+    /**
+     * @return the number of lookups of all the caches that found the environment objects seen by the agent
+     */
+    public static long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups of all the caches that had to test the environment objects again
+     */
+    public static long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public static void resetCounters()
+    {
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -567,7 +567,7 @@ public abstract class EnvEvent implements Serializable
 
     public Rectangle2D getBounds()
     {
-        Vector3f scale = Vector3f.UNIT_XYZ;
+        Vector3f scale = Vector3f.UNIT_XYZ.clone();
 
         if(this instanceof Audible && this instanceof Smellable)
         {
@@ -1,5 +1,8 @@
 package edu.utdallas.mavs.divas.core.sim.common.state;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -11,9 +14,11 @@ import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.sim.agent.knowledge.external.Collision;
+import edu.utdallas.mavs.divas.core.sim.agent.knowledge.external.Collision.CollisionType;
 import edu.utdallas.mavs.divas.core.sim.common.percept.AudioPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.percept.SmellPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
 import edu.utdallas.mavs.divas.utils.collections.LinkedBoundedQueue;
 
 /**
@@ -148,6 +153,49 @@ public class AgentState extends VirtualState implements Serializable
         heading = agent.heading.clone();
     }
 
+    @Override
+    public void writeFields(DataOutput out) throws IOException
+    {
+        super.writeFields(out);
+        DataIOHelper.writeVector3f(out, heading);
+        DataIOHelper.writeString(out, agentType);
+        DataIOHelper.writeEnum(out, controlType);
+        out.writeBoolean(alive);
+
+        out.writeInt(taskNames == null ? -1 : taskNames.size());
+        if(taskNames != null)
+            for(String taskName : taskNames)
+                out.writeUTF(taskName);
+
+        Collision[] pending = collisions.toArray(new Collision[0]);
+        out.writeInt(pending.length);
+        for(Collision collision : pending)
+        {
+            out.writeInt(collision.getCollidableId());
+            DataIOHelper.writeEnum(out, collision.getCollidableType());
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException
+    {
+        super.readFields(in);
+        heading = DataIOHelper.readVector3f(in);
+        agentType = DataIOHelper.readString(in);
+        controlType = DataIOHelper.readEnum(in, AgentControlType.class);
+        alive = in.readBoolean();
+
+        int taskCount = in.readInt();
+        taskNames = taskCount < 0 ? null : new HashSet<String>();
+        for(int i = 0; i < taskCount; i++)
+            taskNames.add(in.readUTF());
+
+        collisions.clear();
+        int collisionCount = in.readInt();
+        for(int i = 0; i < collisionCount; i++)
+            collisions.add(new Collision(in.readInt(), DataIOHelper.readEnum(in, CollisionType.class)));
+    }
+
     /**
      * Gets a 2D projection of the position of the agent
      * 
@@ -1,44 +1,66 @@
 package edu.utdallas.mavs.divas.core.sim.common.state;
 
+import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
 import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
 import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.utils.collections.ConcurrentIntHashMap;
+import edu.utdallas.mavs.divas.utils.collections.SpatialHashGrid;
+import edu.utdallas.mavs.divas.utils.physics.ObstructionGrid;
 
 /**
  * This class stores information about the cell controller contents.
  * <p>
  * This information includes: 1)CellBounds. 2)Agents in the cell controller. 3)Environment objects in the Cell Controller. 4)Events in the Cell Controller.
+ * <p>
+ * When enabled in {@link SimConfig}, the entities are also indexed in uniform grids so that area queries (e.g., {@link #getAgentStatesIn(Rectangle2D)}) do not have to visit every entity in the cell.
  */
 public class CellState implements Serializable
 {
-    private static final long            serialVersionUID = 2595604100870567724L;
+    private static final long                         serialVersionUID              = -3741920871386350619L;
+
+    private static final float                        DEFAULT_OBSTRUCTION_CELL_SIZE = 10;
+
+    private static final AtomicLong                   envObjectVersions             = new AtomicLong();
+
+    private CellID                                    id;
 
-    private CellID                       id;
+    private CellBounds                                bounds;
 
-    private CellBounds                   bounds;
+    private long                                      time;
 
-    private long                         time;
+    private ConcurrentIntHashMap<AgentState>          agents;
+    private ConcurrentIntHashMap<EnvObjectState>      envObjects;
+    private ConcurrentIntHashMap<EnvEvent>            events;
 
-    private Map<Integer, AgentState>     agents;
-    private Map<Integer, EnvObjectState> envObjects;
-    private Map<Integer, EnvEvent>       events;
+    private transient SpatialHashGrid<AgentState>     agentIndex;
+    private transient SpatialHashGrid<EnvObjectState> envObjectIndex;
+    private transient SpatialHashGrid<EnvEvent>       eventIndex;
+
+    private transient ObstructionGrid                 obstructionGrid;
+
+    private transient long                            envObjectVersion;
 
     /**
      * Creates a new cell state.
      */
     public CellState()
     {
-        agents = Collections.synchronizedMap(new HashMap<Integer, AgentState>());
-        envObjects = Collections.synchronizedMap(new HashMap<Integer, EnvObjectState>());
-        events = Collections.synchronizedMap(new HashMap<Integer, EnvEvent>());
+        agents = new ConcurrentIntHashMap<AgentState>();
+        envObjects = new ConcurrentIntHashMap<EnvObjectState>();
+        events = new ConcurrentIntHashMap<EnvEvent>();
     }
 
     /**
@@ -56,6 +78,18 @@ public class CellState implements Serializable
         this.setBounds(bounds);
     }
 
+    /**
+     * Creates a cell state without entity maps, for subclasses which override every accessor of the entities and
+     * read them from elsewhere.
+     * 
+     * @param time
+     *        The time of the cell state.
+     */
+    protected CellState(long time)
+    {
+        this.time = time;
+    }
+
     /**
      * This method splits the cell state into two new children cell states. First, the boundary of this cell state is
      * split into two. Then, all agents,
@@ -75,22 +109,21 @@ public class CellState implements Serializable
         subCells[1] = new CellState(id.createChild(1), parts[1]);
 
         // forward entities to newly-created children
-        synchronized(envObjects)
-        {
-            for(EnvObjectState e : envObjects.values())
-                for(CellState subCell : subCells)
-                    if(subCell.getBounds().intersects(e.getBoundingArea()))
-                        subCell.addEnvObject(e);
-        }
+        for(CellState subCell : subCells)
+            for(EnvObjectState e : getEnvObjectsIn(subCell.getBounds()))
+                if(subCell.getBounds().intersects(e.getBoundingArea()))
+                    subCell.addEnvObject(e);
 
-        synchronized(events)
+        Iterator<EnvEvent> it = events.values().iterator();
+        while(it.hasNext())
         {
-            for(EnvEvent e : events.values())
-                for(CellState subCell : subCells)
-                    if(subCell.getBounds().contains(e.getOrigin()))
-                        subCell.addEvent(e);
-            events.clear();
+            EnvEvent e = it.next();
+            for(CellState subCell : subCells)
+                if(subCell.getBounds().contains(e.getOrigin()))
+                    subCell.addEvent(e);
+            it.remove();
         }
+        dropIndexes();
         return subCells;
     }
 
@@ -147,6 +180,7 @@ public class CellState implements Serializable
         envObjects.putAll(cell.envObjects);
         agents.putAll(cell.agents);
         events.putAll(cell.events);
+        dropIndexes();
     }
 
     /**
@@ -275,6 +309,7 @@ public class CellState implements Serializable
         agents.clear();
         envObjects.clear();
         events.clear();
+        dropIndexes();
     }
 
     /**
@@ -283,6 +318,7 @@ public class CellState implements Serializable
     public void clearAgents()
     {
         agents.clear();
+        dropIndexes();
     }
 
     /**
@@ -295,7 +331,22 @@ public class CellState implements Serializable
      */
     public boolean addAgent(AgentState a)
     {
-        return agents.put(a.getID(), a) != null;
+        boolean replaced = agents.put(a.getID(), a) != null;
+        indexAgent(a);
+        return replaced;
+    }
+
+    /**
+     * Refreshes the position of the given agent state in the spatial index of this cell state. This must be called
+     * whenever an agent state contained in this cell state is moved.
+     * 
+     * @param a
+     *        the agent state that moved.
+     */
+    public void updateAgent(AgentState a)
+    {
+        if(agents.containsKey(a.getID()))
+            indexAgent(a);
     }
 
     /**
@@ -320,7 +371,9 @@ public class CellState implements Serializable
      */
     public boolean removeEnvObject(EnvObjectState state)
     {
-        return envObjects.remove(state.getID()) != null;
+        boolean removed = envObjects.remove(state.getID()) != null;
+        unindexEnvObject(state.getID());
+        return removed;
     }
 
     /**
@@ -333,7 +386,9 @@ public class CellState implements Serializable
      */
     public boolean removeAgent(int agentId)
     {
-        return agents.remove(agentId) != null;
+        boolean removed = agents.remove(agentId) != null;
+        unindexAgent(agentId);
+        return removed;
     }
 
     /**
@@ -347,7 +402,22 @@ public class CellState implements Serializable
      */
     public boolean addEnvObject(EnvObjectState state)
     {
-        return envObjects.put(state.getID(), state) != null;
+        boolean replaced = envObjects.put(state.getID(), state) != null;
+        indexEnvObject(state);
+        return replaced;
+    }
+
+    /**
+     * Refreshes the position of the given environment object state in the spatial index of this cell state. This must
+     * be called whenever an environment object state contained in this cell state is moved or resized.
+     * 
+     * @param state
+     *        the environment object state that changed.
+     */
+    public void updateEnvObject(EnvObjectState state)
+    {
+        if(envObjects.containsKey(state.getID()))
+            indexEnvObject(state);
     }
 
     /**
@@ -361,7 +431,22 @@ public class CellState implements Serializable
      */
     public boolean addEvent(EnvEvent event)
     {
-        return events.put(event.getID(), event) != null;
+        boolean replaced = events.put(event.getID(), event) != null;
+        indexEvent(event);
+        return replaced;
+    }
+
+    /**
+     * Refreshes the bounds of the given event in the spatial index of this cell state. This must be called whenever an
+     * event contained in this cell state is propagated or moved.
+     * 
+     * @param event
+     *        the event that changed.
+     */
+    public void updateEvent(EnvEvent event)
+    {
+        if(events.containsKey(event.getID()))
+            indexEvent(event);
     }
 
     /**
@@ -373,7 +458,9 @@ public class CellState implements Serializable
      */
     public boolean removeEvent(EnvEvent event)
     {
-        return events.remove(event.getID()) != null;
+        boolean removed = events.remove(event.getID()) != null;
+        unindexEvent(event.getID());
+        return removed;
     }
 
     /**
@@ -386,6 +473,299 @@ public class CellState implements Serializable
         return agents;
     }
 
+    /**
+     * Gets the agent states in this cell state whose extent intersects the given area.
+     * 
+     * @param area
+     *        the area, in the (x, z) plane
+     * @return list of agent states.
+     */
+    public List<AgentState> getAgentStatesIn(Rectangle2D area)
+    {
+        SpatialHashGrid<AgentState> index = getAgentIndex();
+        if(index != null)
+            return index.query((float) area.getMinX(), (float) area.getMinY(), (float) area.getMaxX(), (float) area.getMaxY());
+
+        List<AgentState> result = new ArrayList<AgentState>();
+        for(AgentState a : getAgentStates())
+            if(area.intersects(extentOf(a)))
+                result.add(a);
+        return result;
+    }
+
+    /**
+     * Gets the agent states in this cell state whose extent lies within the given distance of a point.
+     * 
+     * @param center
+     *        the point
+     * @param range
+     *        the distance from the point, in the (x, z) plane
+     * @return list of agent states.
+     */
+    public List<AgentState> getAgentStatesInRange(Vector3f center, float range)
+    {
+        SpatialHashGrid<AgentState> index = getAgentIndex();
+        if(index != null)
+            return index.queryRange(center.x, center.z, range);
+
+        List<AgentState> result = new ArrayList<AgentState>();
+        for(AgentState a : getAgentStates())
+            if(inRange(extentOf(a), center, range))
+                result.add(a);
+        return result;
+    }
+
+    /**
+     * Gets the environment object states in this cell state whose extent intersects the given area.
+     * 
+     * @param area
+     *        the area, in the (x, z) plane
+     * @return list of environment object states.
+     */
+    public List<EnvObjectState> getEnvObjectsIn(Rectangle2D area)
+    {
+        SpatialHashGrid<EnvObjectState> index = getEnvObjectIndex();
+        if(index != null)
+            return index.query((float) area.getMinX(), (float) area.getMinY(), (float) area.getMaxX(), (float) area.getMaxY());
+
+        List<EnvObjectState> result = new ArrayList<EnvObjectState>();
+        for(EnvObjectState e : getEnvObjects())
+            if(area.intersects(extentOf(e)))
+                result.add(e);
+        return result;
+    }
+
+    /**
+     * Gets the environment object states in this cell state whose extent lies within the given distance of a point.
+     * 
+     * @param center
+     *        the point
+     * @param range
+     *        the distance from the point, in the (x, z) plane
+     * @return list of environment object states.
+     */
+    public List<EnvObjectState> getEnvObjectsInRange(Vector3f center, float range)
+    {
+        SpatialHashGrid<EnvObjectState> index = getEnvObjectIndex();
+        if(index != null)
+            return index.queryRange(center.x, center.z, range);
+
+        List<EnvObjectState> result = new ArrayList<EnvObjectState>();
+        for(EnvObjectState e : getEnvObjects())
+            if(inRange(extentOf(e), center, range))
+                result.add(e);
+        return result;
+    }
+
+    /**
+     * Gets the events in this cell state whose bounds intersect the given area.
+     * 
+     * @param area
+     *        the area, in the (x, z) plane
+     * @return list of events.
+     */
+    public List<EnvEvent> getEventsIn(Rectangle2D area)
+    {
+        SpatialHashGrid<EnvEvent> index = getEventIndex();
+        if(index != null)
+            return index.query((float) area.getMinX(), (float) area.getMinY(), (float) area.getMaxX(), (float) area.getMaxY());
+
+        List<EnvEvent> result = new ArrayList<EnvEvent>();
+        for(EnvEvent e : getEvents())
+            if(area.intersects(e.getBounds()))
+                result.add(e);
+        return result;
+    }
+
+    /**
+     * Gets the events in this cell state whose bounds lie within the given distance of a point.
+     * 
+     * @param center
+     *        the point
+     * @param range
+     *        the distance from the point, in the (x, z) plane
+     * @return list of events.
+     */
+    public List<EnvEvent> getEventsInRange(Vector3f center, float range)
+    {
+        SpatialHashGrid<EnvEvent> index = getEventIndex();
+        if(index != null)
+            return index.queryRange(center.x, center.z, range);
+
+        List<EnvEvent> result = new ArrayList<EnvEvent>();
+        for(EnvEvent e : getEvents())
+            if(inRange(e.getBounds(), center, range))
+                result.add(e);
+        return result;
+    }
+
+    /**
+     * Gets the axis-aligned extent of a virtual state in the (x, z) plane. The extent encloses the bounding area of
+     * the state for any rotation.
+     * 
+     * @param state
+     *        the virtual state
+     * @return the extent of the state.
+     */
+    public static Rectangle2D extentOf(VirtualState state)
+    {
+        Vector3f p = state.getPosition();
+        Vector3f s = state.getScale();
+        float r = FastMath.sqrt(s.x * s.x + s.z * s.z);
+        return new Rectangle2D.Float(p.x - r, p.z - r, 2 * r, 2 * r);
+    }
+
+    private static boolean inRange(Rectangle2D extent, Vector3f center, float range)
+    {
+        double dx = Math.max(0, Math.max(extent.getMinX() - center.x, center.x - extent.getMaxX()));
+        double dz = Math.max(0, Math.max(extent.getMinY() - center.z, center.z - extent.getMaxY()));
+        return dx * dx + dz * dz <= range * range;
+    }
+
+    private static <T extends VirtualState> void put(SpatialHashGrid<T> grid, T state)
+    {
+        Rectangle2D extent = extentOf(state);
+        grid.put(state.getID(), state, (float) extent.getMinX(), (float) extent.getMinY(), (float) extent.getMaxX(), (float) extent.getMaxY());
+    }
+
+    private static void put(SpatialHashGrid<EnvEvent> grid, EnvEvent event)
+    {
+        Rectangle2D bounds = event.getBounds();
+        grid.put(event.getID(), event, (float) bounds.getMinX(), (float) bounds.getMinY(), (float) bounds.getMaxX(), (float) bounds.getMaxY());
+    }
+
+    /**
+     * Gets the obstruction grids holding the bounding volumes of the environment objects of this cell state, so that
+     * rays can be cast against them without visiting every environment object. The grid of a cell state is built on
+     * first use and kept until one of its environment objects is added, removed or updated.
+     * 
+     * @return the obstruction grids of this cell state.
+     */
+    public List<ObstructionGrid> getObstructionGrids()
+    {
+        return Collections.singletonList(getObstructionGrid());
+    }
+
+    /**
+     * Gets the version of the environment objects of this cell state. The version changes whenever an environment
+     * object is added, removed or updated, and no two cell states share a version, so that results computed from the
+     * environment objects can be reused as long as the version does not change.
+     * 
+     * @return the version of the environment objects of this cell state.
+     */
+    public synchronized long getEnvObjectVersion()
+    {
+        if(envObjectVersion == 0)
+            envObjectVersion = envObjectVersions.incrementAndGet();
+        return envObjectVersion;
+    }
+
+    private synchronized ObstructionGrid getObstructionGrid()
+    {
+        if(obstructionGrid == null)
+        {
+            float cellSize = SimConfig.getInstance().spatial_index_bucket_size;
+            ObstructionGrid grid = new ObstructionGrid(cellSize > 0 ? cellSize : DEFAULT_OBSTRUCTION_CELL_SIZE);
+            for(EnvObjectState e : getEnvObjects())
+                grid.add(e.getID(), e.getBoundingVolume());
+            grid.build();
+            obstructionGrid = grid;
+        }
+        return obstructionGrid;
+    }
+
+    private synchronized void indexAgent(AgentState a)
+    {
+        if(agentIndex != null)
+            put(agentIndex, a);
+    }
+
+    private synchronized void indexEnvObject(EnvObjectState state)
+    {
+        envObjectsChanged();
+        if(envObjectIndex != null)
+            put(envObjectIndex, state);
+    }
+
+    private synchronized void indexEvent(EnvEvent event)
+    {
+        if(eventIndex != null)
+            put(eventIndex, event);
+    }
+
+    private synchronized void unindexAgent(int agentID)
+    {
+        if(agentIndex != null)
+            agentIndex.remove(agentID);
+    }
+
+    private synchronized void unindexEnvObject(int envObjectID)
+    {
+        envObjectsChanged();
+        if(envObjectIndex != null)
+            envObjectIndex.remove(envObjectID);
+    }
+
+    private synchronized void unindexEvent(int eventID)
+    {
+        if(eventIndex != null)
+            eventIndex.remove(eventID);
+    }
+
+    private synchronized SpatialHashGrid<AgentState> getAgentIndex()
+    {
+        buildIndexes();
+        return agentIndex;
+    }
+
+    private synchronized SpatialHashGrid<EnvObjectState> getEnvObjectIndex()
+    {
+        buildIndexes();
+        return envObjectIndex;
+    }
+
+    private synchronized SpatialHashGrid<EnvEvent> getEventIndex()
+    {
+        buildIndexes();
+        return eventIndex;
+    }
+
+    /**
+     * Builds the spatial indexes on first use, so that transient cell states (e.g., combined perception states) never
+     * pay for indexing.
+     */
+    private void buildIndexes()
+    {
+        SimConfig config = SimConfig.getInstance();
+        if(agentIndex != null || !config.use_spatial_index || config.spatial_index_bucket_size <= 0)
+            return;
+
+        agentIndex = new SpatialHashGrid<AgentState>(config.spatial_index_bucket_size);
+        envObjectIndex = new SpatialHashGrid<EnvObjectState>(config.spatial_index_bucket_size);
+        eventIndex = new SpatialHashGrid<EnvEvent>(config.spatial_index_bucket_size);
+
+        for(AgentState a : getAgentStates())
+            put(agentIndex, a);
+        for(EnvObjectState e : getEnvObjects())
+            put(envObjectIndex, e);
+        for(EnvEvent e : getEvents())
+            put(eventIndex, e);
+    }
+
+    private synchronized void envObjectsChanged()
+    {
+        obstructionGrid = null;
+        envObjectVersion = 0;
+    }
+
+    private synchronized void dropIndexes()
+    {
+        agentIndex = null;
+        envObjectIndex = null;
+        eventIndex = null;
+        envObjectsChanged();
+    }
+
     @Override
     public String toString()
     {
@@ -1,5 +1,8 @@
 package edu.utdallas.mavs.divas.core.sim.common.state;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +14,7 @@ import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.sim.common.percept.Visible;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
 
 /**
  * This class represents the current state of an environment object in the simulation.
@@ -221,6 +225,30 @@ public class EnvObjectState extends VirtualState implements Visible, Serializabl
         scale = eo.scale;
     }
 
+    @Override
+    public void writeFields(DataOutput out) throws IOException
+    {
+        super.writeFields(out);
+        DataIOHelper.writeString(out, description);
+        DataIOHelper.writeString(out, type);
+        DataIOHelper.writeString(out, material);
+        DataIOHelper.writeString(out, name);
+        DataIOHelper.writeString(out, image);
+        out.writeBoolean(onFire);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException
+    {
+        super.readFields(in);
+        description = DataIOHelper.readString(in);
+        type = DataIOHelper.readString(in);
+        material = DataIOHelper.readString(in);
+        name = DataIOHelper.readString(in);
+        image = DataIOHelper.readString(in);
+        onFire = in.readBoolean();
+    }
+
     @Override
     public synchronized void updateBoundings()
     {
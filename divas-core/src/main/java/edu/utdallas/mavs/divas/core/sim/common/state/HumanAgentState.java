@@ -3,7 +3,11 @@ package edu.utdallas.mavs.divas.core.sim.common.state;
 import java.awt.Shape;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Point2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.jme3.math.Ray;
@@ -16,6 +20,7 @@ import edu.utdallas.mavs.divas.core.sim.common.percept.AudioPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.percept.SmellPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Visible;
 import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
 import edu.utdallas.mavs.divas.utils.physics.BoundingShape;
 import edu.utdallas.mavs.divas.utils.physics.VisionHelper;
 
@@ -25,6 +30,8 @@ public class HumanAgentState extends AgentState implements Visible, Audible, Vis
 
     private static final float EYES_OFFSET      = 0.15f;
 
+    private static final Ray[] NO_RAYS          = new Ray[0];
+
     /**
      * The maximum speed of the agent.
      */
@@ -386,13 +393,25 @@ public class HumanAgentState extends AgentState implements Visible, Audible, Vis
      */
     public List<Ray> getVisibleRegion()
     {
-        List<Ray> visibleRegion = new ArrayList<Ray>();
+        return new ArrayList<Ray>(Arrays.asList(getVisibleRegion(null)));
+    }
+
+    /**
+     * Fills the given array of rays with the agent's visible region. The array is reused when it has the right length,
+     * so that the visible region can be computed every cycle without creating objects.
+     * 
+     * @param buffer
+     *        the array of rays from a previous call, or null
+     * @return the visible region, in the given array if it could be reused
+     */
+    public Ray[] getVisibleRegion(Ray[] buffer)
+    {
         if(visionShape.equals(VisionShape.CONICAL))
         {
-            visibleRegion = VisionHelper.createVisionCone(position.add(0, getVisionHeight(), 0), heading, fov, visibleDistance, SimConfig.getInstance().vision_Circles_Count,
+            return VisionHelper.fillVisionCone(buffer, position.x, position.y + getVisionHeight(), position.z, heading, fov, visibleDistance, SimConfig.getInstance().vision_Circles_Count,
                     SimConfig.getInstance().vision_Rays_Count);
         }
-        return visibleRegion;
+        return NO_RAYS;
     }
 
     /**
@@ -461,4 +480,40 @@ public class HumanAgentState extends AgentState implements Visible, Audible, Vis
         olfactoryEnabled = agent.olfactoryEnabled;
         auditoryEnabled = agent.auditoryEnabled;
     }
+
+    @Override
+    public void writeFields(DataOutput out) throws IOException
+    {
+        super.writeFields(out);
+        out.writeFloat(maxSpeed);
+        out.writeFloat(desiredSpeed);
+        out.writeFloat(visibleDistance);
+        out.writeFloat(fov);
+        out.writeFloat(minAudibleThreshold);
+        out.writeFloat(acousticEmission);
+        out.writeFloat(smellSensitivity);
+        DataIOHelper.writeEnum(out, visionAlgorithm);
+        DataIOHelper.writeEnum(out, visionShape);
+        out.writeBoolean(alive);
+        out.writeBoolean(olfactoryEnabled);
+        out.writeBoolean(auditoryEnabled);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException
+    {
+        super.readFields(in);
+        maxSpeed = in.readFloat();
+        desiredSpeed = in.readFloat();
+        visibleDistance = in.readFloat();
+        fov = in.readFloat();
+        minAudibleThreshold = in.readFloat();
+        acousticEmission = in.readFloat();
+        smellSensitivity = in.readFloat();
+        visionAlgorithm = DataIOHelper.readEnum(in, VisionAlgorithm.class);
+        visionShape = DataIOHelper.readEnum(in, VisionShape.class);
+        alive = in.readBoolean();
+        olfactoryEnabled = in.readBoolean();
+        auditoryEnabled = in.readBoolean();
+    }
 }
@@ -0,0 +1,348 @@
+package edu.utdallas.mavs.divas.core.sim.common.state;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
+import edu.utdallas.mavs.divas.utils.physics.ObstructionGrid;
+
+/**
+ * This class describes a read-only view over the states of the cells an agent perceives.
+ * <p>
+ * The view is a combined cell state whose contents are never copied into it: it has no entity maps, and each accessor reads from the underlying cell states. When an entity is present in more than one cell, the entity of the last cell is perceived, as it happens when
+ * the cells are combined with {@link CellState#combineEntitiesFrom(CellState)}. The entity lists are computed once and shared, so agents perceiving the same cells should share the same view.
+ */
+public class PerceptionView extends CellState
+{
+    private static final long            serialVersionUID = 1L;
+
+    private final List<CellState>        cells;
+
+    private List<AgentState>             agentStates;
+    private List<EnvObjectState>         envObjects;
+    private List<EnvEvent>               events;
+    private Map<Integer, AgentState>     agents;
+    private List<ObstructionGrid>        obstructionGrids;
+
+    /**
+     * Creates a new view over the given cell states. The time of the view is the time of the last cell state.
+     *
+     * @param cells
+     *        the perceived cell states, in the order they should be combined
+     */
+    public PerceptionView(List<CellState> cells)
+    {
+        super(cells.isEmpty() ? 0 : cells.get(cells.size() - 1).getTime());
+        this.cells = cells;
+    }
+
+    /**
+     * Gets the cell states this view reads from.
+     *
+     * @return an unmodifiable list of cell states.
+     */
+    public List<CellState> getCells()
+    {
+        return Collections.unmodifiableList(cells);
+    }
+
+    @Override
+    public synchronized List<AgentState> getAgentStates()
+    {
+        if(agentStates == null)
+        {
+            List<List<AgentState>> parts = new ArrayList<List<AgentState>>(cells.size());
+            for(CellState cell : cells)
+                parts.add(cell.getAgentStates());
+            agentStates = Collections.unmodifiableList(mergeStates(parts));
+        }
+        return agentStates;
+    }
+
+    @Override
+    public AgentState getAgentState(int agentID)
+    {
+        for(int i = cells.size() - 1; i >= 0; i--)
+        {
+            AgentState state = cells.get(i).getAgentState(agentID);
+            if(state != null)
+                return state;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<EnvObjectState> getEnvObjects()
+    {
+        if(envObjects == null)
+        {
+            List<List<EnvObjectState>> parts = new ArrayList<List<EnvObjectState>>(cells.size());
+            for(CellState cell : cells)
+                parts.add(cell.getEnvObjects());
+            envObjects = Collections.unmodifiableList(mergeStates(parts));
+        }
+        return envObjects;
+    }
+
+    @Override
+    public EnvObjectState getEnvObjectState(int envObjectID)
+    {
+        for(int i = cells.size() - 1; i >= 0; i--)
+        {
+            EnvObjectState state = cells.get(i).getEnvObjectState(envObjectID);
+            if(state != null)
+                return state;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the obstruction grids of the underlying cell states, which are kept by each cell state from one cycle to the
+     * next.
+     */
+    @Override
+    public synchronized List<ObstructionGrid> getObstructionGrids()
+    {
+        if(obstructionGrids == null)
+        {
+            List<ObstructionGrid> grids = new ArrayList<ObstructionGrid>(cells.size());
+            for(CellState cell : cells)
+                grids.addAll(cell.getObstructionGrids());
+            obstructionGrids = Collections.unmodifiableList(grids);
+        }
+        return obstructionGrids;
+    }
+
+    /**
+     * Gets a version combining the versions of the environment objects of the underlying cell states, which changes
+     * whenever one of them does.
+     */
+    @Override
+    public long getEnvObjectVersion()
+    {
+        if(cells.size() == 1)
+            return cells.get(0).getEnvObjectVersion();
+
+        long version = cells.size();
+        for(CellState cell : cells)
+            version = version * 0x9E3779B97F4A7C15L + cell.getEnvObjectVersion();
+        return version;
+    }
+
+    @Override
+    public synchronized List<EnvEvent> getEvents()
+    {
+        if(events == null)
+        {
+            List<List<EnvEvent>> parts = new ArrayList<List<EnvEvent>>(cells.size());
+            for(CellState cell : cells)
+                parts.add(cell.getEvents());
+            events = Collections.unmodifiableList(mergeEvents(parts));
+        }
+        return events;
+    }
+
+    @Override
+    public boolean containsAgent(int agentID)
+    {
+        for(CellState cell : cells)
+            if(cell.containsAgent(agentID))
+                return true;
+        return false;
+    }
+
+    @Override
+    public synchronized Map<Integer, AgentState> getAgents()
+    {
+        if(agents == null)
+        {
+            Map<Integer, AgentState> map = new LinkedHashMap<Integer, AgentState>();
+            for(AgentState a : getAgentStates())
+                map.put(a.getID(), a);
+            agents = Collections.unmodifiableMap(map);
+        }
+        return agents;
+    }
+
+    @Override
+    public List<AgentState> getAgentStatesIn(Rectangle2D area)
+    {
+        List<List<AgentState>> parts = new ArrayList<List<AgentState>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getAgentStatesIn(area));
+        return mergeStates(parts);
+    }
+
+    @Override
+    public List<AgentState> getAgentStatesInRange(Vector3f center, float range)
+    {
+        List<List<AgentState>> parts = new ArrayList<List<AgentState>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getAgentStatesInRange(center, range));
+        return mergeStates(parts);
+    }
+
+    @Override
+    public List<EnvObjectState> getEnvObjectsIn(Rectangle2D area)
+    {
+        List<List<EnvObjectState>> parts = new ArrayList<List<EnvObjectState>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getEnvObjectsIn(area));
+        return mergeStates(parts);
+    }
+
+    @Override
+    public List<EnvObjectState> getEnvObjectsInRange(Vector3f center, float range)
+    {
+        List<List<EnvObjectState>> parts = new ArrayList<List<EnvObjectState>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getEnvObjectsInRange(center, range));
+        return mergeStates(parts);
+    }
+
+    @Override
+    public List<EnvEvent> getEventsIn(Rectangle2D area)
+    {
+        List<List<EnvEvent>> parts = new ArrayList<List<EnvEvent>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getEventsIn(area));
+        return mergeEvents(parts);
+    }
+
+    @Override
+    public List<EnvEvent> getEventsInRange(Vector3f center, float range)
+    {
+        List<List<EnvEvent>> parts = new ArrayList<List<EnvEvent>>(cells.size());
+        for(CellState cell : cells)
+            parts.add(cell.getEventsInRange(center, range));
+        return mergeEvents(parts);
+    }
+
+    @Override
+    public CellState[] split()
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void mergeWith(CellState cell)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void combineEntitiesFrom(CellState cell)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void destroy()
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void clearAgents()
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean addAgent(AgentState a)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void updateAgent(AgentState a)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean removeAgent(int agentId)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean addEnvObject(EnvObjectState state)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void updateEnvObject(EnvObjectState state)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean removeEnvObject(EnvObjectState state)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean addEvent(EnvEvent event)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public void updateEvent(EnvEvent event)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public boolean removeEvent(EnvEvent event)
+    {
+        throw new UnsupportedOperationException("Perception views are read-only");
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PerceptionView" + cells;
+    }
+
+    /**
+     * Combines the states of several cells. A state present in more than one cell is kept once, with the value of the
+     * last cell containing it.
+     */
+    private static <T extends VirtualState> List<T> mergeStates(List<List<T>> parts)
+    {
+        if(parts.size() == 1)
+            return parts.get(0);
+
+        Map<Integer, T> merged = new LinkedHashMap<Integer, T>();
+        for(List<T> part : parts)
+            for(T state : part)
+                merged.put(state.getID(), state);
+        return new ArrayList<T>(merged.values());
+    }
+
+    /**
+     * Combines the events of several cells. An event present in more than one cell is kept once, with the value of the
+     * last cell containing it.
+     */
+    private static List<EnvEvent> mergeEvents(List<List<EnvEvent>> parts)
+    {
+        if(parts.size() == 1)
+            return parts.get(0);
+
+        Map<Integer, EnvEvent> merged = new LinkedHashMap<Integer, EnvEvent>();
+        for(List<EnvEvent> part : parts)
+            for(EnvEvent event : part)
+                merged.put(event.getID(), event);
+        return new ArrayList<EnvEvent>(merged.values());
+    }
+}
@@ -1,5 +1,8 @@
 package edu.utdallas.mavs.divas.core.sim.common.state;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 import com.jme3.bounding.BoundingVolume;
@@ -15,6 +18,7 @@ import com.vividsolutions.jts.geom.Point;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Audible;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Smellable;
 import edu.utdallas.mavs.divas.core.sim.common.percept.Visible;
+import edu.utdallas.mavs.divas.utils.DataIOHelper;
 import edu.utdallas.mavs.divas.utils.physics.ActualObjectPolygon;
 import edu.utdallas.mavs.divas.utils.physics.BoundingShape;
 import edu.utdallas.mavs.divas.utils.physics.PhysicsHelper;
@@ -263,6 +267,54 @@ public abstract class VirtualState extends AbstractState implements Serializable
         boundingVolume = eo.getBoundingVolume();
     }
 
+    /**
+     * Writes the properties of this state in binary form. The bounding area and bounding volume are not written, as
+     * they are derived from the other properties.
+     * <p>
+     * Subclasses adding properties must override this method and <code>readFields(DataInput)</code>, writing their own
+     * properties after the ones of their superclass.
+     * 
+     * @param out
+     *        The output stream.
+     * @throws IOException
+     *         If the properties could not be written.
+     */
+    public void writeFields(DataOutput out) throws IOException
+    {
+        out.writeInt(id);
+        out.writeBoolean(visualized);
+        DataIOHelper.writeVector3f(out, position);
+        DataIOHelper.writeVector3f(out, velocity);
+        DataIOHelper.writeVector3f(out, acceleration);
+        DataIOHelper.writeVector3f(out, scale);
+        DataIOHelper.writeEnum(out, boundingShape);
+        out.writeBoolean(collidable);
+        DataIOHelper.writeString(out, modelName);
+        DataIOHelper.writeQuaternion(out, rotation);
+    }
+
+    /**
+     * Reads the properties of this state written by <code>writeFields(DataOutput)</code>.
+     * 
+     * @param in
+     *        The input stream.
+     * @throws IOException
+     *         If the properties could not be read.
+     */
+    public void readFields(DataInput in) throws IOException
+    {
+        id = in.readInt();
+        visualized = in.readBoolean();
+        position = DataIOHelper.readVector3f(in);
+        velocity = DataIOHelper.readVector3f(in);
+        acceleration = DataIOHelper.readVector3f(in);
+        scale = DataIOHelper.readVector3f(in);
+        boundingShape = DataIOHelper.readEnum(in, BoundingShape.class);
+        collidable = in.readBoolean();
+        modelName = DataIOHelper.readString(in);
+        rotation = DataIOHelper.readQuaternion(in);
+    }
+
     /**
      * Updates the bounding volume and bounding area of the virtual entity in this state.
      */
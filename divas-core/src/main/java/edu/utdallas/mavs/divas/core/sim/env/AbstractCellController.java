@@ -1,11 +1,11 @@
 package edu.utdallas.mavs.divas.core.sim.env;
 
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.host.Host;
 import edu.utdallas.mavs.divas.core.msg.RemoveEventMsg;
 import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
@@ -30,15 +31,18 @@ import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.PerceptionView;
 import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
 import edu.utdallas.mavs.divas.core.sim.common.stimulus.AgentStimulus;
 import edu.utdallas.mavs.divas.core.sim.common.stimulus.Stimuli;
 import edu.utdallas.mavs.divas.mts.CommunicationModule;
 import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSCodecs;
 import edu.utdallas.mavs.divas.mts.MTSException;
 import edu.utdallas.mavs.divas.mts.MTSPayload;
+import edu.utdallas.mavs.divas.mts.MTSType;
 import edu.utdallas.mavs.divas.utils.Multithreader;
-import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+import edu.utdallas.mavs.divas.utils.collections.ConcurrentIntHashMap;
 
 /**
  * This is the abstract base class for the cell controller.
@@ -65,7 +69,7 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
     /**
      * A map that stores agent ID along with agent state.
      */
-    protected Map<Integer, Agent>                           agents;
+    protected ConcurrentIntHashMap<Agent>                   agents;
 
     /**
      * The cell controller State.
@@ -107,6 +111,21 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
      */
     protected static Multithreader                          multithreader;
 
+    /**
+     * Keeps track of the last published cell state, so that only changes are published.
+     */
+    protected transient CellUpdateTracker                   updateTracker;
+
+    /**
+     * The execution time measured for this cell controller.
+     */
+    protected transient CellCost                            cost;
+
+    /**
+     * The topic this cell controller last published its updates on.
+     */
+    private transient String                                updateTopic;
+
     /**
      * Constructs the cell controller by assigning the cell state and the environment to the cell controller and
      * initializing the lists and maps and creating a multithreader.
@@ -120,16 +139,31 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
     {
         this.cellState = cellState;
         this.environment = environment;
-        agents = Collections.synchronizedMap(new HashMap<Integer, Agent>());
+        agents = new ConcurrentIntHashMap<Agent>();
         agentStimuli = Collections.synchronizedList(new ArrayList<AgentStimulus>());
         externalStimuliBuffer = new ConcurrentLinkedQueue<ExternalStimulus>();
         userCommandBuffer = new ConcurrentLinkedQueue<RuntimeAgentCommandMsg>();
 
         if(multithreader == null || multithreader.isTerminated())
-            multithreader = new Multithreader("CellCntrlThrd", ThreadPoolType.FIXED, 10, false);
+            multithreader = new Multithreader("CellCntrlThrd", SimConfig.getInstance().cell_controller_pool, SimConfig.getInstance().cell_controller_threads, false);
 
     }
 
+    /**
+     * Waits until the messages the cell controllers queued so far, such as their cell updates, are published.
+     * 
+     * @param timeout
+     *        the maximum time to wait, in milliseconds
+     * @return true if no message is left to publish. Otherwise, false.
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    public static boolean awaitQueuedMessages(long timeout) throws InterruptedException
+    {
+        Multithreader cellMultithreader = multithreader;
+        return cellMultithreader == null || cellMultithreader.awaitTasks(timeout);
+    }
+
     /**
      * Constructs the cell controller by assigning the cell state, communication module and the environment to the cell
      * controller and initializing the lists and maps and creating a multithreader.
@@ -228,6 +262,19 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
 
             // commit the agents new state
             agentStateModel.commitState();
+
+            // refresh the spatial index of the cell that now owns the agent
+            AgentState state = agentStateModel.getState();
+            if(cellState.containsAgent(state.getID()))
+            {
+                cellState.updateAgent(state);
+            }
+            else
+            {
+                CellController owner = environment.getCellController(state.getPosition());
+                if(owner != null)
+                    owner.getCellState().updateAgent(state);
+            }
         }
     }
 
@@ -328,8 +375,10 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
         logger.debug("Checking collisions for {}[{}]", state.getModelName(), state.getID());
         state.updateBoundings();
 
-        // for each env obj state in the cell check whether it collides with the given state
-        for(EnvObjectState envObjectState : cellState.getEnvObjects())
+        Rectangle2D extent = CellState.extentOf(state);
+
+        // for each nearby env obj state in the cell check whether it collides with the given state
+        for(EnvObjectState envObjectState : cellState.getEnvObjectsIn(extent))
         {
             if(state.getID() != envObjectState.getID())
             {
@@ -341,8 +390,8 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
             }
         }
 
-        // for each agent state in the cell check whether it collides with the given state
-        for(AgentState agentState : cellState.getAgentStates())
+        // for each nearby agent state in the cell check whether it collides with the given state
+        for(AgentState agentState : cellState.getAgentStatesIn(extent))
         {
             if(collides(state, agentState))
             {
@@ -389,7 +438,8 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
     }
 
     /**
-     * Publishes a message with the cell controller state to the subscribers.
+     * Publishes a message with the cell controller state to the subscribers. The message is published on the update
+     * topic of the cell (see {@link CellID#getUpdateTopic()}), so that clients may only receive the cells they show.
      */
     public void sendCellUpdateMsg()
     {
@@ -398,15 +448,107 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
             @Override
             public void run()
             {
-                CellStateDto data = new CellStateDto(cellState, Host.getHost().getCycles(), Host.getHost().getPeriod(), environment.getCellMap());
-                sendMessage(new MTSPayload(0, data), DivasTopic.envTopic);
-                logger.debug("Sent cell state update in cycle {} with {} agents, {} envObjects.", new Object[] { data.getCycleNumber(), data.getAgentStates().size(), data.getEnvObjects().size() });
+                CellUpdateTracker tracker = getUpdateTracker();
+
+                // deltas must be published in the order they are created
+                synchronized(tracker)
+                {
+                    CellStateDto data = tracker.createUpdate(cellState, Host.getHost().getCycles(), Host.getHost().getPeriod(), environment.getCellMap());
+                    String topic = getUpdateTopic();
+                    try
+                    {
+                        sendMessage(createUpdatePayload(data, topic), topic);
+                    }
+                    catch(ClassNotFoundException | IOException e)
+                    {
+                        logger.error("Cell controller {} could not copy its cell state at cycle {}.", getCellID(), data.getCycleNumber(), e);
+                        return;
+                    }
+                    logger.debug("Sent cell state {} in cycle {} with {} agents, {} envObjects.", new Object[] { data.isKeyframe() ? "keyframe" : "delta", data.getCycleNumber(), data.getAgentStates().size(), data.getEnvObjects().size() });
+                }
             }
         };
 
         multithreader.execute(task);
     }
 
+    /**
+     * Creates the payload of a cell update. Subscribers of topics of type <code>MTSType.IN_VM</code> receive the
+     * published data itself, while the agent and environment object states it refers to keep changing in the next
+     * cycles. Hence, the update is published as a copy, encoded and decoded as it would be by the broker.
+     * 
+     * @param data
+     *        the cell update
+     * @param topic
+     *        the topic the update is published on
+     * @return the payload to be published
+     * @throws IOException
+     *         if the update could not be copied
+     * @throws ClassNotFoundException
+     *         if the update could not be copied
+     */
+    static MTSPayload createUpdatePayload(CellStateDto data, String topic) throws IOException, ClassNotFoundException
+    {
+        MTSPayload payload = new MTSPayload(0, data);
+        if(CommunicationModule.getTopicType(topic) == MTSType.IN_VM)
+            return MTSCodecs.decode(MTSCodecs.encode(payload));
+        return payload;
+    }
+
+    @Override
+    public void requestKeyframe()
+    {
+        getUpdateTracker().requestKeyframe();
+    }
+
+    /**
+     * Gets the topic of the updates of this cell controller, adding it to the publications of the communication module
+     * when the cell is first published or its ID changed.
+     * 
+     * @return the update topic of the cell
+     */
+    private String getUpdateTopic()
+    {
+        String topic = getCellID().getUpdateTopic();
+        if(!topic.equals(updateTopic))
+        {
+            try
+            {
+                // the communication module is shared by the cell controllers of the environment
+                synchronized(comModule)
+                {
+                    comModule.addPublicationTopic(topic);
+                }
+                updateTopic = topic;
+            }
+            catch(MTSException e)
+            {
+                logger.error("Cell controller {} could not publish its update topic {}.", getCellID(), topic, e);
+            }
+        }
+        return topic;
+    }
+
+    /**
+     * Gets the tracker of the published cell state, creating it if needed.
+     * 
+     * @return the cell update tracker
+     */
+    protected synchronized CellUpdateTracker getUpdateTracker()
+    {
+        if(updateTracker == null)
+            updateTracker = new CellUpdateTracker();
+        return updateTracker;
+    }
+
+    @Override
+    public synchronized CellCost getCost()
+    {
+        if(cost == null)
+            cost = new CellCost();
+        return cost;
+    }
+
     /**
      * Publishes a message to the subscribers with the state to be removed.
      * 
@@ -690,6 +832,7 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
                 if(oldEnvObject != null)
                 {
                     oldEnvObject.copyFrom(eo);
+                    cellState.updateEnvObject(oldEnvObject);
                 }
                 break;
             default:
@@ -720,6 +863,7 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
                 event.setAge(event.getAge() + 1);
                 // propagates the event
                 event.propagate();
+                cellState.updateEvent(event);
             }
 
             // processes destructive properties of the event
@@ -732,6 +876,12 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
 
     @Override
     public void executeAgents()
+    {
+        multithreader.executeAndWait(createAgentTasks());
+    }
+
+    @Override
+    public List<Runnable> createAgentTasks()
     {
         List<Runnable> tasks = new ArrayList<Runnable>();
         for(final Agent a : agents.values())
@@ -745,20 +895,23 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
                 @Override
                 public void run()
                 {
+                    long wallStart = System.nanoTime();
+                    long cpuStart = CellCost.cpuTime();
+
                     // only execute if the agent has had time to get its first round of cell states
                     try
                     {
                         if(environment.hasCombinedPerceptionDataFor(a.getId()))
                         {
-                            // retrieves the agent's perceivable environment (all perceivable cells merged together into
-                            // one "environment")
-                            CellState combinedCellState = environment.retrievePerceptionDataFor(a.getId());
+                            // retrieves the agent's perceivable environment (a view over all perceivable cells, shared
+                            // with the agents perceiving the same cells)
+                            PerceptionView perceptionView = environment.retrievePerceptionDataFor(a.getId());
 
                             // updates the agent's state according to the updated cell state
-                            a.setState(combinedCellState.getAgentState(a.getId()));
+                            a.setState(perceptionView.getAgentState(a.getId()));
 
                             // let the agent perceive its environment
-                            a.perceive(combinedCellState);
+                            a.perceive(perceptionView);
 
                             // executes the agent, retrieving stimuli
                             Stimuli stimuli = a.execute();
@@ -775,11 +928,13 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
                     {
                         logger.error("An error occurred while processing AGENT phase for {}", a.getId(), e);
                     }
+
+                    getCost().add(CellCost.Phase.AGENTS, wallStart, cpuStart);
                 }
             };
             tasks.add(task);
         }
-        multithreader.executeAndWait(tasks);
+        return tasks;
     }
 
     @Override
@@ -859,6 +1014,9 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
         // userCommand may not be empty, need to merge
         userCommandBuffer.addAll(sibling.getUserCommandBuffer());
 
+        // the cost measured so far was for half of the merged cell
+        getCost().reset();
+
         logger.debug("Merged into: " + getCellID());
     }
 
@@ -934,6 +1092,7 @@ public abstract class AbstractCellController<E extends Environment<?>> implement
         userCommandBuffer.clear();
         agentStimuli.clear();
         externalStimuliBuffer.clear();
+        getUpdateTracker().dispose();
         multithreader.terminate();
     }
 }
@@ -13,11 +13,13 @@ import org.slf4j.LoggerFactory;
 
 import com.jme3.math.Vector3f;
 
+import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.host.Host;
 import edu.utdallas.mavs.divas.core.msg.AssignEventIDMsg;
 import edu.utdallas.mavs.divas.core.msg.AssignStateIDMsg;
 import edu.utdallas.mavs.divas.core.msg.CreateEventMsg;
 import edu.utdallas.mavs.divas.core.msg.CreateStateMsg;
+import edu.utdallas.mavs.divas.core.msg.KeyframeRequestMsg;
 import edu.utdallas.mavs.divas.core.msg.PhaseMsg;
 import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
 import edu.utdallas.mavs.divas.core.msg.RuntimeAgentCommandMsg;
@@ -27,6 +29,7 @@ import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.PerceptionView;
 import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
 import edu.utdallas.mavs.divas.core.sim.env.ExternalStimulus.ExternalCommand;
 import edu.utdallas.mavs.divas.core.spec.agent.AgentLoader;
@@ -64,6 +67,11 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
      */
     protected transient Multithreader               multithreader;
 
+    /**
+     * A multithreader executing the agent phase tasks of all cell controllers.
+     */
+    protected transient Multithreader               agentPhaseMultithreader;
+
     /**
      * A list of agent stimulus. This represents the agents stimulus generated after executing the agent phase. Each
      * stimulus represents agent intention to do something.
@@ -156,9 +164,10 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
     {
         comModule = new CommunicationModule(client);
         multithreader = createMultithreader();
+        agentPhaseMultithreader = createAgentPhaseMultithreader();
         agentLoader = createAgentLoader();
         environmentLoader = createEnvLoader();
-        css = new CellSubscriptionService<CC>();
+        css = new CellSubscriptionService<CC>(multithreader);
         cells = Collections.synchronizedMap(new HashMap<CellID, CC>());
         // initialize time to -1, meaning the EnvironmentManager hasn't received a tick yet
         cycles = -1;
@@ -182,7 +191,6 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
      */
     protected void setupPublications() throws MTSException
     {
-        comModule.addPublicationTopic(DivasTopic.envTopic);
         comModule.addPublicationTopic(DivasTopic.assignIDTopic);
         comModule.addPublicationTopic(DivasTopic.phaseCompletionTopic);
         comModule.addPublicationTopic(DivasTopic.destroyEntityTopic);
@@ -209,7 +217,36 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
      */
     protected Multithreader createMultithreader()
     {
-        return new Multithreader("EnvironmentThrd", ThreadPoolType.FIXED, 5, false);
+        return new Multithreader("EnvironmentThrd", SimConfig.getInstance().environment_pool, SimConfig.getInstance().environment_threads, false);
+    }
+
+    /**
+     * Creates the multithreader used to execute the agent phase. By default, it is a work-stealing pool sized to the
+     * number of available processors.
+     * 
+     * @return The <code>Multithreader</code> created.
+     */
+    protected Multithreader createAgentPhaseMultithreader()
+    {
+        return new Multithreader("AgentPhaseThrd", getAgentPhasePoolType(SimConfig.getInstance()), SimConfig.getInstance().agent_phase_threads, false);
+    }
+
+    /**
+     * Gets the executor backend of the agent phase. The sensors of an agent are only split into subtasks inside a
+     * fork/join pool, so the agent phase runs on a <code>FORK_JOIN</code> pool whenever parallel sensors are enabled.
+     * 
+     * @param config
+     *        the simulation configuration
+     * @return the executor backend of the agent phase
+     */
+    static ThreadPoolType getAgentPhasePoolType(SimConfig config)
+    {
+        if(config.parallel_sensors && config.agent_phase_pool != ThreadPoolType.FORK_JOIN)
+        {
+            logger.warn("Parallel sensors require a FORK_JOIN agent phase pool. The agent phase runs on a FORK_JOIN pool instead of {}.", config.agent_phase_pool);
+            return ThreadPoolType.FORK_JOIN;
+        }
+        return config.agent_phase_pool;
     }
 
     @Override
@@ -217,6 +254,7 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
     {
         destroyAllCellControllers();
         multithreader.terminate();
+        agentPhaseMultithreader.terminate();
         comModule.forceDisconnect();
     }
 
@@ -292,6 +330,13 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
         }
     }
 
+    @Override
+    public void restore(CellMap cellMap, List<?> cellControllers)
+    {
+        setCellMap(cellMap);
+        setCellControllers(cellControllers);
+    }
+
     @SuppressWarnings("unchecked")
     private void setCellControllers(List<?> cellControllers)
     {
@@ -356,15 +401,17 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
         this.cycles = cycles;
         this.phase = phase;
 
+        long start = System.nanoTime();
+
         switch(phase)
         {
         case ENVIRONMENT:
             executeEnvironmentPhase();
-            notifyPhaseCompletion(phase);
+            notifyPhaseCompletion(phase, System.nanoTime() - start);
             break;
         case AGENT:
             executeAgentPhase();
-            notifyPhaseCompletion(phase);
+            notifyPhaseCompletion(phase, System.nanoTime() - start);
         default:
             break;
         }
@@ -378,9 +425,10 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
         // To be overridden by children
     }
 
-    private void notifyPhaseCompletion(Phase phase)
+    private void notifyPhaseCompletion(Phase phase, long duration)
     {
-        sendMessage(new MTSPayload(0, new PhaseMsg(phase)), DivasTopic.phaseCompletionTopic);
+        logger.debug("{} phase of cycle {} took {} us", new Object[] { phase, cycles, duration / 1000 });
+        sendMessage(new MTSPayload(0, new PhaseMsg(phase, duration)), DivasTopic.phaseCompletionTopic);
     }
 
     /**
@@ -409,8 +457,20 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
                     public void run()
                     {
                         logger.debug("CC {} Env Objects: {}", cell.toString(), cell.getCellState().getEnvObjects());
+
+                        // the agent phase of the previous cycle is over
+                        CellCost cost = cell.getCost();
+                        cost.endCycle(cell.getCellID());
+
+                        long wallStart = System.nanoTime();
+                        long cpuStart = CellCost.cpuTime();
                         List<AgentStateModel> agentStates = cell.react();
+                        cost.add(CellCost.Phase.REACT, wallStart, cpuStart);
+
+                        wallStart = System.nanoTime();
+                        cpuStart = CellCost.cpuTime();
                         cell.deliberate(agentStates);
+                        cost.add(CellCost.Phase.DELIBERATE, wallStart, cpuStart);
                     }
                 });
             }
@@ -426,28 +486,25 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
     /**
      * Executes the agent phase of the simulation.
      * <p>
-     * Each cell controller in the environment is responsible for executing the agent phase for the agent it contains.
+     * Each cell controller in the environment creates the agent phase tasks for the agents it contains. The tasks of all cell controllers are executed together as a single batch in the agent phase multithreader, so that crowded cells
+     * do not serialize the phase.
      */
     protected void executeAgentPhase()
     {
         List<Runnable> tasks = new ArrayList<Runnable>();
 
-        tasks.add(new Runnable()
+        synchronized(cells)
         {
-            @Override
-            public void run()
+            for(CellController cell : cells.values())
             {
-                for(final CellController cell : cells.values())
+                if(cellMap.isLeaf(cell.getCellID()))
                 {
-                    if(cellMap.isLeaf(cell.getCellID()))
-                    {
-                        cell.executeAgents();
-                    }
+                    tasks.addAll(cell.createAgentTasks());
                 }
             }
-        });
+        }
 
-        multithreader.executeAndWait(tasks);
+        agentPhaseMultithreader.executeAndWait(tasks);
     }
 
     /**
@@ -702,7 +759,7 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
     }
 
     @Override
-    public CellState retrievePerceptionDataFor(int agentId)
+    public PerceptionView retrievePerceptionDataFor(int agentId)
     {
         return css.retrieveCombinedCellStateForAgent(agentId);
     }
@@ -844,6 +901,35 @@ public abstract class AbstractEnvironment<CC extends CellController> implements
                 }
             }
         }
+        else if(stimuliMesssage instanceof KeyframeRequestMsg)
+        {
+            logger.debug("Handling keyframe request");
+
+            List<CellID> cellIDs = ((KeyframeRequestMsg) stimuliMesssage).getCellIDs();
+            synchronized(cells)
+            {
+                if(cellIDs == null)
+                {
+                    for(CC cell : cells.values())
+                        cell.requestKeyframe();
+                }
+                else
+                {
+                    // the requested cells may have been split or merged since the client received them
+                    for(Map.Entry<CellID, CC> cell : cells.entrySet())
+                    {
+                        for(CellID cellID : cellIDs)
+                        {
+                            if(cellID.equals(cell.getKey()) || cellID.isAncestorOf(cell.getKey()) || cellID.isDescendantOf(cell.getKey()))
+                            {
+                                cell.getValue().requestKeyframe();
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
     }
 
     private Subscriber userCommandHandler()
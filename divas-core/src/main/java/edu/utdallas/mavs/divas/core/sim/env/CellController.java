@@ -48,6 +48,15 @@ public interface CellController
      */
     public void executeAgents();
 
+    /**
+     * Creates the agent phase tasks of this cell controller, one task per alive agent.
+     * <p>
+     * Each task performs the work of {@link #executeAgents()} for a single agent, so that the tasks of all cell controllers can be scheduled together.
+     * 
+     * @return a list of tasks to be executed in the agent phase.
+     */
+    public List<Runnable> createAgentTasks();
+
     /**
      * @return <code>CellState</code> of the current cell controller.
      */
@@ -90,6 +99,11 @@ public interface CellController
      */
     public int getAgentsCount();
 
+    /**
+     * @return The execution time measured for the cell controller.
+     */
+    public CellCost getCost();
+
     /**
      * @return Environment objects count in the cell controller.
      */
@@ -225,6 +239,11 @@ public interface CellController
      */
     public boolean resolveConflicts(AgentStateModel agentStateModel);
 
+    /**
+     * Requests the next cell state update published by this cell controller to carry all the entities of the cell.
+     */
+    public void requestKeyframe();
+
     /**
      * Destroy the cell controller by clearing the cell state contents and clearing all the lists
      * in the cell controllers and terminating the multithreader and disconnecting the communication module.
@@ -0,0 +1,191 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.utils.StatsHelper;
+
+/**
+ * This class measures the time spent on a cell controller in each simulation cycle.
+ * <p>
+ * The react and deliberate steps of the environment phase and the agent tasks of the agent phase are timed in wall time
+ * and, when the JVM supports it, in CPU time of the running thread. At the start of each cycle, the times of the
+ * previous cycle are added to a windowed average of the cost of the cell: its CPU time, or its wall time when the CPU
+ * time is not measured. Unlike the entity counts, the cost accounts for the vision rays, the events and the
+ * obstructions the agents of the cell go through.
+ */
+public class CellCost
+{
+    private final static Logger       logger  = LoggerFactory.getLogger(CellCost.class);
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The timed steps of a cycle
+     */
+    public enum Phase
+    {
+        /**
+         * The react step of the environment phase
+         */
+        REACT,
+        /**
+         * The deliberate step of the environment phase
+         */
+        DELIBERATE,
+        /**
+         * The agent tasks of the agent phase
+         */
+        AGENTS
+    }
+
+    private final AtomicLongArray     wallTimes;
+    private final AtomicLongArray     cpuTimes;
+
+    private final float[]             lastWallTimes;
+    private final float[]             lastCpuTimes;
+
+    private StatsHelper               costs;
+
+    private volatile float            averageCost;
+
+    private volatile int              sampleCount;
+
+    /**
+     * Creates a new cost measure for a cell controller.
+     */
+    public CellCost()
+    {
+        int phases = Phase.values().length;
+        wallTimes = new AtomicLongArray(phases);
+        cpuTimes = new AtomicLongArray(phases);
+        lastWallTimes = new float[phases];
+        lastCpuTimes = new float[phases];
+        costs = new StatsHelper(SimConfig.getInstance().cell_cost_window);
+    }
+
+    /**
+     * Gets the CPU time of the current thread, to be passed to {@link #add(Phase, long, long)} once the timed work is
+     * done.
+     * 
+     * @return the CPU time of the current thread in nanoseconds, or -1 if the CPU time is not measured
+     */
+    public static long cpuTime()
+    {
+        if(SimConfig.getInstance().cell_cost_cpu_time && threads.isCurrentThreadCpuTimeSupported())
+        {
+            return threads.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the time spent on some work for the cell in the current cycle.
+     * 
+     * @param phase
+     *        the step of the cycle the work belongs to
+     * @param wallStart
+     *        the value of <code>System.nanoTime()</code> when the work started
+     * @param cpuStart
+     *        the value of {@link #cpuTime()} when the work started
+     */
+    public void add(Phase phase, long wallStart, long cpuStart)
+    {
+        wallTimes.addAndGet(phase.ordinal(), System.nanoTime() - wallStart);
+        if(cpuStart >= 0)
+        {
+            long cpuEnd = cpuTime();
+            if(cpuEnd >= 0)
+            {
+                cpuTimes.addAndGet(phase.ordinal(), cpuEnd - cpuStart);
+            }
+        }
+    }
+
+    /**
+     * Closes the current cycle, adding its cost to the average cost of the cell. Cycles in which no time was spent on
+     * the cell are not counted.
+     * 
+     * @param cellID
+     *        the id of the cell controller, for logging
+     */
+    public synchronized void endCycle(CellID cellID)
+    {
+        float wallTime = 0;
+        float cpuTime = 0;
+        for(Phase phase : Phase.values())
+        {
+            int i = phase.ordinal();
+            lastWallTimes[i] = wallTimes.getAndSet(i, 0) / 1e6f;
+            lastCpuTimes[i] = cpuTimes.getAndSet(i, 0) / 1e6f;
+            wallTime += lastWallTimes[i];
+            cpuTime += lastCpuTimes[i];
+        }
+
+        if(wallTime > 0)
+        {
+            costs.add(cpuTime > 0 ? cpuTime : wallTime);
+            averageCost = costs.getAverage();
+            sampleCount++;
+
+            logger.debug("Cell {} cost {} ms (average {} ms): react {}/{} ms, deliberate {}/{} ms, agents {}/{} ms (wall/CPU)", new Object[] { cellID, cpuTime > 0 ? cpuTime : wallTime, averageCost, lastWallTimes[0], lastCpuTimes[0], lastWallTimes[1], lastCpuTimes[1], lastWallTimes[2], lastCpuTimes[2] });
+        }
+    }
+
+    /**
+     * Forgets the measured cost, after the cell changed.
+     */
+    public synchronized void reset()
+    {
+        for(Phase phase : Phase.values())
+        {
+            wallTimes.set(phase.ordinal(), 0);
+            cpuTimes.set(phase.ordinal(), 0);
+        }
+        costs = new StatsHelper(SimConfig.getInstance().cell_cost_window);
+        averageCost = 0;
+        sampleCount = 0;
+    }
+
+    /**
+     * @return the average cost of the cell per cycle, in milliseconds
+     */
+    public float getAverageCost()
+    {
+        return averageCost;
+    }
+
+    /**
+     * @return the number of cycles measured since the cell was created or changed
+     */
+    public int getSampleCount()
+    {
+        return sampleCount;
+    }
+
+    /**
+     * @param phase
+     *        a step of the cycle
+     * @return the wall time spent on the given step in the last cycle, in milliseconds
+     */
+    public synchronized float getWallTime(Phase phase)
+    {
+        return lastWallTimes[phase.ordinal()];
+    }
+
+    /**
+     * @param phase
+     *        a step of the cycle
+     * @return the CPU time spent on the given step in the last cycle, in milliseconds, or 0 if the CPU time is not
+     *         measured
+     */
+    public synchronized float getCpuTime(Phase phase)
+    {
+        return lastCpuTimes[phase.ordinal()];
+    }
+}
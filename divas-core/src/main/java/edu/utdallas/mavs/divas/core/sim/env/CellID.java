@@ -2,26 +2,49 @@ package edu.utdallas.mavs.divas.core.sim.env;
 
 import java.io.Serializable;
 
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+
 /**
  * This class is for representing the Cell controller Id.
+ * <p>
+ * The id is the path from the root cell controller down the binary cell hierarchy, packed in a <code>long</code>: the
+ * depth of the cell in the highest bits, and the index of the child taken at each level in the lowest bits, the first
+ * level being the most significant.
  */
 public class CellID implements Serializable
 {
-	private static final long	serialVersionUID	= -2101519537881559318L;
+	private static final long	serialVersionUID	= -2101519537881559319L;
+
+	/**
+	 * The maximum depth of a cell in the hierarchy
+	 */
+	public static final int		MAX_DEPTH			= 58;
+
+	private static final int	DEPTH_SHIFT			= 58;
 
-	private String				idString;
+	private static final long	PATH_MASK			= (1L << DEPTH_SHIFT) - 1;
+
+	private final long			packedID;
+
+	private final int			hash;
 
 	/**
-	 * Constructs the <code>CellID</code> by initializing the idString to be empty.
+	 * Constructs the <code>CellID</code> of the root cell controller.
 	 */
 	public CellID()
 	{
-		idString = "";
+		this(0L);
+	}
+
+	private CellID(long packedID)
+	{
+		this.packedID = packedID;
+		this.hash = (int) (packedID ^ (packedID >>> 32)) * 31 + (int) (packedID >>> DEPTH_SHIFT);
 	}
 
-	private CellID(String id)
+	private CellID(int depth, long path)
 	{
-		this.idString = id;
+		this(((long) depth << DEPTH_SHIFT) | path);
 	}
 
 	@Override
@@ -29,12 +52,12 @@ public class CellID implements Serializable
 	{
 		if(obj instanceof CellID)
 		{
-			if(idString.equals(((CellID) obj).idString))
+			if(packedID == ((CellID) obj).packedID)
 				return true;
 		}
-		else
+		else if(obj != null)
 		{
-			if(idString.toString().equals(obj.toString()))
+			if(toString().equals(obj.toString()))
 				return true;
 		}
 		return false;
@@ -43,11 +66,6 @@ public class CellID implements Serializable
 	@Override
 	public int hashCode()
 	{
-		int hash = 1;
-		for(char c : idString.toCharArray())
-		{
-			hash = hash * 31 + c;
-		}
 		return hash;
 	}
 
@@ -55,22 +73,32 @@ public class CellID implements Serializable
 	 * Creates a child of this cell ID with the given sub-index.
 	 * 
 	 * @param index
-	 *        the index of the child.
+	 *        the index of the child (0 or 1).
 	 * @return the cell ID of the child.
 	 */
 	public CellID createChild(int index)
 	{
-		return new CellID(idString + (char) index);
+		if(index != 0 && index != 1)
+			throw new IllegalArgumentException("Invalid child index: " + index);
+		if(getLevel() == MAX_DEPTH)
+			throw new IllegalStateException("The cell " + this + " is at the maximum depth");
+
+		return new CellID(getLevel() + 1, (getPath() << 1) | index);
 	}
 
 	/**
-	 * Calculates the hierarchy depth of the cell ID based on the length of the id string. (1 is the root)
+	 * Calculates the hierarchy depth of the cell ID based on the length of its path. (0 is the root)
 	 * 
 	 * @return depth of the cell ID in the cell hierarchy
 	 */
 	public int getLevel()
 	{
-		return idString.length();
+		return (int) (packedID >>> DEPTH_SHIFT);
+	}
+
+	private long getPath()
+	{
+		return packedID & PATH_MASK;
 	}
 
 	/**
@@ -81,7 +109,7 @@ public class CellID implements Serializable
 	 */
 	public boolean isAncestorOf(CellID descendantID)
 	{
-		return descendantID.idString.startsWith(idString) && !descendantID.equals(this);
+		return descendantID.isDescendantOf(this);
 	}
 
 	/**
@@ -92,7 +120,8 @@ public class CellID implements Serializable
 	 */
 	public boolean isDescendantOf(CellID ancestorID)
 	{
-		return idString.startsWith(ancestorID.idString) && !ancestorID.equals(this);
+		int levels = getLevel() - ancestorID.getLevel();
+		return levels > 0 && (getPath() >>> levels) == ancestorID.getPath();
 	}
 
 	/**
@@ -102,32 +131,50 @@ public class CellID implements Serializable
 	 */
 	public CellID getParentID()
 	{
-		return new CellID(idString.substring(0, idString.length() - 1));
+		if(getLevel() == 0)
+			throw new IllegalStateException("The root cell has no parent");
+
+		return new CellID(getLevel() - 1, getPath() >>> 1);
 	}
 
 	/**
-	 * @return The last character in the <code>CellID</code>.
+	 * @return The index of the last child in the <code>CellID</code> path.
 	 */
 	public int getLastPart()
 	{
-		return idString.isEmpty() ? -1 : ((int) idString.charAt(idString.length() - 1));
+		return getLevel() == 0 ? -1 : (int) (packedID & 1);
 	}
 
 	@Override
-    public String toString()
+	public String toString()
 	{
-		String printID = "";
-
-		if(idString.isEmpty())
+		if(getLevel() == 0)
 			return "[root]";
 
-		for(char c : idString.toCharArray())
-			printID += (int) c + ".";
+		StringBuilder printID = new StringBuilder();
+		for(int part : getParts())
+		{
+			if(printID.length() > 0)
+				printID.append('.');
+			printID.append(part);
+		}
+		return printID.toString();
+	}
 
-		if(printID.length() > 1)
-			return printID.substring(0, printID.length() - 1);
+	/**
+	 * Gets the topic on which the cell controller publishes its updates: a subtopic of the environment topic named
+	 * after the path of the cell, such as <code>EnvironmentTopic.root.0.1</code>. The topics of the descendants of a
+	 * cell are subtopics of its own topic.
+	 * 
+	 * @return the name of the update topic of the cell
+	 */
+	public String getUpdateTopic()
+	{
+		StringBuilder topic = new StringBuilder(DivasTopic.getSubtopic(DivasTopic.envTopic, "root"));
+		for(int part : getParts())
+			topic.append(DivasTopic.subtopicSeparator).append(part);
 
-		return printID;
+		return topic.toString();
 	}
 
 	/**
@@ -135,10 +182,10 @@ public class CellID implements Serializable
 	 */
 	public int[] getParts()
 	{
-		int[] parts = new int[idString.length()];
+		int[] parts = new int[getLevel()];
 
-		for(int i = 0; i < idString.length(); i++)
-			parts[i] = idString.charAt(i);
+		for(int i = 0; i < parts.length; i++)
+			parts[i] = (int) (getPath() >>> (parts.length - 1 - i)) & 1;
 
 		return parts;
 	}
@@ -152,11 +199,40 @@ public class CellID implements Serializable
 	}
 
 	/**
-	 * @return <code>String</code> of the cell controller <code>CellID</code>.
+	 * @return <code>String</code> of the cell controller <code>CellID</code>, one character per level.
 	 */
 	public String getIdString()
 	{
-		return idString;
+		int[] parts = getParts();
+		char[] chars = new char[parts.length];
+
+		for(int i = 0; i < parts.length; i++)
+			chars[i] = (char) parts[i];
+
+		return new String(chars);
+	}
+
+	/**
+	 * @return the <code>CellID</code> packed in a <code>long</code>.
+	 */
+	public long toLong()
+	{
+		return packedID;
+	}
+
+	/**
+	 * Gets the <code>CellID</code> packed in the given <code>long</code>.
+	 * 
+	 * @param packedID
+	 *        a <code>CellID</code> packed by {@link #toLong()}.
+	 * @return the <code>CellID</code>.
+	 */
+	public static CellID fromLong(long packedID)
+	{
+		if((packedID >>> DEPTH_SHIFT) > MAX_DEPTH || (packedID & PATH_MASK) >>> (packedID >>> DEPTH_SHIFT) != 0)
+			throw new IllegalArgumentException("Invalid packed cell ID: " + packedID);
+
+		return new CellID(packedID);
 	}
 
 }
@@ -1,11 +1,18 @@
 package edu.utdallas.mavs.divas.core.sim.env;
 
 import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,10 +31,31 @@ import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
  */
 public class CellMap extends Observable implements Serializable
 {
-    private final static Logger logger           = LoggerFactory.getLogger(CellMap.class);
+    private final static Logger                          logger            = LoggerFactory.getLogger(CellMap.class);
 
-    private static final long   serialVersionUID = -3454036692491920124L;
-    private CellMapNode         root;
+    private static final long                            serialVersionUID  = -3454036692491920124L;
+
+    /**
+     * Two leaves are neighbors when their bounds, grown by this distance on each side, intersect
+     */
+    private static final float                           ADJACENCY_CUSHION = 1;
+
+    private CellMapNode                                  root;
+
+    /**
+     * The nodes of the cell map, by id. Rebuilt on demand after a split or a merge.
+     */
+    private transient volatile Map<CellID, CellMapNode>  nodes;
+
+    /**
+     * The bounds of the leaves of the cell map, by id. Rebuilt on demand after a split or a merge.
+     */
+    private transient volatile Map<CellID, CellBounds>   leafBounds;
+
+    /**
+     * The neighbors of the leaves of the cell map, by id. Built on demand, then updated on each split or merge.
+     */
+    private transient volatile Map<CellID, List<CellID>> adjacency;
 
     /**
      * Constructs the <code>CellMap</code> class by assigning the root cell controller and the host
@@ -52,7 +80,13 @@ public class CellMap extends Observable implements Serializable
      */
     public synchronized void merge(CellID id)
     {
-        getCellNode(id).merge();
+        CellMapNode node = getCellNode(id);
+        List<CellMapNode> mergedLeaves = new ArrayList<CellMapNode>();
+        getLeaves(node, mergedLeaves);
+
+        node.merge();
+        updateAdjacency(mergedLeaves, Collections.singletonList(node));
+        invalidate();
 
         setChanged();
         notifyObservers();
@@ -80,6 +114,8 @@ public class CellMap extends Observable implements Serializable
         if(node != null && node.isLeaf())
         {
             node.splitInto(new CellMapNode(child0id, child0bounds, node, child0host), new CellMapNode(child1id, child1bounds, node, child1host));
+            updateAdjacency(Collections.singletonList(node), Arrays.asList(node.getChildren()));
+            invalidate();
 
             setChanged();
             notifyObservers();
@@ -98,15 +134,191 @@ public class CellMap extends Observable implements Serializable
     /**
      * Gets the <code>CellBounds</code> for each one of the leaves cell controllers.
      * 
-     * @return <code>Map</code> of leaves cell controllers id and bounds.
+     * @return unmodifiable <code>Map</code> of leaves cell controllers id and bounds.
      */
     public Map<CellID, CellBounds> getLeafBounds()
     {
-        Map<CellID, CellBounds> leafbounds = new HashMap<CellID, CellBounds>();
-        getLeavesBounds(root, leafbounds);
+        Map<CellID, CellBounds> leafbounds = leafBounds;
+        if(leafbounds == null)
+        {
+            leafbounds = buildLeafBounds();
+        }
         return leafbounds;
     }
 
+    private synchronized Map<CellID, CellBounds> buildLeafBounds()
+    {
+        if(leafBounds == null)
+        {
+            Map<CellID, CellBounds> leafbounds = new HashMap<CellID, CellBounds>();
+            getLeavesBounds(root, leafbounds);
+            leafBounds = Collections.unmodifiableMap(leafbounds);
+        }
+        return leafBounds;
+    }
+
+    private void getNodes(CellMapNode node, Map<CellID, CellMapNode> nodeList)
+    {
+        nodeList.put(node.getId(), node);
+        if(!node.isLeaf())
+            for(CellMapNode child : node.getChildren())
+                getNodes(child, nodeList);
+    }
+
+    private Map<CellID, CellMapNode> getNodes()
+    {
+        Map<CellID, CellMapNode> nodeMap = nodes;
+        if(nodeMap == null)
+        {
+            nodeMap = buildNodes();
+        }
+        return nodeMap;
+    }
+
+    private synchronized Map<CellID, CellMapNode> buildNodes()
+    {
+        if(nodes == null)
+        {
+            Map<CellID, CellMapNode> nodeMap = new HashMap<CellID, CellMapNode>();
+            getNodes(root, nodeMap);
+            nodes = nodeMap;
+        }
+        return nodes;
+    }
+
+    private void getLeaves(CellMapNode node, List<CellMapNode> leafList)
+    {
+        if(node.isLeaf())
+            leafList.add(node);
+        else
+            for(CellMapNode child : node.getChildren())
+                getLeaves(child, leafList);
+    }
+
+    /**
+     * Gets the leaf cell controllers next to the given leaf cell controller.
+     * 
+     * @param id
+     *        <code>CellID</code> of the leaf cell controller.
+     * @return unmodifiable <code>List</code> of the <code>CellID</code> of the neighboring leaves, empty if the given
+     *         cell controller is not a leaf.
+     */
+    public List<CellID> getNeighbors(CellID id)
+    {
+        List<CellID> neighbors = getAdjacency().get(id);
+        if(neighbors == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(neighbors);
+    }
+
+    private Map<CellID, List<CellID>> getAdjacency()
+    {
+        Map<CellID, List<CellID>> graph = adjacency;
+        if(graph == null)
+        {
+            graph = buildAdjacency();
+        }
+        return graph;
+    }
+
+    private synchronized Map<CellID, List<CellID>> buildAdjacency()
+    {
+        if(adjacency == null)
+        {
+            List<CellMapNode> leaves = new ArrayList<CellMapNode>();
+            getLeaves(root, leaves);
+
+            Map<CellID, List<CellID>> graph = new HashMap<CellID, List<CellID>>();
+            for(CellMapNode leaf : leaves)
+                graph.put(leaf.getId(), new ArrayList<CellID>());
+
+            for(int i = 0; i < leaves.size(); i++)
+            {
+                for(int j = i + 1; j < leaves.size(); j++)
+                {
+                    if(isAdjacent(leaves.get(i).getBounds(), leaves.get(j).getBounds()))
+                    {
+                        graph.get(leaves.get(i).getId()).add(leaves.get(j).getId());
+                        graph.get(leaves.get(j).getId()).add(leaves.get(i).getId());
+                    }
+                }
+            }
+            adjacency = graph;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Replaces some leaves by new leaves covering the same area in the adjacency graph. The neighbors of the new leaves
+     * are among the neighbors of the replaced leaves and the other new leaves, so only those are tested. The graph is
+     * copied rather than updated in place, so that readers always see a complete graph.
+     */
+    private void updateAdjacency(List<CellMapNode> removedLeaves, List<CellMapNode> addedLeaves)
+    {
+        Map<CellID, List<CellID>> graph = adjacency;
+        if(graph == null)
+            return;
+
+        Map<CellID, List<CellID>> newGraph = new HashMap<CellID, List<CellID>>(graph);
+
+        Set<CellID> removed = new HashSet<CellID>();
+        Set<CellID> candidates = new LinkedHashSet<CellID>();
+        for(CellMapNode leaf : removedLeaves)
+        {
+            removed.add(leaf.getId());
+            List<CellID> neighbors = newGraph.remove(leaf.getId());
+            if(neighbors != null)
+                candidates.addAll(neighbors);
+        }
+        candidates.removeAll(removed);
+
+        Map<CellID, CellMapNode> nodeMap = getNodes();
+        List<CellMapNode> candidateNodes = new ArrayList<CellMapNode>();
+        for(CellID candidate : candidates)
+        {
+            List<CellID> neighbors = new ArrayList<CellID>(newGraph.get(candidate));
+            neighbors.removeAll(removed);
+            newGraph.put(candidate, neighbors);
+            candidateNodes.add(nodeMap.get(candidate));
+        }
+
+        for(CellMapNode leaf : addedLeaves)
+        {
+            List<CellID> neighbors = new ArrayList<CellID>();
+            for(CellMapNode candidate : candidateNodes)
+            {
+                if(isAdjacent(leaf.getBounds(), candidate.getBounds()))
+                {
+                    neighbors.add(candidate.getId());
+                    newGraph.get(candidate.getId()).add(leaf.getId());
+                }
+            }
+            for(CellMapNode other : addedLeaves)
+            {
+                if(other != leaf && isAdjacent(leaf.getBounds(), other.getBounds()))
+                    neighbors.add(other.getId());
+            }
+            newGraph.put(leaf.getId(), neighbors);
+        }
+
+        adjacency = newGraph;
+    }
+
+    private static boolean isAdjacent(CellBounds bounds, CellBounds other)
+    {
+        Rectangle2D adjacencyBounds = new Rectangle2D.Float(bounds.x - ADJACENCY_CUSHION, bounds.y - ADJACENCY_CUSHION, bounds.width + 2 * ADJACENCY_CUSHION, bounds.height + 2 * ADJACENCY_CUSHION);
+        return adjacencyBounds.intersects(other);
+    }
+
+    /**
+     * Drops the node index and the leaf bounds after the cell hierarchy changed.
+     */
+    private void invalidate()
+    {
+        nodes = null;
+        leafBounds = null;
+    }
+
     /**
      * @return <code>CellMapNode</code> for the root cell controller.
      */
@@ -187,18 +399,15 @@ public class CellMap extends Observable implements Serializable
      * @return <code>CellMapNode</code> for the cell controller with given <code>CellID</code>.
      */
     private CellMapNode getCellNode(CellID id)
-    {   
-        CellMapNode node = root;
+    {
+        Map<CellID, CellMapNode> nodeMap = getNodes();
+        CellMapNode node = nodeMap.get(id);
 
-        if(node != null)
+        // the cells below a leaf are not in the map: fall back to the leaf, as walking down from the root would
+        while(node == null && id.getLevel() > 0)
         {
-            for(int part : id.getParts())
-            {
-                if(node.getChildren() != null && node.getChildren().length >= (part - 1))
-                {
-                    node = node.getChildren()[part];
-                }
-            }
+            id = id.getParentID();
+            node = nodeMap.get(id);
         }
 
         return node;
@@ -216,11 +425,39 @@ public class CellMap extends Observable implements Serializable
      */
     public ArrayList<CellID> getCellsIntersecting(CellID startingCell, Shape shape)
     {
-        // get the smallest cell that fully contains the shape
-        CellMapNode scc = getCellNode(startingCell).generalize(shape);
+        CellMapNode start = getCellNode(startingCell);
 
         ArrayList<CellID> cells = new ArrayList<CellID>();
 
+        if(start != root && start.isLeaf() && shape.intersects(start.getBounds()))
+        {
+            // the leaves intersecting the shape are connected through the adjacency graph, so they are found by
+            // walking the graph from the starting cell
+            Map<CellID, List<CellID>> graph = getAdjacency();
+            Map<CellID, CellMapNode> nodeMap = getNodes();
+
+            Set<CellID> visited = new HashSet<CellID>();
+            visited.add(start.getId());
+            cells.add(start.getId());
+            for(int i = 0; i < cells.size(); i++)
+            {
+                List<CellID> neighbors = graph.get(cells.get(i));
+                if(neighbors == null)
+                    continue;
+
+                for(CellID neighbor : neighbors)
+                {
+                    CellMapNode node = nodeMap.get(neighbor);
+                    if(visited.add(neighbor) && node != null && shape.intersects(node.getBounds()))
+                        cells.add(neighbor);
+                }
+            }
+            return cells;
+        }
+
+        // get the smallest cell that fully contains the shape
+        CellMapNode scc = start.generalize(shape);
+
         // starting at the smallest containing cell, traverse the subtree, adding a cell's id if the shape intersects
         // the bounds of that cell
         scc.localize(shape, cells);
@@ -247,6 +484,6 @@ public class CellMap extends Observable implements Serializable
      */
     public int getCellDepth(CellID cellID)
     {
-        return cellID.getIdString().length();
+        return cellID.getLevel();
     }
 }
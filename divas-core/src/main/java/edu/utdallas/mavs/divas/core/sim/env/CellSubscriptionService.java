@@ -3,46 +3,72 @@ package edu.utdallas.mavs.divas.core.sim.env;
 import java.awt.Shape;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.core.sim.common.state.PerceptionView;
+import edu.utdallas.mavs.divas.utils.Multithreader;
 
 /**
  * This class contains information about the agent subscriptions to cell controllers.
  * <p>
  * Each agent is subscribed to a subset of the cell controllers in the environment. This subset is calculated based on the agent location and its field of view and vision distance. The cell subscription helps improve the performance of the simulation
  * as each agent receives only the relevant information of it's interest.
+ * <p>
+ * When a multithreader is given, subscriptions are computed in parallel per cell controller. Each agent then receives a read-only {@link PerceptionView} over its subscribed cells, combined in the order the cells were given. Agents subscribed
+ * to the same cells share the same view.
  * 
  * @param <CC>
  *        the cell controller's type
  */
 public class CellSubscriptionService<CC extends CellController> implements Serializable
 {
-    private static final long            serialVersionUID = -2521259091302491919L;
+    private static final long                      serialVersionUID = -2521259091302491919L;
 
     /**
      * stores the computed agent subscriptions
      */
-    protected Map<CellID, List<Integer>> subscriptions;
+    protected ConcurrentMap<CellID, List<Integer>> subscriptions;
+
+    /**
+     * stores the combined cell state for each agent (a view over all perceivable cells as one "environment" for the
+     * agent to perceive)
+     */
+    protected Map<Integer, PerceptionView>         combinedCellStates;
 
     /**
-     * stores the combined cell state for each agent (merges all perceivable cells into one "environment" for the agent
-     * to perceive)
+     * The multithreader used to process subscriptions. If null, subscriptions are processed in the calling thread.
      */
-    protected Map<Integer, CellState>    combinedCellStates;
+    protected transient Multithreader              multithreader;
 
     /**
-     * Constructs the cell subscription service by initializing the maps and creating the multithreader.
+     * Constructs the cell subscription service by initializing the maps. Subscriptions are processed in the calling thread.
      */
     public CellSubscriptionService()
     {
-        subscriptions = new HashMap<CellID, List<Integer>>();
-        combinedCellStates = new HashMap<Integer, CellState>();
+        this(null);
+    }
+
+    /**
+     * Constructs the cell subscription service by initializing the maps.
+     * 
+     * @param multithreader
+     *        the multithreader used to process subscriptions in parallel
+     */
+    public CellSubscriptionService(Multithreader multithreader)
+    {
+        this.multithreader = multithreader;
+        subscriptions = new ConcurrentHashMap<CellID, List<Integer>>();
+        combinedCellStates = new ConcurrentHashMap<Integer, PerceptionView>();
     }
 
     /**
@@ -58,51 +84,55 @@ public class CellSubscriptionService<CC extends CellController> implements Seria
         // resets css
         reset();
 
-        // calculates agent subscriptions
-        addSubscriptions(cells, cellMap);
+        List<CC> cellControllers = new ArrayList<CC>(cells);
 
-        // disseminates cell state
-        for(CellController cell : cells)
+        // the position of each leaf cell defines the order in which it is combined
+        List<CellState> leaves = new ArrayList<CellState>();
+        Map<CellID, Integer> leafOrder = new HashMap<CellID, Integer>();
+        for(CC cell : cellControllers)
         {
             if(cellMap.isLeaf(cell.getCellID()))
             {
-                disseminateCellState(cell.getCellState());
+                leafOrder.put(cell.getCellID(), leaves.size());
+                leaves.add(cell.getCellState());
             }
         }
+
+        // calculates agent subscriptions
+        Map<Integer, BitSet> agentCells = addSubscriptions(cellControllers, cellMap, leafOrder);
+
+        // disseminates cell state
+        disseminateCellStates(agentCells, leaves);
     }
 
     /**
-     * Disseminate the given cell state to the agents subscribed to the cell controller with the given state.
-     * The given cell state will be combined with other cell states the agent is subscribed to.
+     * Assigns to each agent a view over the leaf cells it is subscribed to. Agents subscribed to the same leaf cells
+     * share the same view.
      * 
-     * @param cell
+     * @param agentCells
+     *        the positions of the leaf cells each agent is subscribed to
+     * @param leaves
+     *        the states of the leaf cells
      */
-    protected void disseminateCellState(CellState cell)
+    protected void disseminateCellStates(Map<Integer, BitSet> agentCells, List<CellState> leaves)
     {
-        try
+        Map<BitSet, PerceptionView> views = new HashMap<BitSet, PerceptionView>();
+        for(Map.Entry<Integer, BitSet> entry : agentCells.entrySet())
         {
-            List<Integer> agents = getAgentsFor(cell.getId());
-            if(agents != null)
+            BitSet cells = entry.getValue();
+            if(cells.isEmpty())
+                continue;
+
+            PerceptionView view = views.get(cells);
+            if(view == null)
             {
-                for(int agentID : agents)
-                {
-                    // if agent's combined cell doesn't exist, create it
-                    if(!combinedCellStates.containsKey(agentID))
-                    {
-                        combinedCellStates.put(agentID, new CellState(/*
-                                                                       * id and bounds don't matter, the agent is
-                                                                       * unaware of them
-                                                                       */));
-                    }
-                    combinedCellStates.get(agentID).combineEntitiesFrom(cell);
-                    combinedCellStates.get(agentID).setTime(cell.getTime());
-                }
+                List<CellState> perceived = new ArrayList<CellState>(cells.cardinality());
+                for(int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1))
+                    perceived.add(leaves.get(i));
+                view = new PerceptionView(perceived);
+                views.put(cells, view);
             }
-
-        }
-        catch(Exception e)
-        {
-            e.printStackTrace();
+            combinedCellStates.put(entry.getKey(), view);
         }
     }
 
@@ -110,60 +140,94 @@ public class CellSubscriptionService<CC extends CellController> implements Seria
      * Adds the agents <code>subscriptions</code> Map which stores the <code>CellID</code> for the cell
      * controller along with a list of agents subscribed to this cell.
      * 
-     * @param cellMap
      * @param cells
+     *        the cell controllers to be processed for agent subscription
+     * @param cellMap
+     *        the environment cell map
+     * @param leafOrder
+     *        the position of each leaf cell
+     * @return the positions of the leaf cells each agent is subscribed to
      */
-    protected void addSubscriptions(Collection<CC> cells, CellMap cellMap)
+    protected Map<Integer, BitSet> addSubscriptions(List<CC> cells, final CellMap cellMap, final Map<CellID, Integer> leafOrder)
     {
-        // calculates agent subscriptions
-        List<AgentSubscription> subs = getAgentSubscriptions(cells, cellMap);
-
-        // add subscriptions to hash map
-        for(AgentSubscription agSub : subs)
+        // calculates agent subscriptions, one task per cell
+        final List<List<AgentSubscription>> subsPerCell = new ArrayList<List<AgentSubscription>>(cells.size());
+        List<Runnable> tasks = new ArrayList<Runnable>(cells.size());
+        for(final CC cellController : cells)
         {
-            // gentCellAddress.put(agSub.getAgentID(), cellState.getId());
+            final List<AgentSubscription> subs = new ArrayList<AgentSubscription>();
+            subsPerCell.add(subs);
+            tasks.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for(AgentSubscription agSub : getAgentSubscriptions(cellController.getCellState(), cellMap))
+                    {
+                        subs.add(agSub);
+                        for(CellID cell : agSub.getCellIDs())
+                        {
+                            getAgentsFor(cell).add(agSub.getAgentID());
+                        }
+                    }
+                }
+            });
+        }
+        execute(tasks);
 
-            for(CellID cell : agSub.getCellIDs())
+        // an agent may show up in more than one cell while being transferred
+        Map<Integer, BitSet> agentCells = new HashMap<Integer, BitSet>();
+        for(List<AgentSubscription> subs : subsPerCell)
+        {
+            for(AgentSubscription agSub : subs)
             {
-                getAgentsFor(cell).add(agSub.getAgentID());
+                BitSet positions = agentCells.get(agSub.getAgentID());
+                if(positions == null)
+                {
+                    positions = new BitSet(leafOrder.size());
+                    agentCells.put(agSub.getAgentID(), positions);
+                }
+                for(CellID cell : agSub.getCellIDs())
+                {
+                    Integer position = leafOrder.get(cell);
+                    if(position != null)
+                        positions.set(position);
+                }
             }
         }
+        return agentCells;
     }
 
-    private List<AgentSubscription> getAgentSubscriptions(Collection<CC> cells, CellMap map)
+    private List<AgentSubscription> getAgentSubscriptions(CellState cellState, CellMap map)
     {
         // calculate agent subscriptions
         List<AgentSubscription> subs = new ArrayList<AgentSubscription>();
 
-        for(CC cellController : cells)
+        for(AgentState agent : cellState.getAgentStates())
         {
-            CellState cellState = cellController.getCellState();
-            for(AgentState agent : cellState.getAgentStates())
-            {
-                // create a new list of cellids for the agent to subscribe to
-                AgentSubscription sub = new AgentSubscription(agent.getID());
+            // create a new list of cellids for the agent to subscribe to
+            AgentSubscription sub = new AgentSubscription(agent.getID());
 
-                if(agent.canSee())
+            if(agent.canSee())
+            {
+                Shape shape = ((VisionPerceptor) agent).calculateVisibleRegion();
+                // add the potentially perceivable cells to the list
+                for(CellID id : map.getCellsIntersecting(cellState.getId(), shape))
                 {
-                    Shape shape = ((VisionPerceptor) agent).calculateVisibleRegion();
-                    // add the potentially perceivable cells to the list
-                    for(CellID id : map.getCellsIntersecting(cellState.getId(), shape))
-                    {
-                        sub.addSubscription(id);
-                    }
+                    sub.addSubscription(id);
                 }
+            }
 
-                if(agent.canHear() || agent.canSmell())
+            if(agent.canHear() || agent.canSmell())
+            {
+                // make sure the agent gets subscribed to this cell, regardless of vision
+                if(!sub.getCellIDs().contains(cellState.getId()))
                 {
-                    // make sure the agent gets subscribed to this cell, regardless of vision
-                    if(!sub.getCellIDs().contains(cellState.getId()))
-                    {
-                        sub.addSubscription(cellState.getId());
-                    }
+                    sub.addSubscription(cellState.getId());
                 }
-
-                subs.add(sub);
             }
+
+            subs.add(sub);
         }
 
         return subs;
@@ -172,11 +236,28 @@ public class CellSubscriptionService<CC extends CellController> implements Seria
     private List<Integer> getAgentsFor(CellID cellID)
     {
         // if cell subscription doesn't exist, create it
-        if(!subscriptions.containsKey(cellID))
+        List<Integer> agents = subscriptions.get(cellID);
+        if(agents == null)
+        {
+            agents = Collections.synchronizedList(new ArrayList<Integer>());
+            List<Integer> existing = subscriptions.putIfAbsent(cellID, agents);
+            if(existing != null)
+                agents = existing;
+        }
+        return agents;
+    }
+
+    private void execute(List<Runnable> tasks)
+    {
+        if(multithreader != null && tasks.size() > 1)
+        {
+            multithreader.executeAndWait(tasks);
+        }
+        else
         {
-            subscriptions.put(cellID, new ArrayList<Integer>());
+            for(Runnable task : tasks)
+                task.run();
         }
-        return subscriptions.get(cellID);
     }
 
     /**
@@ -184,9 +265,9 @@ public class CellSubscriptionService<CC extends CellController> implements Seria
      * 
      * @param agentID
      *        The agent ID
-     * @return Combined <code>CellState</code> for the given agent.
+     * @return Combined <code>PerceptionView</code> for the given agent.
      */
-    public CellState retrieveCombinedCellStateForAgent(int agentID)
+    public PerceptionView retrieveCombinedCellStateForAgent(int agentID)
     {
         return combinedCellStates.get(agentID);
     }
@@ -223,7 +304,7 @@ public class CellSubscriptionService<CC extends CellController> implements Seria
         return subscriptions;
     }
 
-    private Map<Integer, CellState> getCombinedCellStates()
+    private Map<Integer, PerceptionView> getCombinedCellStates()
     {
         return combinedCellStates;
     }
@@ -0,0 +1,193 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.msg.codec.StateCodec;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+
+/**
+ * This class keeps track of the cell state last published by a cell controller, so that only the entities created, changed or removed since then are published.
+ * <p>
+ * A keyframe with all the entities of the cell is published on the first update, every <code>SimConfig.cell_keyframe_interval</code> updates, and whenever one is requested. Changes are detected by
+ * comparing the binary form of each state with the one last published. States whose class is not registered in {@link StateCodec} may have properties that are not written in binary form, so they
+ * are published on every update. The cell map is only published in keyframes and after it notifies a split or merge.
+ */
+public class CellUpdateTracker implements Observer
+{
+    private final static Logger          logger              = LoggerFactory.getLogger(CellUpdateTracker.class);
+
+    private final Map<Integer, byte[]>   publishedAgents     = new HashMap<Integer, byte[]>();
+
+    private final Map<Integer, byte[]>   publishedEnvObjects = new HashMap<Integer, byte[]>();
+
+    private final ByteArrayOutputStream  buffer              = new ByteArrayOutputStream(256);
+
+    private final DataOutputStream       out                 = new DataOutputStream(buffer);
+
+    private CellMap                      observedMap;
+
+    private volatile boolean             mapChanged          = true;
+
+    private volatile boolean             keyframeRequested   = true;
+
+    private int                          updatesSinceKeyframe;
+
+    /**
+     * Creates the update to be published for the given cell state.
+     *
+     * @param cellState
+     *        the state of the cell
+     * @param cycles
+     *        the current cycle number
+     * @param period
+     *        the current cycle period
+     * @param cellMap
+     *        the current cell map
+     * @return a keyframe or a delta of the cell state
+     */
+    public synchronized CellStateDto createUpdate(CellState cellState, long cycles, int period, CellMap cellMap)
+    {
+        observe(cellMap);
+
+        List<AgentState> agents = cellState.getAgentStates();
+        List<EnvObjectState> envObjects = cellState.getEnvObjects();
+
+        int interval = SimConfig.getInstance().cell_keyframe_interval;
+        if(interval <= 1)
+        {
+            // deltas are disabled, start with a keyframe if they are enabled again
+            keyframeRequested = true;
+            return new CellStateDto(cellState.getId(), cellState.getBounds(), agents, envObjects, cellState.getEvents(), cycles, period, cellMap);
+        }
+
+        boolean keyframe = keyframeRequested || ++updatesSinceKeyframe >= interval;
+        boolean sendMap = keyframe || mapChanged;
+        mapChanged = false;
+
+        List<Integer> removedAgents = new ArrayList<Integer>();
+        List<Integer> removedEnvObjects = new ArrayList<Integer>();
+        List<AgentState> changedAgents = collectChanges(agents, publishedAgents, removedAgents);
+        List<EnvObjectState> changedEnvObjects = collectChanges(envObjects, publishedEnvObjects, removedEnvObjects);
+
+        if(keyframe)
+        {
+            keyframeRequested = false;
+            updatesSinceKeyframe = 0;
+            return new CellStateDto(cellState.getId(), cellState.getBounds(), agents, envObjects, cellState.getEvents(), cycles, period, cellMap);
+        }
+
+        CellStateDto update = new CellStateDto(cellState.getId(), cellState.getBounds(), changedAgents, changedEnvObjects, cellState.getEvents(), cycles, period, sendMap ? cellMap : null);
+        update.setDelta(removedAgents, removedEnvObjects, agents.size(), envObjects.size());
+        return update;
+    }
+
+    /**
+     * Requests the next update to be a keyframe.
+     */
+    public void requestKeyframe()
+    {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Stops observing the cell map and forgets the published states.
+     */
+    public synchronized void dispose()
+    {
+        observe(null);
+        publishedAgents.clear();
+        publishedEnvObjects.clear();
+        keyframeRequested = true;
+    }
+
+    @Override
+    public void update(Observable o, Object arg)
+    {
+        mapChanged = true;
+    }
+
+    private void observe(CellMap cellMap)
+    {
+        if(cellMap != observedMap)
+        {
+            if(observedMap != null)
+                observedMap.deleteObserver(this);
+            if(cellMap != null)
+                cellMap.addObserver(this);
+            observedMap = cellMap;
+            mapChanged = true;
+        }
+    }
+
+    /**
+     * Updates the published states with the given ones, collecting the states that changed and the ids of the states
+     * that are no longer present.
+     */
+    private <S extends VirtualState> List<S> collectChanges(List<S> states, Map<Integer, byte[]> published, List<Integer> removed)
+    {
+        List<S> changed = new ArrayList<S>();
+        Set<Integer> present = new HashSet<Integer>();
+
+        for(S state : states)
+        {
+            present.add(state.getID());
+
+            byte[] current = toBytes(state);
+            byte[] previous = published.put(state.getID(), current);
+            if(current == null || previous == null || !Arrays.equals(current, previous))
+                changed.add(state);
+        }
+
+        Iterator<Integer> ids = published.keySet().iterator();
+        while(ids.hasNext())
+        {
+            Integer id = ids.next();
+            if(!present.contains(id))
+            {
+                removed.add(id);
+                ids.remove();
+            }
+        }
+
+        return changed;
+    }
+
+    private byte[] toBytes(VirtualState state)
+    {
+        if(!StateCodec.isRegistered(state.getClass()))
+            return null;
+
+        buffer.reset();
+        try
+        {
+            state.writeFields(out);
+            out.flush();
+        }
+        catch(IOException e)
+        {
+            logger.warn("Could not write state {}, it will be published on every update.", state.getID(), e);
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -1,6 +1,5 @@
 package edu.utdallas.mavs.divas.core.sim.env;
 
-import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -57,6 +56,11 @@ public class Coordinator<CC extends SelfOrganizingCellController<?>> implements
      */
     protected transient Multithreader                                reorganizationService;
 
+    /**
+     * Whether the reorganization is driven by calls to {@link #step()} instead of the periodic reorganization thread
+     */
+    protected transient volatile boolean                             stepped;
+
     public Coordinator(SelfOrganizingEnvironment<CC> environment)
     {
         this.environment = environment;
@@ -88,12 +92,34 @@ public class Coordinator<CC extends SelfOrganizingCellController<?>> implements
             @Override
             public void run()
             {
-                reorganize();
+                if(!stepped)
+                    reorganize();
             }
         };
         return task;
     }
 
+    /**
+     * Sets whether the reorganization is driven by calls to {@link #step()}, so that it happens at the same point of
+     * every cycle, instead of the periodic reorganization thread.
+     * 
+     * @param stepped
+     *        true to drive the reorganization by calls to {@link #step()}
+     */
+    public void setStepped(boolean stepped)
+    {
+        this.stepped = stepped;
+    }
+
+    /**
+     * Reorganizes the environment once. The requested splits and merges are applied at the beginning of the next
+     * environment phase.
+     */
+    public void step()
+    {
+        reorganize();
+    }
+
     /**
      * Load strategies for this coordinator
      */
@@ -109,6 +135,7 @@ public class Coordinator<CC extends SelfOrganizingCellController<?>> implements
         reorganizationStrategies.put(ReorganizationStrategy.Fair_Agent_and_EnvObjects_Population_Balance, new FairEOCellReorganizer());
         reorganizationStrategies.put(ReorganizationStrategy.Self_Organizing, new SelfOrganizingReorganizer());
         reorganizationStrategies.put(ReorganizationStrategy.Autonomic, new AutonomicReorganizer());
+        reorganizationStrategies.put(ReorganizationStrategy.Measured_Cost_Balance, new CostModelCellReorganizer());
     }
 
     /**
@@ -185,20 +212,12 @@ public class Coordinator<CC extends SelfOrganizingCellController<?>> implements
         CC cc = environment.getCellController(cellID);
         if(cc != null)
         {
-            CellBounds ccBounds = cc.getCellState().getBounds();
-            int cushion = 1;
-            Rectangle2D adjacencyBounds = new Rectangle2D.Float(-cushion + ccBounds.x, -cushion + ccBounds.y, ccBounds.width + 2 * cushion, ccBounds.height + 2 * cushion);
-            for(CC cell : environment.getCellControllers())
+            for(CellID neighborID : environment.getCellMap().getNeighbors(cellID))
             {
-                if(cell.getCellID().equals(cellID))
-                    continue;
-
-                if(environment.getCellMap().isLeaf(cell.getCellID()))
+                CC cell = environment.getCellController(neighborID);
+                if(cell != null)
                 {
-                    if(adjacencyBounds.intersects(cell.getCellState().getBounds()))
-                    {
-                        neighbors.add(cell);
-                    }
+                    neighbors.add(cell);
                 }
             }
         }
@@ -735,6 +754,89 @@ public class Coordinator<CC extends SelfOrganizingCellController<?>> implements
         }
     }
 
+    /**
+     * Reorganization strategy based on the execution time measured per cell controller. The most expensive cell costing
+     * more than the budget is split, otherwise the cheapest pair of sibling cells costing together less than a fraction
+     * of the budget is merged. Cells are only considered once their cost was measured over a full window since they
+     * last changed, and the gap between the budget and the merge fraction keeps merged cells from being split right
+     * away.
+     */
+    class CostModelCellReorganizer implements CellReorganizer
+    {
+        @Override
+        public void reorganize()
+        {
+            try
+            {
+                float budget = SimConfig.getInstance().cell_cost_budget;
+                float mergeBudget = budget * SimConfig.getInstance().cell_cost_merge_ratio;
+
+                // the costs change while the cells run, so they are read once before sorting
+                final Map<CellID, Float> costs = new HashMap<CellID, Float>();
+                List<CC> sortedCells = new ArrayList<CC>();
+                for(CC cell : environment.getCellControllers())
+                {
+                    CellCost cost = cell.getCost();
+                    if(environment.getCellMap().isLeaf(cell.getCellID()) && cost.getSampleCount() >= SimConfig.getInstance().cell_cost_window)
+                    {
+                        costs.put(cell.getCellID(), cost.getAverageCost());
+                        sortedCells.add(cell);
+                    }
+                }
+                Collections.sort(sortedCells, new Comparator<CC>()
+                {
+                    @Override
+                    public int compare(CC o1, CC o2)
+                    {
+                        return costs.get(o1.getCellID()).compareTo(costs.get(o2.getCellID()));
+                    }
+                });
+
+                if(environment.getCellControllers().size() < SimConfig.getInstance().cc_capacity)
+                {
+                    for(int i = sortedCells.size() - 1; i >= 0; i--)
+                    {
+                        CellID cellID = sortedCells.get(i).getCellID();
+                        if(costs.get(cellID) <= budget)
+                            break;
+
+                        if(environment.getCellMap().getCellDepth(cellID) < SimConfig.getInstance().max_cc_depth)
+                        {
+                            environment.enqueueCellSplit(cellID);
+                            return;
+                        }
+                    }
+                }
+
+                for(CC cell : sortedCells)
+                {
+                    CellID cellID = cell.getCellID();
+                    float cellCost = costs.get(cellID);
+                    if(cellCost > mergeBudget)
+                        break;
+
+                    if(!environment.getCellMap().isRoot(cellID))
+                    {
+                        int siblingIndex = (cellID.getLastPart() + 1) % 2;
+                        CellID siblingID = cellID.getParentID().createChild(siblingIndex);
+
+                        // an unmeasured sibling, or one that is still split, is not merged
+                        Float siblingCost = costs.get(siblingID);
+                        if(siblingCost != null && cellCost + siblingCost <= mergeBudget)
+                        {
+                            environment.enqueueCellMerge(cellID);
+                            return;
+                        }
+                    }
+                }
+            }
+            catch(Exception e)
+            {
+                logger.error("An error occurred while processing coordinator task", e);
+            }
+        }
+    }
+
     /*
      * Printing utilities
      */
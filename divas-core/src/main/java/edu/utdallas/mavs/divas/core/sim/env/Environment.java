@@ -6,7 +6,7 @@ import java.util.List;
 import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.sim.Phase;
-import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.core.sim.common.state.PerceptionView;
 
 /**
  * The environment manager oversees the execution of locally-run cell controllers, provides a
@@ -73,6 +73,16 @@ public interface Environment<CC extends CellController>
      */
     public <E extends Environment<?>> void copyFrom(E environment);
 
+    /**
+     * Restores the simulation environment from the cell map and the cell controllers of a checkpoint.
+     * 
+     * @param cellMap
+     *        The cell map of the checkpoint.
+     * @param cellControllers
+     *        The cell controllers of the checkpoint, which are copied into new cell controllers of this environment.
+     */
+    public void restore(CellMap cellMap, List<?> cellControllers);
+
     /**
      * Executes the given phase of the simulation.
      * 
@@ -98,9 +108,9 @@ public interface Environment<CC extends CellController>
      * 
      * @param agentId
      *        the ID of the agent
-     * @return the combined cell state (containing the perception data) of the environment.
+     * @return the read-only view over the cell states (containing the perception data) of the environment.
      */
-    public CellState retrievePerceptionDataFor(int agentId);
+    public PerceptionView retrievePerceptionDataFor(int agentId);
 
     /**
      * Terminates the environment by destroying all the cell controllers, clearing the event listeners,
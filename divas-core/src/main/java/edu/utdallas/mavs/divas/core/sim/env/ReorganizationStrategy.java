@@ -51,6 +51,12 @@ public enum ReorganizationStrategy
     /**
      * The environment reorganization strategy is based on bottom-up, top-down interactions between cell controllers and coordinators.
      */
-    Autonomic
+    Autonomic,
+    /**
+     * The environment reorganization strategy is based on the execution time measured per cell controller. Cell
+     * controllers costing more than a budget are split, and sibling cell controllers costing together well below the
+     * budget are merged.
+     */
+    Measured_Cost_Balance
 
 }
@@ -7,6 +7,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.msg.CellStructureMsg;
 import edu.utdallas.mavs.divas.core.msg.CellStructureMsg.Operation;
 import edu.utdallas.mavs.divas.core.msg.Workload;
@@ -16,7 +17,6 @@ import edu.utdallas.mavs.divas.mts.MTSException;
 import edu.utdallas.mavs.divas.mts.MTSPayload;
 import edu.utdallas.mavs.divas.mts.Subscriber;
 import edu.utdallas.mavs.divas.utils.Multithreader;
-import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
 
 /**
  * This class describes a self organizing environment.
@@ -82,7 +82,7 @@ public abstract class SelfOrganizingEnvironment<CC extends SelfOrganizingCellCon
     @Override
     protected Multithreader createMultithreader()
     {
-        return new Multithreader("EnvironmentThrd", ThreadPoolType.FIXED, 5, false);
+        return new Multithreader("EnvironmentThrd", SimConfig.getInstance().environment_pool, SimConfig.getInstance().environment_threads, false);
     }
 
     public void requestAssistance(Workload workload)
@@ -161,6 +161,14 @@ public abstract class SelfOrganizingEnvironment<CC extends SelfOrganizingCellCon
         return reorganizationStrategy;
     }
 
+    /**
+     * @return The coordinator reorganizing the environment.
+     */
+    public Coordinator<CC> getCoordinator()
+    {
+        return coordinator;
+    }
+
     private void splitCell(CellID id)
     {
         CC cc = getCellController(id);
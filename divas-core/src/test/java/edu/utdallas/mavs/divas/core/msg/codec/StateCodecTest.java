@@ -0,0 +1,93 @@
+package edu.utdallas.mavs.divas.core.msg.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.msg.StateUpdateMsg;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.VirtualState;
+import edu.utdallas.mavs.divas.mts.MTSCodecs;
+import edu.utdallas.mavs.divas.mts.MTSPayload;
+
+/**
+ * Tests for StateCodec
+ */
+public class StateCodecTest
+{
+    /**
+     * Tests that a state update message of a registered state goes through its codec instead of Java serialization
+     */
+    @Test
+    public void testRegisteredState() throws IOException, ClassNotFoundException
+    {
+        AgentState agent = new AgentState();
+        agent.setID(12);
+        agent.setPosition(new Vector3f(10, 0, -20));
+        MTSPayload payload = new MTSPayload(4, new StateUpdateMsg(agent));
+        Assert.assertTrue(MTSCodecs.hasCodec(payload));
+
+        VirtualState state = ((StateUpdateMsg) MTSCodecs.decode(MTSCodecs.encode(payload)).getData()).getState();
+        Assert.assertEquals(AgentState.class, state.getClass());
+        Assert.assertEquals(12, state.getID());
+        Assert.assertEquals(new Vector3f(10, 0, -20), state.getPosition());
+    }
+
+    /**
+     * Tests that a subclass of a registered state falls back to Java serialization, keeping the property its
+     * superclass does not write, and that null states are kept in place
+     */
+    @Test
+    public void testSerializationFallback() throws IOException
+    {
+        TaggedAgentState tagged = new TaggedAgentState();
+        tagged.setID(5);
+        tagged.tag = "tagged";
+
+        List<VirtualState> states = new ArrayList<VirtualState>();
+        states.add(new AgentState());
+        states.add(null);
+        states.add(tagged);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        StateCodec.writeStates(out, states);
+        out.close();
+        List<VirtualState> read = StateCodec.readStates(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), VirtualState.class);
+
+        Assert.assertEquals(3, read.size());
+        Assert.assertEquals(AgentState.class, read.get(0).getClass());
+        Assert.assertNull(read.get(1));
+        Assert.assertEquals(TaggedAgentState.class, read.get(2).getClass());
+        Assert.assertEquals(5, read.get(2).getID());
+        Assert.assertEquals("tagged", ((TaggedAgentState) read.get(2)).tag);
+    }
+
+    /**
+     * Tests that a state tag cannot be given to two classes
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTag()
+    {
+        StateCodec.register(1, TaggedAgentState.class);
+    }
+
+    /**
+     * An agent state adding a property that <code>AgentState.writeFields</code> does not write
+     */
+    static class TaggedAgentState extends AgentState
+    {
+        private static final long serialVersionUID = 1L;
+
+        String                    tag;
+    }
+}
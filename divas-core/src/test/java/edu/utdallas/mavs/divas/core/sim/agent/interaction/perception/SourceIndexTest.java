@@ -0,0 +1,151 @@
+package edu.utdallas.mavs.divas.core.sim.agent.interaction.perception;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.sim.agent.interaction.perception.data.EventSource;
+
+/**
+ * Tests for SourceIndex
+ */
+public class SourceIndexTest
+{
+    private static final Vector3f SELF = new Vector3f(0, 0, 0);
+
+    /**
+     * Tests that origins closer than the source distance are found across bucket boundaries, and farther origins are
+     * not
+     */
+    @Test
+    public void testBucketBoundaries()
+    {
+        SourceIndex index = new SourceIndex();
+        index.add(new Source(new Vector3f(10.9f, 0, 0), null), 7);
+        index.add(new Source(new Vector3f(-0.1f, 0, 0), null), 8);
+
+        // on the other side of a bucket boundary
+        Assert.assertEquals(0, index.findFirst(new Source(new Vector3f(11.1f, 0, 0), null), SELF));
+        Assert.assertEquals(1, index.findFirst(new Source(new Vector3f(0.1f, 0, 0), null), SELF));
+        Assert.assertEquals(-1, index.findFirst(new Source(new Vector3f(5.5f, 0, 0), null), SELF));
+        Assert.assertEquals(-1, index.findFirst(new Source(new Vector3f(10.9f, 0, 5.5f), null), SELF));
+
+        Assert.assertEquals(7, index.getTag(0));
+        Assert.assertEquals(8, index.getTag(1));
+    }
+
+    /**
+     * Tests that data with a direction only are matched by direction against data with and without an origin
+     */
+    @Test
+    public void testDirections()
+    {
+        SourceIndex index = new SourceIndex();
+        index.add(new Source(null, new Vector3f(1, 0, 0)), 0);
+        index.add(new Source(new Vector3f(0, 0, 50), null), 1);
+
+        Assert.assertEquals(0, index.findFirst(new Source(null, new Vector3f(1, 0, 0.01f)), SELF));
+        Assert.assertEquals(1, index.findFirst(new Source(null, new Vector3f(0, 0, 1)), SELF));
+        Assert.assertEquals(0, index.findFirst(new Source(new Vector3f(100, 0, 1), null), SELF));
+        Assert.assertEquals(-1, index.findFirst(new Source(null, new Vector3f(-1, 0, 0)), SELF));
+    }
+
+    /**
+     * Tests the queries of random data against comparing the query with every piece of data in the order they were
+     * added, over several generations of the index
+     */
+    @Test
+    public void testRandomQueries()
+    {
+        Random random = new Random(1);
+        SourceIndex index = new SourceIndex();
+
+        for(int generation = 0; generation < 20; generation++)
+        {
+            index.clear();
+            int count = 1 + random.nextInt(200);
+            Source[] sources = new Source[count];
+            for(int i = 0; i < count; i++)
+            {
+                sources[i] = randomSource(random);
+                index.add(sources[i], i);
+            }
+            Assert.assertEquals(count, index.size());
+
+            for(int q = 0; q < 100; q++)
+            {
+                Source query = randomSource(random);
+
+                int expected = -1;
+                boolean[] expectedMarks = new boolean[count];
+                for(int i = 0; i < count; i++)
+                {
+                    if(SourceIndex.isSameSource(sources[i], query, SELF))
+                    {
+                        expectedMarks[i] = true;
+                        if(expected < 0)
+                            expected = i;
+                    }
+                }
+
+                Assert.assertEquals(expected, index.findFirst(query, SELF));
+
+                boolean[] marks = new boolean[count];
+                index.markAll(query, SELF, marks);
+                Assert.assertTrue(Arrays.equals(expectedMarks, marks));
+            }
+        }
+    }
+
+    private static Source randomSource(Random random)
+    {
+        if(random.nextInt(10) == 0)
+            return new Source(null, new Vector3f(random.nextFloat() - 0.5f, 0, random.nextFloat() - 0.5f));
+
+        // a small area, so that many origins are within the source distance of each other
+        return new Source(new Vector3f(random.nextFloat() * 60 - 30, random.nextFloat() * 4, random.nextFloat() * 60 - 30), null);
+    }
+
+    /**
+     * A piece of data with an origin or a direction
+     */
+    private static class Source implements EventSource
+    {
+        private final Vector3f origin;
+        private final Vector3f direction;
+
+        Source(Vector3f origin, Vector3f direction)
+        {
+            this.origin = origin;
+            this.direction = direction;
+        }
+
+        @Override
+        public Vector3f getOrigin()
+        {
+            return origin;
+        }
+
+        @Override
+        public Vector3f getDirection()
+        {
+            return direction;
+        }
+
+        @Override
+        public boolean hasOrigin()
+        {
+            return origin != null;
+        }
+
+        @Override
+        public boolean hasDirection()
+        {
+            return direction != null;
+        }
+    }
+}
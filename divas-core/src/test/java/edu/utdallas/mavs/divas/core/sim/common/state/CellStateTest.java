@@ -0,0 +1,89 @@
+package edu.utdallas.mavs.divas.core.sim.common.state;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.sim.common.event.SirenEvent;
+import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
+
+/**
+ * Tests for the spatial index of CellState
+ */
+public class CellStateTest
+{
+    private CellState cellState;
+
+    /**
+     * Creates an empty cell
+     */
+    @Before
+    public void setUp()
+    {
+        cellState = new CellState(CellID.rootID(), new CellBounds(0, 1000, 0, 10, 0, 1000));
+    }
+
+    /**
+     * Tests that an event is found at its new bounds once it is updated, and no longer at its former bounds
+     */
+    @Test
+    public void testUpdateEvent()
+    {
+        SirenEvent event = event(1, 100, 100);
+        cellState.addEvent(event);
+        Assert.assertEquals(1, cellState.getEventsInRange(new Vector3f(100, 0, 100), 0).size());
+
+        event.setOrigin(new Vector3f(800, 0, 800));
+        Assert.assertTrue(cellState.getEventsInRange(new Vector3f(800, 0, 800), 0).isEmpty());
+
+        cellState.updateEvent(event);
+        Assert.assertEquals(1, cellState.getEventsInRange(new Vector3f(800, 0, 800), 0).size());
+        Assert.assertTrue(cellState.getEventsInRange(new Vector3f(100, 0, 100), 0).isEmpty());
+    }
+
+    /**
+     * Tests that updating an event the cell does not contain does not add it
+     */
+    @Test
+    public void testUpdateMissingEvent()
+    {
+        cellState.getEventsInRange(new Vector3f(100, 0, 100), 0);
+        cellState.updateEvent(event(1, 100, 100));
+
+        Assert.assertTrue(cellState.getEvents().isEmpty());
+        Assert.assertTrue(cellState.getEventsInRange(new Vector3f(100, 0, 100), 0).isEmpty());
+    }
+
+    /**
+     * Tests that an agent exactly at the queried distance is in range, and an agent just beyond it is not
+     */
+    @Test
+    public void testRangeBoundary()
+    {
+        cellState.addAgent(agent(1, 530));
+        cellState.addAgent(agent(2, 530.5f));
+
+        Assert.assertEquals(1, cellState.getAgentStatesInRange(new Vector3f(500, 0, 500), 30).size());
+        Assert.assertEquals(1, cellState.getAgentStatesInRange(new Vector3f(500, 0, 500), 30).get(0).getID());
+    }
+
+    private static SirenEvent event(int id, float x, float z)
+    {
+        SirenEvent event = new SirenEvent();
+        event.setEventID(id);
+        event.setOrigin(new Vector3f(x, 0, z));
+        return event;
+    }
+
+    private static AgentState agent(int id, float x)
+    {
+        AgentState agent = new AgentState();
+        agent.setID(id);
+        agent.setPosition(new Vector3f(x, 0, 500));
+        agent.setScale(new Vector3f(0, 0, 0));
+        return agent;
+    }
+}
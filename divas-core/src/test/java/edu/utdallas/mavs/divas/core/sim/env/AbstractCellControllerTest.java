@@ -0,0 +1,81 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.mts.CommunicationModule;
+import edu.utdallas.mavs.divas.mts.DivasTopic;
+import edu.utdallas.mavs.divas.mts.MTSPayload;
+import edu.utdallas.mavs.divas.mts.MTSType;
+
+/**
+ * Tests for the cell updates published by AbstractCellController
+ */
+public class AbstractCellControllerTest
+{
+    private CellState  cellState;
+
+    private AgentState agent;
+
+    /**
+     * Creates a cell with an agent
+     */
+    @Before
+    public void setUp()
+    {
+        cellState = new CellState(CellID.rootID(), new CellBounds(0, 100, 0, 10, 0, 100));
+        agent = new AgentState();
+        agent.setID(1);
+        agent.setPosition(new Vector3f(10, 0, 50));
+        cellState.addAgent(agent);
+    }
+
+    /**
+     * Restores the default types of MTS
+     */
+    @After
+    public void tearDown()
+    {
+        CommunicationModule.resetTopicTypes();
+    }
+
+    /**
+     * Tests that an update published in-VM does not change when the cell state changes afterwards
+     */
+    @Test
+    public void testInVMUpdateIsCopied() throws Exception
+    {
+        CommunicationModule.setTopicType(DivasTopic.envTopic, MTSType.IN_VM);
+        CellStateDto data = new CellStateDto(cellState, 1, 150, null);
+
+        MTSPayload payload = AbstractCellController.createUpdatePayload(data, CellID.rootID().getUpdateTopic());
+        agent.setPosition(new Vector3f(90, 0, 50));
+
+        CellStateDto published = (CellStateDto) payload.getData();
+        Assert.assertNotSame(data, published);
+        Assert.assertEquals(1, published.getAgentStates().size());
+        Assert.assertNotSame(agent, published.getAgentStates().get(0));
+        Assert.assertEquals(10, published.getAgentStates().get(0).getPosition().getX(), 0);
+        Assert.assertTrue(published.isKeyframe());
+    }
+
+    /**
+     * Tests that an update sent through the broker is not copied, since the broker serializes it
+     */
+    @Test
+    public void testBrokerUpdateIsNotCopied() throws Exception
+    {
+        CellStateDto data = new CellStateDto(cellState, 1, 150, null);
+
+        MTSPayload payload = AbstractCellController.createUpdatePayload(data, CellID.rootID().getUpdateTopic());
+
+        Assert.assertSame(data, payload.getData());
+    }
+}
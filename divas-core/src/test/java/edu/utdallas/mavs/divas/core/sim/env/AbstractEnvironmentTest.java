@@ -0,0 +1,39 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+
+/**
+ * Tests for the executor backend of the agent phase of AbstractEnvironment
+ */
+public class AbstractEnvironmentTest
+{
+    /**
+     * Tests that the agent phase runs on a fork/join pool when parallel sensors are enabled
+     */
+    @Test
+    public void testParallelSensorsPoolType()
+    {
+        SimConfig config = new SimConfig();
+        config.parallel_sensors = true;
+        config.agent_phase_pool = ThreadPoolType.FIXED;
+
+        Assert.assertEquals(ThreadPoolType.FORK_JOIN, AbstractEnvironment.getAgentPhasePoolType(config));
+    }
+
+    /**
+     * Tests that the configured pool is kept when parallel sensors are disabled
+     */
+    @Test
+    public void testConfiguredPoolType()
+    {
+        SimConfig config = new SimConfig();
+        config.parallel_sensors = false;
+        config.agent_phase_pool = ThreadPoolType.SINGLE;
+
+        Assert.assertEquals(ThreadPoolType.SINGLE, AbstractEnvironment.getAgentPhasePoolType(config));
+    }
+}
@@ -0,0 +1,75 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for CellID
+ */
+public class CellIDTest
+{
+    /**
+     * Tests that the ids down to the maximum depth are read back from their packed form, with their path and parent
+     */
+    @Test
+    public void testMaximumDepth()
+    {
+        CellID id = CellID.rootID();
+        Assert.assertEquals(0L, id.toLong());
+
+        for(int level = 1; level <= CellID.MAX_DEPTH; level++)
+        {
+            CellID parent = id;
+            id = id.createChild(level % 3 == 0 ? 0 : 1);
+            CellID unpacked = CellID.fromLong(id.toLong());
+            Assert.assertEquals(id, unpacked);
+            Assert.assertEquals(id.hashCode(), unpacked.hashCode());
+            Assert.assertEquals(parent, unpacked.getParentID());
+            Assert.assertTrue(parent.isAncestorOf(unpacked));
+        }
+
+        int[] parts = id.getParts();
+        Assert.assertEquals(CellID.MAX_DEPTH, parts.length);
+        Assert.assertEquals(1, parts[0]);
+        Assert.assertEquals(0, parts[2]);
+        Assert.assertEquals(parts[CellID.MAX_DEPTH - 1], id.getLastPart());
+    }
+
+    /**
+     * Tests that a cell at the maximum depth cannot be split
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testChildBeyondMaximumDepth()
+    {
+        CellID id = CellID.rootID();
+        for(int level = 0; level < CellID.MAX_DEPTH; level++)
+        {
+            id = id.createChild(1);
+        }
+        id.createChild(0);
+    }
+
+    /**
+     * Tests that paths made only of first children are told apart by their depth
+     */
+    @Test
+    public void testFirstChildren()
+    {
+        CellID child = CellID.rootID().createChild(0);
+        CellID grandchild = child.createChild(0);
+
+        Assert.assertNotEquals(child.toLong(), grandchild.toLong());
+        Assert.assertNotEquals(CellID.rootID().toLong(), child.toLong());
+        Assert.assertEquals(grandchild, CellID.fromLong(grandchild.toLong()));
+        Assert.assertFalse(grandchild.isAncestorOf(child));
+    }
+
+    /**
+     * Tests that a long whose path is longer than its depth is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPackedID()
+    {
+        CellID.fromLong(CellID.rootID().createChild(1).toLong() | 2);
+    }
+}
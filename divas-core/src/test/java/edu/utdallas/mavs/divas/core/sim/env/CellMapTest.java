@@ -0,0 +1,136 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.utdallas.mavs.divas.core.host.Host;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.mts.MTSClient;
+
+/**
+ * Tests for CellMap
+ */
+public class CellMapTest
+{
+    /**
+     * Creates the host whose id is given to the split cells
+     */
+    @BeforeClass
+    public static void createHost()
+    {
+        if(Host.getHost() == null)
+        {
+            new Host()
+            {
+                @Override
+                protected void createSimulation(MTSClient client)
+                {}
+            };
+        }
+    }
+
+    /**
+     * Tests that merging a cell whose children were split replaces all its former leaves in the neighbors of the
+     * surrounding leaves
+     */
+    @Test
+    public void testMergeAfterSplits()
+    {
+        CellID root = CellID.rootID();
+        CellMap map = new CellMap(new CellState(root, new CellBounds(0, 100, 0, 10, 0, 100)), "host");
+        map.getNeighbors(root);
+
+        split(map, root);
+        CellID bottom = root.createChild(0);
+        CellID top = root.createChild(1);
+        split(map, bottom);
+        split(map, top);
+        split(map, bottom.createChild(1));
+        CellID topLeft = top.createChild(0);
+        CellID topRight = top.createChild(1);
+        Assert.assertEquals(set(bottom.createChild(0), bottom.createChild(1).createChild(1), topRight), set(map.getNeighbors(topLeft)));
+
+        map.merge(bottom);
+        Assert.assertEquals(set(topLeft, topRight), set(map.getNeighbors(bottom)));
+        Assert.assertEquals(set(bottom, topRight), set(map.getNeighbors(topLeft)));
+        Assert.assertEquals(set(bottom, topLeft), set(map.getNeighbors(topRight)));
+        Assert.assertTrue(map.getNeighbors(bottom.createChild(1)).isEmpty());
+        Assert.assertTrue(map.getNeighbors(bottom.createChild(1).createChild(0)).isEmpty());
+
+        map.merge(top);
+        Assert.assertEquals(set(top), set(map.getNeighbors(bottom)));
+        Assert.assertEquals(set(bottom), set(map.getNeighbors(top)));
+    }
+
+    /**
+     * Tests the neighbors of the leaves after random splits and merges against the neighbors computed from the leaf
+     * bounds
+     */
+    @Test
+    public void testRandomSplitsAndMerges()
+    {
+        Random random = new Random(1);
+        CellID root = CellID.rootID();
+        CellMap map = new CellMap(new CellState(root, new CellBounds(0, 160, 0, 10, 0, 90)), "host");
+        map.getNeighbors(root);
+
+        for(int step = 0; step < 300; step++)
+        {
+            List<CellID> leaves = new ArrayList<CellID>(map.getLeafBounds().keySet());
+            CellID leaf = leaves.get(random.nextInt(leaves.size()));
+            if(leaf.getLevel() == 0 || (leaf.getLevel() < 7 && random.nextInt(5) < 3))
+            {
+                split(map, leaf);
+            }
+            else
+            {
+                CellID parent = leaf.getParentID();
+                map.merge(parent);
+            }
+
+            Map<CellID, CellBounds> leafBounds = map.getLeafBounds();
+            for(CellID id : leafBounds.keySet())
+            {
+                Set<CellID> expected = new HashSet<CellID>();
+                for(Map.Entry<CellID, CellBounds> other : leafBounds.entrySet())
+                {
+                    if(!other.getKey().equals(id) && isAdjacent(leafBounds.get(id), other.getValue()))
+                        expected.add(other.getKey());
+                }
+                Assert.assertEquals("neighbors of " + id + " at step " + step, expected, set(map.getNeighbors(id)));
+            }
+        }
+    }
+
+    private static void split(CellMap map, CellID id)
+    {
+        CellBounds[] parts = map.getLeafBounds().get(id).split();
+        map.split(id, new CellState(id.createChild(0), parts[0]), new CellState(id.createChild(1), parts[1]));
+    }
+
+    private static boolean isAdjacent(CellBounds bounds, CellBounds other)
+    {
+        return bounds.getMinX() < other.getMaxX() + 1 && other.getMinX() < bounds.getMaxX() + 1 && bounds.getMinY() < other.getMaxY() + 1 && other.getMinY() < bounds.getMaxY() + 1;
+    }
+
+    private static Set<CellID> set(CellID... ids)
+    {
+        Set<CellID> set = new HashSet<CellID>();
+        for(CellID id : ids)
+            set.add(id);
+        return set;
+    }
+
+    private static Set<CellID> set(List<CellID> ids)
+    {
+        return new HashSet<CellID>(ids);
+    }
+}
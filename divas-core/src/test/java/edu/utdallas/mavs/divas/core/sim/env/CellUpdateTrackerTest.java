@@ -0,0 +1,144 @@
+package edu.utdallas.mavs.divas.core.sim.env;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jme3.math.Vector3f;
+
+import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.config.SimConfig;
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.CellState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+
+/**
+ * Tests for CellUpdateTracker
+ */
+public class CellUpdateTrackerTest
+{
+    private int               savedInterval;
+
+    private CellState         cellState;
+
+    private CellMap           cellMap;
+
+    private CellUpdateTracker tracker;
+
+    /**
+     * Creates a cell with two agents and an environment object, sending a keyframe every 4 updates
+     */
+    @Before
+    public void setUp()
+    {
+        savedInterval = SimConfig.getInstance().cell_keyframe_interval;
+        SimConfig.getInstance().cell_keyframe_interval = 4;
+
+        cellState = new CellState(CellID.rootID(), new CellBounds(0, 100, 0, 10, 0, 100));
+        cellState.addAgent(agent(1));
+        cellState.addAgent(agent(2));
+        EnvObjectState envObject = new EnvObjectState();
+        envObject.setID(7);
+        cellState.addEnvObject(envObject);
+        cellMap = new CellMap(cellState, "host");
+        tracker = new CellUpdateTracker();
+    }
+
+    /**
+     * Restores the keyframe interval
+     */
+    @After
+    public void tearDown()
+    {
+        tracker.dispose();
+        SimConfig.getInstance().cell_keyframe_interval = savedInterval;
+    }
+
+    /**
+     * Tests that a removed agent is reported by the next delta only
+     */
+    @Test
+    public void testRemovedAgent()
+    {
+        Assert.assertTrue(update(1).isKeyframe());
+
+        cellState.removeAgent(1);
+        CellStateDto delta = update(2);
+        Assert.assertFalse(delta.isKeyframe());
+        Assert.assertEquals(Arrays.asList(1), delta.getRemovedAgents());
+        Assert.assertTrue(delta.getAgentStates().isEmpty());
+        Assert.assertEquals(1, delta.getAgentCount());
+
+        Assert.assertTrue(update(3).getRemovedAgents().isEmpty());
+    }
+
+    /**
+     * Tests that an agent removed and added back between two updates is sent as a changed agent, not as a removed one
+     */
+    @Test
+    public void testAgentAddedBack()
+    {
+        update(1);
+
+        cellState.removeAgent(2);
+        AgentState moved = agent(2);
+        moved.setPosition(new Vector3f(60, 0, 50));
+        cellState.addAgent(moved);
+
+        CellStateDto delta = update(2);
+        Assert.assertTrue(delta.getRemovedAgents().isEmpty());
+        Assert.assertEquals(1, delta.getAgentStates().size());
+        Assert.assertEquals(2, delta.getAgentStates().get(0).getID());
+    }
+
+    /**
+     * Tests that an agent removed in the update of a keyframe is not reported again by the following delta
+     */
+    @Test
+    public void testRemovedBeforeKeyframe()
+    {
+        update(1);
+        tracker.requestKeyframe();
+        cellState.removeAgent(1);
+
+        CellStateDto keyframe = update(2);
+        Assert.assertTrue(keyframe.isKeyframe());
+        Assert.assertEquals(1, keyframe.getAgentStates().size());
+
+        CellStateDto delta = update(3);
+        Assert.assertFalse(delta.isKeyframe());
+        Assert.assertTrue(delta.getRemovedAgents().isEmpty());
+    }
+
+    /**
+     * Tests that removed environment objects are reported apart from removed agents
+     */
+    @Test
+    public void testRemovedEnvObject()
+    {
+        update(1);
+        cellState.removeEnvObject(cellState.getEnvObjectState(7));
+
+        CellStateDto delta = update(2);
+        Assert.assertEquals(Collections.singletonList(7), delta.getRemovedEnvObjects());
+        Assert.assertTrue(delta.getRemovedAgents().isEmpty());
+        Assert.assertEquals(0, delta.getEnvObjectCount());
+    }
+
+    private CellStateDto update(long cycle)
+    {
+        return tracker.createUpdate(cellState, cycle, 150, cellMap);
+    }
+
+    private static AgentState agent(int id)
+    {
+        AgentState agent = new AgentState();
+        agent.setID(id);
+        agent.setPosition(new Vector3f(10 * id, 0, 50));
+        return agent;
+    }
+}
@@ -41,11 +41,14 @@ public class SimUpdateHandler
 
     public void start()
     {
-        simAdapter.addSubscription(DivasTopic.envTopic, handleCellUpdate());
+        simAdapter.addSubscription(DivasTopic.getAllSubtopics(DivasTopic.envTopic), handleCellUpdate());
         simAdapter.addSubscription(DivasTopic.simSummaryTopic, handleSimSummaryUpdate());
         simAdapter.addSubscription(DivasTopic.simStatusTopic, handleSimStatusUpdate());
         simAdapter.addSubscription(DivasTopic.destroyEntityTopic, destroyEntityMsgHandler());
         simAdapter.addSubscription(DivasTopic.hostConfigTopic, simEndingMsgHandler());
+
+        // the cell updates in between keyframes only carry the entities that changed
+        simAdapter.requestKeyframe();
     }
 
     private Subscriber handleCellUpdate()
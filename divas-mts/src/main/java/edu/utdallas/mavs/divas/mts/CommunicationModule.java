@@ -2,6 +2,8 @@ package edu.utdallas.mavs.divas.mts;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,10 +18,13 @@ import org.slf4j.LoggerFactory;
  * <code>CommunicationModule</code> object, providing the host name and port number of the JMS broker server, add publication and subscription topics, and begin sending and receiving messages.
  * <p>
  * Note that all messages sent by a <code>CommunicationModule</code> are <code>MTSPayload</code> objects and must be interpreted as such.
+ * <p>
+ * Each topic is sent through the JMS broker (<code>MTSType.TCP</code>), the <code>LocalMTS</code> (<code>MTSType.SHARED</code>) or the <code>InVMTransport</code> (<code>MTSType.IN_VM</code>). The
+ * type of a topic can be changed with <code>setTopicType(String, MTSType)</code> before the communication modules publish or subscribe to it.
  */
 public class CommunicationModule
 {
-    private final static Logger         logger   = LoggerFactory.getLogger(CommunicationModule.class);
+    private final static Logger         logger        = LoggerFactory.getLogger(CommunicationModule.class);
 
     /**
      * The name or IP address of the server running the JMS broker.
@@ -28,10 +33,14 @@ public class CommunicationModule
 
     private ArrayList<String>           publications;
     private HashMap<String, Subscriber> subscribers;
+    private HashMap<String, Subscriber> localSubscribers;
+    private HashMap<String, Subscriber> inVMSubscribers;
 
-    private static LocalMTS             localMTS = new LocalMTS();
+    private static LocalMTS             localMTS      = new LocalMTS();
+    private static InVMTransport        inVMTransport = new InVMTransport();
+    private static Map<String, MTSType> topicTypes    = new ConcurrentHashMap<String, MTSType>();
     private int                         id;
-    private static int                  nextid   = 0;
+    private static int                  nextid        = 0;
 
     /**
      * The constructor initializes the <code>CommunicationModule</code>. This constructor assumes that the <MTSType> is
@@ -49,6 +58,71 @@ public class CommunicationModule
         nextid++;
         publications = new ArrayList<String>();
         subscribers = new HashMap<String, Subscriber>();
+        localSubscribers = new HashMap<String, Subscriber>();
+        inVMSubscribers = new HashMap<String, Subscriber>();
+    }
+
+    /**
+     * Sets the type of MTS used to send the messages of the given topic. Communication modules that already publish or
+     * subscribe to the topic keep using the previous type, so the type of a topic should be set before the simulation
+     * components are created.
+     * 
+     * @param topicName
+     *        the name of the topic
+     * @param type
+     *        the type of MTS of the topic, or null for the default type
+     */
+    public static void setTopicType(String topicName, MTSType type)
+    {
+        if(type == null)
+            topicTypes.remove(topicName);
+        else
+            topicTypes.put(topicName, type);
+    }
+
+    /**
+     * Resets all the topics to their default type of MTS.
+     */
+    public static void resetTopicTypes()
+    {
+        topicTypes.clear();
+    }
+
+    /**
+     * Waits until all the messages of the topics of type <code>MTSType.IN_VM</code> were handled by their subscribers.
+     * The messages of the other types of MTS are not waited for.
+     *
+     * @param timeout
+     *        the maximum time to wait, in milliseconds
+     * @return true if no in-VM message is left to deliver. Otherwise, false.
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    public static boolean awaitInVMIdle(long timeout) throws InterruptedException
+    {
+        return inVMTransport.awaitIdle(timeout);
+    }
+
+    /**
+     * Gets the type of MTS used to send the messages of the given topic. By default, the topics exchanged with the
+     * simulation clients are of type <code>MTSType.TCP</code> and the other topics are of type <code>MTSType.SHARED</code>.
+     * Subtopics have the type of their parent topic, unless their type was set explicitly.
+     * 
+     * @param topicName
+     *        the name of the topic
+     * @return the type of MTS of the topic
+     */
+    public static MTSType getTopicType(String topicName)
+    {
+        MTSType type = topicTypes.get(topicName);
+        if(type != null)
+            return type;
+
+        int separator = topicName.lastIndexOf(DivasTopic.subtopicSeparator);
+        if(separator > 0)
+            return getTopicType(topicName.substring(0, separator));
+
+        return topicIsLocal(topicName) ? MTSType.SHARED : MTSType.TCP;
     }
 
     /**
@@ -71,6 +145,12 @@ public class CommunicationModule
         for(String topic : subscribers.keySet())
             client.startSubscription(topic, subscribers.get(topic));
 
+        for(String topic : localSubscribers.keySet())
+            localMTS.addSubscriptionTopic(id, topic, localSubscribers.get(topic));
+
+        for(String topic : inVMSubscribers.keySet())
+            inVMTransport.addSubscription(topic, inVMSubscribers.get(topic));
+
         logger.debug("Connected.");
     }
 
@@ -93,7 +173,10 @@ public class CommunicationModule
         for(String topic : subscribers.keySet())
             client.endSubscription(topic, subscribers.get(topic));
 
-        localMTS.terminate();
+        for(String topic : inVMSubscribers.keySet())
+            inVMTransport.removeSubscription(topic, inVMSubscribers.get(topic));
+
+        localMTS.removeSubscriptions(id);
 
         logger.debug("Disconnected.");
     }
@@ -117,6 +200,7 @@ public class CommunicationModule
     /**
      * Adds the given topic name to the list of publication topics. Once called, this this <code>ComunicationModule</code> may be used to send messages using the given topic. If the list of
      * publication topics is empty, the publish session is automatically created prior to adding the given topic.
+     * Adding a topic that is already in the list has no effect.
      * 
      * @param topicName
      *        the name of the topic to add to the publication list
@@ -125,7 +209,7 @@ public class CommunicationModule
      */
     public void addPublicationTopic(String topicName) throws MTSException
     {
-        if(!topicIsLocal(topicName))
+        if(getTopicType(topicName) == MTSType.TCP && !publications.contains(topicName))
         {
             client.addPublisher(topicName, this);
             publications.add(topicName);
@@ -146,12 +230,19 @@ public class CommunicationModule
      */
     public void addSubscriptionTopic(String topicName, Subscriber subscriber) throws MTSException
     {
-        if(subscribers.get(topicName) != null)
+        if(subscribers.get(topicName) != null || localSubscribers.get(topicName) != null || inVMSubscribers.get(topicName) != null)
             throw new MTSException("Already subscribed to topic: " + topicName, null);
 
-        if(topicIsLocal(topicName))
+        MTSType type = getTopicType(topicName);
+        if(type == MTSType.IN_VM)
+        {
+            inVMTransport.addSubscription(topicName, subscriber);
+            inVMSubscribers.put(topicName, subscriber);
+        }
+        else if(type == MTSType.SHARED)
         {
             localMTS.addSubscriptionTopic(id, topicName, subscriber);
+            localSubscribers.put(topicName, subscriber);
         }
         else
         {
@@ -175,7 +266,12 @@ public class CommunicationModule
     {
         logger.debug("Sending message, topic " + topicName);
 
-        if(topicIsLocal(topicName))
+        MTSType type = getTopicType(topicName);
+        if(type == MTSType.IN_VM)
+        {
+            inVMTransport.publishMessage(payload, topicName);
+        }
+        else if(type == MTSType.SHARED)
         {
             localMTS.publishMessage(payload, topicName);
         }
@@ -201,7 +297,12 @@ public class CommunicationModule
     {
         logger.debug("Sending message, topic " + topicName);
 
-        if(topicIsLocal(topicName))
+        MTSType type = getTopicType(topicName);
+        if(type == MTSType.IN_VM)
+        {
+            inVMTransport.publishMessage(payload, topicName);
+        }
+        else if(type == MTSType.SHARED)
         {
             localMTS.publishMessage(payload, topicName);
         }
@@ -226,7 +327,12 @@ public class CommunicationModule
     {
         logger.debug("Sending message, topic " + topicName);
 
-        if(topicIsLocal(topicName))
+        MTSType type = getTopicType(topicName);
+        if(type == MTSType.IN_VM)
+        {
+            inVMTransport.publishMessage(payload, topicName);
+        }
+        else if(type == MTSType.SHARED)
         {
             localMTS.publishMessage(payload, topicName);
         }
@@ -250,7 +356,7 @@ public class CommunicationModule
      */
     public void removePublicationTopic(String topicName) throws MTSException
     {
-        if(!topicIsLocal(topicName))
+        if(getTopicType(topicName) == MTSType.TCP)
         {
             client.removePublisher(topicName, this);
             publications.remove(topicName);
@@ -273,11 +379,22 @@ public class CommunicationModule
     {
         Subscriber subscriber = subscribers.get(topicName);
 
-        if(subscriber != null && !topicIsLocal(topicName))
+        if(subscriber != null)
         {
             client.endSubscription(topicName, subscriber);
             subscribers.remove(topicName);
         }
+
+        if(localSubscribers.remove(topicName) != null)
+        {
+            localMTS.removeSubscriptionTopic(id, topicName);
+        }
+
+        subscriber = inVMSubscribers.remove(topicName);
+        if(subscriber != null)
+        {
+            inVMTransport.removeSubscription(topicName, subscriber);
+        }
     }
 
     /**
@@ -316,7 +433,7 @@ public class CommunicationModule
         return subscribers;
     }
 
-    private boolean topicIsLocal(String topicName)
+    private static boolean topicIsLocal(String topicName)
     {
         if(topicName.equals(DivasTopic.hostConfigTopic) || topicName.equals(DivasTopic.envTopic) || topicName.equals(DivasTopic.destroyEntityTopic) || topicName.equals(DivasTopic.externalStimulusTopic)
                 || topicName.equals(DivasTopic.runtimeAgentCommandTopic) || topicName.equals(DivasTopic.simulationControlTopic) || topicName.equals(DivasTopic.simSummaryTopic) || topicName.equals(DivasTopic.reorganizationTopic)
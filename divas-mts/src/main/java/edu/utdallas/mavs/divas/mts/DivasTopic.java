@@ -85,5 +85,43 @@ public class DivasTopic
      * A message topic for sending assistance requests to coordinators.
      */
     public static String assistanceRequestTopic           = "AssistanceRequestTopic";
+    /**
+     * The separator of the levels of a topic name. A topic named after another topic followed by this separator and a
+     * name is a subtopic of that topic, and has the same type of MTS unless its type was set explicitly.
+     */
+    public static String subtopicSeparator         = ".";
+    /**
+     * The suffix of the topic whose subscribers receive the messages of all the subtopics of a topic, at any depth. For
+     * instance, the subscribers of <code>EnvironmentTopic.&gt;</code> receive the messages published on
+     * <code>EnvironmentTopic.root</code> and <code>EnvironmentTopic.root.0.1</code>, but not the messages published on
+     * <code>EnvironmentTopic</code> itself.
+     */
+    public static String subtopicWildcard          = subtopicSeparator + ">";
+
+    /**
+     * Gets the name of a subtopic of the given topic.
+     * 
+     * @param topicName
+     *        the name of the parent topic
+     * @param name
+     *        the name of the subtopic within its parent topic
+     * @return the full name of the subtopic
+     */
+    public static String getSubtopic(String topicName, String name)
+    {
+        return topicName + subtopicSeparator + name;
+    }
+
+    /**
+     * Gets the name of the topic whose subscribers receive the messages of all the subtopics of the given topic.
+     * 
+     * @param topicName
+     *        the name of the parent topic
+     * @return the name of the wildcard topic
+     */
+    public static String getAllSubtopics(String topicName)
+    {
+        return topicName + subtopicWildcard;
+    }
 }
 
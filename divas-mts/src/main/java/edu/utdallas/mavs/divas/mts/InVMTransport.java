@@ -0,0 +1,287 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.utils.Multithreader;
+
+/**
+ * <code>InVMTransport</code> object is used by the <code>CommunicationModule</code> to deliver messages of the topics
+ * of type <code>MTSType.IN_VM</code> between components of the same java process, without going through the message
+ * broker.
+ * <p>
+ * Each topic keeps an array of subscriptions, which is replaced as a whole when a subscriber is added or removed, so
+ * publishing a message takes no lock and does not visit the subscribers of other topics. Payloads are not serialized:
+ * subscribers receive a copy of the <code>MTSPayload</code> that refers to the same data object, so the data must not
+ * be modified once it is published. Each subscription delivers its messages in the order they were published.
+ */
+public class InVMTransport
+{
+    private final static Logger                         logger        = LoggerFactory.getLogger(InVMTransport.class);
+
+    private final ConcurrentMap<String, Subscription[]> topics        = new ConcurrentHashMap<String, Subscription[]>();
+
+    private final Multithreader                         multithreader = new Multithreader("InVMTransport", true);
+
+    /**
+     * The number of messages queued or being handled by the subscribers, and the lock notified when it drops to zero
+     */
+    private final AtomicInteger                         pending       = new AtomicInteger();
+
+    private final Object                                idleLock      = new Object();
+
+    /**
+     * Sends <code>payload</code> to the subscribers of the given topic, and to the subscribers of all the subtopics of
+     * its parent topics.
+     *
+     * @param payload
+     *        the message payload to be sent to subscribers of the topic
+     * @param topicName
+     *        the name of the topic on which the message will be sent
+     */
+    public void publishMessage(MTSPayload payload, String topicName)
+    {
+        // publishers may reuse their payload object for the next message
+        Publication snapshot = null;
+
+        Subscription[] subscriptions = topics.get(topicName);
+        if(subscriptions != null)
+        {
+            logger.debug("Publishing message {}", topicName);
+            snapshot = new Publication(topicName, new MTSPayload(payload.getKey(), payload.getData()));
+            for(Subscription subscription : subscriptions)
+                subscription.deliver(snapshot);
+        }
+
+        for(int i = topicName.indexOf(DivasTopic.subtopicSeparator); i > 0; i = topicName.indexOf(DivasTopic.subtopicSeparator, i + 1))
+        {
+            subscriptions = topics.get(DivasTopic.getAllSubtopics(topicName.substring(0, i)));
+            if(subscriptions != null)
+            {
+                logger.debug("Publishing message {}", topicName);
+                if(snapshot == null)
+                    snapshot = new Publication(topicName, new MTSPayload(payload.getKey(), payload.getData()));
+                for(Subscription subscription : subscriptions)
+                    subscription.deliver(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Adds a subscription to the given topic. Messages published on this topic afterwards will be sent to the
+     * <code>subscriber</code> object.
+     *
+     * @param topicName
+     *        the name of the topic to add a subscription to
+     * @param subscriber
+     *        the object that should be notified when a message is received for this topic
+     */
+    public void addSubscription(String topicName, Subscriber subscriber)
+    {
+        Subscription subscription = new Subscription(topicName, subscriber);
+
+        while(true)
+        {
+            Subscription[] current = topics.get(topicName);
+            if(current == null)
+            {
+                if(topics.putIfAbsent(topicName, new Subscription[] { subscription }) == null)
+                    return;
+            }
+            else
+            {
+                Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscription;
+                if(topics.replace(topicName, current, updated))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Removes the subscription of the given subscriber to the given topic. Messages not yet delivered to the subscriber
+     * are discarded.
+     *
+     * @param topicName
+     *        the name of the topic whose messages will no longer be delivered
+     * @param subscriber
+     *        the subscriber of the topic
+     */
+    public void removeSubscription(String topicName, Subscriber subscriber)
+    {
+        while(true)
+        {
+            Subscription[] current = topics.get(topicName);
+            if(current == null)
+                return;
+
+            int index = -1;
+            for(int i = 0; i < current.length; i++)
+            {
+                if(current[i].subscriber == subscriber)
+                {
+                    index = i;
+                    break;
+                }
+            }
+            if(index < 0)
+                return;
+
+            boolean removed;
+            if(current.length == 1)
+            {
+                removed = topics.remove(topicName, current);
+            }
+            else
+            {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+                removed = topics.replace(topicName, current, updated);
+            }
+
+            if(removed)
+            {
+                current[index].close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until all the messages published so far were handled by their subscribers, including the messages their
+     * subscribers published in turn.
+     *
+     * @param timeout
+     *        the maximum time to wait, in milliseconds
+     * @return true if no message is left to deliver. Otherwise, false.
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    public boolean awaitIdle(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized(idleLock)
+        {
+            while(pending.get() > 0)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0)
+                    return false;
+                idleLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    private void delivered()
+    {
+        if(pending.decrementAndGet() == 0)
+        {
+            synchronized(idleLock)
+            {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A published message, along with the name of the topic it was published on, which differs from the name of the
+     * subscription topic when it is received through a wildcard subscription
+     */
+    private static class Publication
+    {
+        private final String     topicName;
+        private final MTSPayload payload;
+
+        public Publication(String topicName, MTSPayload payload)
+        {
+            this.topicName = topicName;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * A subscription of a subscriber to a topic, which delivers its messages one at a time on the transport thread
+     * pool.
+     */
+    private class Subscription implements Runnable
+    {
+        private final String             topicName;
+        private final Subscriber         subscriber;
+        private final Queue<Publication> mailbox   = new ConcurrentLinkedQueue<Publication>();
+        private final AtomicBoolean      scheduled = new AtomicBoolean();
+        private volatile boolean         closed;
+
+        public Subscription(String topicName, Subscriber subscriber)
+        {
+            this.topicName = topicName;
+            this.subscriber = subscriber;
+        }
+
+        public void deliver(Publication publication)
+        {
+            pending.incrementAndGet();
+            mailbox.offer(publication);
+
+            // the subscription may have been closed by the time the message was queued
+            if(closed)
+                discard();
+            else
+                schedule();
+        }
+
+        public void close()
+        {
+            closed = true;
+            discard();
+        }
+
+        private void discard()
+        {
+            while(mailbox.poll() != null)
+                delivered();
+        }
+
+        private void schedule()
+        {
+            if(scheduled.compareAndSet(false, true))
+                multithreader.execute(this);
+        }
+
+        @Override
+        public void run()
+        {
+            Publication publication;
+            while(!closed && (publication = mailbox.poll()) != null)
+            {
+                try
+                {
+                    subscriber.messageReceived(publication.topicName, publication.payload);
+                }
+                catch(RuntimeException e)
+                {
+                    logger.error("Subscriber of topic {} failed to handle a message.", topicName, e);
+                }
+                finally
+                {
+                    delivered();
+                }
+            }
+
+            scheduled.set(false);
+
+            // a message may have been queued after the mailbox was found empty
+            if(!closed && !mailbox.isEmpty())
+                schedule();
+        }
+    }
+}
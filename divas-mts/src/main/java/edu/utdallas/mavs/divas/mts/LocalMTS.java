@@ -1,7 +1,11 @@
 package edu.utdallas.mavs.divas.mts;
 
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,31 +18,51 @@ import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
  * memory reference instead of using the TCP protocol.
  * <p>
  * This technique is faster for publishing the messages than using the activeMQ, but it can only be used when we send messages within the same java process.
+ * <p>
+ * Subscriptions are indexed by topic, so publishing a message only visits the subscribers of its topic. Each topic has a queue of published messages, which is delivered in order to the subscribers
+ * of the topic by one thread of the pool at a time. Hence, every subscriber receives the messages of a topic in the order they were published.
  */
-public class LocalMTS extends Observable
+public class LocalMTS
 {
-    private final static Logger  logger        = LoggerFactory.getLogger(LocalMTS.class);
-    private static Multithreader multithreader = new Multithreader("LocalMTS", ThreadPoolType.FIXED);
+    private final static Logger                logger        = LoggerFactory.getLogger(LocalMTS.class);
+    private static Multithreader               multithreader = new Multithreader("LocalMTS", ThreadPoolType.FIXED, true);
+
+    private final ConcurrentMap<String, Topic> topics        = new ConcurrentHashMap<String, Topic>();
 
     /**
-     * Sends <code>payload</code> to the subscribers of the given topic.
-     * 
+     * Sends <code>payload</code> to the subscribers of the given topic, and to the subscribers of all the subtopics of
+     * its parent topics.
+     *
      * @param payload
      *        the message payload to be sent to subscribers of the topic
      * @param topicName
      *        the name of the topic on which the message will be sent
      */
-    public synchronized void publishMessage(MTSPayload payload, String topicName)
+    public void publishMessage(MTSPayload payload, String topicName)
     {
-        logger.debug("Publishing message {}", topicName);
-        setChanged();
-        notifyObservers(new Message(topicName, payload));
+        Topic topic = topics.get(topicName);
+        if(topic != null)
+        {
+            logger.debug("Publishing message {}", topicName);
+            topic.publish(payload, topicName);
+        }
+
+        for(int i = topicName.indexOf(DivasTopic.subtopicSeparator); i > 0; i = topicName.indexOf(DivasTopic.subtopicSeparator, i + 1))
+        {
+            topic = topics.get(DivasTopic.getAllSubtopics(topicName.substring(0, i)));
+            if(topic != null)
+            {
+                logger.debug("Publishing message {}", topicName);
+                topic.publish(payload, topicName);
+            }
+        }
     }
 
     /**
      * Adds a subscription to the given topic. Messages received on this topic will be sent to the <code>subscriber</code> object.
-     * 
+     *
      * @param id
+     *        the id of the subscribing communication module
      * @param topicName
      *        The name of the topic to add a subscription to
      * @param subscriber
@@ -47,120 +71,163 @@ public class LocalMTS extends Observable
      */
     public void addSubscriptionTopic(int id, String topicName, Subscriber subscriber)
     {
-        Topic topic = new Topic(id, topicName);
-        logger.debug("Adding observer: " + topic);
-        addObserver(new LocalObserver(subscriber, topicName));
+        Topic topic = topics.get(topicName);
+        if(topic == null)
+        {
+            Topic created = new Topic(topicName);
+            topic = topics.putIfAbsent(topicName, created);
+            if(topic == null)
+                topic = created;
+        }
+
+        logger.debug("Adding subscription of {} to {}", id, topicName);
+        topic.addSubscription(new Subscription(id, subscriber));
     }
 
     /**
-     * Terminates the <code>LocalMTS</code> services, by deleting the observers list and terminating the multithreader.
+     * Removes the subscriptions of the given communication module to the given topic. Messages published on this topic
+     * afterwards are no longer sent to its subscriber.
+     *
+     * @param id
+     *        the id of the subscribing communication module
+     * @param topicName
+     *        the name of the topic whose messages will no longer be delivered
+     */
+    public void removeSubscriptionTopic(int id, String topicName)
+    {
+        Topic topic = topics.get(topicName);
+        if(topic != null)
+        {
+            logger.debug("Removing subscription of {} to {}", id, topicName);
+            topic.removeSubscriptions(id);
+        }
+    }
+
+    /**
+     * Removes all the subscriptions of the given communication module.
+     *
+     * @param id
+     *        the id of the subscribing communication module
+     */
+    public void removeSubscriptions(int id)
+    {
+        for(Topic topic : topics.values())
+            topic.removeSubscriptions(id);
+    }
+
+    /**
+     * Terminates the <code>LocalMTS</code> services, by deleting all the subscriptions and terminating the multithreader.
+     * The multithreader is shared by all the <code>LocalMTS</code> instances, so this must only be called when the java
+     * process is shutting down.
      */
     public void terminate()
     {
-        deleteObservers();
+        topics.clear();
         multithreader.terminate();
     }
 
-    class Topic
+    class Subscription
     {
+        final int        id;
+        final Subscriber subscriber;
 
-        int    id;
-        String topicName;
-
-        public Topic(int id, String topicName)
+        public Subscription(int id, Subscriber subscriber)
         {
             this.id = id;
-            this.topicName = topicName;
-        }
-
-        @Override
-        public boolean equals(Object o)
-        {
-            Topic t = (Topic) o;
-            return t.id == id && t.topicName.equals(topicName);
+            this.subscriber = subscriber;
         }
+    }
 
-        @Override
-        public int hashCode()
-        {
-            int hash = 1;
-            hash = hash * 17 + id;
-            hash = hash * 31 + topicName.hashCode();
-            return hash;
-        }
+    /**
+     * A message queued on a topic, along with the name of the topic it was published on, which differs from the name
+     * of the queue topic when it was received through a wildcard subscription
+     */
+    class Publication
+    {
+        final String     topicName;
+        final MTSPayload payload;
 
-        @Override
-        public String toString()
+        public Publication(String topicName, MTSPayload payload)
         {
-            return "Id: " + id + " topic name: " + topicName;
+            this.topicName = topicName;
+            this.payload = payload;
         }
-
     }
 
-    class Message
+    class Topic implements Runnable
     {
-        public String     topicName;
-        public MTSPayload payload;
+        private final String             topicName;
+        private volatile Subscription[]  subscriptions = new Subscription[0];
+        private final Queue<Publication> queue         = new ConcurrentLinkedQueue<Publication>();
+        private final AtomicBoolean      scheduled     = new AtomicBoolean();
 
-        public Message(String topicName, MTSPayload payload)
+        public Topic(String topicName)
         {
             this.topicName = topicName;
-            this.payload = payload;
         }
 
-        public String getTopicName()
+        public void publish(MTSPayload payload, String publishedTopicName)
         {
-            return this.topicName;
-        }
+            if(subscriptions.length == 0)
+                return;
 
-        public MTSPayload getPayload()
-        {
-            return payload;
+            // publishers may reuse their payload object for the next message
+            queue.offer(new Publication(publishedTopicName, new MTSPayload(payload.getKey(), payload.getData())));
+            schedule();
         }
-    }
 
-    class LocalObserver implements Observer
-    {
-
-        Subscriber subscriber;
-        String     topicName;
-
-        public LocalObserver(Subscriber subscriber, String topicName)
+        public synchronized void addSubscription(Subscription subscription)
         {
-            super();
-            this.subscriber = subscriber;
-            this.topicName = topicName;
+            Subscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            updated[subscriptions.length] = subscription;
+            subscriptions = updated;
         }
 
-        @Override
-        public void update(Observable o, Object arg)
+        public synchronized void removeSubscriptions(int id)
         {
-            Message m = (Message) arg;
-
-            if(m.getTopicName().equals(this.topicName))
+            int count = 0;
+            Subscription[] updated = new Subscription[subscriptions.length];
+            for(Subscription subscription : subscriptions)
             {
-                multithreader.execute(getExecutableTask(m));
+                if(subscription.id != id)
+                    updated[count++] = subscription;
             }
+
+            if(count < subscriptions.length)
+                subscriptions = Arrays.copyOf(updated, count);
         }
 
-        private Runnable getExecutableTask(final Message message)
+        private void schedule()
         {
-            Runnable task = new Runnable()
+            if(scheduled.compareAndSet(false, true))
+                multithreader.execute(this);
+        }
+
+        @Override
+        public void run()
+        {
+            Publication publication;
+            while((publication = queue.poll()) != null)
             {
-                @Override
-                public void run()
+                for(Subscription subscription : subscriptions)
                 {
-                    if(subscriber == null)
+                    try
                     {
-                        deleteObserver(LocalObserver.this);
-                        return;
+                        logger.debug("Relaying message {}.", publication.topicName);
+                        subscription.subscriber.messageReceived(publication.topicName, publication.payload);
+                    }
+                    catch(RuntimeException e)
+                    {
+                        logger.error("Subscriber of topic {} failed to handle a message.", topicName, e);
                     }
-                    logger.debug("Relaying message {}.", message.topicName);
-                    subscriber.messageReceived(message.getTopicName(), message.getPayload());
                 }
-            };
+            }
+
+            scheduled.set(false);
 
-            return task;
+            // a message may have been queued after the queue was found empty
+            if(!queue.isEmpty())
+                schedule();
         }
     }
 }
@@ -1,5 +1,6 @@
 package edu.utdallas.mavs.divas.mts;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -8,10 +9,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.jms.BytesMessage;
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
 import javax.jms.Message;
-import javax.jms.ObjectMessage;
 import javax.jms.Session;
 import javax.jms.Topic;
 import javax.jms.TopicConnection;
@@ -23,12 +24,9 @@ import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
-import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.utdallas.mavs.divas.utils.ByteSerializer;
-
 /**
  * <code>MTSClient</code> objects represent a client connection to a JMS broker server. Once connected, a <code>MTSClient</code> can publish and subscribe messages to and from other clients of the
  * same JMS broker.
@@ -470,14 +468,14 @@ public class MTSClient
         try
         {
             // prepare the message
-            ObjectMessage objMessage = publishSession.createObjectMessage(payload);
+            Message message = createMessage(payload);
 
             // get the topic publisher which will publish this message
             TopicPublisher topicPublisher = pubManagerMap.get(topicName).getTopicPublisher();
 
             if(topicPublisher != null)
             {
-                topicPublisher.publish(objMessage, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY, 0);
+                topicPublisher.publish(message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY, 0);
             }
             else
             {
@@ -514,9 +512,8 @@ public class MTSClient
         try
         {
             // prepare the message
-            ActiveMQBytesMessage bytesMessage = new ActiveMQBytesMessage();
-            byte[] bytes = ByteSerializer.serialize(payload);
-            bytesMessage.writeBytes(bytes);
+            BytesMessage bytesMessage = publishSession.createBytesMessage();
+            bytesMessage.writeBytes(MTSCodecs.encode(payload));
 
             // get the topic publisher which will publish this message
             TopicPublisher topicPublisher = pubManagerMap.get(topicName).getTopicPublisher();
@@ -558,14 +555,14 @@ public class MTSClient
         try
         {
             // prepare the message
-            ObjectMessage objMessage = publishSession.createObjectMessage(payload);
+            Message message = createMessage(payload);
 
             // get the topic publisher which will publish this message
             TopicPublisher topicPublisher = pubManagerMap.get(topicName).getTopicPublisher();
 
             if(topicPublisher != null)
             {
-                topicPublisher.publish(objMessage, DeliveryMode.NON_PERSISTENT, priority, 0);
+                topicPublisher.publish(message, DeliveryMode.NON_PERSISTENT, priority, 0);
             }
             else
             {
@@ -578,6 +575,30 @@ public class MTSClient
         }
     }
 
+    /**
+     * Creates the JMS message carrying the given payload. Payloads with a registered <code>MTSCodec</code> are sent
+     * in binary form as a <code>BytesMessage</code>, and any other payload is sent as an <code>ObjectMessage</code>.
+     * 
+     * @param payload
+     *        the message payload
+     * @return the JMS message
+     * @throws JMSException
+     *         if the message could not be created
+     * @throws IOException
+     *         if the payload could not be encoded
+     */
+    protected Message createMessage(MTSPayload payload) throws JMSException, IOException
+    {
+        if(MTSCodecs.hasCodec(payload))
+        {
+            BytesMessage bytesMessage = publishSession.createBytesMessage();
+            bytesMessage.writeBytes(MTSCodecs.encode(payload));
+            return bytesMessage;
+        }
+
+        return publishSession.createObjectMessage(payload);
+    }
+
     /**
      * Removes the publisher for the given topic. Once removed, messages can no longer be sent for the given topic. If
      * the removal of the topic leaves the list of publication topics empty, the publish
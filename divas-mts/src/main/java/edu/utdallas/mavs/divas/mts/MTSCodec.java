@@ -0,0 +1,51 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A <code>MTSCodec</code> writes and reads the data of <code>MTSPayload</code> objects of one type in a compact binary form, avoiding Java serialization for frequently exchanged messages.
+ * <p>
+ * Codecs are registered in <code>MTSCodecs</code>, either explicitly or by listing them as <code>edu.utdallas.mavs.divas.mts.MTSCodec</code> services. A codec is only used for data whose class is
+ * exactly the codec's type. Codecs must be stateless, since they are shared by all publishing and receiving threads.
+ *
+ * @param <T>
+ *        the type of the payload data
+ */
+public interface MTSCodec<T extends Serializable>
+{
+    /**
+     * @return the identifier written in front of encoded payloads. It must be unique and equal in all communicating processes.
+     */
+    public int getId();
+
+    /**
+     * @return the class of the payload data handled by this codec.
+     */
+    public Class<T> getType();
+
+    /**
+     * Writes the given payload data.
+     *
+     * @param data
+     *        the payload data
+     * @param out
+     *        the output stream
+     * @throws IOException
+     *         if the data could not be written
+     */
+    public void write(T data, DataOutput out) throws IOException;
+
+    /**
+     * Reads payload data written by <code>write</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the payload data
+     * @throws IOException
+     *         if the data could not be read
+     */
+    public T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,144 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utdallas.mavs.divas.utils.ByteSerializer;
+
+/**
+ * This class keeps the registered <code>MTSCodec</code>s and encodes <code>MTSPayload</code> objects to bytes and back.
+ * <p>
+ * A payload whose data has a registered codec is written as a format marker, the codec id, the payload key and the data written by the codec. Any other payload is written with Java serialization,
+ * whose streams never start with the format marker, so both forms can be told apart when decoding.
+ * <p>
+ * Codecs listed as <code>edu.utdallas.mavs.divas.mts.MTSCodec</code> services are registered when this class is loaded.
+ */
+public class MTSCodecs
+{
+    private final static Logger                       logger       = LoggerFactory.getLogger(MTSCodecs.class);
+
+    /**
+     * First byte of payloads written by a codec. Java serialization streams start with 0xAC.
+     */
+    private static final byte                         CODEC_FORMAT = 0x01;
+
+    private static final Map<Class<?>, MTSCodec<?>>   codecsByType = new ConcurrentHashMap<Class<?>, MTSCodec<?>>();
+
+    private static final Map<Integer, MTSCodec<?>>    codecsById   = new ConcurrentHashMap<Integer, MTSCodec<?>>();
+
+    static
+    {
+        try
+        {
+            for(MTSCodec<?> codec : ServiceLoader.load(MTSCodec.class))
+                register(codec);
+        }
+        catch(ServiceConfigurationError e)
+        {
+            logger.error("Could not load the MTS codecs, payloads will be sent with Java serialization", e);
+        }
+    }
+
+    /**
+     * Registers the given codec.
+     *
+     * @param codec
+     *        the codec to be registered
+     * @throws IllegalArgumentException
+     *         if another codec was registered with the same id
+     */
+    public static synchronized void register(MTSCodec<?> codec)
+    {
+        MTSCodec<?> registered = codecsById.get(codec.getId());
+        if(registered != null && registered.getClass() != codec.getClass())
+            throw new IllegalArgumentException("Codec id " + codec.getId() + " is already used by " + registered.getClass().getName());
+
+        codecsById.put(codec.getId(), codec);
+        codecsByType.put(codec.getType(), codec);
+        logger.debug("Registered codec {} for {}", codec.getId(), codec.getType().getName());
+    }
+
+    /**
+     * Checks if the given payload can be written by a codec.
+     *
+     * @param payload
+     *        the payload
+     * @return true if there is a codec for the payload data. Otherwise, false.
+     */
+    public static boolean hasCodec(MTSPayload payload)
+    {
+        return payload.getData() != null && codecsByType.containsKey(payload.getData().getClass());
+    }
+
+    /**
+     * Encodes the given payload, using the codec of its data if there is one, or Java serialization otherwise.
+     *
+     * @param payload
+     *        the payload to be encoded
+     * @return the encoded payload
+     * @throws IOException
+     *         if the payload could not be encoded
+     */
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(MTSPayload payload) throws IOException
+    {
+        MTSCodec<Serializable> codec = null;
+        if(payload.getData() != null)
+            codec = (MTSCodec<Serializable>) codecsByType.get(payload.getData().getClass());
+
+        if(codec == null)
+            return ByteSerializer.serialize(payload);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeByte(CODEC_FORMAT);
+        out.writeInt(codec.getId());
+        out.writeInt(payload.getKey());
+        codec.write(payload.getData(), out);
+        out.close();
+
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decodes a payload encoded by <code>encode</code>.
+     *
+     * @param bytes
+     *        the encoded payload
+     * @return the decoded payload
+     * @throws IOException
+     *         if the payload could not be decoded, or if it was written by an unknown codec
+     * @throws ClassNotFoundException
+     *         if the class of a Java serialized payload could not be found
+     */
+    public static MTSPayload decode(byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        if(bytes.length == 0 || bytes[0] != CODEC_FORMAT)
+        {
+            Object obj = ByteSerializer.deserialize(bytes);
+            if(!(obj instanceof MTSPayload))
+                throw new IOException("Message of wrong type: " + obj.getClass().getName());
+            return (MTSPayload) obj;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+        int id = in.readInt();
+        MTSCodec<?> codec = codecsById.get(id);
+        if(codec == null)
+            throw new IOException("No codec registered with id " + id);
+
+        int key = in.readInt();
+        return new MTSPayload(key, codec.read(in));
+    }
+}
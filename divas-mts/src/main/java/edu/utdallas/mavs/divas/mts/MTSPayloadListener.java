@@ -2,18 +2,17 @@ package edu.utdallas.mavs.divas.mts;
 
 import java.io.IOException;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
 import javax.jms.Topic;
 
-import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.utdallas.mavs.divas.mts.MTSClient.SubscriptionManager;
-import edu.utdallas.mavs.divas.utils.ByteSerializer;
 
 /**
  * The message listener for JMS messages which interprets JMS messages and
@@ -46,7 +45,7 @@ public class MTSPayloadListener implements MessageListener
      * JMS broker when a message is received on a subscribed topic. When
      * invoked, this method forwards the message as a <code>MTSPayload</code> to the <code>subscriber</code>'s <code>messageReceived(MTSPayload)</code> method.
      * <p>
-     * If the message is not of the <code>javax.jms.ObjectMessage</code> type, an error message is printed.
+     * Object messages carry the payload itself, while bytes messages carry a payload encoded by <code>MTSCodecs</code>. If the message is of any other type, an error message is printed.
      * 
      * @see javax.jms.MessageListener#onMessage(javax.jms.Message)
      */
@@ -60,14 +59,14 @@ public class MTSPayloadListener implements MessageListener
                 Object obj = ((ObjectMessage) message).getObject();
                 sendToConsumers(message, obj);
             }
-            else if(message instanceof ActiveMQBytesMessage)
+            else if(message instanceof BytesMessage)
             {
-                ActiveMQBytesMessage msg = (ActiveMQBytesMessage) message;
+                BytesMessage msg = (BytesMessage) message;
                 byte[] bytes = new byte[(int) msg.getBodyLength()];
                 msg.readBytes(bytes);
                 try
                 {
-                    Object obj = ByteSerializer.deserialize(bytes);
+                    Object obj = MTSCodecs.decode(bytes);
                     sendToConsumers(message, obj);
                 }
                 catch(ClassNotFoundException | IOException e)
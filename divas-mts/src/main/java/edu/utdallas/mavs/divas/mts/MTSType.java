@@ -14,5 +14,10 @@ public enum MTSType
 	 * TCP MTS type uses TCP protocol to send message. This method is slower than Shared MTS, and its used
 	 * when we send messages between two different java processes.
 	 */
-	TCP
+	TCP,
+	/**
+	 * In-VM MTS type delivers messages to the subscribers of the same java process by reference, without serializing
+	 * them or going through the message broker. Subscribers in other java processes do not receive these messages.
+	 */
+	IN_VM
 }
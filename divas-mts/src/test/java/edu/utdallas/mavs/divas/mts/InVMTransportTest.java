@@ -0,0 +1,142 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for InVMTransport
+ */
+public class InVMTransportTest
+{
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Tests that every subscription receives the messages in the order they were published, although the publisher
+     * reuses its payload object
+     */
+    @Test
+    public void testOrdering() throws InterruptedException
+    {
+        InVMTransport transport = new InVMTransport();
+        RecordingSubscriber first = new RecordingSubscriber(1000);
+        RecordingSubscriber second = new RecordingSubscriber(1000);
+        transport.addSubscription("Topic", first);
+        transport.addSubscription("Topic", second);
+
+        MTSPayload payload = new MTSPayload();
+        for(int i = 0; i < 1000; i++)
+        {
+            payload.setKey(i);
+            transport.publishMessage(payload, "Topic");
+        }
+
+        Assert.assertTrue(first.await());
+        Assert.assertTrue(second.await());
+        for(int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals(i, first.keys.get(i).intValue());
+            Assert.assertEquals(i, second.keys.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that a subscriber failing to handle a message still receives the following messages
+     */
+    @Test
+    public void testFailingSubscriber() throws InterruptedException
+    {
+        InVMTransport transport = new InVMTransport();
+        RecordingSubscriber recorder = new RecordingSubscriber(2)
+        {
+            @Override
+            public synchronized void messageReceived(String topic, MTSPayload payload)
+            {
+                super.messageReceived(topic, payload);
+                if(payload.getKey() == 0)
+                    throw new IllegalStateException();
+            }
+        };
+        transport.addSubscription("Topic", recorder);
+
+        transport.publishMessage(new MTSPayload(0, null), "Topic");
+        transport.publishMessage(new MTSPayload(1, null), "Topic");
+
+        Assert.assertTrue(recorder.await());
+        Assert.assertEquals(1, recorder.keys.get(1).intValue());
+    }
+
+    /**
+     * Tests that the messages published after a subscription was removed are not delivered to its subscriber
+     */
+    @Test
+    public void testRemoveSubscription() throws InterruptedException
+    {
+        InVMTransport transport = new InVMTransport();
+        RecordingSubscriber removed = new RecordingSubscriber(1);
+        RecordingSubscriber kept = new RecordingSubscriber(2);
+        transport.addSubscription("Topic", removed);
+        transport.addSubscription("Topic", kept);
+
+        transport.publishMessage(new MTSPayload(0, null), "Topic");
+        Assert.assertTrue(removed.await());
+
+        transport.removeSubscription("Topic", removed);
+        transport.publishMessage(new MTSPayload(1, null), "Topic");
+
+        Assert.assertTrue(kept.await());
+        Assert.assertEquals(1, removed.keys.size());
+    }
+
+    /**
+     * Tests that waiting for the transport to be idle also waits for the messages published by the subscribers while
+     * handling a message
+     */
+    @Test
+    public void testAwaitIdle() throws InterruptedException
+    {
+        final InVMTransport transport = new InVMTransport();
+        RecordingSubscriber recorder = new RecordingSubscriber(100)
+        {
+            @Override
+            public synchronized void messageReceived(String topic, MTSPayload payload)
+            {
+                super.messageReceived(topic, payload);
+                if(payload.getKey() < 99)
+                    transport.publishMessage(new MTSPayload(payload.getKey() + 1, null), "Reply");
+            }
+        };
+        transport.addSubscription("Topic", recorder);
+        transport.addSubscription("Reply", recorder);
+
+        transport.publishMessage(new MTSPayload(0, null), "Topic");
+
+        Assert.assertTrue(transport.awaitIdle(TIMEOUT));
+        Assert.assertEquals(100, recorder.keys.size());
+        Assert.assertEquals(99, recorder.keys.get(99).intValue());
+        Assert.assertTrue(transport.awaitIdle(TIMEOUT));
+    }
+
+    /**
+     * Tests that the subscribers of all the subtopics of a topic receive the messages of its subtopics at any depth,
+     * with the name of the topic they were published on, but not the messages of the topic itself or of other topics
+     */
+    @Test
+    public void testWildcardDelivery() throws InterruptedException
+    {
+        InVMTransport transport = new InVMTransport();
+        RecordingSubscriber recorder = new RecordingSubscriber(3);
+        transport.addSubscription(DivasTopic.getAllSubtopics("Environment"), recorder);
+
+        transport.publishMessage(new MTSPayload(0, null), "Environment.root");
+        transport.publishMessage(new MTSPayload(1, null), "Environment.root.0.1");
+        transport.publishMessage(new MTSPayload(2, null), "Environment");
+        transport.publishMessage(new MTSPayload(3, null), "Other.root");
+        transport.publishMessage(new MTSPayload(4, null), "Environment.root");
+
+        Assert.assertTrue(recorder.await());
+        Assert.assertEquals(Arrays.asList(0, 1, 4), recorder.keys);
+        Assert.assertEquals(Arrays.asList("Environment.root", "Environment.root.0.1", "Environment.root"), recorder.topics);
+    }
+}
@@ -0,0 +1,110 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the <code>LocalMTS</code> delivery throughput, on the workload of the environment topics: messages
+ * spread over many topics, each with a few subscribers.
+ * <p>
+ * This is not a unit test and is not run by the build. Run its <code>main</code> method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LocalMTSBenchmark
+{
+    private static final int        MESSAGES = 10000;
+
+    @Param({ "1", "64" })
+    private int                     topics;
+
+    @Param({ "1", "4" })
+    private int                     subscribers;
+
+    private LocalMTS                mts;
+
+    private String[]                topicNames;
+
+    private final MTSPayload        payload  = new MTSPayload();
+
+    private volatile CountDownLatch latch;
+
+    /**
+     * Subscribes the subscribers to the topics
+     */
+    @Setup
+    public void setUp()
+    {
+        mts = new LocalMTS();
+        topicNames = new String[topics];
+
+        Subscriber subscriber = new Subscriber()
+        {
+            @Override
+            public void messageReceived(String topic, MTSPayload payload)
+            {
+                latch.countDown();
+            }
+        };
+
+        int id = 0;
+        for(int i = 0; i < topics; i++)
+        {
+            topicNames[i] = "Benchmark" + i;
+            for(int j = 0; j < subscribers; j++)
+            {
+                mts.addSubscriptionTopic(id++, topicNames[i], subscriber);
+            }
+        }
+    }
+
+    /**
+     * Publishes a batch of messages, reusing the payload object as the heartbeat does, and waits until they were all
+     * delivered. The score is in published messages.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void publishAndDeliver() throws InterruptedException
+    {
+        latch = new CountDownLatch(MESSAGES * subscribers);
+        for(int i = 0; i < MESSAGES; i++)
+        {
+            payload.setKey(i);
+            mts.publishMessage(payload, topicNames[i % topics]);
+        }
+        latch.await();
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *        not used
+     * @throws RunnerException
+     *         if the benchmark could not be run
+     */
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(LocalMTSBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for LocalMTS
+ */
+public class LocalMTSTest
+{
+    /**
+     * Tests that every subscriber receives the messages of a topic in the order they were published
+     */
+    @Test
+    public void testOrdering() throws InterruptedException
+    {
+        LocalMTS mts = new LocalMTS();
+        RecordingSubscriber first = new RecordingSubscriber(1000);
+        RecordingSubscriber second = new RecordingSubscriber(1000);
+        mts.addSubscriptionTopic(1, "Topic", first);
+        mts.addSubscriptionTopic(2, "Topic", second);
+
+        MTSPayload payload = new MTSPayload();
+        for(int i = 0; i < 1000; i++)
+        {
+            // the payload object is reused, as publishers do
+            payload.setKey(i);
+            mts.publishMessage(payload, "Topic");
+        }
+
+        Assert.assertTrue(first.await());
+        Assert.assertTrue(second.await());
+        for(int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals(i, first.keys.get(i).intValue());
+            Assert.assertEquals(i, second.keys.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that the messages published after a subscription was removed are not delivered to its subscriber
+     */
+    @Test
+    public void testRemoveSubscription() throws InterruptedException
+    {
+        LocalMTS mts = new LocalMTS();
+        RecordingSubscriber removed = new RecordingSubscriber(1);
+        RecordingSubscriber kept = new RecordingSubscriber(2);
+        mts.addSubscriptionTopic(1, "Topic", removed);
+        mts.addSubscriptionTopic(2, "Topic", kept);
+
+        mts.publishMessage(new MTSPayload(0, null), "Topic");
+        Assert.assertTrue(removed.await());
+
+        mts.removeSubscriptions(1);
+        mts.publishMessage(new MTSPayload(1, null), "Topic");
+
+        Assert.assertTrue(kept.await());
+        Assert.assertEquals(1, removed.keys.size());
+    }
+
+    /**
+     * Tests that the subscribers of all the subtopics of a topic receive the messages of its subtopics at any depth,
+     * with the name of the topic they were published on, but not the messages of the topic itself or of other topics
+     */
+    @Test
+    public void testWildcardDelivery() throws InterruptedException
+    {
+        LocalMTS mts = new LocalMTS();
+        RecordingSubscriber recorder = new RecordingSubscriber(3);
+        mts.addSubscriptionTopic(1, DivasTopic.getAllSubtopics("Environment"), recorder);
+
+        mts.publishMessage(new MTSPayload(0, null), "Environment.root");
+        mts.publishMessage(new MTSPayload(1, null), "Environment.root.0.1");
+        mts.publishMessage(new MTSPayload(2, null), "Environment");
+        mts.publishMessage(new MTSPayload(3, null), "Other.root");
+        mts.publishMessage(new MTSPayload(4, null), "Environment.root");
+
+        Assert.assertTrue(recorder.await());
+        Assert.assertEquals(Arrays.asList(0, 1, 4), recorder.keys);
+        Assert.assertEquals(Arrays.asList("Environment.root", "Environment.root.0.1", "Environment.root"), recorder.topics);
+    }
+}
@@ -0,0 +1,185 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for MTSCodecs
+ */
+public class MTSCodecsTest
+{
+    private static final int CODEC_ID = 1000;
+
+    static
+    {
+        MTSCodecs.register(new PointCodec());
+    }
+
+    /**
+     * Tests that a payload whose data has a codec is written by the codec and read back
+     */
+    @Test
+    public void testCodecRoundTrip() throws IOException, ClassNotFoundException
+    {
+        MTSPayload payload = new MTSPayload(7, new Point(3, -4));
+        Assert.assertTrue(MTSCodecs.hasCodec(payload));
+
+        byte[] bytes = MTSCodecs.encode(payload);
+        // format marker, codec id, key and two ints
+        Assert.assertEquals(17, bytes.length);
+
+        MTSPayload decoded = MTSCodecs.decode(bytes);
+        Assert.assertEquals(7, decoded.getKey());
+        Assert.assertEquals(new Point(3, -4), decoded.getData());
+    }
+
+    /**
+     * Tests that a payload whose data has no codec falls back to Java serialization
+     */
+    @Test
+    public void testSerializationFallback() throws IOException, ClassNotFoundException
+    {
+        ArrayList<String> data = new ArrayList<String>();
+        data.add("a");
+        data.add("b");
+        MTSPayload payload = new MTSPayload(2, data);
+        Assert.assertFalse(MTSCodecs.hasCodec(payload));
+
+        MTSPayload decoded = MTSCodecs.decode(MTSCodecs.encode(payload));
+        Assert.assertEquals(2, decoded.getKey());
+        Assert.assertEquals(data, decoded.getData());
+
+        decoded = MTSCodecs.decode(MTSCodecs.encode(new MTSPayload(3, null)));
+        Assert.assertEquals(3, decoded.getKey());
+        Assert.assertNull(decoded.getData());
+    }
+
+    /**
+     * Tests that only data of the exact type of a codec is written by the codec
+     */
+    @Test
+    public void testSubclassFallback() throws IOException, ClassNotFoundException
+    {
+        MTSPayload payload = new MTSPayload(1, new NamedPoint(1, 2, "p"));
+        Assert.assertFalse(MTSCodecs.hasCodec(payload));
+
+        MTSPayload decoded = MTSCodecs.decode(MTSCodecs.encode(payload));
+        Assert.assertEquals("p", ((NamedPoint) decoded.getData()).name);
+    }
+
+    /**
+     * Tests that a payload written by an unknown codec is rejected
+     */
+    @Test(expected = IOException.class)
+    public void testUnknownCodec() throws IOException, ClassNotFoundException
+    {
+        byte[] bytes = MTSCodecs.encode(new MTSPayload(0, new Point(0, 0)));
+        bytes[4] = (byte) (bytes[4] + 1);
+        MTSCodecs.decode(bytes);
+    }
+
+    /**
+     * Tests that two codecs cannot share an id
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateId()
+    {
+        MTSCodecs.register(new MTSCodec<NamedPoint>()
+        {
+            @Override
+            public int getId()
+            {
+                return CODEC_ID;
+            }
+
+            @Override
+            public Class<NamedPoint> getType()
+            {
+                return NamedPoint.class;
+            }
+
+            @Override
+            public void write(NamedPoint data, DataOutput out) throws IOException
+            {}
+
+            @Override
+            public NamedPoint read(DataInput in) throws IOException
+            {
+                return null;
+            }
+        });
+    }
+
+    static class Point implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int                 x;
+        final int                 y;
+
+        Point(int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Point && ((Point) obj).x == x && ((Point) obj).y == y;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * x + y;
+        }
+    }
+
+    static class NamedPoint extends Point
+    {
+        private static final long serialVersionUID = 1L;
+
+        final String              name;
+
+        NamedPoint(int x, int y, String name)
+        {
+            super(x, y);
+            this.name = name;
+        }
+    }
+
+    static class PointCodec implements MTSCodec<Point>
+    {
+        @Override
+        public int getId()
+        {
+            return CODEC_ID;
+        }
+
+        @Override
+        public Class<Point> getType()
+        {
+            return Point.class;
+        }
+
+        @Override
+        public void write(Point data, DataOutput out) throws IOException
+        {
+            out.writeInt(data.x);
+            out.writeInt(data.y);
+        }
+
+        @Override
+        public Point read(DataInput in) throws IOException
+        {
+            return new Point(in.readInt(), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.utdallas.mavs.divas.mts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A subscriber recording the topics and the keys of the messages it receives, for the transport tests
+ */
+class RecordingSubscriber implements Subscriber
+{
+    private static final long TIMEOUT = 5000;
+
+    final List<String>        topics  = new ArrayList<String>();
+    final List<Integer>       keys    = new ArrayList<Integer>();
+    final CountDownLatch      latch;
+
+    /**
+     * Creates a new subscriber.
+     *
+     * @param expected
+     *        the number of messages awaited by <code>await</code>
+     */
+    RecordingSubscriber(int expected)
+    {
+        latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public synchronized void messageReceived(String topic, MTSPayload payload)
+    {
+        topics.add(topic);
+        keys.add(payload.getKey());
+        latch.countDown();
+    }
+
+    /**
+     * Waits for the expected number of messages.
+     *
+     * @return true if the expected messages were received. Otherwise, false.
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    boolean await() throws InterruptedException
+    {
+        return latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,205 @@
+package edu.utdallas.mavs.divas.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+/**
+ * This class is a helper class for writing and reading values in a compact binary form through <code>DataOutput</code> and <code>DataInput</code> streams.
+ * <p>
+ * Every value that may be <code>null</code> is preceded by a presence flag, so values must be read in the same order and with the same methods they were written.
+ */
+public class DataIOHelper
+{
+    /**
+     * Writes a vector, which may be null.
+     *
+     * @param out
+     *        the output stream
+     * @param v
+     *        the vector to be written
+     * @throws IOException
+     */
+    public static void writeVector3f(DataOutput out, Vector3f v) throws IOException
+    {
+        out.writeBoolean(v != null);
+        if(v != null)
+        {
+            out.writeFloat(v.x);
+            out.writeFloat(v.y);
+            out.writeFloat(v.z);
+        }
+    }
+
+    /**
+     * Reads a vector written by <code>writeVector3f</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the vector read, or null
+     * @throws IOException
+     */
+    public static Vector3f readVector3f(DataInput in) throws IOException
+    {
+        if(!in.readBoolean())
+            return null;
+        return new Vector3f(in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    /**
+     * Writes a quaternion, which may be null.
+     *
+     * @param out
+     *        the output stream
+     * @param q
+     *        the quaternion to be written
+     * @throws IOException
+     */
+    public static void writeQuaternion(DataOutput out, Quaternion q) throws IOException
+    {
+        out.writeBoolean(q != null);
+        if(q != null)
+        {
+            out.writeFloat(q.getX());
+            out.writeFloat(q.getY());
+            out.writeFloat(q.getZ());
+            out.writeFloat(q.getW());
+        }
+    }
+
+    /**
+     * Reads a quaternion written by <code>writeQuaternion</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the quaternion read, or null
+     * @throws IOException
+     */
+    public static Quaternion readQuaternion(DataInput in) throws IOException
+    {
+        if(!in.readBoolean())
+            return null;
+        return new Quaternion(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    /**
+     * Writes a string, which may be null.
+     *
+     * @param out
+     *        the output stream
+     * @param s
+     *        the string to be written
+     * @throws IOException
+     */
+    public static void writeString(DataOutput out, String s) throws IOException
+    {
+        out.writeBoolean(s != null);
+        if(s != null)
+            out.writeUTF(s);
+    }
+
+    /**
+     * Reads a string written by <code>writeString</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the string read, or null
+     * @throws IOException
+     */
+    public static String readString(DataInput in) throws IOException
+    {
+        if(!in.readBoolean())
+            return null;
+        return in.readUTF();
+    }
+
+    /**
+     * Writes an enumeration constant, which may be null, by its ordinal.
+     *
+     * @param out
+     *        the output stream
+     * @param e
+     *        the constant to be written
+     * @throws IOException
+     */
+    public static void writeEnum(DataOutput out, Enum<?> e) throws IOException
+    {
+        out.writeByte(e == null ? -1 : e.ordinal());
+    }
+
+    /**
+     * Reads an enumeration constant written by <code>writeEnum</code>.
+     *
+     * @param in
+     *        the input stream
+     * @param type
+     *        the enumeration type
+     * @return the constant read, or null
+     * @throws IOException
+     *         if the ordinal read is not a constant of the given type
+     */
+    public static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException
+    {
+        int ordinal = in.readByte();
+        if(ordinal < 0)
+            return null;
+
+        E[] constants = type.getEnumConstants();
+        if(ordinal >= constants.length)
+            throw new IOException("Invalid ordinal " + ordinal + " for " + type.getName());
+        return constants[ordinal];
+    }
+
+    /**
+     * Writes an object, which may be null, using Java serialization. This is meant for values without a binary form.
+     *
+     * @param out
+     *        the output stream
+     * @param object
+     *        the object to be written
+     * @throws IOException
+     */
+    public static void writeSerialized(DataOutput out, Serializable object) throws IOException
+    {
+        if(object == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = ByteSerializer.serialize(object);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads an object written by <code>writeSerialized</code>.
+     *
+     * @param in
+     *        the input stream
+     * @return the object read, or null
+     * @throws IOException
+     *         if the object could not be read or its class could not be found
+     */
+    public static Object readSerialized(DataInput in) throws IOException
+    {
+        int length = in.readInt();
+        if(length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try
+        {
+            return ByteSerializer.deserialize(bytes);
+        }
+        catch(ClassNotFoundException e)
+        {
+            throw new IOException("Could not deserialize object", e);
+        }
+    }
+}
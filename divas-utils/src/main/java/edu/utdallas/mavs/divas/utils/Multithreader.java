@@ -1,11 +1,16 @@
 package edu.utdallas.mavs.divas.utils;
 
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -25,6 +30,18 @@ public class Multithreader
     private ExecutorService     executor;
     private final AtomicInteger threadNumber = new AtomicInteger(1);
 
+    /**
+     * Maximum number of tasks of a batch running at the same time
+     */
+    private int                 parallelism  = Integer.MAX_VALUE;
+
+    /**
+     * Number of tasks executed without waiting that are not completed yet, and the lock notified when it drops to zero
+     */
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+
+    private final Object        idleLock     = new Object();
+
     /**
      * Enumeration for the number of threads used in the multithreader
      */
@@ -45,7 +62,18 @@ public class Multithreader
          * SINGLE means that there is only one single thread for the
          * multithreader.
          */
-        SINGLE
+        SINGLE,
+        /**
+         * FORK_JOIN means that a work-stealing pool with the given number of
+         * threads is used. Batches of tasks are split recursively so that idle
+         * threads steal work from busy ones.
+         */
+        FORK_JOIN,
+        /**
+         * VIRTUAL means that each task runs in a new virtual thread. On JVMs
+         * without virtual threads, a CACHED pool is used instead.
+         */
+        VIRTUAL
     }
 
     // Create a factory that produces daemon threads with a naming pattern and a
@@ -140,18 +168,25 @@ public class Multithreader
      * @param poolType
      *        Thread pool type which could be FIXED, CACHED, SINGLE.
      * @param threadCount
-     *        thread initial count.
+     *        thread initial count. If not positive, the number of available
+     *        processors is used.
      * @param daemon
      *        boolean flag that indicates if the multithreader is daemon.
      */
-    public Multithreader(final String name, ThreadPoolType poolType, int threadCount, boolean daemon)
+    public Multithreader(final String name, ThreadPoolType poolType, int threadCount, final boolean daemon)
     {
         this.name = name;
         logger.debug("Creating Multithreader instance: " + name);
 
+        if(threadCount <= 0)
+        {
+            threadCount = Runtime.getRuntime().availableProcessors();
+        }
+
         if(poolType.equals(ThreadPoolType.FIXED))
         {
             executor = daemon ? Executors.newFixedThreadPool(threadCount, daemonFactory) : Executors.newFixedThreadPool(threadCount, defaultFactory);
+            parallelism = threadCount;
         }
         else if(poolType.equals(ThreadPoolType.CACHED))
         {
@@ -160,6 +195,43 @@ public class Multithreader
         else if(poolType.equals(ThreadPoolType.SINGLE))
         {
             executor = daemon ? Executors.newSingleThreadExecutor(daemonFactory) : Executors.newSingleThreadExecutor(defaultFactory);
+            parallelism = 1;
+        }
+        else if(poolType.equals(ThreadPoolType.FORK_JOIN))
+        {
+            executor = new ForkJoinPool(threadCount, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+            {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+                {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName(name + (daemon ? "-daemon-" : "-thread-") + threadNumber.getAndIncrement());
+                    thread.setDaemon(daemon);
+                    return thread;
+                }
+            }, null, false);
+            parallelism = threadCount;
+        }
+        else if(poolType.equals(ThreadPoolType.VIRTUAL))
+        {
+            executor = createVirtualThreadExecutor(daemon);
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor, looked up by reflection so that this class still runs on JVMs
+     * without virtual threads.
+     */
+    private ExecutorService createVirtualThreadExecutor(boolean daemon)
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e)
+        {
+            logger.warn("Virtual threads are not supported by this JVM. Multithreader {} uses a cached thread pool instead.", name);
+            return daemon ? Executors.newCachedThreadPool(daemonFactory) : Executors.newCachedThreadPool(defaultFactory);
         }
     }
 
@@ -199,7 +271,16 @@ public class Multithreader
      */
     public void execute(Runnable r)
     {
-        executor.execute(r);
+        pendingTasks.incrementAndGet();
+        try
+        {
+            executor.execute(new TrackedTask(r));
+        }
+        catch(RejectedExecutionException e)
+        {
+            taskCompleted();
+            throw e;
+        }
     }
 
     /**
@@ -213,7 +294,44 @@ public class Multithreader
     {
         for(int i = 0; i < r.size(); i++)
         {
-            executor.execute(r.get(i));
+            execute(r.get(i));
+        }
+    }
+
+    /**
+     * Waits until the tasks executed without waiting so far are completed, including the tasks they executed in turn
+     * in this multithreader. Periodic tasks are not waited for.
+     * 
+     * @param timeout
+     *        the maximum time to wait, in milliseconds
+     * @return true if no task is left to complete. Otherwise, false.
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    public boolean awaitTasks(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized(idleLock)
+        {
+            while(pendingTasks.get() > 0)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0)
+                    return false;
+                idleLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    private void taskCompleted()
+    {
+        if(pendingTasks.decrementAndGet() == 0)
+        {
+            synchronized(idleLock)
+            {
+                idleLock.notifyAll();
+            }
         }
     }
 
@@ -226,14 +344,16 @@ public class Multithreader
      */
     public void executeAndWait(Runnable r)
     {
-        Collection<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
-        tasks.add(Executors.callable(r));
-        invokeAllAndWait(tasks);
+        executeAndWait(Collections.singletonList(r));
     }
 
     /**
      * Execute a list of given tasks using the multithreader and wait for all
      * the tasks to finish executing.
+     * <p>
+     * The tasks are not wrapped individually: a work-stealing pool splits the
+     * list recursively, and other pools run a few workers that take the tasks
+     * from the list in order and count down a single latch when done.
      * 
      * @param r
      *        List of Runnable objects that represent the tasks to be
@@ -241,14 +361,43 @@ public class Multithreader
      */
     public void executeAndWait(List<Runnable> r)
     {
-        Collection<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
+        int size = r.size();
+        if(size == 0)
+        {
+            return;
+        }
 
-        for(Runnable task : r)
+        if(executor instanceof ForkJoinPool)
         {
-            tasks.add(Executors.callable(task));
+            ((ForkJoinPool) executor).invoke(new TaskBatch(r, 0, size, Math.max(1, size / (parallelism * 8))));
+            return;
         }
 
-        invokeAllAndWait(tasks);
+        int workers = Math.min(size, parallelism);
+        CountDownLatch latch = new CountDownLatch(workers);
+        Worker worker = new Worker(r, latch);
+
+        for(int i = 0; i < workers; i++)
+        {
+            try
+            {
+                executor.execute(worker);
+            }
+            catch(RejectedExecutionException e)
+            {
+                logger.error("Multithreader {} rejected a task: {}", name, e.toString());
+                latch.countDown();
+            }
+        }
+
+        try
+        {
+            latch.await();
+        }
+        catch(InterruptedException e)
+        {
+            logger.error(e.toString());
+        }
     }
 
     /**
@@ -286,7 +435,8 @@ public class Multithreader
      */
     public void executePeriodicTask(final Runnable reorganizationTask, final long sleepTime)
     {
-        execute(new Runnable()
+        // never completes, so it is not tracked
+        executor.execute(new Runnable()
         {
             @Override
             public void run()
@@ -300,6 +450,116 @@ public class Multithreader
         });
     }
 
+    /**
+     * Runs a task executed without waiting, and counts it as completed once it returns or fails.
+     */
+    private class TrackedTask implements Runnable
+    {
+        private final Runnable task;
+
+        TrackedTask(Runnable task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                taskCompleted();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks of a list, taking them in order, until none is left. The same worker may run in several threads
+     * at once.
+     */
+    private static class Worker implements Runnable
+    {
+        private final List<Runnable>  tasks;
+        private final CountDownLatch  latch;
+        private final AtomicInteger   next = new AtomicInteger();
+
+        Worker(List<Runnable> tasks, CountDownLatch latch)
+        {
+            this.tasks = tasks;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                int i;
+                while((i = next.getAndIncrement()) < tasks.size())
+                {
+                    runTask(tasks.get(i));
+                }
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Runs a range of tasks, splitting it in halves until it is small enough to be run by a single thread.
+     */
+    private static class TaskBatch extends RecursiveAction
+    {
+        private static final long    serialVersionUID = 1L;
+
+        private final List<Runnable> tasks;
+        private final int            from;
+        private final int            to;
+        private final int            threshold;
+
+        TaskBatch(List<Runnable> tasks, int from, int to, int threshold)
+        {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= threshold)
+            {
+                for(int i = from; i < to; i++)
+                {
+                    runTask(tasks.get(i));
+                }
+            }
+            else
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TaskBatch(tasks, from, middle, threshold), new TaskBatch(tasks, middle, to, threshold));
+            }
+        }
+    }
+
+    private static void runTask(Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch(RuntimeException e)
+        {
+            logger.error("An error occurred while executing a task", e);
+        }
+    }
+
     private void sleep(long reorganizationSleepTime)
     {
         try
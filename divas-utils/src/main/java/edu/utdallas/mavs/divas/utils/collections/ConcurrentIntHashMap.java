@@ -0,0 +1,702 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class describes a thread-safe hash map with primitive <code>int</code> keys.
+ * <p>
+ * The keys are spread over a fixed number of segments, each an open-addressing table with linear probing as in
+ * {@link IntHashMap}. Updates lock their segment, so that threads working on different keys seldom wait for each
+ * other. Lookups take no lock: they probe the table of the segment and check that no removal moved its entries in the
+ * meantime, and only lock the segment if removals keep interfering. Iterators are weakly consistent: they copy the
+ * entries of one segment at a time and never throw {@link java.util.ConcurrentModificationException}. Null values are
+ * not allowed.
+ *
+ * @param <V> value type
+ */
+public class ConcurrentIntHashMap<V> extends AbstractMap<Integer, V> implements ConcurrentMap<Integer, V>, Serializable
+{
+    private static final long  serialVersionUID    = 2L;
+
+    private static final int   DEFAULT_CONCURRENCY = 16;
+
+    private final Segment<V>[] segments;
+
+    /**
+     * Creates a new empty map.
+     */
+    public ConcurrentIntHashMap()
+    {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Creates a new empty map.
+     *
+     * @param concurrencyLevel the expected number of threads updating the map concurrently
+     */
+    public ConcurrentIntHashMap(int concurrencyLevel)
+    {
+        int count = 1;
+        while(count < concurrencyLevel)
+        {
+            count *= 2;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<V>[] s = (Segment<V>[]) new Segment<?>[count];
+        for(int i = 0; i < count; i++)
+        {
+            s[i] = new Segment<V>();
+        }
+        segments = s;
+    }
+
+    /**
+     * Creates a new map with the entries of the given map.
+     *
+     * @param map the map whose entries are copied
+     */
+    public ConcurrentIntHashMap(Map<Integer, ? extends V> map)
+    {
+        this();
+        putAll(map);
+    }
+
+    /**
+     * Gets the segment of a key. The segments are picked by the middle bits of the key hash, since each segment uses
+     * the high bits.
+     */
+    private Segment<V> segmentFor(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    @Override
+    public int size()
+    {
+        int size = 0;
+        for(Segment<V> segment : segments)
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for(Segment<V> segment : segments)
+        {
+            if(segment.size() > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key
+     * @return the value of the key, or <code>null</code> if the key is not in this map
+     */
+    public V get(int key)
+    {
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Checks if a key is in this map.
+     *
+     * @param key the key
+     * @return true if the key is in this map. Otherwise, false.
+     */
+    public boolean containsKey(int key)
+    {
+        return segmentFor(key).get(key) != null;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        if(value != null)
+        {
+            for(Segment<V> segment : segments)
+            {
+                if(segment.containsValue(value))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key the key
+     * @param value the value, which cannot be <code>null</code>
+     * @return the previous value of the key, or <code>null</code> if the key was not in this map
+     */
+    public V put(int key, V value)
+    {
+        return segmentFor(key).put(key, value, false);
+    }
+
+    @Override
+    public V put(Integer key, V value)
+    {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * Associates a value with a key, unless the key is already in this map.
+     *
+     * @param key the key
+     * @param value the value, which cannot be <code>null</code>
+     * @return the current value of the key, or <code>null</code> if the key was not in this map
+     */
+    public V putIfAbsent(int key, V value)
+    {
+        return segmentFor(key).put(key, value, true);
+    }
+
+    @Override
+    public V putIfAbsent(Integer key, V value)
+    {
+        return putIfAbsent(key.intValue(), value);
+    }
+
+    /**
+     * Removes a key from this map.
+     *
+     * @param key the key
+     * @return the value of the removed key, or <code>null</code> if the key was not in this map
+     */
+    public V remove(int key)
+    {
+        return segmentFor(key).remove(key, null);
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value)
+    {
+        if(!(key instanceof Integer) || value == null)
+            return false;
+
+        int k = ((Integer) key).intValue();
+        return segmentFor(k).remove(k, value) != null;
+    }
+
+    @Override
+    public boolean replace(Integer key, V oldValue, V newValue)
+    {
+        if(oldValue == null)
+        {
+            throw new NullPointerException("ConcurrentIntHashMap does not allow null values");
+        }
+
+        int k = key.intValue();
+        return segmentFor(k).replace(k, oldValue, newValue) != null;
+    }
+
+    @Override
+    public V replace(Integer key, V value)
+    {
+        int k = key.intValue();
+        return segmentFor(k).replace(k, null, value);
+    }
+
+    @Override
+    public void clear()
+    {
+        for(Segment<V> segment : segments)
+        {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<Integer, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator()
+            {
+                return new SegmentIterator<Map.Entry<Integer, V>>()
+                {
+                    @Override
+                    Map.Entry<Integer, V> get(final int key, final V value)
+                    {
+                        return new SimpleEntry<Integer, V>(key, value)
+                        {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public V setValue(V value)
+                            {
+                                put(key, value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return ConcurrentIntHashMap.this.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                ConcurrentIntHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet()
+    {
+        return new AbstractSet<Integer>()
+        {
+            @Override
+            public Iterator<Integer> iterator()
+            {
+                return new SegmentIterator<Integer>()
+                {
+                    @Override
+                    Integer get(int key, V value)
+                    {
+                        return key;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o)
+            {
+                return ConcurrentIntHashMap.this.remove(o) != null;
+            }
+
+            @Override
+            public int size()
+            {
+                return ConcurrentIntHashMap.this.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                ConcurrentIntHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new SegmentIterator<V>()
+                {
+                    @Override
+                    V get(int key, V value)
+                    {
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsValue(o);
+            }
+
+            @Override
+            public int size()
+            {
+                return ConcurrentIntHashMap.this.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                ConcurrentIntHashMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Visits the segments in turn, copying the entries of each segment under its lock before visiting them
+     */
+    private abstract class SegmentIterator<T> implements Iterator<T>
+    {
+        private int      segment = -1;
+        private int[]    keys    = new int[0];
+        private Object[] values  = new Object[0];
+        private int      count;
+        private int      next;
+        private boolean  removable;
+
+        abstract T get(int key, V value);
+
+        @Override
+        public boolean hasNext()
+        {
+            while(next == count)
+            {
+                if(segment + 1 == segments.length)
+                    return false;
+
+                Segment<V> s = segments[++segment];
+                synchronized(s)
+                {
+                    if(keys.length < s.size())
+                    {
+                        keys = new int[s.size()];
+                        values = new Object[s.size()];
+                    }
+                    count = s.copyTo(keys, values);
+                }
+                next = 0;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next()
+        {
+            if(!hasNext())
+                throw new NoSuchElementException();
+
+            removable = true;
+            V value = (V) values[next];
+            values[next] = null;
+            return get(keys[next++], value);
+        }
+
+        @Override
+        public void remove()
+        {
+            if(!removable)
+                throw new IllegalStateException();
+
+            removable = false;
+            ConcurrentIntHashMap.this.remove(keys[next - 1]);
+        }
+    }
+
+    /**
+     * A segment of the map, whose updates lock the segment and whose lookups do not.
+     * <p>
+     * New entries are written to empty slots, key first, and a grown table is filled before it replaces the old one, so
+     * a lookup never sees a partial entry. Removals move back the following entries of their cluster, which could hide
+     * an entry from a concurrent lookup, so the sequence number is odd while they move entries. A lookup is retried if
+     * the sequence number changed while it probed the table.
+     */
+    private static final class Segment<V> implements Serializable
+    {
+        private static final long      serialVersionUID = 1L;
+
+        private static final int       MIN_CAPACITY     = 16;
+
+        private static final int       RETRIES          = 2;
+
+        private volatile Table<V>      table            = new Table<V>(MIN_CAPACITY);
+
+        private transient volatile int sequence;
+
+        private int                    size;
+
+        V get(int key)
+        {
+            for(int attempt = 0; attempt < RETRIES; attempt++)
+            {
+                int seq = sequence;
+                if((seq & 1) == 0)
+                {
+                    V value = table.get(key);
+                    if(sequence == seq)
+                        return value;
+                }
+            }
+
+            // removals keep moving the entries of this segment
+            synchronized(this)
+            {
+                return table.get(key);
+            }
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        synchronized boolean containsValue(Object value)
+        {
+            Table<V> t = table;
+            for(int i = 0; i <= t.mask; i++)
+            {
+                if(value.equals(t.values.get(i)))
+                    return true;
+            }
+            return false;
+        }
+
+        synchronized V put(int key, V value, boolean onlyIfAbsent)
+        {
+            if(value == null)
+            {
+                throw new NullPointerException("ConcurrentIntHashMap does not allow null values");
+            }
+
+            Table<V> t = table;
+            int i = t.find(key);
+            if(i >= 0)
+            {
+                V old = t.values.get(i);
+                if(!onlyIfAbsent)
+                    t.values.set(i, value);
+                return old;
+            }
+
+            if(2 * (size + 1) > t.mask + 1)
+            {
+                t = resize(t);
+            }
+            t.insert(key, value);
+            size++;
+            return null;
+        }
+
+        /**
+         * Replaces the value of a key if its value is <code>expected</code>, or whatever its value if
+         * <code>expected</code> is <code>null</code>, and returns the replaced value
+         */
+        synchronized V replace(int key, Object expected, V value)
+        {
+            if(value == null)
+            {
+                throw new NullPointerException("ConcurrentIntHashMap does not allow null values");
+            }
+
+            Table<V> t = table;
+            int i = t.find(key);
+            if(i < 0)
+                return null;
+
+            V old = t.values.get(i);
+            if(expected != null && !expected.equals(old))
+                return null;
+
+            t.values.set(i, value);
+            return old;
+        }
+
+        /**
+         * Removes a key if its value is <code>expected</code>, or whatever its value if <code>expected</code> is
+         * <code>null</code>, and returns the removed value
+         */
+        synchronized V remove(int key, Object expected)
+        {
+            Table<V> t = table;
+            int i = t.find(key);
+            if(i < 0)
+                return null;
+
+            V old = t.values.get(i);
+            if(expected != null && !expected.equals(old))
+                return null;
+
+            sequence++;
+            t.shiftKeys(i);
+            sequence++;
+            size--;
+            return old;
+        }
+
+        synchronized void clear()
+        {
+            if(size > 0)
+            {
+                table = new Table<V>(MIN_CAPACITY);
+                size = 0;
+            }
+        }
+
+        synchronized int copyTo(int[] keyBuffer, Object[] valueBuffer)
+        {
+            Table<V> t = table;
+            int n = 0;
+            for(int i = 0; i <= t.mask; i++)
+            {
+                V value = t.values.get(i);
+                if(value != null)
+                {
+                    keyBuffer[n] = t.keys.get(i);
+                    valueBuffer[n] = value;
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        private Table<V> resize(Table<V> old)
+        {
+            Table<V> t = new Table<V>(2 * (old.mask + 1));
+            for(int i = 0; i <= old.mask; i++)
+            {
+                V value = old.values.get(i);
+                if(value != null)
+                    t.insert(old.keys.get(i), value);
+            }
+            table = t;
+            return t;
+        }
+    }
+
+    /**
+     * The slots of a segment, which are only written by the thread holding the lock of the segment but are read by any
+     * thread
+     */
+    private static final class Table<V> implements Serializable
+    {
+        private static final long             serialVersionUID = 1L;
+
+        private final AtomicIntegerArray      keys;
+
+        private final AtomicReferenceArray<V> values;
+
+        private final int                     shift;
+
+        private final int                     mask;
+
+        Table(int capacity)
+        {
+            keys = new AtomicIntegerArray(capacity);
+            values = new AtomicReferenceArray<V>(capacity);
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+            mask = capacity - 1;
+        }
+
+        /**
+         * Gets the value of a key. The probe visits each slot at most once, so it ends even if a removal moves entries
+         * under it.
+         */
+        V get(int key)
+        {
+            int i = slot(key);
+            for(int n = 0; n <= mask; n++)
+            {
+                V value = values.get(i);
+                if(value == null)
+                    return null;
+                if(keys.get(i) == key)
+                    return value;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        int find(int key)
+        {
+            for(int i = slot(key); values.get(i) != null; i = (i + 1) & mask)
+            {
+                if(keys.get(i) == key)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Writes a key which is not in the table to the first empty slot of its cluster. The key is written before the
+         * value, so the entry is complete once its value can be read.
+         */
+        void insert(int key, V value)
+        {
+            int i = slot(key);
+            while(values.get(i) != null)
+            {
+                i = (i + 1) & mask;
+            }
+            keys.set(i, key);
+            values.set(i, value);
+        }
+
+        /**
+         * Empties a slot, moving back the entries of its cluster that would no longer be found
+         */
+        void shiftKeys(int pos)
+        {
+            while(true)
+            {
+                int last = pos;
+                pos = (pos + 1) & mask;
+                while(true)
+                {
+                    if(values.get(pos) == null)
+                    {
+                        values.set(last, null);
+                        return;
+                    }
+                    int home = slot(keys.get(pos));
+                    // the entry can fill the empty slot if its home slot is not cyclically within (last, pos]
+                    if(last <= pos ? last >= home || home > pos : last >= home && home > pos)
+                        break;
+                    pos = (pos + 1) & mask;
+                }
+                keys.set(last, keys.get(pos));
+                values.set(last, values.get(pos));
+            }
+        }
+
+        private int slot(int key)
+        {
+            return (key * 0x9E3779B9) >>> shift;
+        }
+    }
+}
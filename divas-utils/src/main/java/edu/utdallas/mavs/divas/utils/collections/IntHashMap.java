@@ -0,0 +1,592 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class describes a hash map with primitive <code>int</code> keys.
+ * <p>
+ * The keys and values are stored in two arrays, in an open-addressing table with linear probing, so that looking an
+ * entity up by its id neither boxes the id nor follows an entry. Removals shift the following entries back instead of
+ * leaving tombstones. Null values are not allowed, and the map is not thread-safe (see {@link ConcurrentIntHashMap}).
+ *
+ * @param <V> value type
+ */
+public class IntHashMap<V> extends AbstractMap<Integer, V> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int  MIN_CAPACITY     = 16;
+
+    private int[]             keys;
+
+    private Object[]          values;
+
+    private int               shift;
+
+    private int               size;
+
+    private transient int     modCount;
+
+    /**
+     * Creates a new empty map.
+     */
+    public IntHashMap()
+    {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates a new empty map holding the given number of entries without growing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntHashMap(int expectedSize)
+    {
+        int capacity = MIN_CAPACITY;
+        while(capacity / 2 < expectedSize)
+        {
+            capacity *= 2;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * Creates a new map with the entries of the given map.
+     *
+     * @param map the map whose entries are copied
+     */
+    public IntHashMap(Map<Integer, ? extends V> map)
+    {
+        this(map.size());
+        putAll(map);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key
+     * @return the value of the key, or <code>null</code> if the key is not in this map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Checks if a key is in this map.
+     *
+     * @param key the key
+     * @return true if the key is in this map. Otherwise, false.
+     */
+    public boolean containsKey(int key)
+    {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        if(value != null)
+        {
+            for(int i = 0; i < values.length; i++)
+            {
+                if(value.equals(values[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key the key
+     * @param value the value, which cannot be <code>null</code>
+     * @return the previous value of the key, or <code>null</code> if the key was not in this map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value)
+    {
+        if(value == null)
+        {
+            throw new NullPointerException("IntHashMap does not allow null values");
+        }
+
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while(values[i] != null)
+        {
+            if(keys[i] == key)
+            {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        if(2 * (size + 1) > keys.length)
+        {
+            resize(keys.length * 2);
+            return put(key, value);
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V put(Integer key, V value)
+    {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public void putAll(Map<? extends Integer, ? extends V> map)
+    {
+        if(2 * (size + map.size()) > keys.length)
+        {
+            int capacity = keys.length;
+            while(capacity < 2 * (size + map.size()))
+            {
+                capacity *= 2;
+            }
+            resize(capacity);
+        }
+        for(Map.Entry<? extends Integer, ? extends V> entry : map.entrySet())
+        {
+            put(entry.getKey().intValue(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes a key from this map.
+     *
+     * @param key the key
+     * @return the value of the removed key, or <code>null</code> if the key was not in this map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key)
+    {
+        int i = find(key);
+        if(i < 0)
+            return null;
+
+        V old = (V) values[i];
+        shiftKeys(i, null);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public void clear()
+    {
+        if(size > 0)
+        {
+            Arrays.fill(values, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<Integer, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator()
+            {
+                return new SlotIterator<Map.Entry<Integer, V>>()
+                {
+                    @Override
+                    Map.Entry<Integer, V> get(int key, V value)
+                    {
+                        return new IntEntry(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+
+            @Override
+            public void clear()
+            {
+                IntHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet()
+    {
+        return new AbstractSet<Integer>()
+        {
+            @Override
+            public Iterator<Integer> iterator()
+            {
+                return new SlotIterator<Integer>()
+                {
+                    @Override
+                    Integer get(int key, V value)
+                    {
+                        return key;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o)
+            {
+                return IntHashMap.this.remove(o) != null;
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+
+            @Override
+            public void clear()
+            {
+                IntHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new SlotIterator<V>()
+                {
+                    @Override
+                    V get(int key, V value)
+                    {
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsValue(o);
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+
+            @Override
+            public void clear()
+            {
+                IntHashMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Copies the entries of this map to the given arrays, which must hold at least {@link #size()} entries.
+     *
+     * @param keyBuffer the array receiving the keys
+     * @param valueBuffer the array receiving the values
+     * @return the number of entries copied
+     */
+    int copyTo(int[] keyBuffer, Object[] valueBuffer)
+    {
+        int n = 0;
+        for(int i = 0; i < values.length; i++)
+        {
+            if(values[i] != null)
+            {
+                keyBuffer[n] = keys[i];
+                valueBuffer[n] = values[i];
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private int slot(int key)
+    {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private int find(int key)
+    {
+        int mask = keys.length - 1;
+        for(int i = slot(key); values[i] != null; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+                return i;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity)
+    {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new Object[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+
+        int mask = capacity - 1;
+        for(int j = 0; j < oldKeys.length; j++)
+        {
+            if(oldValues[j] != null)
+            {
+                int i = slot(oldKeys[j]);
+                while(values[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Empties a slot, moving back the entries of its cluster that would no longer be found. Entries moved from the
+     * beginning of the table to its end are reported to the given iterator, which visits the slots backwards.
+     */
+    private void shiftKeys(int pos, SlotIterator<?> iterator)
+    {
+        int mask = keys.length - 1;
+        while(true)
+        {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            while(true)
+            {
+                if(values[pos] == null)
+                {
+                    values[last] = null;
+                    return;
+                }
+                int home = slot(keys[pos]);
+                // the entry can fill the empty slot if its home slot is not cyclically within (last, pos]
+                if(last <= pos ? last >= home || home > pos : last >= home && home > pos)
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            if(pos < last && iterator != null)
+            {
+                iterator.wrapped(keys[pos]);
+            }
+            keys[last] = keys[pos];
+            values[last] = values[pos];
+        }
+    }
+
+    /**
+     * An entry of this map, writing its value through to the map
+     */
+    private class IntEntry implements Map.Entry<Integer, V>
+    {
+        private final int key;
+        private V         value;
+
+        IntEntry(int key, V value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Integer getKey()
+        {
+            return key;
+        }
+
+        @Override
+        public V getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value)
+        {
+            V old = this.value;
+            put(key, value);
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key ^ value.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Visits the slots of the table backwards, so that removing the last entry only moves back entries that were
+     * already visited, except for the entries moved from the beginning of the table to its end, which are visited last.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T>
+    {
+        private int   pos              = keys.length;
+        private int   last             = -1;
+        private int   remaining        = size;
+        private int   lastKey;
+        private int[] wrapped;
+        private int   wrappedCount;
+        private int   expectedModCount = modCount;
+
+        abstract T get(int key, V value);
+
+        @Override
+        public boolean hasNext()
+        {
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next()
+        {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(remaining == 0)
+                throw new NoSuchElementException();
+            remaining--;
+
+            while(true)
+            {
+                if(--pos < 0)
+                {
+                    // the entries moved past the iterator are looked up again
+                    last = -2;
+                    lastKey = wrapped[-pos - 1];
+                    return get(lastKey, (V) values[find(lastKey)]);
+                }
+                if(values[pos] != null)
+                {
+                    last = pos;
+                    lastKey = keys[pos];
+                    return get(lastKey, (V) values[pos]);
+                }
+            }
+        }
+
+        @Override
+        public void remove()
+        {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(last == -1)
+                throw new IllegalStateException();
+
+            if(last >= 0)
+            {
+                shiftKeys(last, this);
+                size--;
+                modCount++;
+            }
+            else
+            {
+                IntHashMap.this.remove(lastKey);
+            }
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        void wrapped(int key)
+        {
+            if(wrapped == null)
+            {
+                wrapped = new int[2];
+            }
+            else if(wrappedCount == wrapped.length)
+            {
+                wrapped = Arrays.copyOf(wrapped, wrappedCount * 2);
+            }
+            wrapped[wrappedCount++] = key;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform bucket grid indexing values by their axis-aligned extent on a plane.
+ * <p>
+ * Each value is registered under an integer key and stored in every bucket its extent overlaps. Values whose extent
+ * spans too many buckets are kept in a separate list that is checked by every query. All operations are synchronized.
+ *
+ * @param <V>
+ *        the type of the indexed values
+ */
+public class SpatialHashGrid<V> implements Serializable
+{
+    private static final long               serialVersionUID = 1L;
+
+    /**
+     * Maximum number of buckets an entry may span before being treated as oversized
+     */
+    private static final int                MAX_SPAN         = 64;
+
+    private final float                     bucketSize;
+
+    private final Map<Long, List<Entry<V>>> buckets;
+
+    private final Map<Integer, Entry<V>>    entries;
+
+    private final List<Entry<V>>            oversized;
+
+    private int                             queryStamp;
+
+    /**
+     * Creates a new grid
+     *
+     * @param bucketSize
+     *        the side of the square buckets
+     */
+    public SpatialHashGrid(float bucketSize)
+    {
+        if(bucketSize <= 0)
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketSize);
+
+        this.bucketSize = bucketSize;
+        buckets = new HashMap<>();
+        entries = new HashMap<>();
+        oversized = new ArrayList<>();
+    }
+
+    /**
+     * Inserts or relocates a value.
+     *
+     * @param key
+     *        the key of the value
+     * @param value
+     *        the value
+     * @param minX
+     *        the minimum x of the value's extent
+     * @param minY
+     *        the minimum y of the value's extent
+     * @param maxX
+     *        the maximum x of the value's extent
+     * @param maxY
+     *        the maximum y of the value's extent
+     */
+    public synchronized void put(int key, V value, float minX, float minY, float maxX, float maxY)
+    {
+        int ix0 = cellOf(minX);
+        int iy0 = cellOf(minY);
+        int ix1 = cellOf(maxX);
+        int iy1 = cellOf(maxY);
+
+        Entry<V> entry = entries.get(key);
+        if(entry != null)
+        {
+            if(entry.ix0 == ix0 && entry.iy0 == iy0 && entry.ix1 == ix1 && entry.iy1 == iy1)
+            {
+                // still in the same buckets, only refresh the extent
+                entry.set(value, minX, minY, maxX, maxY);
+                return;
+            }
+            unlink(entry);
+        }
+        else
+        {
+            entry = new Entry<>(key);
+            entries.put(key, entry);
+        }
+
+        entry.set(value, minX, minY, maxX, maxY);
+        entry.ix0 = ix0;
+        entry.iy0 = iy0;
+        entry.ix1 = ix1;
+        entry.iy1 = iy1;
+        link(entry);
+    }
+
+    /**
+     * Removes the value with the given key.
+     *
+     * @param key
+     *        the key of the value
+     * @return true if a value was removed. Otherwise, false.
+     */
+    public synchronized boolean remove(int key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if(entry == null)
+            return false;
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Removes all values from this grid.
+     */
+    public synchronized void clear()
+    {
+        buckets.clear();
+        entries.clear();
+        oversized.clear();
+    }
+
+    /**
+     * @return the number of values in this grid
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Finds the values whose extent intersects the given rectangle.
+     *
+     * @param minX
+     *        the minimum x of the rectangle
+     * @param minY
+     *        the minimum y of the rectangle
+     * @param maxX
+     *        the maximum x of the rectangle
+     * @param maxY
+     *        the maximum y of the rectangle
+     * @return a new list of values
+     */
+    public synchronized List<V> query(float minX, float minY, float maxX, float maxY)
+    {
+        List<Entry<V>> found = collect(minX, minY, maxX, maxY);
+        List<V> result = new ArrayList<>(found.size());
+        for(int i = 0; i < found.size(); i++)
+            result.add(found.get(i).value);
+        return result;
+    }
+
+    /**
+     * Finds the values whose extent lies within the given distance of a point.
+     *
+     * @param x
+     *        the x coordinate of the point
+     * @param y
+     *        the y coordinate of the point
+     * @param range
+     *        the maximum distance from the point
+     * @return a new list of values
+     */
+    public synchronized List<V> queryRange(float x, float y, float range)
+    {
+        List<Entry<V>> found = collect(x - range, y - range, x + range, y + range);
+        List<V> result = new ArrayList<>(found.size());
+        float rangeSq = range * range;
+        for(int i = 0; i < found.size(); i++)
+        {
+            Entry<V> entry = found.get(i);
+            if(entry.distanceSq(x, y) <= rangeSq)
+                result.add(entry.value);
+        }
+        return result;
+    }
+
+    private List<Entry<V>> collect(float minX, float minY, float maxX, float maxY)
+    {
+        List<Entry<V>> result = new ArrayList<>();
+        int ix0 = cellOf(minX);
+        int iy0 = cellOf(minY);
+        int ix1 = cellOf(maxX);
+        int iy1 = cellOf(maxY);
+
+        // visiting more buckets than there are entries is never worth it
+        if(span(ix0, iy0, ix1, iy1) > entries.size())
+        {
+            for(Entry<V> entry : entries.values())
+                if(entry.intersects(minX, minY, maxX, maxY))
+                    result.add(entry);
+            return result;
+        }
+
+        int stamp = ++queryStamp;
+        for(long ix = ix0; ix <= ix1; ix++)
+        {
+            for(long iy = iy0; iy <= iy1; iy++)
+            {
+                List<Entry<V>> bucket = buckets.get(keyOf((int) ix, (int) iy));
+                if(bucket != null)
+                {
+                    for(int i = 0; i < bucket.size(); i++)
+                    {
+                        Entry<V> entry = bucket.get(i);
+                        if(entry.stamp != stamp)
+                        {
+                            entry.stamp = stamp;
+                            if(entry.intersects(minX, minY, maxX, maxY))
+                                result.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+
+        for(Entry<V> entry : oversized)
+            if(entry.intersects(minX, minY, maxX, maxY))
+                result.add(entry);
+
+        return result;
+    }
+
+    private void link(Entry<V> entry)
+    {
+        if(span(entry.ix0, entry.iy0, entry.ix1, entry.iy1) > MAX_SPAN)
+        {
+            oversized.add(entry);
+            return;
+        }
+
+        for(long ix = entry.ix0; ix <= entry.ix1; ix++)
+        {
+            for(long iy = entry.iy0; iy <= entry.iy1; iy++)
+            {
+                Long k = keyOf((int) ix, (int) iy);
+                List<Entry<V>> bucket = buckets.get(k);
+                if(bucket == null)
+                {
+                    bucket = new ArrayList<>(4);
+                    buckets.put(k, bucket);
+                }
+                bucket.add(entry);
+            }
+        }
+    }
+
+    private void unlink(Entry<V> entry)
+    {
+        if(span(entry.ix0, entry.iy0, entry.ix1, entry.iy1) > MAX_SPAN)
+        {
+            oversized.remove(entry);
+            return;
+        }
+
+        for(long ix = entry.ix0; ix <= entry.ix1; ix++)
+        {
+            for(long iy = entry.iy0; iy <= entry.iy1; iy++)
+            {
+                Long k = keyOf((int) ix, (int) iy);
+                List<Entry<V>> bucket = buckets.get(k);
+                if(bucket != null)
+                {
+                    bucket.remove(entry);
+                    if(bucket.isEmpty())
+                        buckets.remove(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of buckets covered by a range of buckets. The bucket indexes of extreme coordinates are clamped
+     * to the bounds of an int, so a side can cover up to 2^32 buckets: the sides are counted on longs and capped so
+     * that their product does not overflow. For the same reason, the buckets are visited with long indexes.
+     */
+    private static long span(int ix0, int iy0, int ix1, int iy1)
+    {
+        long width = Math.min((long) ix1 - ix0 + 1, Integer.MAX_VALUE);
+        long height = Math.min((long) iy1 - iy0 + 1, Integer.MAX_VALUE);
+        return width * height;
+    }
+
+    private int cellOf(float coordinate)
+    {
+        return (int) Math.floor(coordinate / bucketSize);
+    }
+
+    private static long keyOf(int ix, int iy)
+    {
+        return ((long) ix << 32) | (iy & 0xffffffffL);
+    }
+
+    private static class Entry<V> implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int                 key;
+        V                         value;
+        float                     minX, minY, maxX, maxY;
+        int                       ix0, iy0, ix1, iy1;
+        transient int             stamp;
+
+        Entry(int key)
+        {
+            this.key = key;
+        }
+
+        void set(V value, float minX, float minY, float maxX, float maxY)
+        {
+            this.value = value;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean intersects(float minX, float minY, float maxX, float maxY)
+        {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+
+        float distanceSq(float x, float y)
+        {
+            float dx = Math.max(0, Math.max(minX - x, x - maxX));
+            float dy = Math.max(0, Math.max(minY - y, y - maxY));
+            return dx * dx + dy * dy;
+        }
+    }
+}
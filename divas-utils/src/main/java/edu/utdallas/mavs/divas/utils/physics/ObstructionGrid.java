@@ -0,0 +1,531 @@
+package edu.utdallas.mavs.divas.utils.physics;
+
+import java.util.Arrays;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+
+/**
+ * A uniform grid of bounding volumes on the horizontal (XZ) plane, used to find the closest volume hit by a ray.
+ * <p>
+ * Volumes are added with an integer id and the grid is then built once; a built grid is never modified, so it may be
+ * shared by several threads. A ray walks only the grid cells it crosses, from the nearest to the farthest, and stops as
+ * soon as the closest hit found is nearer than the next cell. Boxes are intersected directly, other volumes through
+ * their own collision test.
+ * <p>
+ * Which volumes a ray may hit is decided by a {@link Query}, which holds the candidate ids and the closest hit. A query
+ * is reused from ray to ray, and from tick to tick, so that casting rays does not allocate.
+ */
+public class ObstructionGrid
+{
+    /**
+     * Maximum number of cells an axis of the grid may have
+     */
+    private static final int MAX_CELLS = 256;
+
+    /**
+     * Maximum number of cells a volume may span before being treated as oversized
+     */
+    private static final int MAX_SPAN  = 64;
+
+    private final float      cellSize;
+
+    private int              count;
+    private int[]            ids       = new int[16];
+    private BoundingVolume[] volumes   = new BoundingVolume[16];
+    private float[]          extents   = new float[16 * 4];
+
+    private boolean          built;
+    private float            side;
+    private float            minX;
+    private float            minZ;
+    private int              columns;
+    private int              rows;
+    private int[]            cellStart;
+    private int[]            cellItems;
+    private int[]            oversized;
+
+    /**
+     * Creates a new grid
+     *
+     * @param cellSize
+     *        the side of the square cells. It is enlarged when the volumes would need too many cells.
+     */
+    public ObstructionGrid(float cellSize)
+    {
+        if(cellSize <= 0)
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds a volume to the grid.
+     *
+     * @param id
+     *        the id of the volume
+     * @param volume
+     *        the volume
+     * @throws IllegalStateException
+     *         if the grid is already built
+     */
+    public void add(int id, BoundingVolume volume)
+    {
+        if(built)
+            throw new IllegalStateException("Obstruction grid is already built");
+
+        if(count == ids.length)
+        {
+            ids = Arrays.copyOf(ids, count * 2);
+            volumes = Arrays.copyOf(volumes, count * 2);
+            extents = Arrays.copyOf(extents, count * 2 * 4);
+        }
+
+        Vector3f center = volume.getCenter();
+        float ex;
+        float ez;
+        if(volume instanceof BoundingBox)
+        {
+            ex = ((BoundingBox) volume).getXExtent();
+            ez = ((BoundingBox) volume).getZExtent();
+        }
+        else if(volume instanceof BoundingSphere)
+        {
+            ex = ez = ((BoundingSphere) volume).getRadius();
+        }
+        else
+        {
+            // unknown extent, tested by every ray
+            ex = ez = Float.POSITIVE_INFINITY;
+        }
+
+        ids[count] = id;
+        volumes[count] = volume;
+        extents[count * 4] = center.x - ex;
+        extents[count * 4 + 1] = center.z - ez;
+        extents[count * 4 + 2] = center.x + ex;
+        extents[count * 4 + 3] = center.z + ez;
+        count++;
+    }
+
+    /**
+     * Builds the grid. No volume may be added afterwards.
+     */
+    public void build()
+    {
+        if(built)
+            return;
+        built = true;
+
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxZ = Float.NEGATIVE_INFINITY;
+        minX = Float.POSITIVE_INFINITY;
+        minZ = Float.POSITIVE_INFINITY;
+        for(int p = 0; p < count; p++)
+        {
+            if(isUnbounded(p))
+                continue;
+            minX = Math.min(minX, extents[p * 4]);
+            minZ = Math.min(minZ, extents[p * 4 + 1]);
+            maxX = Math.max(maxX, extents[p * 4 + 2]);
+            maxZ = Math.max(maxZ, extents[p * 4 + 3]);
+        }
+
+        if(minX > maxX)
+        {
+            // no bounded volume
+            columns = rows = 0;
+            side = cellSize;
+        }
+        else
+        {
+            side = Math.max(cellSize, Math.max(maxX - minX, maxZ - minZ) / MAX_CELLS);
+            columns = Math.max(1, (int) Math.ceil((maxX - minX) / side));
+            rows = Math.max(1, (int) Math.ceil((maxZ - minZ) / side));
+        }
+
+        // count the volumes of each cell, then lay them out cell after cell
+        cellStart = new int[columns * rows + 1];
+        int oversizedCount = 0;
+        for(int p = 0; p < count; p++)
+        {
+            if(isOversized(p))
+            {
+                oversizedCount++;
+                continue;
+            }
+            for(int z = row(extents[p * 4 + 1]); z <= row(extents[p * 4 + 3]); z++)
+                for(int x = column(extents[p * 4]); x <= column(extents[p * 4 + 2]); x++)
+                    cellStart[z * columns + x + 1]++;
+        }
+        for(int c = 0; c < columns * rows; c++)
+            cellStart[c + 1] += cellStart[c];
+
+        cellItems = new int[cellStart[columns * rows]];
+        oversized = new int[oversizedCount];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        oversizedCount = 0;
+        for(int p = 0; p < count; p++)
+        {
+            if(isOversized(p))
+            {
+                oversized[oversizedCount++] = p;
+                continue;
+            }
+            for(int z = row(extents[p * 4 + 1]); z <= row(extents[p * 4 + 3]); z++)
+                for(int x = column(extents[p * 4]); x <= column(extents[p * 4 + 2]); x++)
+                    cellItems[fill[z * columns + x]++] = p;
+        }
+    }
+
+    private boolean isUnbounded(int p)
+    {
+        return Float.isInfinite(extents[p * 4]) || Float.isInfinite(extents[p * 4 + 2]) || Float.isNaN(extents[p * 4]) || Float.isNaN(extents[p * 4 + 2]);
+    }
+
+    private boolean isOversized(int p)
+    {
+        if(isUnbounded(p))
+            return true;
+        long span = (long) (column(extents[p * 4 + 2]) - column(extents[p * 4]) + 1) * (row(extents[p * 4 + 3]) - row(extents[p * 4 + 1]) + 1);
+        return span > MAX_SPAN;
+    }
+
+    private int column(float x)
+    {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / side)));
+    }
+
+    private int row(float z)
+    {
+        return Math.min(rows - 1, Math.max(0, (int) ((z - minZ) / side)));
+    }
+
+    /**
+     * @return the number of volumes in the grid
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Casts a ray through the grid, recording in the query the closest candidate volume hit, if it is closer than the
+     * hit already recorded. Casting the same ray through several grids with the same query finds the closest hit among
+     * all of them.
+     *
+     * @param ray
+     *        the ray, with a normalized direction
+     * @param query
+     *        the query holding the candidates and the closest hit of the ray
+     * @return true if the closest hit of the query was changed by this grid
+     * @throws IllegalStateException
+     *         if the grid is not built
+     */
+    public boolean castRay(Ray ray, Query<?> query)
+    {
+        if(!built)
+            throw new IllegalStateException("Obstruction grid is not built");
+
+        boolean changed = false;
+        for(int i = 0; i < oversized.length; i++)
+            changed |= test(oversized[i], ray, query);
+
+        if(columns == 0)
+            return changed;
+
+        Vector3f o = ray.getOrigin();
+        Vector3f d = ray.getDirection();
+
+        // clip the ray to the grid bounds
+        float maxX = minX + columns * side;
+        float maxZ = minZ + rows * side;
+        float tEnter = 0;
+        float tExit = Float.POSITIVE_INFINITY;
+        if(d.x != 0)
+        {
+            float a = (minX - o.x) / d.x;
+            float b = (maxX - o.x) / d.x;
+            tEnter = Math.max(tEnter, Math.min(a, b));
+            tExit = Math.min(tExit, Math.max(a, b));
+        }
+        else if(o.x < minX || o.x > maxX)
+        {
+            return changed;
+        }
+        if(d.z != 0)
+        {
+            float a = (minZ - o.z) / d.z;
+            float b = (maxZ - o.z) / d.z;
+            tEnter = Math.max(tEnter, Math.min(a, b));
+            tExit = Math.min(tExit, Math.max(a, b));
+        }
+        else if(o.z < minZ || o.z > maxZ)
+        {
+            return changed;
+        }
+        if(!(tEnter <= tExit) || !(tEnter < query.hitDistance))
+            return changed;
+
+        // walk the cells crossed by the ray (Amanatides and Woo)
+        int x = column(o.x + tEnter * d.x);
+        int z = row(o.z + tEnter * d.z);
+        int stepX = d.x > 0 ? 1 : (d.x < 0 ? -1 : 0);
+        int stepZ = d.z > 0 ? 1 : (d.z < 0 ? -1 : 0);
+        float nextX = stepX == 0 ? Float.POSITIVE_INFINITY : (minX + (x + (stepX > 0 ? 1 : 0)) * side - o.x) / d.x;
+        float nextZ = stepZ == 0 ? Float.POSITIVE_INFINITY : (minZ + (z + (stepZ > 0 ? 1 : 0)) * side - o.z) / d.z;
+        float deltaX = stepX == 0 ? Float.POSITIVE_INFINITY : side / Math.abs(d.x);
+        float deltaZ = stepZ == 0 ? Float.POSITIVE_INFINITY : side / Math.abs(d.z);
+
+        while(true)
+        {
+            int cell = z * columns + x;
+            for(int i = cellStart[cell]; i < cellStart[cell + 1]; i++)
+                changed |= test(cellItems[i], ray, query);
+
+            float cellExit = Math.min(nextX, nextZ);
+            if(query.hitDistance < cellExit || cellExit > tExit)
+                break;
+
+            if(nextX < nextZ)
+            {
+                x += stepX;
+                if(x < 0 || x >= columns)
+                    break;
+                nextX += deltaX;
+            }
+            else
+            {
+                z += stepZ;
+                if(z < 0 || z >= rows)
+                    break;
+                nextZ += deltaZ;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Tests a volume against the ray, if it is a candidate of the query not yet tested with this ray.
+     */
+    private boolean test(int p, Ray ray, Query<?> query)
+    {
+        int candidate = query.indexOf(ids[p]);
+        if(candidate < 0 || query.tested[candidate] == query.rayStamp)
+            return false;
+        query.tested[candidate] = query.rayStamp;
+
+        float distance;
+        if(volumes[p] instanceof BoundingBox)
+        {
+            distance = intersect((BoundingBox) volumes[p], ray);
+        }
+        else
+        {
+            query.results.clear();
+            volumes[p].collideWith(ray, query.results);
+            distance = query.results.size() > 0 ? query.results.getClosestCollision().getDistance() : -1;
+        }
+
+        if(distance < 0)
+            return false;
+
+        // ties go to the candidate added first
+        if(distance < query.hitDistance || (distance == query.hitDistance && candidate < query.hitIndex))
+        {
+            query.hitDistance = distance;
+            query.hitIndex = candidate;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Intersects a ray with a box. A ray starting inside the box hits it at distance zero.
+     *
+     * @return the distance to the box, or -1 if the ray misses it
+     */
+    private static float intersect(BoundingBox box, Ray ray)
+    {
+        Vector3f c = box.getCenter();
+        Vector3f o = ray.getOrigin();
+        Vector3f d = ray.getDirection();
+        float near = 0;
+        float far = Float.POSITIVE_INFINITY;
+
+        for(int axis = 0; axis < 3; axis++)
+        {
+            float diff = o.get(axis) - c.get(axis);
+            float direction = d.get(axis);
+            float extent = axis == 0 ? box.getXExtent() : (axis == 1 ? box.getYExtent() : box.getZExtent());
+
+            if(direction == 0)
+            {
+                if(diff < -extent || diff > extent)
+                    return -1;
+            }
+            else
+            {
+                float a = (-diff - extent) / direction;
+                float b = (-diff + extent) / direction;
+                near = Math.max(near, Math.min(a, b));
+                far = Math.min(far, Math.max(a, b));
+                if(near > far)
+                    return -1;
+            }
+        }
+        return near;
+    }
+
+    /**
+     * The candidates of a ray cast and its closest hit. A query is not thread-safe; each agent should use its own.
+     *
+     * @param <V>
+     *        the type of the values associated with the candidate ids
+     */
+    public static class Query<V>
+    {
+        private int                    candidateCount;
+        private int[]                  candidateIds = new int[16];
+        private Object[]               values       = new Object[16];
+        private int[]                  tested       = new int[16];
+        private int[]                  table        = new int[32];
+
+        private int                    rayStamp;
+        private int                    hitIndex;
+        private float                  hitDistance;
+
+        private final CollisionResults results      = new CollisionResults();
+
+        /**
+         * Removes all the candidates.
+         */
+        public void clear()
+        {
+            candidateCount = 0;
+            Arrays.fill(table, 0);
+            Arrays.fill(values, null);
+        }
+
+        /**
+         * Adds a candidate volume. A ray cast with this query only hits the volumes with a candidate id.
+         *
+         * @param id
+         *        the id of the volume
+         * @param value
+         *        the value reported when the volume is the closest hit
+         * @return true if the candidate was added, false if a candidate with the same id was already added
+         */
+        public boolean addCandidate(int id, V value)
+        {
+            if(indexOf(id) >= 0)
+                return false;
+
+            if(candidateCount == candidateIds.length)
+            {
+                candidateIds = Arrays.copyOf(candidateIds, candidateCount * 2);
+                values = Arrays.copyOf(values, candidateCount * 2);
+                tested = Arrays.copyOf(tested, candidateCount * 2);
+            }
+            if((candidateCount + 1) * 2 > table.length)
+                rehash(table.length * 2);
+
+            candidateIds[candidateCount] = id;
+            values[candidateCount] = value;
+            tested[candidateCount] = 0;
+            candidateCount++;
+            insert(id, candidateCount);
+            return true;
+        }
+
+        /**
+         * @return the number of candidates
+         */
+        public int getCandidateCount()
+        {
+            return candidateCount;
+        }
+
+        /**
+         * @param i
+         *        the index of a candidate, in the order they were added
+         * @return the value of the candidate
+         */
+        @SuppressWarnings("unchecked")
+        public V getCandidate(int i)
+        {
+            return (V) values[i];
+        }
+
+        /**
+         * Prepares this query for a new ray, forgetting the closest hit.
+         */
+        public void beginRay()
+        {
+            if(++rayStamp == 0)
+            {
+                Arrays.fill(tested, 0);
+                rayStamp = 1;
+            }
+            hitIndex = -1;
+            hitDistance = Float.MAX_VALUE;
+        }
+
+        /**
+         * @return the value of the closest candidate hit by the ray, or null if the ray hit no candidate
+         */
+        @SuppressWarnings("unchecked")
+        public V getHit()
+        {
+            return hitIndex < 0 ? null : (V) values[hitIndex];
+        }
+
+        /**
+         * @return the distance to the closest candidate hit by the ray, or <code>Float.MAX_VALUE</code> if the ray hit
+         *         no candidate
+         */
+        public float getHitDistance()
+        {
+            return hitDistance;
+        }
+
+        int indexOf(int id)
+        {
+            int mask = table.length - 1;
+            for(int slot = hash(id) & mask;; slot = (slot + 1) & mask)
+            {
+                int entry = table[slot];
+                if(entry == 0)
+                    return -1;
+                if(candidateIds[entry - 1] == id)
+                    return entry - 1;
+            }
+        }
+
+        private void insert(int id, int entry)
+        {
+            int mask = table.length - 1;
+            int slot = hash(id) & mask;
+            while(table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = entry;
+        }
+
+        private void rehash(int capacity)
+        {
+            table = new int[capacity];
+            for(int i = 0; i < candidateCount; i++)
+                insert(candidateIds[i], i + 1);
+        }
+
+        private static int hash(int id)
+        {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
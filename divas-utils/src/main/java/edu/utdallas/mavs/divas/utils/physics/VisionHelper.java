@@ -1,6 +1,7 @@
 package edu.utdallas.mavs.divas.utils.physics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.jme3.math.FastMath;
@@ -27,43 +28,72 @@ public class VisionHelper
      */
     public static List<Ray> createVisionCone(Vector3f position, Vector3f headingDirection, float fov, float visibleDistance, int circlesCount, int raysPerCircleCount)
     {
-        List<Ray> visibleRegion = new ArrayList<Ray>();
-        Vector3f w = headingDirection.normalize();
-        Vector3f myEndPoints[] = new Vector3f[raysPerCircleCount * circlesCount + 1];
-        Vector3f myOrigEndPoints[] = new Vector3f[raysPerCircleCount * circlesCount + 1];
+        Ray[] rays = fillVisionCone(null, position.x, position.y, position.z, headingDirection, fov, visibleDistance, circlesCount, raysPerCircleCount);
+        return new ArrayList<Ray>(Arrays.asList(rays));
+    }
 
-        Vector3f circleCenter = position.add(headingDirection.mult(visibleDistance));
+    /**
+     * Fills an array of rays with a vision cone. The rays of each circle come first, circle after circle, and the last
+     * ray is the axis of the cone. The given array is reused when it has the right length, so a caller keeping it from
+     * one call to the next creates no object.
+     * 
+     * @param rays the array to be filled, or null
+     * @param x the x coordinate of the vertex of the cone
+     * @param y the y coordinate of the vertex of the cone
+     * @param z the z coordinate of the vertex of the cone
+     * @param headingDirection the direction of the cone axis
+     * @param fov the field of view (angle) of the cone
+     * @param visibleDistance the visible distance
+     * @param circlesCount number of circles in the vision cone
+     * @param raysPerCircleCount number of rays per circle to be added in the vision cone
+     * @return the given array, or a new one if it was null or of a different length
+     */
+    public static Ray[] fillVisionCone(Ray[] rays, float x, float y, float z, Vector3f headingDirection, float fov, float visibleDistance, int circlesCount, int raysPerCircleCount)
+    {
+        int count = raysPerCircleCount * circlesCount + 1;
+        if(rays == null || rays.length != count)
+        {
+            rays = new Ray[count];
+            for(int j = 0; j < count; j++)
+                rays[j] = new Ray();
+        }
 
-        // u and v represent the axis of the circle (with w being the circles normal)
-        Vector3f u = new Vector3f();
-        Vector3f v = null;
+        float length = headingDirection.length();
+        float wx = length == 0 ? 0 : headingDirection.x / length;
+        float wy = length == 0 ? 0 : headingDirection.y / length;
+        float wz = length == 0 ? 0 : headingDirection.z / length;
+
+        // the circles are centered on the axis, one visible distance away (with the heading as is)
+        float cx = headingDirection.x * visibleDistance;
+        float cy = headingDirection.y * visibleDistance;
+        float cz = headingDirection.z * visibleDistance;
 
-        if(FastMath.abs(w.x) >= FastMath.abs(w.y))
+        // u and v represent the axis of the circle (with w being the circles normal)
+        float ux;
+        float uy;
+        float uz;
+        if(FastMath.abs(wx) >= FastMath.abs(wy))
         {
-            float factor = 1 / FastMath.sqrt(w.x * w.x + w.z * w.z);
-            u.x = -w.z * factor;
-            u.y = 0;
-            u.z = w.x * factor;
+            float factor = 1 / FastMath.sqrt(wx * wx + wz * wz);
+            ux = -wz * factor;
+            uy = 0;
+            uz = wx * factor;
         }
         else
         {
-            float factor = 1 / FastMath.sqrt(w.y * w.y + w.z * w.z);
-            u.x = 0;
-            u.y = w.z * factor;
-            u.z = -w.y * factor;
+            float factor = 1 / FastMath.sqrt(wy * wy + wz * wz);
+            ux = 0;
+            uy = wz * factor;
+            uz = -wy * factor;
         }
-        v = w.crossLocal(u);
+        float vx = wy * uz - wz * uy;
+        float vy = wz * ux - wx * uz;
+        float vz = wx * uy - wy * ux;
 
-        float angle1;
-        float angle2;
-
-        int i = 0;
-        for(int circleCount = 0; circleCount <= (circlesCount - 1); circleCount++)
+        for(int circleCount = 0; circleCount < circlesCount; circleCount++)
         {
-            i = 0;
-
-            angle1 = fov / 2 * ((circlesCount - 1f - circleCount + 1f) / circlesCount); // make smaller circles (part of cone)
-            angle2 = 90 - angle1; // we know 1 angle of triangle is 90 degrees
+            float angle1 = fov / 2 * ((circlesCount - 1f - circleCount + 1f) / circlesCount); // make smaller circles (part of cone)
+            float angle2 = 90 - angle1; // we know 1 angle of triangle is 90 degrees
             angle1 = angle1 * FastMath.DEG_TO_RAD; // So others must be angle 1 and 90 minus angle 1
             angle2 = angle2 * FastMath.DEG_TO_RAD;
 
@@ -76,31 +106,21 @@ public class VisionHelper
             else
                 rotatingConeCounter++;
 
-            for(float t = 0; t < (2 * FastMath.PI); t = t + (2 * FastMath.PI) / raysPerCircleCount) // case 3 rays config variable.
+            for(int i = 0; i < raysPerCircleCount; i++)
             {
-                myOrigEndPoints[i + circleCount * raysPerCircleCount] = circleCenter.add(u.mult((radius * FastMath.cos(t + rotatingConeCountRadians)))).add(v.mult((radius * FastMath.sin(t + rotatingConeCountRadians))));
-                i++;
-            }
+                float t = i * (2 * FastMath.PI) / raysPerCircleCount + rotatingConeCountRadians;
+                float cos = radius * FastMath.cos(t);
+                float sin = radius * FastMath.sin(t);
 
-            i = 0;
-
-            // scale to VD (else agents see too far.)
-            while(i < raysPerCircleCount)
-            {
-                Vector3f scaled = myOrigEndPoints[i + circleCount * raysPerCircleCount].subtract(position);
-                scaled.normalizeLocal();
-                scaled.multLocal(visibleDistance);
-                myEndPoints[i + circleCount * raysPerCircleCount] = position.add(scaled);
-                i++;
+                Ray ray = rays[i + circleCount * raysPerCircleCount];
+                ray.getOrigin().set(x, y, z);
+                ray.getDirection().set(cx + ux * cos + vx * sin, cy + uy * cos + vy * sin, cz + uz * cos + vz * sin).normalizeLocal();
             }
         }
 
-        for(int j = 0; j < raysPerCircleCount * circlesCount; j++)
-        {
-            visibleRegion.add(new Ray(position, myEndPoints[j].subtractLocal(position).normalizeLocal()));
-        }
-
-        visibleRegion.add(new Ray(position, headingDirection.normalize()));
-        return visibleRegion;
+        Ray axis = rays[count - 1];
+        axis.getOrigin().set(x, y, z);
+        axis.getDirection().set(wx, wy, wz);
+        return rays;
     }
 }
@@ -0,0 +1,154 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentIntHashMap
+ */
+public class ConcurrentIntHashMapTest
+{
+    /**
+     * Tests the conditional operations of the concurrent map
+     */
+    @Test
+    public void testConditionalOperations()
+    {
+        ConcurrentIntHashMap<String> map = new ConcurrentIntHashMap<>();
+        Assert.assertNull(map.putIfAbsent(1, "a"));
+        Assert.assertEquals("a", map.putIfAbsent(1, "b"));
+        Assert.assertEquals("a", map.get(1));
+
+        Assert.assertFalse(map.replace(1, "b", "c"));
+        Assert.assertTrue(map.replace(1, "a", "c"));
+        Assert.assertNull(map.replace(2, "d"));
+        Assert.assertFalse(map.containsKey(2));
+
+        Assert.assertFalse(map.remove(Integer.valueOf(1), "a"));
+        Assert.assertTrue(map.remove(Integer.valueOf(1), "c"));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Tests that removing entries through an iterator removes them from their segments
+     */
+    @Test
+    public void testIteratorRemoval()
+    {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>(4);
+        for(int i = 0; i < 1000; i++)
+        {
+            map.put(i, Integer.valueOf(i));
+        }
+
+        Map<Integer, Integer> visited = new HashMap<>();
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        while(it.hasNext())
+        {
+            Map.Entry<Integer, Integer> entry = it.next();
+            Assert.assertNull("entry visited twice", visited.put(entry.getKey(), entry.getValue()));
+            if(entry.getKey() % 3 != 0)
+                it.remove();
+        }
+
+        Assert.assertEquals(1000, visited.size());
+        Assert.assertEquals(334, map.size());
+        for(int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals(i % 3 == 0, map.containsKey(i));
+        }
+    }
+
+    /**
+     * Tests that concurrent threads adding the same keys each add a key only once
+     */
+    @Test
+    public void testConcurrentPutIfAbsent() throws InterruptedException
+    {
+        final ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>();
+        final AtomicInteger added = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++)
+        {
+            final Integer value = Integer.valueOf(t);
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for(int i = 0; i < 10000; i++)
+                    {
+                        if(map.putIfAbsent(i, value) == null)
+                            added.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        Assert.assertEquals(10000, added.get());
+        Assert.assertEquals(10000, map.size());
+    }
+
+    /**
+     * Tests that lookups without locking always find the keys which stay in the map while other keys of the same
+     * segments are removed and added back, moving the entries of their clusters
+     */
+    @Test
+    public void testLookupsDuringRemovals() throws InterruptedException
+    {
+        final ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>(1);
+        for(int i = 0; i < 1000; i++)
+        {
+            map.put(i, Integer.valueOf(i));
+        }
+
+        final AtomicInteger missed = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while(!done.get())
+                {
+                    // the even keys are never removed
+                    for(int i = 0; i < 1000; i += 2)
+                    {
+                        Integer value = map.get(i);
+                        if(value == null || value.intValue() != i)
+                            missed.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for(int round = 0; round < 200; round++)
+        {
+            for(int i = 1; i < 1000; i += 2)
+            {
+                map.remove(i);
+            }
+            for(int i = 1; i < 1000; i += 2)
+            {
+                map.put(i, Integer.valueOf(i));
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        Assert.assertEquals(0, missed.get());
+        Assert.assertEquals(1000, map.size());
+    }
+}
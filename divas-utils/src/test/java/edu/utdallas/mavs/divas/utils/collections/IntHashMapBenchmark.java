@@ -0,0 +1,225 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing the int-keyed maps with the boxed-key maps they replace, on the workload of the entity maps
+ * of a cell: lookups by id, updates of present ids, and agents leaving and entering the cell.
+ * <p>
+ * This is not a unit test and is not run by the build. Run its <code>main</code> method from the test classpath. Each
+ * map and size runs in its own JVM fork, so the maps do not share a JIT profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntHashMapBenchmark
+{
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({ "1000", "10000", "100000" })
+    private int              size;
+
+    @Param({ "HashMap", "IntHashMap", "ConcurrentHashMap", "ConcurrentIntHashMap" })
+    private String           map;
+
+    private Target           target;
+
+    private int[]            lookups;
+
+    private int              next;
+
+    /**
+     * Fills the map with ids spread as the ids given by the id manager of a long running simulation
+     */
+    @Setup
+    public void setUp()
+    {
+        target = createTarget(map);
+
+        Random random = new Random(1);
+        int[] ids = new int[size];
+        for(int i = 0; i < size; i++)
+        {
+            ids[i] = i * 7 + random.nextInt(7);
+            target.put(ids[i], ids[i]);
+        }
+
+        lookups = new int[LOOKUPS];
+        for(int i = 0; i < LOOKUPS; i++)
+        {
+            lookups[i] = ids[random.nextInt(size)];
+        }
+    }
+
+    /**
+     * Looks up a present id
+     */
+    @Benchmark
+    public Integer get()
+    {
+        return target.get(nextId());
+    }
+
+    /**
+     * Replaces the value of a present id, as a cell updating the state of an agent
+     */
+    @Benchmark
+    public Integer put()
+    {
+        int id = nextId();
+        return target.put(id, id);
+    }
+
+    /**
+     * Removes a present id and adds it back, as an agent leaving and entering a cell
+     */
+    @Benchmark
+    public Integer removeAndPut()
+    {
+        int id = nextId();
+        Integer value = target.remove(id);
+        target.put(id, value);
+        return value;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *        not used
+     * @throws RunnerException
+     *         if the benchmark could not be run
+     */
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(IntHashMapBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private int nextId()
+    {
+        return lookups[next++ & (LOOKUPS - 1)];
+    }
+
+    private static Target createTarget(String name)
+    {
+        switch(name)
+        {
+            case "HashMap":
+                return new BoxedTarget(new HashMap<Integer, Integer>());
+            case "ConcurrentHashMap":
+                return new BoxedTarget(new ConcurrentHashMap<Integer, Integer>());
+            case "IntHashMap":
+                final IntHashMap<Integer> intHashMap = new IntHashMap<Integer>();
+                return new Target()
+                {
+                    @Override
+                    public Integer put(int key, Integer value)
+                    {
+                        return intHashMap.put(key, value);
+                    }
+
+                    @Override
+                    public Integer get(int key)
+                    {
+                        return intHashMap.get(key);
+                    }
+
+                    @Override
+                    public Integer remove(int key)
+                    {
+                        return intHashMap.remove(key);
+                    }
+                };
+            case "ConcurrentIntHashMap":
+                final ConcurrentIntHashMap<Integer> concurrentIntHashMap = new ConcurrentIntHashMap<Integer>();
+                return new Target()
+                {
+                    @Override
+                    public Integer put(int key, Integer value)
+                    {
+                        return concurrentIntHashMap.put(key, value);
+                    }
+
+                    @Override
+                    public Integer get(int key)
+                    {
+                        return concurrentIntHashMap.get(key);
+                    }
+
+                    @Override
+                    public Integer remove(int key)
+                    {
+                        return concurrentIntHashMap.remove(key);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown map: " + name);
+        }
+    }
+
+    /**
+     * The operations of a benchmarked map, called with int keys so that the int-keyed maps are not called through
+     * their boxed-key methods
+     */
+    private interface Target
+    {
+        Integer put(int key, Integer value);
+
+        Integer get(int key);
+
+        Integer remove(int key);
+    }
+
+    /**
+     * The operations of a map with boxed keys
+     */
+    private static class BoxedTarget implements Target
+    {
+        private final Map<Integer, Integer> map;
+
+        BoxedTarget(Map<Integer, Integer> map)
+        {
+            this.map = map;
+        }
+
+        @Override
+        public Integer put(int key, Integer value)
+        {
+            return map.put(key, value);
+        }
+
+        @Override
+        public Integer get(int key)
+        {
+            return map.get(key);
+        }
+
+        @Override
+        public Integer remove(int key)
+        {
+            return map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for IntHashMap
+ */
+public class IntHashMapTest
+{
+    /**
+     * Tests the basic operations on int keys
+     */
+    @Test
+    public void testPutGetRemove()
+    {
+        IntHashMap<String> map = new IntHashMap<>();
+        Assert.assertNull(map.put(1, "a"));
+        Assert.assertNull(map.put(-7, "b"));
+        Assert.assertNull(map.put(0, "c"));
+        Assert.assertEquals("a", map.put(1, "d"));
+
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("d", map.get(1));
+        Assert.assertEquals("b", map.get(Integer.valueOf(-7)));
+        Assert.assertTrue(map.containsKey(0));
+        Assert.assertFalse(map.containsKey(2));
+        Assert.assertNull(map.get("1"));
+
+        Assert.assertEquals("c", map.remove(0));
+        Assert.assertNull(map.remove(0));
+        Assert.assertEquals(2, map.size());
+        Assert.assertFalse(map.containsKey(0));
+    }
+
+    /**
+     * Tests that null values are rejected, since they mark the empty slots
+     */
+    @Test(expected = NullPointerException.class)
+    public void testNullValue()
+    {
+        new IntHashMap<String>().put(1, null);
+    }
+
+    /**
+     * Tests that the entries of a cluster remain reachable after the removal of one of its entries, including clusters
+     * wrapping around the end of the table
+     */
+    @Test
+    public void testBackwardShiftRemoval()
+    {
+        Random random = new Random(1);
+        IntHashMap<Integer> map = new IntHashMap<>(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for(int i = 0; i < 100000; i++)
+        {
+            // a small key range makes clusters and removals of clustered keys frequent
+            int key = random.nextInt(64) * 1024;
+            if(random.nextInt(3) == 0)
+            {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                Integer value = Integer.valueOf(i);
+                Assert.assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+
+        Assert.assertEquals(expected, map);
+        for(Map.Entry<Integer, Integer> entry : expected.entrySet())
+        {
+            Assert.assertEquals(entry.getValue(), map.get(entry.getKey().intValue()));
+        }
+    }
+
+    /**
+     * Tests that removing entries through an iterator visits every other entry exactly once, even when the removal
+     * moves entries of a wrapping cluster
+     */
+    @Test
+    public void testIteratorRemoval()
+    {
+        Random random = new Random(2);
+        for(int round = 0; round < 200; round++)
+        {
+            IntHashMap<Integer> map = new IntHashMap<>();
+            Map<Integer, Integer> expected = new HashMap<>();
+            for(int i = 0; i < 40; i++)
+            {
+                int key = random.nextInt(256);
+                map.put(key, Integer.valueOf(i));
+                expected.put(key, Integer.valueOf(i));
+            }
+
+            Map<Integer, Integer> original = new HashMap<>(expected);
+            Map<Integer, Integer> visited = new HashMap<>();
+            Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+            while(it.hasNext())
+            {
+                Map.Entry<Integer, Integer> entry = it.next();
+                Assert.assertNull("entry visited twice", visited.put(entry.getKey(), entry.getValue()));
+                if(random.nextBoolean())
+                {
+                    it.remove();
+                    expected.remove(entry.getKey());
+                }
+            }
+
+            Assert.assertEquals(original, visited);
+            Assert.assertEquals(expected, map);
+        }
+    }
+
+    /**
+     * Tests that the key and value views write through to the map
+     */
+    @Test
+    public void testViews()
+    {
+        IntHashMap<String> map = new IntHashMap<>();
+        for(int i = 0; i < 10; i++)
+        {
+            map.put(i, Integer.toString(i));
+        }
+
+        Assert.assertTrue(map.keySet().remove(Integer.valueOf(3)));
+        Assert.assertFalse(map.containsKey(3));
+
+        Iterator<String> values = map.values().iterator();
+        while(values.hasNext())
+        {
+            if(Integer.parseInt(values.next()) % 2 == 0)
+                values.remove();
+        }
+        Assert.assertEquals(4, map.size());
+        Assert.assertTrue(map.values().contains("9"));
+
+        for(Map.Entry<Integer, String> entry : map.entrySet())
+        {
+            entry.setValue("x" + entry.getKey());
+        }
+        Assert.assertEquals("x5", map.get(5));
+
+        map.keySet().clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+}
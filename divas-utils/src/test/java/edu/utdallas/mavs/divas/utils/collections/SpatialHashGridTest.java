@@ -0,0 +1,169 @@
+package edu.utdallas.mavs.divas.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for SpatialHashGrid
+ */
+public class SpatialHashGridTest
+{
+    /**
+     * Tests that a rectangle query only finds the values intersecting the rectangle
+     */
+    @Test
+    public void testQuery()
+    {
+        SpatialHashGrid<String> grid = new SpatialHashGrid<>(10);
+        grid.put(1, "a", 0, 0, 1, 1);
+        grid.put(2, "b", 15, 15, 16, 16);
+        grid.put(3, "c", 8, 8, 22, 22);
+        grid.put(4, "d", -35, -35, -34, -34);
+
+        Assert.assertEquals(4, grid.size());
+        Assert.assertEquals(sorted("a", "c"), sorted(grid.query(0, 0, 9, 9)));
+        Assert.assertEquals(sorted("b", "c"), sorted(grid.query(14, 14, 30, 30)));
+        Assert.assertEquals(sorted("d"), sorted(grid.query(-40, -40, -30, -30)));
+        Assert.assertTrue(grid.query(100, 100, 110, 110).isEmpty());
+    }
+
+    /**
+     * Tests that a range query filters out the values of the visited buckets that are farther than the range
+     */
+    @Test
+    public void testQueryRange()
+    {
+        SpatialHashGrid<String> grid = new SpatialHashGrid<>(10);
+        grid.put(1, "near", 3, 0, 3, 0);
+        grid.put(2, "corner", 4, 4, 4, 4);
+        grid.put(3, "far", 30, 30, 31, 31);
+
+        Assert.assertEquals(sorted("near"), sorted(grid.queryRange(0, 0, 5)));
+        Assert.assertEquals(sorted("near", "corner"), sorted(grid.queryRange(0, 0, 6)));
+    }
+
+    /**
+     * Tests that relocating and removing values updates the buckets
+     */
+    @Test
+    public void testRelocateAndRemove()
+    {
+        SpatialHashGrid<String> grid = new SpatialHashGrid<>(10);
+        grid.put(1, "a", 0, 0, 1, 1);
+        grid.put(1, "a", 50, 50, 51, 51);
+
+        Assert.assertEquals(1, grid.size());
+        Assert.assertTrue(grid.query(0, 0, 5, 5).isEmpty());
+        Assert.assertEquals(sorted("a"), sorted(grid.query(45, 45, 55, 55)));
+
+        Assert.assertTrue(grid.remove(1));
+        Assert.assertFalse(grid.remove(1));
+        Assert.assertEquals(0, grid.size());
+        Assert.assertTrue(grid.query(45, 45, 55, 55).isEmpty());
+    }
+
+    /**
+     * Tests that values spanning too many buckets are still found
+     */
+    @Test
+    public void testOversizedValues()
+    {
+        SpatialHashGrid<String> grid = new SpatialHashGrid<>(1);
+        grid.put(1, "wall", 0, 0, 100, 100);
+        grid.put(2, "a", 2, 2, 2, 2);
+
+        Assert.assertEquals(sorted("wall", "a"), sorted(grid.query(1, 1, 3, 3)));
+        Assert.assertEquals(sorted("wall"), sorted(grid.query(90, 90, 91, 91)));
+
+        grid.put(1, "wall", 200, 200, 201, 201);
+        Assert.assertTrue(grid.query(90, 90, 91, 91).isEmpty());
+
+        grid.clear();
+        Assert.assertEquals(0, grid.size());
+        Assert.assertTrue(grid.query(0, 0, 300, 300).isEmpty());
+    }
+
+    /**
+     * Tests the queries of randomly placed values against a linear scan
+     */
+    @Test
+    public void testRandomQueries()
+    {
+        Random random = new Random(1);
+        SpatialHashGrid<Integer> grid = new SpatialHashGrid<>(4);
+        float[][] extents = new float[200][];
+        for(int i = 0; i < extents.length; i++)
+        {
+            float x = random.nextFloat() * 100 - 50;
+            float y = random.nextFloat() * 100 - 50;
+            extents[i] = new float[] { x, y, x + random.nextFloat() * 6, y + random.nextFloat() * 6 };
+            grid.put(i, i, extents[i][0], extents[i][1], extents[i][2], extents[i][3]);
+        }
+
+        for(int q = 0; q < 100; q++)
+        {
+            float minX = random.nextFloat() * 100 - 50;
+            float minY = random.nextFloat() * 100 - 50;
+            float maxX = minX + random.nextFloat() * 20;
+            float maxY = minY + random.nextFloat() * 20;
+
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < extents.length; i++)
+            {
+                if(extents[i][0] <= maxX && extents[i][2] >= minX && extents[i][1] <= maxY && extents[i][3] >= minY)
+                    expected.add(i);
+            }
+            Assert.assertEquals(expected, sorted(grid.query(minX, minY, maxX, maxY)));
+        }
+    }
+
+    /**
+     * Tests that a bucket size which is not positive is rejected
+     */
+    /**
+     * Tests that values and queries spanning more buckets than an int can count are handled without visiting their
+     * buckets
+     */
+    @Test
+    public void testExtremeExtents()
+    {
+        SpatialHashGrid<String> grid = new SpatialHashGrid<>(1);
+        grid.put(1, "small", 0, 0, 1, 1);
+        grid.put(2, "huge", -Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+        grid.put(3, "wide", -3e9f, 0, 3e9f, 0);
+
+        Assert.assertEquals(sorted("small", "huge", "wide"), sorted(grid.query(-1, -1, 2, 2)));
+        Assert.assertEquals(sorted("small", "huge", "wide"), sorted(grid.query(-3e9f, -3e9f, 3e9f, 3e9f)));
+        Assert.assertEquals(sorted("huge"), sorted(grid.queryRange(1e20f, 1e20f, 1)));
+
+        Assert.assertTrue(grid.remove(2));
+        Assert.assertTrue(grid.remove(3));
+        Assert.assertEquals(sorted("small"), sorted(grid.query(-Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBucketSize()
+    {
+        new SpatialHashGrid<String>(0);
+    }
+
+    @SafeVarargs
+    private static <T extends Comparable<T>> List<T> sorted(T... values)
+    {
+        List<T> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return sorted(list);
+    }
+
+    private static <T extends Comparable<T>> List<T> sorted(List<T> values)
+    {
+        List<T> list = new ArrayList<>(values);
+        Collections.sort(list);
+        return list;
+    }
+}
@@ -35,19 +35,21 @@ import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 
 import edu.utdallas.mavs.divas.core.config.Config;
+import edu.utdallas.mavs.divas.core.config.VisConfig;
 import edu.utdallas.mavs.divas.core.msg.RuntimeAgentCommandMsg.RuntimeAgentCommand;
 import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 import edu.utdallas.mavs.divas.core.sim.env.CellBounds;
 import edu.utdallas.mavs.divas.core.sim.env.CellID;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
 import edu.utdallas.mavs.divas.core.sim.env.CellMapNode;
 import edu.utdallas.mavs.divas.utils.StatsHelper;
 import edu.utdallas.mavs.divas.visualization.vis2D.Visualizer2DApplication;
 import edu.utdallas.mavs.divas.visualization.vis2D.engine.Picker2D;
 import edu.utdallas.mavs.divas.visualization.vis2D.engine.Picker2D.CurrentlySelectedType;
 import edu.utdallas.mavs.divas.visualization.vis2D.panels.HeaderPanel.SimulationMode;
-import edu.utdallas.mavs.divas.visualization.vis2D.spectator.PlayGround2D;
+import edu.utdallas.mavs.divas.visualization.vis2D.spectator.PlayGround2DSnapshot;
 import edu.utdallas.mavs.divas.visualization.vis2D.spectator.VisualSpectator2D;
 import edu.utdallas.mavs.divas.visualization.vis2D.utils.Interpolation;
 import edu.utdallas.mavs.divas.visualization.vis2D.vo.ExplosionVO2D;
@@ -87,6 +89,7 @@ public class MapPanel extends JPanel implements Observer
     private CellMapNode        mapRoot;
     private CellBounds         envBounds;
     private double             scaleFactor               = 1.0;
+    private long               lastViewTime;
 
     StatsHelper                cycleAverage              = new StatsHelper(30);
 
@@ -115,7 +118,7 @@ public class MapPanel extends JPanel implements Observer
                 {
                     Point2D envLocation = Interpolation.interpolate(getPanelBounds(), envBounds, e.getPoint());
 
-                    CellMapNode cell = VisualSpectator2D.getPlayGround().getCellMap().findMapNode((float) envLocation.getX(), 0f, (float) envLocation.getY());
+                    CellMapNode cell = VisualSpectator2D.getSnapshot().getCellMap().findMapNode((float) envLocation.getX(), 0f, (float) envLocation.getY());
 
                     if(cell != null)
                     {
@@ -196,10 +199,11 @@ public class MapPanel extends JPanel implements Observer
             @Override
             public void mousePressed(MouseEvent e)
             {
-                if(VisualSpectator2D.getPlayGround().getCellMap() != null)
+                CellMap cellMap = VisualSpectator2D.getSnapshot().getCellMap();
+                if(cellMap != null)
                 {
                     Point2D envLocation = Interpolation.interpolate(getPanelBounds(), envBounds, e.getPoint());
-                    CellMapNode cell = VisualSpectator2D.getPlayGround().getCellMap().findMapNode((float) envLocation.getX(), 0f, (float) envLocation.getY());
+                    CellMapNode cell = cellMap.findMapNode((float) envLocation.getX(), 0f, (float) envLocation.getY());
                     Point2D aLoc = Interpolation.revereseInterpolate(envBounds, getPanelBounds(), new Point2D.Float(e.getX(), e.getY()));
                     if(cell != null)
                     {
@@ -253,7 +257,7 @@ public class MapPanel extends JPanel implements Observer
                             else if(toolBox.getSimMode() == SimulationMode.CHANGE_AGENT_GOAL)
                             {
                                 Random r = new Random();
-                                for(AgentState a : VisualSpectator2D.getPlayGround().getAgents().values())
+                                for(AgentState a : VisualSpectator2D.getSnapshot().getAgents())
                                 {
                                     int x = 50 - r.nextInt(100);
                                     int y = 50 - r.nextInt(100);
@@ -288,16 +292,32 @@ public class MapPanel extends JPanel implements Observer
         g2.fillRect(0, 0, getWidth(), getHeight());
         g2.setPaint(Color.black);
 
-        if(VisualSpectator2D.getCycles() != -1)
+        // the snapshot is read once, so that all the layers show the same cycle
+        PlayGround2DSnapshot snapshot = VisualSpectator2D.getSnapshot();
+        if(snapshot.getCellMap() != null && envBounds != null)
         {
-            draw(g2, mapRoot);
+            draw(g2, snapshot);
+            updateView();
         }
     }
 
-    private void draw(final Graphics2D g2, CellMapNode node)
+    /**
+     * Sends the region of the environment shown in the visible part of the panel to the visual spectator, so that it
+     * only receives the updates of the cells in view.
+     */
+    private void updateView()
     {
-        PlayGround2D playGround2D = VisualSpectator2D.getPlayGround().clone();
+        long now = System.currentTimeMillis();
+        Rectangle2D visible = getVisibleRect();
+        if(now - lastViewTime < VisConfig.getInstance().viewUpdateInterval || visible.isEmpty())
+            return;
+
+        VisualSpectator2D.getInstance().setView(Interpolation.interpolate(getPanelBounds(), envBounds, visible));
+        lastViewTime = now;
+    }
 
+    private void draw(final Graphics2D g2, PlayGround2DSnapshot playGround2D)
+    {
         drawCellControllers(g2, playGround2D);
 
         drawEnvObjects(g2, playGround2D);
@@ -309,7 +329,7 @@ public class MapPanel extends JPanel implements Observer
         drawFireworks(g2, playGround2D);
     }
 
-    private void drawFireworks(Graphics2D g2, PlayGround2D playGround2D)
+    private void drawFireworks(Graphics2D g2, PlayGround2DSnapshot playGround2D)
     {
         for(FireworkVO2D f : playGround2D.getFireworks())
         {
@@ -333,7 +353,7 @@ public class MapPanel extends JPanel implements Observer
         }
     }
 
-    private void drawExplosions(Graphics2D g2, PlayGround2D playGround2D)
+    private void drawExplosions(Graphics2D g2, PlayGround2DSnapshot playGround2D)
     {
         for(ExplosionVO2D e : playGround2D.getExplosions())
         {
@@ -356,9 +376,9 @@ public class MapPanel extends JPanel implements Observer
         }
     }
 
-    private void drawAgents(Graphics2D g2, PlayGround2D playGround2D)
+    private void drawAgents(Graphics2D g2, PlayGround2DSnapshot playGround2D)
     {
-        for(AgentState agent : playGround2D.getAgents().values())
+        for(AgentState agent : playGround2D.getAgents())
         {
             // interpolate to find the agent's panel position
             Point2D aLoc = Interpolation.interpolate(envBounds, getPanelBounds(), new Point2D.Float(agent.getPosition().x, agent.getPosition().z));
@@ -398,7 +418,7 @@ public class MapPanel extends JPanel implements Observer
         }
     }
 
-    private void drawEnvObjects(Graphics2D g2, PlayGround2D playGround2D)
+    private void drawEnvObjects(Graphics2D g2, PlayGround2DSnapshot playGround2D)
     {
         g2.setColor(Color.red);
 
@@ -459,13 +479,13 @@ public class MapPanel extends JPanel implements Observer
         g2.setColor(Color.black);
     }
 
-    private void drawCellControllers(Graphics2D g2, PlayGround2D playGround2D)
+    private void drawCellControllers(Graphics2D g2, PlayGround2DSnapshot playGround2D)
     {
         Rectangle2D bounds;
         Paint orig = g2.getPaint();
 
         VisualSpectator2D.getInstance();
-        cycleAverage.add((float) VisualSpectator2D.getPeriod());
+        cycleAverage.add((float) playGround2D.getPeriod());
         int average = (int) cycleAverage.getAverage();
 
         g2.setPaint((average > 150) ? Color.red.darker() : Color.black.darker());
@@ -503,7 +523,11 @@ public class MapPanel extends JPanel implements Observer
      */
     public void reloadMap()
     {
-        mapRoot = VisualSpectator2D.getPlayGround().getCellMap().getRoot();
+        CellMap cellMap = VisualSpectator2D.getSnapshot().getCellMap();
+        if(cellMap == null)
+            return;
+
+        mapRoot = cellMap.getRoot();
         scaleFactor = (MAX_DIMENSION / (mapRoot.getBounds().getWidth())) * toolBox.getZoomFactor();
         envBounds = mapRoot.getBounds();
 
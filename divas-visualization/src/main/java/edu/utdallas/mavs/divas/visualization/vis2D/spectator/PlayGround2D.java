@@ -3,9 +3,11 @@ package edu.utdallas.mavs.divas.visualization.vis2D.spectator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import edu.utdallas.mavs.divas.core.client.CellInterestManager;
 import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
 import edu.utdallas.mavs.divas.core.sim.common.event.BombEvent;
 import edu.utdallas.mavs.divas.core.sim.common.event.EnvEvent;
@@ -267,7 +269,29 @@ public class PlayGround2D
 
         // if the agent is known
         if(agent != null)
-            agents.remove(agent);
+            agents.remove(agent.getID());
+    }
+
+    /**
+     * Removes the agents and environment objects out of the cells in view
+     * 
+     * @param interestManager
+     *        the manager of the subscriptions to the cells in view
+     */
+    public synchronized void removeOutOfView(CellInterestManager interestManager)
+    {
+        synchronized(agents)
+        {
+            for(Iterator<AgentState> it = agents.values().iterator(); it.hasNext();)
+                if(!interestManager.isVisible(it.next().getPosition()))
+                    it.remove();
+        }
+        synchronized(envObjects)
+        {
+            for(Iterator<EnvObjectState> it = envObjects.iterator(); it.hasNext();)
+                if(!interestManager.isVisible(it.next().getPosition()))
+                    it.remove();
+        }
     }
 
     /**
@@ -343,14 +367,16 @@ public class PlayGround2D
     }
 
     /**
-     * Updates the current cellMap in the playGround with the given cellMap
+     * Updates the current cellMap in the playGround with the given cellMap. The current cellMap is kept when the
+     * given cell update does not carry one.
      * 
      * @param cell
      *        CellMap to be set in the playGround
      */
     public synchronized void updateCell(CellStateDto cell)
     {
-        this.cellMap = cell.getCellMap();
+        if(cell.getCellMap() != null)
+            this.cellMap = cell.getCellMap();
         this.cells.put(cell.getId(), cell);
     }
 
@@ -488,33 +514,34 @@ public class PlayGround2D
         return false;
     }
 
-    private void setCellMap(CellMap cellMap)
-    {
-        this.cellMap = cellMap;
-    }
-
-    @Override
-    public synchronized PlayGround2D clone()
+    /**
+     * Copies the current content of the playground into an immutable snapshot.
+     * 
+     * @param cycle
+     *        The cycle number of the snapshot
+     * @param period
+     *        The period of the cycle of the snapshot
+     * @return A snapshot of the playground
+     */
+    public synchronized PlayGround2DSnapshot snapshot(long cycle, int period)
     {
-        PlayGround2D playGround2D = new PlayGround2D();
-        playGround2D.getAgents().putAll(this.getAgents());
-        playGround2D.getCells().putAll(this.getCells());
-        playGround2D.getEnvObjects().addAll(this.getEnvObjects());
-        playGround2D.setCellMap(this.getCellMap());
-        playGround2D.getExplosions().addAll(this.getExplosions());
-        playGround2D.getFireworks().addAll(this.getFireworks());
-        return playGround2D;
+        List<AgentState> agentsCopy;
+        synchronized(agents)
+        {
+            agentsCopy = new ArrayList<AgentState>(agents.values());
+        }
+        return new PlayGround2DSnapshot(cycle, period, agentsCopy, new ArrayList<EnvObjectState>(envObjects), new ArrayList<ExplosionVO2D>(explosions), new ArrayList<FireworkVO2D>(fireworks), cellMap);
     }
 
     public synchronized int getAgentsCount(CellID cell)
     {
         CellStateDto dto = cells.get(cell);
-        return (dto != null) ? dto.getAgentStates().size() : 0;
+        return (dto != null) ? dto.getAgentCount() : 0;
     }
 
     public synchronized int getEnvObjCount(CellID cell)
     {
         CellStateDto dto = cells.get(cell);
-        return (dto != null) ? dto.getEnvObjects().size() : 0;
+        return (dto != null) ? dto.getEnvObjectCount() : 0;
     }
 }
@@ -0,0 +1,138 @@
+package edu.utdallas.mavs.divas.visualization.vis2D.spectator;
+
+import java.util.Collections;
+import java.util.List;
+
+import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
+import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.visualization.vis2D.vo.ExplosionVO2D;
+import edu.utdallas.mavs.divas.visualization.vis2D.vo.FireworkVO2D;
+
+/**
+ * This class describes the content of the playground at the end of a simulation cycle.
+ * <p>
+ * Snapshots are published by the visual spectator once per received cycle, and read by the 2D visualizer without
+ * locking. The lists of a snapshot never change once it is published. The states they hold are the states received
+ * from the simulation, which the playground replaces rather than modifies.
+ */
+public class PlayGround2DSnapshot
+{
+    /**
+     * The snapshot of an empty playground
+     */
+    public static final PlayGround2DSnapshot EMPTY = new PlayGround2DSnapshot(-1, 0, Collections.<AgentState> emptyList(), Collections.<EnvObjectState> emptyList(), Collections.<ExplosionVO2D> emptyList(), Collections.<FireworkVO2D> emptyList(), null);
+
+    private final long                       cycle;
+
+    private final int                        period;
+
+    private final List<AgentState>           agents;
+
+    private final List<EnvObjectState>       envObjects;
+
+    private final List<ExplosionVO2D>        explosions;
+
+    private final List<FireworkVO2D>         fireworks;
+
+    private final CellMap                    cellMap;
+
+    /**
+     * Constructs a snapshot of the playground. The given lists are owned by the snapshot from now on.
+     *
+     * @param cycle
+     *        The cycle number of the snapshot
+     * @param period
+     *        The period of the cycle of the snapshot
+     * @param agents
+     *        The agent states
+     * @param envObjects
+     *        The environment object states
+     * @param explosions
+     *        The explosion events
+     * @param fireworks
+     *        The fireworks events
+     * @param cellMap
+     *        The cell map of the environment
+     */
+    public PlayGround2DSnapshot(long cycle, int period, List<AgentState> agents, List<EnvObjectState> envObjects, List<ExplosionVO2D> explosions, List<FireworkVO2D> fireworks, CellMap cellMap)
+    {
+        this.cycle = cycle;
+        this.period = period;
+        this.agents = Collections.unmodifiableList(agents);
+        this.envObjects = Collections.unmodifiableList(envObjects);
+        this.explosions = Collections.unmodifiableList(explosions);
+        this.fireworks = Collections.unmodifiableList(fireworks);
+        this.cellMap = cellMap;
+    }
+
+    /**
+     * Gets the cycle number of this snapshot
+     *
+     * @return The cycle number of the last cell update in this snapshot
+     */
+    public long getCycle()
+    {
+        return cycle;
+    }
+
+    /**
+     * Gets the period of the cycle of this snapshot
+     *
+     * @return The cycle period of the last cell update in this snapshot
+     */
+    public int getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * Gets the agent states in this snapshot
+     *
+     * @return List of agent states
+     */
+    public List<AgentState> getAgents()
+    {
+        return agents;
+    }
+
+    /**
+     * Gets the environment object states in this snapshot
+     *
+     * @return List of environment object states
+     */
+    public List<EnvObjectState> getEnvObjects()
+    {
+        return envObjects;
+    }
+
+    /**
+     * Gets the explosion events in this snapshot
+     *
+     * @return List of explosions
+     */
+    public List<ExplosionVO2D> getExplosions()
+    {
+        return explosions;
+    }
+
+    /**
+     * Gets the fireworks events in this snapshot
+     *
+     * @return List of fireworks
+     */
+    public List<FireworkVO2D> getFireworks()
+    {
+        return fireworks;
+    }
+
+    /**
+     * Gets the cell map in this snapshot
+     *
+     * @return The cell map, or <code>null</code> if no cell map was received yet
+     */
+    public CellMap getCellMap()
+    {
+        return cellMap;
+    }
+}
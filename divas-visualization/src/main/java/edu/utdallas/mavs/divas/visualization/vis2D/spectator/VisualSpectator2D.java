@@ -1,14 +1,21 @@
 package edu.utdallas.mavs.divas.visualization.vis2D.spectator;
 
+import java.awt.Shape;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Observable;
+import java.util.Set;
 
 import com.google.inject.Inject;
 
+import edu.utdallas.mavs.divas.core.client.CellInterestManager;
 import edu.utdallas.mavs.divas.core.client.SimAdapter;
 import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.config.VisConfig;
 import edu.utdallas.mavs.divas.core.msg.RemoveStateMsg;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
+import edu.utdallas.mavs.divas.core.sim.env.CellID;
 import edu.utdallas.mavs.divas.mts.DivasTopic;
 import edu.utdallas.mavs.divas.mts.MTSPayload;
 import edu.utdallas.mavs.divas.mts.Subscriber;
@@ -20,20 +27,38 @@ import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
  * <p>
  * This class setup the subscriptions to message topics, and defines how each message topic is handled. It's responsible for updating the PlayGround information by extracting information from messages received from the simulation and dump it in the
  * PlayGround.
+ * <p>
+ * Once all the cells in view of a cycle were received, or when the first cell of the next cycle arrives, an immutable
+ * snapshot of the PlayGround is published and the observers are notified, so that the visualizer reads the last
+ * complete cycle without locking the PlayGround while it is updated.
  */
 public class VisualSpectator2D extends Observable
 {
-    private SimAdapter               simClientAdapter;
+    private SimAdapter                           simClientAdapter;
+
+    private static PlayGround2D                  playground2D   = null;
+
+    private static Multithreader                 multithreader;
+
+    private static long                          cycles         = -1;
 
-    private static PlayGround2D      playground2D = null;
+    private static VisualSpectator2D             instance;
 
-    private static Multithreader     multithreader;
+    private static int                           period;
 
-    private static long              cycles       = -1;
+    private static volatile PlayGround2DSnapshot snapshot       = PlayGround2DSnapshot.EMPTY;
+
+    /**
+     * The cycle whose cells are being received, and the cells received so far in that cycle. Guarded by the set.
+     */
+    private final Set<CellID>                    receivedCells  = new HashSet<CellID>();
 
-    private static VisualSpectator2D instance;
+    private long                                 receivingCycle = -1;
 
-    private static int               period;
+    /**
+     * Subscribes to the updates of the cells in view, or <code>null</code> until the spectator is started
+     */
+    private volatile CellInterestManager         interestManager;
 
     /**
      * Constructs the VisualSpectator2D by injecting the SimAdapter and PlayGround2D
@@ -83,6 +108,16 @@ public class VisualSpectator2D extends Observable
         return playground2D;
     }
 
+    /**
+     * Gets the last published snapshot of the playground
+     * 
+     * @return The content of the playground at the end of the last received cycle
+     */
+    public static PlayGround2DSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
     /**
      * Gets a singleton instance of the visual spectator
      * 
@@ -93,14 +128,32 @@ public class VisualSpectator2D extends Observable
         return instance;
     }
 
+    /**
+     * Sets the region of the environment in view. Only the updates of the cells intersecting that region are received
+     * when view subscriptions are enabled.
+     * 
+     * @param view
+     *        the region in view, in the (x, z) plane of the environment, or <code>null</code> to receive all the cells
+     */
+    public void setView(Shape view)
+    {
+        CellInterestManager manager = interestManager;
+        if(manager != null)
+            manager.setView(VisConfig.getInstance().viewSubscriptions ? view : null);
+    }
+
     /**
      * Setups the subscription to message topics
      */
     public void start()
     {
-        simClientAdapter.addSubscription(DivasTopic.envTopic, cellUpdateMsgHandler());
+        interestManager = new CellInterestManager(simClientAdapter, cellUpdateMsgHandler());
+        interestManager.start();
         simClientAdapter.addSubscription(DivasTopic.destroyEntityTopic, destroyEntityMsgHandler());
         simClientAdapter.addSubscription(DivasTopic.hostConfigTopic, simEndingMsgHandler());
+
+        // the cell updates in between keyframes only carry the entities that changed
+        simClientAdapter.requestKeyframe();
     }
 
     private Subscriber cellUpdateMsgHandler()
@@ -113,6 +166,10 @@ public class VisualSpectator2D extends Observable
                 if(payload.getData() instanceof CellStateDto)
                 {
                     final CellStateDto cell = (CellStateDto) payload.getData();
+
+                    // the previous cycle is over, even if some of its cells were not received
+                    startCycle(cell.getCycleNumber());
+
                     cycles = cell.getCycleNumber();
                     period = cell.getPeriod();
 
@@ -139,9 +196,17 @@ public class VisualSpectator2D extends Observable
 
                     multithreader.executeAndWait(task);
 
-                    setChanged();
-                    notifyObservers();
+                    List<Integer> departedAgents = interestManager.cellReceived(cell);
+                    for(Integer id : departedAgents)
+                    {
+                        AgentState agent = playground2D.findAgent(id);
+                        if(agent != null)
+                            playground2D.removeAgent(agent);
+                    }
+                    if(interestManager.visibilityChanged())
+                        playground2D.removeOutOfView(interestManager);
 
+                    endCell(cell);
                 }
             }
         };
@@ -178,12 +243,64 @@ public class VisualSpectator2D extends Observable
                 {
                 case 2:
                     playground2D.reset();
+                    publish();
                     break;
                 }
             }
         };
     }
 
+    /**
+     * Publishes the cells of the previous cycle when a cell of a newer cycle is received.
+     */
+    private void startCycle(long cycle)
+    {
+        synchronized(receivedCells)
+        {
+            if(cycle > receivingCycle)
+            {
+                if(!receivedCells.isEmpty())
+                {
+                    publish();
+                }
+                receivingCycle = cycle;
+                receivedCells.clear();
+            }
+        }
+    }
+
+    /**
+     * Publishes the cells of the current cycle once all the cells in view were received.
+     */
+    private void endCell(CellStateDto cell)
+    {
+        synchronized(receivedCells)
+        {
+            if(cell.getCycleNumber() == receivingCycle && receivedCells.add(cell.getId()))
+            {
+                int cellCount = interestManager.getVisibleCellCount();
+                if(cellCount > 0 && receivedCells.size() >= cellCount)
+                {
+                    publish();
+                    // the late cells of this cycle are published with the next cycle
+                    receivedCells.clear();
+                    receivingCycle++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the playground and notifies the observers.
+     */
+    private void publish()
+    {
+        snapshot = playground2D.snapshot(cycles, period);
+
+        setChanged();
+        notifyObservers();
+    }
+
     @Override
     protected void finalize() throws Throwable
     {
@@ -196,6 +313,11 @@ public class VisualSpectator2D extends Observable
      */
     public void stop()
     {
+        if(interestManager != null)
+        {
+            interestManager.stop();
+        }
+
         try
         {
             finalize();
@@ -1,21 +1,21 @@
 package edu.utdallas.mavs.divas.visualization.vis3D;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.awt.geom.Rectangle2D;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.jme3.app.SimpleApplication;
 import com.jme3.asset.AssetManager;
 import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
 import com.jme3.input.KeyInput;
 import com.jme3.input.controls.ActionListener;
 import com.jme3.input.controls.KeyTrigger;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
 
-import edu.utdallas.mavs.divas.utils.Multithreader;
-import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
-import edu.utdallas.mavs.divas.utils.StatsHelper;
+import edu.utdallas.mavs.divas.core.config.VisConfig;
 import edu.utdallas.mavs.divas.visualization.vis3D.appstate.DivasAppState;
 import edu.utdallas.mavs.divas.visualization.vis3D.appstate.EnvironmentAppState;
 import edu.utdallas.mavs.divas.visualization.vis3D.appstate.FreeCameraAppState;
@@ -27,6 +27,7 @@ import edu.utdallas.mavs.divas.visualization.vis3D.dialog.customControls.panel.H
 import edu.utdallas.mavs.divas.visualization.vis3D.dialog.customControls.panel.MenuDialog;
 import edu.utdallas.mavs.divas.visualization.vis3D.engine.CursorManager;
 import edu.utdallas.mavs.divas.visualization.vis3D.engine.HUDMessageArea;
+import edu.utdallas.mavs.divas.visualization.vis3D.engine.UpdateScheduler;
 import edu.utdallas.mavs.divas.visualization.vis3D.engine.VisualizerTask;
 import edu.utdallas.mavs.divas.visualization.vis3D.spectator.PlayGround;
 import edu.utdallas.mavs.divas.visualization.vis3D.spectator.VisualSpectator;
@@ -38,9 +39,9 @@ import edu.utdallas.mavs.divas.visualization.vis3D.vo.EventVO;
  * <p>
  * This class initializes all the main components of the 3D visualizer (renderer, audio, cameras, application states). The simulation updates are enqueued by the visualizer spectator thread and
  * consumed during the visualizer update loop. Adding or removal of Visualized Objects (VOs) are handled by the JMe3 internal working queue. On the other hand, VO updates are handled in parallel by
- * this component, extending the update loop of JMonkey. In addition to processing the <code>updateQueue</code> concurrently, the consumption strategy deployed by this component looks to the
- * simulation time of the update. If there is more than one update for the same VO (each VO can have one and only one update per simulation cycle), the queue consumer discards the older updates. This
- * optimization allows the visualizer to cope with heavier loads of updates from the simulation.
+ * this component, extending the update loop of JMonkey. The updates are coalesced by VO in the {@link UpdateScheduler}, so that only the latest state of each VO is applied, and are processed within
+ * a time budget per frame. The updates that do not fit in a frame are applied in the next frames. This allows the visualizer to cope with heavier loads of updates from the simulation without
+ * stalling the rendering.
  * <p>
  * The different application states correspond to different modes of operations of the 3d Visualizer.
  * 
@@ -100,19 +101,26 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
     protected boolean                                            debugMode             = false;
 
     /**
-     * Thread safe update queue, for concurrent processing of VO state updates during the visualizer update loop
+     * Thread safe update scheduler, for concurrent processing of VO state updates during the visualizer update loop
      */
-    protected static final ConcurrentLinkedQueue<VisualizerTask> updateQueue           = new ConcurrentLinkedQueue<VisualizerTask>();
+    protected static final UpdateScheduler                       updateScheduler       = new UpdateScheduler(20);
 
     /**
-     * Update queue executor
+     * The update scheduler counters, displayed in debug mode
      */
-    private static final Multithreader                           multithreader         = new Multithreader("visualizerUpdateQueueThrd", ThreadPoolType.FIXED, 20, false);
+    protected BitmapText                                         updateStatsText;
 
-    /**
-     * Windowed average helper, to estimate max queue updates
-     */
-    private static final StatsHelper                             maxQueueUpdatesHelper = new StatsHelper(10);
+    private long                                                 lastStatsTime;
+
+    private long                                                 lastEnqueuedCount;
+
+    private long                                                 lastCoalescedCount;
+
+    private long                                                 lastOverrunCount;
+
+    private long                                                 lastFrameCount;
+
+    private long                                                 lastViewTime;
 
     protected NiftyScreen<?, ?>                                  niftyScreen;
 
@@ -193,6 +201,8 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
         /* Interact with game events in the main loop */
         divasAppState.interpolate(System.currentTimeMillis());
         divasAppState.updateHUD();
+        updateUpdateStats();
+        updateView();
         updateEffects(tpf);
         updateCamera();
         updateGUI(tpf);
@@ -210,44 +220,87 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
 
     private void runUpdateTasks()
     {
-        // calculate an upper bound for the maximum number of update tasks
-        maxQueueUpdatesHelper.add(getMaxQueuedUpdates());
-        int maxQueuedUpdatesPerCycle = Math.round(maxQueueUpdatesHelper.getAverage());
-
-        // calculate an estimate of the number of updates to be processed during one simulation cycle
-        // float estimatedSimUpdatesPerCycle = VisualSpectator.getPeriod() * maxQueuedUpdatesPerCycle / getTpf();
-
-        // process the update queue in parallel
-        long currentCycles = VisualSpectator.getCycles();
-        Collection<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
-        VisualizerTask task;
-        while(tasks.size() < maxQueuedUpdatesPerCycle && (task = updateQueue.poll()) != null)
+        updateScheduler.runUpdates(VisConfig.getInstance().updateBudget * 1000000L);
+    }
+
+    /**
+     * Displays the update scheduler counters of the last second in debug mode
+     */
+    private void updateUpdateStats()
+    {
+        long now = System.currentTimeMillis();
+        if(updateStatsText == null || now - lastStatsTime < 1000)
+            return;
+
+        long enqueuedCount = updateScheduler.getEnqueuedCount();
+        long coalescedCount = updateScheduler.getCoalescedCount();
+        long overrunCount = updateScheduler.getOverrunCount();
+        long frameCount = updateScheduler.getFrameCount();
+
+        if(debugMode)
         {
-            if(task.getCycle() == currentCycles)
-            {
-                tasks.add(task);
-            }
+            long enqueued = enqueuedCount - lastEnqueuedCount;
+            float coalesceRatio = (enqueued > 0) ? (float) (coalescedCount - lastCoalescedCount) / enqueued : 0;
+            updateStatsText.setText(String.format("Updates: queue %d, coalesced %.0f%%, budget overruns %d/%d frames", updateScheduler.getQueueDepth(), coalesceRatio * 100, overrunCount - lastOverrunCount, frameCount - lastFrameCount));
+            updateStatsText.setLocalTranslation(10, settings.getHeight() - 10, 0);
+            updateStatsText.setCullHint(Spatial.CullHint.Never);
+        }
+        else
+        {
+            updateStatsText.setCullHint(Spatial.CullHint.Always);
         }
-        multithreader.executeAndWait(tasks);
+
+        lastStatsTime = now;
+        lastEnqueuedCount = enqueuedCount;
+        lastCoalescedCount = coalescedCount;
+        lastOverrunCount = overrunCount;
+        lastFrameCount = frameCount;
     }
 
-    private float getMaxQueuedUpdates()
+    /**
+     * Sends the region of the ground seen by the camera to the visual spectator, so that it only receives the updates
+     * of the cells in view
+     */
+    private void updateView()
     {
-        float tpf = getTpf();
-        float period = VisualSpectator.getPeriod();
-        float voCount = VisualSpectator.getNumberOfObjects();
-        float result = ((tpf * voCount) / period) * 1.1f;
-
-        // lower bound for the updates to be processed
-        if(result < 10)
-            result = 10;
+        long now = System.currentTimeMillis();
+        if(now - lastViewTime < VisConfig.getInstance().viewUpdateInterval)
+            return;
 
-        return result;
+        VisualSpectator.setView(getGroundFootprint());
+        lastViewTime = now;
     }
 
-    private float getTpf()
+    /**
+     * Gets the bounding rectangle of the ground seen by the camera, in the (x, z) plane. The rays through the corners
+     * of the screen are clipped at the ground, or at the far plane when they do not reach the ground.
+     * 
+     * @return the region of the ground in view
+     */
+    protected Rectangle2D getGroundFootprint()
     {
-        return timer.getTimePerFrame() * 1000 * speed;
+        Rectangle2D footprint = null;
+        Vector2f corner = new Vector2f();
+
+        for(int i = 0; i < 4; i++)
+        {
+            corner.set((i & 1) * cam.getWidth(), (i >> 1) * cam.getHeight());
+            Vector3f near = cam.getWorldCoordinates(corner, 0);
+            Vector3f far = cam.getWorldCoordinates(corner, 1);
+
+            if(near.y > 0 && far.y < 0)
+            {
+                far = near.add(far.subtract(near).multLocal(near.y / (near.y - far.y)));
+            }
+
+            if(footprint == null)
+            {
+                footprint = new Rectangle2D.Float(near.x, near.z, 0, 0);
+            }
+            footprint.add(near.x, near.z);
+            footprint.add(far.x, far.z);
+        }
+        return footprint;
     }
 
     /**
@@ -255,14 +308,14 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
      * rendering thread.
      * <p>
      * Callables are executed right at the beginning of the main loop. They are executed even if the application is currently paused or out of focus. Note: This method was overridden because
-     * 'taskQueue' is private in currently JME3 build. This allows us to process the queue in parallel in the main update loop.
+     * 'taskQueue' is private in currently JME3 build. This allows us to process the queue in parallel in the main update loop. A task replaces the pending task with the same key, if any.
      * 
      * @param task
      *        a task to be enqueued and processed in the visualizer update loop
      */
     public void enqueueTask(VisualizerTask task)
     {
-        updateQueue.add(task);
+        updateScheduler.enqueue(task);
     }
 
     /**
@@ -584,6 +637,13 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
     {
         hudMessageArea = new HUDMessageArea(guiFont);
         guiNode.attachChild(hudMessageArea);
+
+        updateStatsText = new BitmapText(guiFont, false);
+        updateStatsText.setName("UpdateStats");
+        updateStatsText.setSize(guiFont.getCharSet().getRenderedSize() - 2f);
+        updateStatsText.setColor(ColorRGBA.Orange.clone());
+        updateStatsText.setCullHint(Spatial.CullHint.Always);
+        guiNode.attachChild(updateStatsText);
     }
 
     /**
@@ -611,7 +671,7 @@ public abstract class BaseApplication<S extends SimulatingAppState<?>, E extends
             e.printStackTrace();
         }
 
-        multithreader.terminate();
+        updateScheduler.terminate();
         Visualizer3DApplication.getInstance().stop();
 
         // exit normally
@@ -11,6 +11,7 @@ import com.jme3.system.AppSettings;
 import edu.utdallas.mavs.divas.core.client.SimAdapter;
 import edu.utdallas.mavs.divas.core.config.VisConfig;
 import edu.utdallas.mavs.divas.visualization.vis3D.appstate.DivasAppState;
+import edu.utdallas.mavs.divas.visualization.vis3D.engine.CrowdRenderer;
 import edu.utdallas.mavs.divas.visualization.vis3D.spectator.VisualSpectator;
 
 /**
@@ -94,6 +95,17 @@ public abstract class Visualizer3DApplication<A extends BaseApplication<?, ?>>
         return app.getStateManager().getState(DivasAppState.class).getVisRootNode();
     }
 
+    /**
+     * Gets the crowd renderer of the visualizer, which renders the agents when crowd rendering is enabled.
+     * 
+     * @return the crowd renderer, or <code>null</code> if the visualizer is not initialized
+     */
+    public CrowdRenderer getCrowdRenderer()
+    {
+        DivasAppState appState = app.getStateManager().getState(DivasAppState.class);
+        return (appState == null) ? null : appState.getCrowdRenderer();
+    }
+
     /**
      * Gets the singleton instance of the JMe3 application.
      * 
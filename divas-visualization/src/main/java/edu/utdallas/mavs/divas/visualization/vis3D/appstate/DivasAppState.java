@@ -7,6 +7,7 @@ import com.jme3.app.state.AppStateManager;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 
+import edu.utdallas.mavs.divas.visualization.vis3D.engine.CrowdRenderer;
 import edu.utdallas.mavs.divas.visualization.vis3D.vo.BaseVO;
 import edu.utdallas.mavs.divas.visualization.vis3D.vo.InterpolatedVO;
 
@@ -16,13 +17,16 @@ import edu.utdallas.mavs.divas.visualization.vis3D.vo.InterpolatedVO;
  * It contains the visualization root node, to which visualized objects (VOs) are attached to be visualized by the 3D visualizer, and the editing root node, to which editable VOs are attached to be modified by the user interacting with the
  * visualizer.
  * <p>
- * This application state is also responsible for the interpolation of VOs, allowing for the VOs to move smoothly.
+ * This application state is also responsible for the interpolation of VOs, allowing for the VOs to move smoothly. Agents
+ * rendered as a crowd are interpolated all at once by the {@link CrowdRenderer} of this application state.
  */
 public class DivasAppState extends AbstractAppState
 {
     private static SimpleApplication app;
     private Node                     visRootNode;
     private Node                     editRootNode;
+    private Node                     crowdRootNode;
+    private CrowdRenderer            crowdRenderer;
 
     @Override
     public void update(float tpf)
@@ -33,6 +37,7 @@ public class DivasAppState extends AbstractAppState
     {
         super.stateDetached(stateManager);
         app.getRootNode().detachChild(visRootNode);
+        app.getRootNode().detachChild(crowdRootNode);
     }
 
     @Override
@@ -44,8 +49,14 @@ public class DivasAppState extends AbstractAppState
             visRootNode = new Node();
         if(editRootNode == null)
             editRootNode = new Node();
+        if(crowdRootNode == null)
+        {
+            crowdRootNode = new Node();
+            crowdRenderer = new CrowdRenderer(crowdRootNode, app.getAssetManager());
+        }
         ((SimpleApplication) app).getRootNode().attachChild(visRootNode);
         ((SimpleApplication) app).getRootNode().attachChild(editRootNode);
+        ((SimpleApplication) app).getRootNode().attachChild(crowdRootNode);
     }
 
     /**
@@ -78,6 +89,16 @@ public class DivasAppState extends AbstractAppState
         return editRootNode;
     }
 
+    /**
+     * Gets the crowd renderer, which renders the agents when crowd rendering is enabled.
+     * 
+     * @return the crowd renderer of the 3D visualizer
+     */
+    public CrowdRenderer getCrowdRenderer()
+    {
+        return crowdRenderer;
+    }
+
     /**
      * Interpolates each VO based on the current time of the rendering loop of the 3D visualizer.
      * 
@@ -85,6 +106,8 @@ public class DivasAppState extends AbstractAppState
      */
     public void interpolate(long now)
     {
+        crowdRenderer.interpolate(now, app.getCamera().getLocation());
+
         if(visRootNode.getChildren() == null)
             return;
 
@@ -0,0 +1,433 @@
+package edu.utdallas.mavs.divas.visualization.vis3D.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.jme3.animation.AnimControl;
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.BatchNode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.Spatial.CullHint;
+import com.jme3.scene.shape.Box;
+
+import edu.utdallas.mavs.divas.core.config.VisConfig;
+import edu.utdallas.mavs.divas.utils.collections.IntHashMap;
+import edu.utdallas.mavs.divas.visualization.vis3D.vo.InterpolatedVO;
+
+/**
+ * This class renders the agents of the 3D visualizer as a crowd.
+ * <p>
+ * The interpolation state of the agents is kept in primitive arrays, one slot per agent, and all agents are
+ * interpolated in a single pass per frame instead of one VO at a time. The same pass sorts the agents in three levels
+ * of detail by their distance to the camera: near agents are drawn and animated as usual, agents beyond the animation
+ * distance have their animation updated every few frames only, and agents beyond the impostor distance are drawn as
+ * boxes. The boxes of the agents sharing a model are merged in a single batch, drawn in one call.
+ * <p>
+ * Agents are added, updated, and removed by the update tasks of their VOs, which run concurrently, so every access to
+ * the slots is guarded by this renderer.
+ */
+public class CrowdRenderer
+{
+    private static final int             INITIAL_CAPACITY = 64;
+
+    /**
+     * Weight of the last update interval in the average update interval of an agent
+     */
+    private static final float           INTERVAL_WEIGHT  = 0.1f;
+
+    private static final byte            DETAIL_FULL      = 0;
+
+    private static final byte            DETAIL_REDUCED   = 1;
+
+    private static final byte            DETAIL_IMPOSTOR  = 2;
+
+    private final Node                   crowdNode;
+
+    private final AssetManager           assetManager;
+
+    /**
+     * The box drawn in place of the agents beyond the impostor distance, standing on the origin
+     */
+    private final Box                    impostorMesh     = new Box(new Vector3f(0, 1, 0), 1, 1, 1);
+
+    /**
+     * The batches of boxes, by model name
+     */
+    private final Map<String, BatchNode> batches          = new HashMap<String, BatchNode>();
+
+    /**
+     * The materials of the boxes, by model name
+     */
+    private final Map<String, Material>  materials        = new HashMap<String, Material>();
+
+    private final Set<BatchNode>         dirtyBatches     = new HashSet<BatchNode>();
+
+    /**
+     * The slots of the agents, by agent id. The slots in use are always the first <code>count</code> slots.
+     */
+    private final IntHashMap<Integer>    slots            = new IntHashMap<Integer>();
+
+    private int                          count;
+
+    private int[]                        ids              = new int[INITIAL_CAPACITY];
+    private Spatial[]                    nodes            = new Spatial[INITIAL_CAPACITY];
+    private Spatial[]                    models           = new Spatial[INITIAL_CAPACITY];
+    private AnimControl[]                controls         = new AnimControl[INITIAL_CAPACITY];
+    private Geometry[]                   impostors        = new Geometry[INITIAL_CAPACITY];
+    private byte[]                       details          = new byte[INITIAL_CAPACITY];
+
+    // 3 floats per translation, scale and size, 4 floats per rotation
+    private float[]                      sizes            = new float[3 * INITIAL_CAPACITY];
+    private float[]                      prevTranslations = new float[3 * INITIAL_CAPACITY];
+    private float[]                      nextTranslations = new float[3 * INITIAL_CAPACITY];
+    private float[]                      prevRotations    = new float[4 * INITIAL_CAPACITY];
+    private float[]                      nextRotations    = new float[4 * INITIAL_CAPACITY];
+    private float[]                      prevScales       = new float[3 * INITIAL_CAPACITY];
+    private float[]                      nextScales       = new float[3 * INITIAL_CAPACITY];
+    private long[]                       updateTimes      = new long[INITIAL_CAPACITY];
+    private float[]                      updateIntervals  = new float[INITIAL_CAPACITY];
+    private boolean[]                    interpolated     = new boolean[INITIAL_CAPACITY];
+
+    private long                         frames;
+
+    private long                         lastFrameTime;
+
+    private final Quaternion             rotation         = new Quaternion();
+
+    /**
+     * Creates a new crowd renderer.
+     *
+     * @param crowdNode
+     *        the node to which the batches of boxes are attached
+     * @param assetManager
+     *        the asset manager of the visualizer
+     */
+    public CrowdRenderer(Node crowdNode, AssetManager assetManager)
+    {
+        this.crowdNode = crowdNode;
+        this.assetManager = assetManager;
+    }
+
+    private void resize(int capacity)
+    {
+        ids = Arrays.copyOf(ids, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+        models = Arrays.copyOf(models, capacity);
+        controls = Arrays.copyOf(controls, capacity);
+        impostors = Arrays.copyOf(impostors, capacity);
+        details = Arrays.copyOf(details, capacity);
+        sizes = Arrays.copyOf(sizes, 3 * capacity);
+        prevTranslations = Arrays.copyOf(prevTranslations, 3 * capacity);
+        nextTranslations = Arrays.copyOf(nextTranslations, 3 * capacity);
+        prevRotations = Arrays.copyOf(prevRotations, 4 * capacity);
+        nextRotations = Arrays.copyOf(nextRotations, 4 * capacity);
+        prevScales = Arrays.copyOf(prevScales, 3 * capacity);
+        nextScales = Arrays.copyOf(nextScales, 3 * capacity);
+        updateTimes = Arrays.copyOf(updateTimes, capacity);
+        updateIntervals = Arrays.copyOf(updateIntervals, capacity);
+        interpolated = Arrays.copyOf(interpolated, capacity);
+    }
+
+    /**
+     * Adds an agent to the crowd. The agent is drawn with full detail until the next frame, and is not moved until its
+     * first update.
+     *
+     * @param id
+     *        the id of the agent
+     * @param node
+     *        the VO of the agent, whose transform is set by this renderer
+     * @param model
+     *        the model of the agent, hidden while the agent is drawn as a box
+     * @param control
+     *        the animation control of the model, or <code>null</code> if the model is not animated
+     * @param modelName
+     *        the name of the model of the agent. The boxes of the agents with the same model are batched together.
+     * @param size
+     *        the half extents of the box drawn in place of the agent
+     */
+    public synchronized void add(int id, Spatial node, Spatial model, AnimControl control, String modelName, Vector3f size)
+    {
+        if(slots.containsKey(id))
+        {
+            remove(id);
+        }
+        if(count == ids.length)
+        {
+            resize(2 * count);
+        }
+
+        int i = count++;
+        slots.put(id, Integer.valueOf(i));
+        ids[i] = id;
+        nodes[i] = node;
+        models[i] = model;
+        controls[i] = control;
+        details[i] = DETAIL_FULL;
+        sizes[3 * i] = size.x;
+        sizes[3 * i + 1] = size.y;
+        sizes[3 * i + 2] = size.z;
+        updateTimes[i] = 0;
+        updateIntervals[i] = 0;
+
+        BatchNode batch = getBatch(modelName);
+        Geometry impostor = new Geometry("Impostor" + id, impostorMesh);
+        impostor.setMaterial(materials.get(modelName));
+        // the geometries of a batch are always drawn, so the boxes of the agents drawn as models are scaled down to
+        // nothing
+        impostor.setLocalScale(0);
+        batch.attachChild(impostor);
+        impostors[i] = impostor;
+        dirtyBatches.add(batch);
+    }
+
+    /**
+     * Removes an agent from the crowd, restoring the visibility and the animation of its model
+     *
+     * @param id
+     *        the id of the agent
+     */
+    public synchronized void remove(int id)
+    {
+        Integer slot = slots.remove(id);
+        if(slot == null)
+            return;
+
+        int i = slot;
+        setDetail(i, DETAIL_FULL);
+        BatchNode batch = (BatchNode) impostors[i].getParent();
+        batch.detachChild(impostors[i]);
+        dirtyBatches.add(batch);
+
+        int last = --count;
+        if(i != last)
+        {
+            move(last, i);
+            slots.put(ids[i], Integer.valueOf(i));
+        }
+        nodes[last] = null;
+        models[last] = null;
+        controls[last] = null;
+        impostors[last] = null;
+    }
+
+    private void move(int from, int to)
+    {
+        ids[to] = ids[from];
+        nodes[to] = nodes[from];
+        models[to] = models[from];
+        controls[to] = controls[from];
+        impostors[to] = impostors[from];
+        details[to] = details[from];
+        System.arraycopy(sizes, 3 * from, sizes, 3 * to, 3);
+        System.arraycopy(prevTranslations, 3 * from, prevTranslations, 3 * to, 3);
+        System.arraycopy(nextTranslations, 3 * from, nextTranslations, 3 * to, 3);
+        System.arraycopy(prevRotations, 4 * from, prevRotations, 4 * to, 4);
+        System.arraycopy(nextRotations, 4 * from, nextRotations, 4 * to, 4);
+        System.arraycopy(prevScales, 3 * from, prevScales, 3 * to, 3);
+        System.arraycopy(nextScales, 3 * from, nextScales, 3 * to, 3);
+        updateTimes[to] = updateTimes[from];
+        updateIntervals[to] = updateIntervals[from];
+        interpolated[to] = interpolated[from];
+    }
+
+    /**
+     * Updates the state of an agent of the crowd
+     *
+     * @param id
+     *        the id of the agent
+     * @param translation
+     *        the new translation of the agent
+     * @param rotation
+     *        the new rotation of the agent
+     * @param scale
+     *        the new scale of the agent
+     * @param interpolate
+     *        a flag indicating if the agent moves smoothly to its new state, or right away
+     */
+    public synchronized void update(int id, Vector3f translation, Quaternion rotation, Vector3f scale, boolean interpolate)
+    {
+        Integer slot = slots.get(id);
+        if(slot == null)
+            return;
+
+        int i = slot;
+        long now = System.currentTimeMillis();
+        if(updateTimes[i] == 0 || !interpolate)
+        {
+            storeVector(prevTranslations, i, translation);
+            storeRotation(prevRotations, i, rotation);
+            storeVector(prevScales, i, scale);
+        }
+        else
+        {
+            System.arraycopy(nextTranslations, 3 * i, prevTranslations, 3 * i, 3);
+            System.arraycopy(nextRotations, 4 * i, prevRotations, 4 * i, 4);
+            System.arraycopy(nextScales, 3 * i, prevScales, 3 * i, 3);
+
+            float interval = now - updateTimes[i];
+            updateIntervals[i] = (updateIntervals[i] == 0) ? interval : updateIntervals[i] + INTERVAL_WEIGHT * (interval - updateIntervals[i]);
+        }
+        storeVector(nextTranslations, i, translation);
+        storeRotation(nextRotations, i, rotation);
+        storeVector(nextScales, i, scale);
+        updateTimes[i] = now;
+        interpolated[i] = interpolate;
+    }
+
+    private static void storeVector(float[] array, int i, Vector3f v)
+    {
+        array[3 * i] = v.x;
+        array[3 * i + 1] = v.y;
+        array[3 * i + 2] = v.z;
+    }
+
+    private static void storeRotation(float[] array, int i, Quaternion q)
+    {
+        array[4 * i] = q.getX();
+        array[4 * i + 1] = q.getY();
+        array[4 * i + 2] = q.getZ();
+        array[4 * i + 3] = q.getW();
+    }
+
+    /**
+     * Interpolates the agents of the crowd, and updates their level of detail. Must be called from the visualizer
+     * update loop.
+     *
+     * @param now
+     *        the time to which the agents should be interpolated
+     * @param cameraLocation
+     *        the location of the camera
+     */
+    public synchronized void interpolate(long now, Vector3f cameraLocation)
+    {
+        VisConfig config = VisConfig.getInstance();
+        float animationDistance = (config.crowdAnimationDistance > 0) ? config.crowdAnimationDistance : Float.POSITIVE_INFINITY;
+        float impostorDistance = (config.crowdImpostorDistance > 0) ? config.crowdImpostorDistance : Float.POSITIVE_INFINITY;
+        float animationDistanceSquared = animationDistance * animationDistance;
+        float impostorDistanceSquared = impostorDistance * impostorDistance;
+        int animationInterval = config.crowdAnimationInterval;
+        float animationTime = (lastFrameTime == 0) ? 0 : animationInterval * (now - lastFrameTime) / 1000f;
+
+        frames++;
+        lastFrameTime = now;
+
+        for(int i = 0; i < count; i++)
+        {
+            if(updateTimes[i] == 0)
+                continue;
+
+            float t = 1f;
+            long interval = now - updateTimes[i];
+            if(interpolated[i] && updateIntervals[i] > 0 && interval < InterpolatedVO.INTERPOLATION_TIME)
+            {
+                t = Math.max(0f, Math.min(1f, interval / updateIntervals[i]));
+            }
+            float s = 1f - t;
+
+            int v = 3 * i;
+            float x = s * prevTranslations[v] + t * nextTranslations[v];
+            float y = s * prevTranslations[v + 1] + t * nextTranslations[v + 1];
+            float z = s * prevTranslations[v + 2] + t * nextTranslations[v + 2];
+            float sx = s * prevScales[v] + t * nextScales[v];
+            float sy = s * prevScales[v + 1] + t * nextScales[v + 1];
+            float sz = s * prevScales[v + 2] + t * nextScales[v + 2];
+
+            // normalized linear interpolation along the shortest arc
+            int q = 4 * i;
+            float tq = (prevRotations[q] * nextRotations[q] + prevRotations[q + 1] * nextRotations[q + 1] + prevRotations[q + 2] * nextRotations[q + 2] + prevRotations[q + 3] * nextRotations[q + 3] < 0) ? -t : t;
+            float qx = s * prevRotations[q] + tq * nextRotations[q];
+            float qy = s * prevRotations[q + 1] + tq * nextRotations[q + 1];
+            float qz = s * prevRotations[q + 2] + tq * nextRotations[q + 2];
+            float qw = s * prevRotations[q + 3] + tq * nextRotations[q + 3];
+            rotation.set(qx, qy, qz, qw).normalizeLocal();
+
+            nodes[i].setLocalTranslation(x, y, z);
+            nodes[i].setLocalRotation(rotation);
+            nodes[i].setLocalScale(sx, sy, sz);
+
+            float dx = x - cameraLocation.x;
+            float dy = y - cameraLocation.y;
+            float dz = z - cameraLocation.z;
+            float distanceSquared = dx * dx + dy * dy + dz * dz;
+            if(distanceSquared > impostorDistanceSquared)
+            {
+                setDetail(i, DETAIL_IMPOSTOR);
+                impostors[i].setLocalTranslation(x, y, z);
+                impostors[i].setLocalRotation(rotation);
+                impostors[i].setLocalScale(sx * sizes[v], sy * sizes[v + 1], sz * sizes[v + 2]);
+            }
+            else if(distanceSquared > animationDistanceSquared)
+            {
+                setDetail(i, DETAIL_REDUCED);
+                // the animations of the agents are updated in turns, each one with the time of all frames in between
+                if(controls[i] != null && (frames + i) % animationInterval == 0)
+                {
+                    controls[i].setEnabled(true);
+                    controls[i].update(animationTime);
+                    controls[i].setEnabled(false);
+                }
+            }
+            else
+            {
+                setDetail(i, DETAIL_FULL);
+            }
+        }
+
+        for(BatchNode batch : dirtyBatches)
+        {
+            batch.batch();
+        }
+        dirtyBatches.clear();
+    }
+
+    /**
+     * Changes the level of detail of an agent
+     */
+    private void setDetail(int i, byte detail)
+    {
+        if(details[i] == detail)
+            return;
+
+        if(details[i] == DETAIL_IMPOSTOR)
+        {
+            models[i].setCullHint(CullHint.Inherit);
+            impostors[i].setLocalScale(0);
+        }
+        if(controls[i] != null)
+        {
+            // the animations of the agents with reduced detail are updated by this renderer, and the animations of the
+            // agents drawn as boxes are not updated at all
+            controls[i].setEnabled(detail == DETAIL_FULL);
+        }
+        if(detail == DETAIL_IMPOSTOR)
+        {
+            models[i].setCullHint(CullHint.Always);
+        }
+        details[i] = detail;
+    }
+
+    private BatchNode getBatch(String modelName)
+    {
+        BatchNode batch = batches.get(modelName);
+        if(batch == null)
+        {
+            batch = new BatchNode("Crowd" + modelName);
+            batches.put(modelName, batch);
+            crowdNode.attachChild(batch);
+
+            Material material = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+            material.setColor("Color", ColorRGBA.randomColor());
+            materials.put(modelName, material);
+        }
+        return batch;
+    }
+}
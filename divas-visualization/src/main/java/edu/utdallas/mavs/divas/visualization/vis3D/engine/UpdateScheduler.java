@@ -0,0 +1,198 @@
+package edu.utdallas.mavs.divas.visualization.vis3D.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.utdallas.mavs.divas.utils.Multithreader;
+import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+import edu.utdallas.mavs.divas.utils.StatsHelper;
+
+/**
+ * This class schedules the VO state updates of the visualizer.
+ * <p>
+ * Updates are coalesced by the key of their task: an update enqueued for a VO that still has an update pending
+ * replaces it, keeping its place in the queue, since the update of a VO always applies the latest state of the VO. Each
+ * frame, the pending updates are processed concurrently in batches until the time budget of the frame is spent. The
+ * batches are sized from the measured time per update, and the updates left over are processed in the next frames
+ * instead of being dropped.
+ */
+public class UpdateScheduler
+{
+    private static final int                                MIN_BATCH_SIZE = 16;
+
+    private final ConcurrentHashMap<Object, VisualizerTask> pending        = new ConcurrentHashMap<Object, VisualizerTask>();
+
+    /**
+     * The keys of the pending updates, in the order they were first enqueued
+     */
+    private final ConcurrentLinkedQueue<Object>             order          = new ConcurrentLinkedQueue<Object>();
+
+    private final AtomicLong                                enqueued       = new AtomicLong();
+
+    private final AtomicLong                                coalesced      = new AtomicLong();
+
+    private volatile long                                   overruns;
+
+    private volatile long                                   frames;
+
+    /**
+     * Windowed average of the time per update, in nanoseconds. Only used in the visualizer update loop.
+     */
+    private final StatsHelper                               updateTime     = new StatsHelper(30);
+
+    private boolean                                         measured;
+
+    private final Multithreader                             multithreader;
+
+    /**
+     * Creates a new update scheduler.
+     *
+     * @param threadCount the number of threads processing the updates
+     */
+    public UpdateScheduler(int threadCount)
+    {
+        multithreader = new Multithreader("visualizerUpdateQueueThrd", ThreadPoolType.FIXED, threadCount, false);
+    }
+
+    /**
+     * Enqueues an update, replacing the pending update with the same key.
+     *
+     * @param task the update task
+     */
+    public void enqueue(VisualizerTask task)
+    {
+        Object key = task.getKey() != null ? task.getKey() : task;
+
+        enqueued.incrementAndGet();
+        if(pending.put(key, task) == null)
+        {
+            order.add(key);
+        }
+        else
+        {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Processes the pending updates until the given time budget is spent. Must be called from the visualizer update
+     * loop.
+     *
+     * @param budget the time budget, in nanoseconds
+     */
+    public void runUpdates(long budget)
+    {
+        frames++;
+
+        long start = System.nanoTime();
+        int batchSize = getBatchSize(budget);
+        List<Callable<Object>> batch = new ArrayList<Callable<Object>>(batchSize);
+
+        while(true)
+        {
+            Object key;
+            while(batch.size() < batchSize && (key = order.poll()) != null)
+            {
+                VisualizerTask task = pending.remove(key);
+                if(task != null)
+                {
+                    batch.add(task);
+                }
+            }
+            if(batch.isEmpty())
+                break;
+
+            long batchStart = System.nanoTime();
+            multithreader.executeAndWait(batch);
+            long end = System.nanoTime();
+
+            updateTime.add((float) (end - batchStart) / batch.size());
+            measured = true;
+            batch.clear();
+
+            long remaining = budget - (end - start);
+            if(remaining <= 0)
+            {
+                if(remaining < 0)
+                {
+                    overruns++;
+                }
+                break;
+            }
+            batchSize = getBatchSize(remaining);
+        }
+    }
+
+    /**
+     * Gets the number of updates expected to fit in the given time
+     */
+    private int getBatchSize(long time)
+    {
+        if(!measured)
+            return MIN_BATCH_SIZE;
+
+        return (int) Math.max(MIN_BATCH_SIZE, Math.min(Integer.MAX_VALUE / 2, time / Math.max(1f, updateTime.getAverage())));
+    }
+
+    /**
+     * Gets the number of pending updates
+     *
+     * @return the number of VOs with an update waiting to be processed
+     */
+    public int getQueueDepth()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Gets the number of updates enqueued so far
+     *
+     * @return the number of enqueued updates
+     */
+    public long getEnqueuedCount()
+    {
+        return enqueued.get();
+    }
+
+    /**
+     * Gets the number of updates that replaced a pending update so far
+     *
+     * @return the number of coalesced updates
+     */
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    /**
+     * Gets the number of frames whose updates took longer than their budget so far
+     *
+     * @return the number of budget overruns
+     */
+    public long getOverrunCount()
+    {
+        return overruns;
+    }
+
+    /**
+     * Gets the number of frames processed so far
+     *
+     * @return the number of frames
+     */
+    public long getFrameCount()
+    {
+        return frames;
+    }
+
+    /**
+     * Stops the threads processing the updates
+     */
+    public void terminate()
+    {
+        multithreader.terminate();
+    }
+}
@@ -14,6 +14,7 @@ public class VisualizerTask implements Callable<Object>
 {
     private long             cycle;
     private Callable<Object> task;
+    private Object           key;
 
     /**
      * Constructs a task to be executed.
@@ -28,6 +29,19 @@ public class VisualizerTask implements Callable<Object>
         this.task = task;
     }
 
+    /**
+     * Constructs a task to be executed, replacing any pending task with the same key.
+     * 
+     * @param task a {@link Callable} to be executed in the {@link BaseApplication} update loop
+     * @param cycle the cycle number of the simulation relative to this task
+     * @param key the key of the task, usually the VO it updates
+     */
+    public VisualizerTask(Callable<Object> task, long cycle, Object key)
+    {
+        this(task, cycle);
+        this.key = key;
+    }
+
     @Override
     public Object call() throws Exception
     {
@@ -44,4 +58,14 @@ public class VisualizerTask implements Callable<Object>
         return cycle;
     }
 
+    /**
+     * Gets the key of this task
+     * 
+     * @return the key of the task, or <code>null</code> if this task is never replaced by another
+     */
+    public Object getKey()
+    {
+        return key;
+    }
+
 }
@@ -3,9 +3,7 @@ package edu.utdallas.mavs.divas.visualization.vis3D.spectator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +13,8 @@ import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.core.sim.common.state.EnvObjectState;
 import edu.utdallas.mavs.divas.core.sim.env.CellID;
 import edu.utdallas.mavs.divas.core.sim.env.CellMap;
+import edu.utdallas.mavs.divas.utils.collections.ConcurrentIntHashMap;
+import edu.utdallas.mavs.divas.utils.collections.IntHashMap;
 import edu.utdallas.mavs.divas.visualization.vis3D.vo.AgentVO;
 import edu.utdallas.mavs.divas.visualization.vis3D.vo.CellBoundsVO;
 import edu.utdallas.mavs.divas.visualization.vis3D.vo.EnvObjectVO;
@@ -27,27 +27,37 @@ import edu.utdallas.mavs.divas.visualization.vis3D.vo.EventVO;
  */
 public abstract class PlayGround
 {
-    private final static Logger     logger = LoggerFactory.getLogger(PlayGround.class);
+    private final static Logger                logger = LoggerFactory.getLogger(PlayGround.class);
 
     /**
      * A HashMap that stores the agent Id along with it's agent state for all agents in the simulation.
      */
-    protected Map<Integer, AgentVO<?>> agents;
+    protected ConcurrentIntHashMap<AgentVO<?>> agents;
 
     /**
      * A List of explosion events that currently exist in the simulation
      */
-    protected List<EnvObjectVO>     envObjects;
+    protected List<EnvObjectVO>                envObjects;
+
+    /**
+     * The environment objects in the list of environment objects, by id. Guarded by the list.
+     */
+    private final IntHashMap<EnvObjectVO>      envObjectsById;
 
     /**
      * A List of visualized events that currently exist in the simulation
      */
-    protected List<EventVO>         events;
+    protected List<EventVO>                    events;
+
+    /**
+     * The events in the list of events, by id. Guarded by the list.
+     */
+    private final IntHashMap<EventVO>          eventsById;
 
     /**
      * The current environment cell controller bounds
      */
-    protected CellBoundsVO          cellBounds;
+    protected CellBoundsVO                     cellBounds;
 
     /**
      * Default Constructor for the playGround that initialize an empty lists and Maps
@@ -55,9 +65,11 @@ public abstract class PlayGround
      */
     public PlayGround()
     {
-        agents = Collections.synchronizedMap(new HashMap<Integer, AgentVO<?>>());
+        agents = new ConcurrentIntHashMap<AgentVO<?>>();
         envObjects = Collections.synchronizedList(new ArrayList<EnvObjectVO>());
+        envObjectsById = new IntHashMap<EnvObjectVO>();
         events = Collections.synchronizedList(new ArrayList<EventVO>());
+        eventsById = new IntHashMap<EventVO>();
         cellBounds = new CellBoundsVO();
     }
 
@@ -106,14 +118,10 @@ public abstract class PlayGround
      */
     public EnvObjectVO findEnvObject(int envObjectID)
     {
-        // prevent concurrent modification of envObjects
         synchronized(envObjects)
         {
-            for(EnvObjectVO envObject : envObjects)
-                if(envObject.getState().getID() == envObjectID)
-                    return envObject;
+            return envObjectsById.get(envObjectID);
         }
-        return null;
     }
 
     /**
@@ -125,10 +133,7 @@ public abstract class PlayGround
      */
     public AgentVO<?> findAgent(int agentID)
     {
-        synchronized(agents)
-        {
-            return agents.get(agentID);
-        }
+        return agents.get(agentID);
     }
 
     /**
@@ -162,11 +167,8 @@ public abstract class PlayGround
     {
         synchronized(events)
         {
-            for(EventVO event : events)
-                if(event.getEvent().getID() == eventId)
-                    return event;
+            return eventsById.get(eventId);
         }
-        return null;
     }
 
     /**
@@ -202,8 +204,7 @@ public abstract class PlayGround
             if(knownEnvObject == null)
             {
                 if(obj.isVisualized()) // if the object is alive
-                    envObjects.add(createEnvObjectVO(obj, cycle)); // create and add
-                                                                   // the object
+                    addEnvObjectVO(obj.getID(), createEnvObjectVO(obj, cycle)); // create and add the object
                 // to the list
                 // otherwise, ignore, don't need to add a dead object
             }
@@ -330,7 +331,9 @@ public abstract class PlayGround
             {
                 if(event.getAge() <= 1)
                 {
-                    events.add(createEventVO(event, cycle));
+                    EventVO vo = createEventVO(event, cycle);
+                    events.add(vo);
+                    eventsById.put(event.getID(), vo);
                 }
                 else if(event.getAge() >= event.getMaxAge())
                 {
@@ -375,7 +378,16 @@ public abstract class PlayGround
         synchronized(agents)
         {
             agent.destroy(); // destroy the agent
-            agents.remove(agent); // remove the agent from the list
+            agents.remove(agent.getState().getID()); // remove the agent from the list
+        }
+    }
+
+    private void addEnvObjectVO(int id, EnvObjectVO eoVO)
+    {
+        synchronized(envObjects)
+        {
+            envObjects.add(eoVO);
+            envObjectsById.put(id, eoVO);
         }
     }
 
@@ -385,13 +397,18 @@ public abstract class PlayGround
         {
             eoVO.destroy(); // destroy the eo
             envObjects.remove(eoVO); // remove the eo from the list
+            envObjectsById.remove(eoVO.getState().getID());
         }
     }
 
     private void removeEventVO(EventVO event)
     {
         event.destroy();
-        events.remove(event);
+        synchronized(events)
+        {
+            events.remove(event);
+            eventsById.remove(event.getEvent().getID());
+        }
     }
 
     /**
@@ -416,6 +433,7 @@ public abstract class PlayGround
                 eoVO.enqueueDetachSpatial();
             }
             envObjects.clear();
+            envObjectsById.clear();
         }
         synchronized(events)
         {
@@ -424,6 +442,7 @@ public abstract class PlayGround
                 eventVO.enqueueDetachSpatial();
             }
             events.clear();
+            eventsById.clear();
         }
         synchronized(cellBounds)
         {
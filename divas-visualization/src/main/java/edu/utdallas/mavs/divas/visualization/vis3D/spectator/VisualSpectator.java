@@ -1,12 +1,18 @@
 package edu.utdallas.mavs.divas.visualization.vis3D.spectator;
 
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
+import edu.utdallas.mavs.divas.core.client.CellInterestManager;
 import edu.utdallas.mavs.divas.core.client.SimAdapter;
 import edu.utdallas.mavs.divas.core.client.dto.CellStateDto;
+import edu.utdallas.mavs.divas.core.client.replay.ReplayPlayer;
 import edu.utdallas.mavs.divas.core.config.SimConfig;
 import edu.utdallas.mavs.divas.core.config.VisConfig;
 import edu.utdallas.mavs.divas.core.msg.RemoveEventMsg;
@@ -19,6 +25,8 @@ import edu.utdallas.mavs.divas.mts.MTSPayload;
 import edu.utdallas.mavs.divas.mts.Subscriber;
 import edu.utdallas.mavs.divas.utils.Multithreader;
 import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
+import edu.utdallas.mavs.divas.visualization.vis3D.vo.AgentVO;
+import edu.utdallas.mavs.divas.visualization.vis3D.vo.EnvObjectVO;
 
 /**
  * This class handles the messages received from the simulation host
@@ -28,19 +36,26 @@ import edu.utdallas.mavs.divas.utils.Multithreader.ThreadPoolType;
  */
 public class VisualSpectator
 {
-    private final static Logger  logger          = LoggerFactory.getLogger(VisualSpectator.class);
+    private final static Logger                 logger          = LoggerFactory.getLogger(VisualSpectator.class);
+
+    private SimAdapter                          simClientAdapter;
+
+    private static PlayGround                   playground      = null;
 
-    private SimAdapter           simClientAdapter;
+    private static Multithreader                multithreader;
 
-    private static PlayGround    playground      = null;
+    private static long                         cycles;
 
-    private static Multithreader multithreader;
+    private static int                          period;
 
-    private static long          cycles;
+    private static Object                       playgroundMutex = new Object();
 
-    private static int           period;
+    private static boolean                      replaying;
 
-    private static Object        playgroundMutex = new Object();
+    /**
+     * Subscribes to the updates of the cells in view, or <code>null</code> until the spectator is started
+     */
+    private static volatile CellInterestManager interestManager;
 
     /**
      * Constructs the VisualSpectator by injecting the SimAdapter and PlayGround
@@ -99,15 +114,47 @@ public class VisualSpectator
         return playground;
     }
 
+    /**
+     * Sets the region of the environment in view. Only the updates of the cells intersecting that region are received
+     * when view subscriptions are enabled.
+     * 
+     * @param view
+     *        the region in view, in the (x, z) plane of the environment, or <code>null</code> to receive all the cells
+     */
+    public static void setView(Shape view)
+    {
+        CellInterestManager manager = interestManager;
+        if(manager != null)
+            manager.setView(VisConfig.getInstance().viewSubscriptions ? view : null);
+    }
+
     /**
      * Setups the subscription to message topics
      */
     public void start()
     {
-        simClientAdapter.addSubscription(DivasTopic.envTopic, cellUpdateMsgHandler());
+        interestManager = new CellInterestManager(simClientAdapter, cellUpdateMsgHandler());
+        interestManager.start();
         simClientAdapter.addSubscription(DivasTopic.destroyEntityTopic, destroyEntityMsgHandler());
         simClientAdapter.addSubscription(DivasTopic.hostConfigTopic, simEndingMsgHandler());
         simClientAdapter.addSubscription(DivasTopic.simulationPropertiesTopic, simPropertiesUpdateMsgHandler());
+
+        // the cell updates in between keyframes only carry the entities that changed
+        simClientAdapter.requestKeyframe();
+    }
+
+    /**
+     * Setups the subscription to the messages of a replay log, so that a recorded simulation is visualized instead of
+     * the running one
+     * 
+     * @param player
+     *        the player of the replay log
+     */
+    public void replay(ReplayPlayer player)
+    {
+        replaying = true;
+        player.addSubscription(DivasTopic.envTopic, cellUpdateMsgHandler());
+        player.addSubscription(DivasTopic.destroyEntityTopic, destroyEntityMsgHandler());
     }
 
     private Subscriber cellUpdateMsgHandler()
@@ -120,7 +167,8 @@ public class VisualSpectator
                 if(payload.getData() instanceof CellStateDto)
                 {
                     final CellStateDto cell = (CellStateDto) payload.getData();
-                    if(cycles < cell.getCycleNumber())
+                    // a replay may be moved back to an earlier cycle
+                    if(cycles < cell.getCycleNumber() || replaying)
                         cycles = cell.getCycleNumber();
                     period = cell.getPeriod();
 
@@ -129,7 +177,9 @@ public class VisualSpectator
                         @Override
                         public void run()
                         {
-                            playground.updateCellBounds(cell.getCellMap(), cell.getCycleNumber());
+                            // deltas only carry the cell map after a split or merge
+                            if(cell.getCellMap() != null)
+                                playground.updateCellBounds(cell.getCellMap(), cell.getCycleNumber());
                             for(AgentState agent : cell.getAgentStates())
                             {
                                 playground.updateAgent(agent, cell.getCycleNumber());
@@ -149,12 +199,42 @@ public class VisualSpectator
                     synchronized(playgroundMutex)
                     {
                         multithreader.executeAndWait(task);
+
+                        CellInterestManager manager = interestManager;
+                        if(manager != null && !replaying)
+                            removeOutOfView(manager, manager.cellReceived(cell));
                     }
                 }
             }
         };
     }
 
+    /**
+     * Removes the agents that left the cells in view, and the entities out of view once the cells in view changed.
+     * Must be called while holding the playground mutex.
+     */
+    private static void removeOutOfView(CellInterestManager manager, List<Integer> departedAgents)
+    {
+        for(Integer id : departedAgents)
+        {
+            playground.removeAgent(id);
+        }
+
+        if(manager.visibilityChanged())
+        {
+            for(AgentVO<?> agent : playground.findAllAgents())
+            {
+                if(!manager.isVisible(agent.getState().getPosition()))
+                    playground.removeAgent(agent.getState().getID());
+            }
+            for(EnvObjectVO envObject : new ArrayList<EnvObjectVO>(playground.findAllEnvObjects()))
+            {
+                if(!manager.isVisible(envObject.getState().getPosition()))
+                    playground.removeEnvObject(envObject.getState().getID());
+            }
+        }
+    }
+
     private Subscriber destroyEntityMsgHandler()
     {
         logger.info("Inside destroyEntityMsgHandler");
@@ -249,6 +329,11 @@ public class VisualSpectator
      */
     public void stop()
     {
+        if(interestManager != null)
+        {
+            interestManager.stop();
+        }
+
         try
         {
             finalize();
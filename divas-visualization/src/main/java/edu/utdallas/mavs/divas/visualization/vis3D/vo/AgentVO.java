@@ -28,6 +28,7 @@ import edu.utdallas.mavs.divas.core.sim.common.percept.VisionPerceptor;
 import edu.utdallas.mavs.divas.core.sim.common.state.AgentState;
 import edu.utdallas.mavs.divas.utils.physics.VisionHelper;
 import edu.utdallas.mavs.divas.visualization.vis3D.Visualizer3DApplication;
+import edu.utdallas.mavs.divas.visualization.vis3D.engine.CrowdRenderer;
 import edu.utdallas.mavs.divas.visualization.vis3D.utils.VisToolbox;
 
 /**
@@ -118,6 +119,11 @@ public abstract class AgentVO<S extends AgentState> extends InterpolatedVO
      */
     protected BitmapText          selectionID;
 
+    /**
+     * Flag indicating if this VO is rendered by the crowd renderer, which then interpolates it
+     */
+    private boolean               crowdRendered;
+
     /**
      * Creates a new agent VO
      * 
@@ -190,6 +196,33 @@ public abstract class AgentVO<S extends AgentState> extends InterpolatedVO
 
     }
 
+    @Override
+    protected void updateState(Vector3f translation, Quaternion rotation, Vector3f scale)
+    {
+        if(crowdRendered)
+        {
+            Visualizer3DApplication.getInstance().getCrowdRenderer().update(state.getID(), translation, rotation, scale, isInterpolationEnabled());
+        }
+        else
+        {
+            super.updateState(translation, rotation, scale);
+        }
+    }
+
+    @Override
+    public void interpolate(long now)
+    {
+        if(crowdRendered)
+        {
+            // already interpolated by the crowd renderer
+            updateSelfObjects();
+        }
+        else
+        {
+            super.interpolate(now);
+        }
+    }
+
     /**
      * Updates the agent state associated with this VO
      * 
@@ -239,6 +272,14 @@ public abstract class AgentVO<S extends AgentState> extends InterpolatedVO
         if(Visualizer3DApplication.getInstance().getVisRootNode() != null)
         {
             attachChild(agentModel);
+
+            // Render agent as part of the crowd
+            CrowdRenderer crowdRenderer = Visualizer3DApplication.getInstance().getCrowdRenderer();
+            if(Visualizer3DApplication.getVisConfig().crowdRendering && crowdRenderer != null)
+            {
+                crowdRenderer.add(state.getID(), this, agentModel, control, state.getModelName(), state.getScale());
+                crowdRendered = true;
+            }
             // Show model skeleton
             // showModelSkeleton();
 
@@ -588,6 +629,11 @@ public abstract class AgentVO<S extends AgentState> extends InterpolatedVO
     @Override
     protected void detachSpatial()
     {
+        if(crowdRendered)
+        {
+            Visualizer3DApplication.getInstance().getCrowdRenderer().remove(state.getID());
+            crowdRendered = false;
+        }
         super.detachSpatial();
     }
 }
@@ -108,7 +108,7 @@ public abstract class BaseVO extends Node
             }
         };
 
-        Visualizer3DApplication.getInstance().getApp().enqueueTask(new VisualizerTask(task, cycle));
+        Visualizer3DApplication.getInstance().getApp().enqueueTask(new VisualizerTask(task, cycle, this));
     }
 
     /**
@@ -16,7 +16,7 @@ public abstract class InterpolatedVO extends BaseVO
     /**
      * For how long, since the last received update, should VOs interpolate
      */
-    private static final int INTERPOLATION_TIME   = 1000;
+    public static final int  INTERPOLATION_TIME   = 1000;
 
     /**
      * Global flag indicating if interpolation is enabled